@@ -37,6 +37,9 @@ import edu.purdue.cs.tornado.messages.CombinedTuple;
 import edu.purdue.cs.tornado.messages.Control;
 import edu.purdue.cs.tornado.messages.DataObject;
 import edu.purdue.cs.tornado.messages.DataObjectList;
+import edu.purdue.cs.tornado.messages.IndexCellBlock;
+import edu.purdue.cs.tornado.messages.JoinQuery;
+import edu.purdue.cs.tornado.messages.KNNQuery;
 import edu.purdue.cs.tornado.messages.Query;
 import edu.purdue.cs.tornado.messages.ResultSetChange;
 import edu.purdue.cs.tornado.serializer.CellSerializer;
@@ -45,12 +48,16 @@ import edu.purdue.cs.tornado.serializer.ControlSerializer;
 import edu.purdue.cs.tornado.serializer.DataObjectListSerializer;
 import edu.purdue.cs.tornado.serializer.DataObjectSerializer;
 import edu.purdue.cs.tornado.serializer.GridIndexCellSerializer;
+import edu.purdue.cs.tornado.serializer.IndexCellBlockSerializer;
 import edu.purdue.cs.tornado.serializer.IndexCellCoordinatesSerializer;
 import edu.purdue.cs.tornado.serializer.LoadBalanceMessageSerializer;
 import edu.purdue.cs.tornado.serializer.PartitionSerializer;
 import edu.purdue.cs.tornado.serializer.PointSerializer;
+import edu.purdue.cs.tornado.serializer.JoinQuerySerializer;
+import edu.purdue.cs.tornado.serializer.KNNQuerySerializer;
 import edu.purdue.cs.tornado.serializer.QuerySerializer;
 import edu.purdue.cs.tornado.serializer.RectangleSerializer;
+import edu.purdue.cs.tornado.serializer.SpatioTextualKryoFactory;
 import edu.purdue.cs.tornado.serializer.ResultSetChangeSerializer;
 /**
  * This class is a wrapper around the localcluster to add configuration and functions specific to spatio-textual tornado indexing
@@ -64,7 +71,10 @@ public class SpatioTextualLocalCluster extends LocalCluster{
 	public void submitTopology(String topologyName, Map conf,
 			StormTopology topology) {
 		
+		SpatioTextualKryoFactory.addConf(conf, topology);
 		((Config)conf).registerSerialization(Query.class, QuerySerializer.class);
+		((Config)conf).registerSerialization(KNNQuery.class, KNNQuerySerializer.class);
+		((Config)conf).registerSerialization(JoinQuery.class, JoinQuerySerializer.class);
 		((Config)conf).registerSerialization(DataObject.class, DataObjectSerializer.class);
 		((Config)conf).registerSerialization(DataObjectList.class, DataObjectListSerializer.class);
 		((Config)conf).registerSerialization(LoadBalanceMessage.class, LoadBalanceMessageSerializer.class);
@@ -77,6 +87,7 @@ public class SpatioTextualLocalCluster extends LocalCluster{
 		((Config)conf).registerSerialization(Cell.class, CellSerializer.class);
 		((Config)conf).registerSerialization(GridIndexCell.class, GridIndexCellSerializer.class);
 		((Config)conf).registerSerialization(IndexCellCoordinates.class, IndexCellCoordinatesSerializer.class);
+		((Config)conf).registerSerialization(IndexCellBlock.class, IndexCellBlockSerializer.class);
 		super.submitTopology(topologyName, conf, topology);
 		
 	}
@@ -84,7 +95,10 @@ public class SpatioTextualLocalCluster extends LocalCluster{
 	@Override
 	public void submitTopologyWithOpts(String topologyName, Map conf,
 			StormTopology topology, SubmitOptions submitOpts) {
+		SpatioTextualKryoFactory.addConf(conf, topology);
 		((Config)conf).registerSerialization(Query.class, QuerySerializer.class);
+		((Config)conf).registerSerialization(KNNQuery.class, KNNQuerySerializer.class);
+		((Config)conf).registerSerialization(JoinQuery.class, JoinQuerySerializer.class);
 		((Config)conf).registerSerialization(DataObject.class, DataObjectSerializer.class);
 		((Config)conf).registerSerialization(DataObjectList.class, DataObjectListSerializer.class);
 		((Config)conf).registerSerialization(LoadBalanceMessage.class, LoadBalanceMessageSerializer.class);
@@ -97,6 +111,7 @@ public class SpatioTextualLocalCluster extends LocalCluster{
 		((Config)conf).registerSerialization(Cell.class, CellSerializer.class);
 		((Config)conf).registerSerialization(GridIndexCell.class, GridIndexCellSerializer.class);
 		((Config)conf).registerSerialization(IndexCellCoordinates.class, IndexCellCoordinatesSerializer.class);
+		((Config)conf).registerSerialization(IndexCellBlock.class, IndexCellBlockSerializer.class);
 		super.submitTopologyWithOpts(topologyName, conf, topology,submitOpts);
 		
 	}
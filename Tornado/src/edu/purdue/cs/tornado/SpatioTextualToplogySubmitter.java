@@ -40,6 +40,9 @@ import edu.purdue.cs.tornado.messages.CombinedTuple;
 import edu.purdue.cs.tornado.messages.Control;
 import edu.purdue.cs.tornado.messages.DataObject;
 import edu.purdue.cs.tornado.messages.DataObjectList;
+import edu.purdue.cs.tornado.messages.IndexCellBlock;
+import edu.purdue.cs.tornado.messages.JoinQuery;
+import edu.purdue.cs.tornado.messages.KNNQuery;
 import edu.purdue.cs.tornado.messages.Query;
 import edu.purdue.cs.tornado.messages.ResultSetChange;
 import edu.purdue.cs.tornado.serializer.CellSerializer;
@@ -48,37 +51,44 @@ import edu.purdue.cs.tornado.serializer.ControlSerializer;
 import edu.purdue.cs.tornado.serializer.DataObjectListSerializer;
 import edu.purdue.cs.tornado.serializer.DataObjectSerializer;
 import edu.purdue.cs.tornado.serializer.GridIndexCellSerializer;
+import edu.purdue.cs.tornado.serializer.IndexCellBlockSerializer;
 import edu.purdue.cs.tornado.serializer.IndexCellCoordinatesSerializer;
 import edu.purdue.cs.tornado.serializer.LoadBalanceMessageSerializer;
 import edu.purdue.cs.tornado.serializer.PartitionSerializer;
 import edu.purdue.cs.tornado.serializer.PointSerializer;
+import edu.purdue.cs.tornado.serializer.JoinQuerySerializer;
+import edu.purdue.cs.tornado.serializer.KNNQuerySerializer;
 import edu.purdue.cs.tornado.serializer.QuerySerializer;
 import edu.purdue.cs.tornado.serializer.RectangleSerializer;
+import edu.purdue.cs.tornado.serializer.SpatioTextualKryoFactory;
 import edu.purdue.cs.tornado.serializer.ResultSetChangeSerializer;
 
 public class SpatioTextualToplogySubmitter extends StormSubmitter{
 	
 	public static void submitTopology(String name, Map stormConf, StormTopology topology) throws AlreadyAliveException, InvalidTopologyException, AuthorizationException {
-		addSpatioTextualConf(stormConf);
+		addSpatioTextualConf(stormConf, topology);
 		StormSubmitter.submitTopology(name,stormConf,topology);
 	}
 	public static void submitTopology(String name, Map stormConf, StormTopology topology, SubmitOptions opts) throws AlreadyAliveException, InvalidTopologyException, AuthorizationException {
-		addSpatioTextualConf(stormConf);
+		addSpatioTextualConf(stormConf, topology);
 		StormSubmitter.submitTopology(name,stormConf,topology,opts);
 	}
 	public static void submitTopologyWithProgressBar(String name, Map stormConf, StormTopology topology)
             throws AlreadyAliveException, InvalidTopologyException, AuthorizationException {
-		addSpatioTextualConf(stormConf);
+		addSpatioTextualConf(stormConf, topology);
 		StormSubmitter.submitTopologyWithProgressBar(name, stormConf, topology);
 	}
 	public static void submitTopologyWithProgressBar(String name, Map stormConf, StormTopology topology, SubmitOptions opts)
             throws AlreadyAliveException, InvalidTopologyException, AuthorizationException {
-		addSpatioTextualConf(stormConf);
+		addSpatioTextualConf(stormConf, topology);
 		StormSubmitter.submitTopologyWithProgressBar(name, stormConf, topology, opts);
 	}
 	//TODO add all other methods to submit the spatio-textual topology to the remote cluster
-	private static void addSpatioTextualConf(Map conf){
+	private static void addSpatioTextualConf(Map conf, StormTopology topology){
+		SpatioTextualKryoFactory.addConf(conf, topology);
 		((Config)conf).registerSerialization(Query.class, QuerySerializer.class);
+		((Config)conf).registerSerialization(KNNQuery.class, KNNQuerySerializer.class);
+		((Config)conf).registerSerialization(JoinQuery.class, JoinQuerySerializer.class);
 		((Config)conf).registerSerialization(DataObject.class, DataObjectSerializer.class);
 		((Config)conf).registerSerialization(DataObjectList.class, DataObjectListSerializer.class);
 		((Config)conf).registerSerialization(LoadBalanceMessage.class, LoadBalanceMessageSerializer.class);
@@ -91,6 +101,7 @@ public class SpatioTextualToplogySubmitter extends StormSubmitter{
 		((Config)conf).registerSerialization(Cell.class, CellSerializer.class);
 		((Config)conf).registerSerialization(GridIndexCell.class, GridIndexCellSerializer.class);
 		((Config)conf).registerSerialization(IndexCellCoordinates.class, IndexCellCoordinatesSerializer.class);
+		((Config)conf).registerSerialization(IndexCellBlock.class, IndexCellBlockSerializer.class);
 		
 	}
 }
@@ -41,6 +41,7 @@ import edu.purdue.cs.tornado.helper.QueryType;
 import edu.purdue.cs.tornado.helper.SpatialHelper;
 import edu.purdue.cs.tornado.helper.SpatioTextualConstants;
 import edu.purdue.cs.tornado.messages.CombinedTuple;
+import edu.purdue.cs.tornado.messages.DataObject;
 
 public class KafakaProducerBolt extends BaseRichBolt {
 	private Map stormConf; // configuration
@@ -75,6 +76,16 @@ public class KafakaProducerBolt extends BaseRichBolt {
 		try {
 			CombinedTuple outputTuple = (CombinedTuple) input.getValueByField(SpatioTextualConstants.output);
 			//		System.out.println(outputTuple.toString());
+			if (outputTuple.getDataObjectList() != null) {
+				//a batch of matches of one query, one record per match in match order
+				for (int i = 0; i < outputTuple.getDataObjectList().size(); i++) {
+					String json = convertOutputToJsonForSingleQuery(outputTuple.getQuery().getQueryId(), outputTuple.getDataObjectList().get(i), outputTuple.getDataObjectCommand(i));
+					ProducerRecord producerRecord = new ProducerRecord(topic, (outputTuple.getQuery().getQueryId() + "").getBytes(), json.getBytes());
+					producer.send(producerRecord);
+					fw.write(json + "\n");
+				}
+				return;
+			}
 			LatLong latLong = SpatialHelper.convertFromXYToLatLonTo(outputTuple.getDataObject().getLocation());
 			Double lat = latLong.getLatitude();
 			Double lon = latLong.getLongitude();
@@ -100,7 +111,7 @@ public class KafakaProducerBolt extends BaseRichBolt {
 			}
 			else{
 
-				String json2 = convertOutputToJsonForSingleQuery(outputTuple);
+				String json2 = convertOutputToJsonForSingleQuery(outputTuple.getQuery().getQueryId(), outputTuple.getDataObject(), outputTuple.getDataObjectCommand());
 				ProducerRecord producerRecord = new ProducerRecord  (topic, (outputTuple.getQuery().getQueryId()+"").getBytes(), json2.getBytes());
 				producer.send(producerRecord);
 				fw.write(json2.toString()+"\n");
@@ -123,26 +134,26 @@ public class KafakaProducerBolt extends BaseRichBolt {
 		json = JsonHelper.convertMapToJsonString(outputMap);
 		return json;
 	}
-	private String convertOutputToJsonForSingleQuery(CombinedTuple outputTuple) {
+	private String convertOutputToJsonForSingleQuery(Integer queryId, DataObject dataObject, Command command) {
 		String json = "";
 		Map outputMap = new HashMap<Object, Object>();
 		
-		outputMap.put("name", outputTuple.getQuery().getQueryId());
+		outputMap.put("name", queryId);
 		String tag = "+";
-		if(outputTuple.getDataObjectCommand()!=null){
-			if(Command.addCommand.equals(outputTuple.getDataObjectCommand()))
+		if(command!=null){
+			if(Command.addCommand.equals(command))
 				tag="+";
-			else if(Command.updateCommand.equals(outputTuple.getDataObjectCommand()))
+			else if(Command.updateCommand.equals(command))
 				tag="u";
-			else if(Command.dropCommand.equals(outputTuple.getDataObjectCommand()))
+			else if(Command.dropCommand.equals(command))
 				tag="-";
 		}
 		outputMap.put("tag", tag);
-		outputMap.put("oid", outputTuple.getDataObject().getObjectId());
+		outputMap.put("oid", dataObject.getObjectId());
 		Map location1Map = new HashMap<Object, Object>();
-		location1Map.put("lat", SpatialHelper.convertFromXYToLatLonTo(outputTuple.getDataObject().getLocation()).getLatitude());
-		location1Map.put("lng",  SpatialHelper.convertFromXYToLatLonTo(outputTuple.getDataObject().getLocation()).getLongitude());
-		outputMap.put("text", outputTuple.getDataObject().getOriginalText());
+		location1Map.put("lat", SpatialHelper.convertFromXYToLatLonTo(dataObject.getLocation()).getLatitude());
+		location1Map.put("lng",  SpatialHelper.convertFromXYToLatLonTo(dataObject.getLocation()).getLongitude());
+		outputMap.put("text", dataObject.getOriginalText());
 		outputMap.put("point", location1Map);
 		json = JsonHelper.convertMapToJsonString(outputMap);
 		return json;
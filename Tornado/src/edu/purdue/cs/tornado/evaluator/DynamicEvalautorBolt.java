@@ -32,7 +32,6 @@ import edu.purdue.cs.tornado.index.global.DynamicGlobalOptimizedIndex;
 import edu.purdue.cs.tornado.index.global.GlobalIndexType;
 import edu.purdue.cs.tornado.index.local.LocalHybridIndex;
 import edu.purdue.cs.tornado.index.local.LocalIndexType;
-import edu.purdue.cs.tornado.index.local.hybridgrid.LocalHybridGridIndex;
 //import edu.purdue.cs.tornado.index.local.hybridgrid.LocalHybridGridIndex;
 import edu.purdue.cs.tornado.loadbalance.Cell;
 import edu.purdue.cs.tornado.loadbalance.LoadBalanceMessage;
@@ -41,6 +40,7 @@ import edu.purdue.cs.tornado.loadbalance.Partition;
 import edu.purdue.cs.tornado.loadbalance.TornadoZooKeeperConnection;
 import edu.purdue.cs.tornado.messages.Control;
 import edu.purdue.cs.tornado.messages.DataObject;
+import edu.purdue.cs.tornado.messages.IndexCellBlock;
 import edu.purdue.cs.tornado.messages.Query;
 
 public class DynamicEvalautorBolt extends SpatioTextualEvaluatorBolt {
@@ -75,6 +75,7 @@ public class DynamicEvalautorBolt extends SpatioTextualEvaluatorBolt {
 	Integer[] yRowCostReported;
 	Cell toClearCells;
 	Integer receipinetTaskId;
+	int migrationBlockBytes; //estimated bytes of an index cell block sent by load balancing
 
 
 
@@ -113,6 +114,8 @@ public class DynamicEvalautorBolt extends SpatioTextualEvaluatorBolt {
 			this.yRowCostReported[i] = 0;
 		}
 		this.lastPlanNumber =-1;
+		Object blockBytes = stormConf.get(SpatioTextualConstants.MIGRATION_BLOCK_BYTES);
+		this.migrationBlockBytes = blockBytes == null ? SpatioTextualConstants.DEFAULT_MIGRATION_BLOCK_BYTES : ((Number) blockBytes).intValue();
 		//		incommingCells = new boolean[fineGridGran][fineGridGran];
 		//		for (int i = 0; i < fineGridGran; i++) {
 		//			for (int j = 0; j < fineGridGran; j++) {
@@ -156,6 +159,7 @@ public class DynamicEvalautorBolt extends SpatioTextualEvaluatorBolt {
 	@Override
 	public void handleTickTuple(Tuple tuple) {
 		//super.handleTickTuple(tuple);
+		cleanExpiredQueries();
 		
 		numberOfTickTuples++;
 		if (numberOfTickTuples == 4) {
@@ -284,7 +288,7 @@ public class DynamicEvalautorBolt extends SpatioTextualEvaluatorBolt {
 		//			fromNeighbour = false;
 		//		}
 		//		if (!fromNeighbour) {
-		LocalHybridIndex localHybridGridIndex = sourcesInformations.get(dataObject.getSrcId()).getLocalHybridIndex();
+		LocalHybridIndex localHybridGridIndex = getSourceInformation(dataObject).getLocalHybridIndex();
 		IndexCellCoordinates cellCoordinates = localHybridGridIndex.mapDataPointToPartition(dataObject.getLocation());
 		IndexCell indexCell = localHybridGridIndex.getIndexCellFromCoordinates(cellCoordinates);
 		
@@ -327,7 +331,7 @@ public class DynamicEvalautorBolt extends SpatioTextualEvaluatorBolt {
 			if (srcQueryList.size() > 0) {
 				queryScrId = srcQueryList.get(0).getSrcId();
 				for (Query q : srcQueryList) {
-					if (TextualPredicate.OVERlAPS.equals(q.getTextualPredicate()) || TextHelpers.evaluateTextualPredicate(dataObject.getObjectText(), q.getQueryText(), q.getTextualPredicate())) {
+					if (TextualPredicate.OVERlAPS.equals(q.getTextualPredicate()) || TextHelpers.evaluateTextualPredicate(dataObject.getObjectTextIds(), q.getQueryTextIds(), q.getTextualPredicate())) {
 						qualifiedQueriesIds.add(q.getQueryId());
 					}
 				}
@@ -452,6 +456,8 @@ public class DynamicEvalautorBolt extends SpatioTextualEvaluatorBolt {
 					handleIncommingIndexCellsFromMergeSplit(controlMessage.srcId, controlMessage.indexCell);
 				if (controlMessage.indexCells != null)
 					handleIncommingIndexCellsFromMergeSplit(controlMessage.srcId, controlMessage.indexCells);
+				if (controlMessage.indexCellBlock != null)
+					handleIncommingIndexCellsFromMergeSplit(controlMessage.srcId, controlMessage.indexCellBlock.getIndexCells());
 				//	System.out.println("............................... " + myId + " : recived MergeData ");
 			} else if (LoadBalanceMessage.SPLIT_DATA.equals(balanceMessage.getLoadBalanceMessageType())) {
 				isReceivedSplit = true;
@@ -460,6 +466,8 @@ public class DynamicEvalautorBolt extends SpatioTextualEvaluatorBolt {
 					handleIncommingIndexCellsFromMergeSplit(controlMessage.srcId, controlMessage.indexCell);
 				if (controlMessage.indexCells != null)
 					handleIncommingIndexCellsFromMergeSplit(controlMessage.srcId, controlMessage.indexCells);
+				if (controlMessage.indexCellBlock != null)
+					handleIncommingIndexCellsFromMergeSplit(controlMessage.srcId, controlMessage.indexCellBlock.getIndexCells());
 				//	System.out.println("............................... " + myId + " : recived SplitData ");
 			} else if (LoadBalanceMessage.GOIING_TO_BARRIER.equals(balanceMessage.getLoadBalanceMessageType())) {
 				//Send to all executorBolts and wait their responses
@@ -597,8 +605,7 @@ public class DynamicEvalautorBolt extends SpatioTextualEvaluatorBolt {
 		while (itr.hasNext()) {
 			DataSourceInformation sourceInfo = itr.next().getValue();
 			if (DataSourceType.DATA_SOURCE.equals(sourceInfo.dataSourceType)) {
-				((LocalHybridGridIndex) sourceInfo.localHybridIndex).myPartition = myPartition;
-				((LocalHybridGridIndex) sourceInfo.localHybridIndex).selfBounds = this.selfBounds;
+				sourceInfo.localHybridIndex.setPartition(myPartition, this.selfBounds);
 				sourceInfo.selfBounds = this.selfBounds;
 
 			}
@@ -606,7 +613,7 @@ public class DynamicEvalautorBolt extends SpatioTextualEvaluatorBolt {
 	}
 
 	void handleIncommingIndexCellsFromMergeSplit(String srcId, ArrayList<IndexCell> indexCells) {
-		LocalHybridGridIndex localIdnex = ((LocalHybridGridIndex) sourcesInformations.get(srcId).getLocalHybridIndex());
+		LocalHybridIndex localIdnex = getSourceInformation(srcId).getLocalHybridIndex();
 		for (IndexCell indexCell : indexCells) {
 			this.totalCost += indexCell.getIndexCellCost();
 			this.xColumnCost[indexCell.getGlobalCoordinates().getX()] += indexCell.getIndexCellCost();
@@ -621,7 +628,7 @@ public class DynamicEvalautorBolt extends SpatioTextualEvaluatorBolt {
 		this.xColumnCost[indexCell.getGlobalCoordinates().getX()] += indexCell.getIndexCellCost();
 		this.yRowCost[indexCell.getGlobalCoordinates().getY()] += indexCell.getIndexCellCost();
 		
-		((LocalHybridGridIndex) sourcesInformations.get(srcId).getLocalHybridIndex()).addIndexCellsFromPartition(indexCell,globalIndex.isTextAware());
+		getSourceInformation(srcId).getLocalHybridIndex().addIndexCellsFromPartition(indexCell,globalIndex.isTextAware());
 		indexCell.setTransmitted ( false);
 		//System.out.println("Recieved index cell " + indexCell.globalCoordinates.getX() + "," + indexCell.globalCoordinates.getY() );
 		//	incommingCells[indexCell.globalCoordinates.getX()][indexCell.globalCoordinates.getY()]=true;
@@ -706,12 +713,10 @@ public class DynamicEvalautorBolt extends SpatioTextualEvaluatorBolt {
 			if (DataSourceType.DATA_SOURCE.equals(sourceInfo.dataSourceType)) {
 				String sourceId = sourceInfo.dataSourceId;
 				
-				ArrayList<IndexCell> indexCells = ((LocalHybridGridIndex) sourceInfo.localHybridIndex).getIndexCellsFromPartition(partitionToSend);
+				ArrayList<IndexCell> indexCells = sourceInfo.localHybridIndex.getIndexCellsFromPartition(partitionToSend);
+				//the cells are sent in blocks of a bounded estimated size, queries shared by the cells of a block are sent once
+				IndexCellBlock indexCellBlock = new IndexCellBlock();
 				for (IndexCell indexCell : indexCells) {
-					Control newControl = new Control();
-					newControl.setControlMessageType(Control.LOAD_BALANCE);
-					newControl.indexCell = indexCell;
-					newControl.srcId = sourceId;
 					indexCell.setTransmitted ( true);
 					//this.totalCostOther += indexCell.indexCellCost;
 					this.totalCost -= indexCell.getIndexCellCost();
@@ -723,24 +728,36 @@ public class DynamicEvalautorBolt extends SpatioTextualEvaluatorBolt {
 //					this.yRowCostOther[indexCell.globalCoordinates.getY()] += indexCell.indexCellCost;
 					this.xColumnCost[indexCell.getGlobalCoordinates().getX()] -= indexCell.getIndexCellCost();
 					this.yRowCost[indexCell.getGlobalCoordinates().getY()] -= indexCell.getIndexCellCost();
-					LoadBalanceMessage newLoadBalanceMessage = new LoadBalanceMessage();
-					newLoadBalanceMessage.setLoadBalanceMessageType(LoadBalanceMessageType);
-					newControl.setLeadBalanceMessage(newLoadBalanceMessage);
-					collector.emitDirect(receipinetTaskId, SpatioTextualConstants.getBoltBoltControlStreamId(id), new Values(newControl));
-
+					if (indexCellBlock.addIndexCell(indexCell) >= migrationBlockBytes) {
+						sendIndexCellBlock(receipinetTaskId, sourceId, indexCellBlock, LoadBalanceMessageType);
+						indexCellBlock = new IndexCellBlock();
+					}
 				}
+				if (indexCellBlock.getCellCount() > 0)
+					sendIndexCellBlock(receipinetTaskId, sourceId, indexCellBlock, LoadBalanceMessageType);
 				//System.out.println("]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]] " + myId + " : Done sending data to another evalautor " + LoadBalanceMessageType + " data and qureies from ");
 			}
 		}
 
 	}
 
+	void sendIndexCellBlock(int receipinetTaskId, String sourceId, IndexCellBlock indexCellBlock, String LoadBalanceMessageType) {
+		Control newControl = new Control();
+		newControl.setControlMessageType(Control.LOAD_BALANCE);
+		newControl.indexCellBlock = indexCellBlock;
+		newControl.srcId = sourceId;
+		LoadBalanceMessage newLoadBalanceMessage = new LoadBalanceMessage();
+		newLoadBalanceMessage.setLoadBalanceMessageType(LoadBalanceMessageType);
+		newControl.setLeadBalanceMessage(newLoadBalanceMessage);
+		collector.emitDirect(receipinetTaskId, SpatioTextualConstants.getBoltBoltControlStreamId(id), new Values(newControl));
+	}
+
 	void clearAllIndexCellInPartition(Cell partition) {
 		Iterator<Entry<String, DataSourceInformation>> itr = sourcesInformations.entrySet().iterator();
 		while (itr.hasNext()) {
 			DataSourceInformation sourceInfo = itr.next().getValue();
 			if (DataSourceType.DATA_SOURCE.equals(sourceInfo.dataSourceType)) {
-				((LocalHybridGridIndex) sourceInfo.localHybridIndex).removeIndexCellsFromPartition(partition,globalIndex.isTextAware());
+				sourceInfo.localHybridIndex.removeIndexCellsFromPartition(partition,globalIndex.isTextAware());
 			}
 		}
 
@@ -778,41 +795,43 @@ public class DynamicEvalautorBolt extends SpatioTextualEvaluatorBolt {
 	public void handleContinousQuery(Query query) {
 
 		if (query.getCommand().equals(Command.addCommand)) {
-			if (!sourcesInformations.containsKey(query.getDataSrc())) {
+			DataSourceInformation dataSourceInformation = getSourceInformation(query.getDataSrc());
+			if (dataSourceInformation == null) {
 				System.err.println("Data Source not found: " + query.getDataSrc());
 				return;
 
 			}
-			queryInformationHashMap.get(query.getSrcId()).put(query.getQueryId(), query);
+			getQueryInformation(query.getSrcId()).put(query.getQueryId(), query);
 //			if (!sourcesInformations.get(query.getDataSrc()).isVolatile() || (query.getDataSrc2() != null && !sourcesInformations.get(query.getDataSrc2()).isVolatile())) {
 //				//this means that this query works on existing data and hence needs to first perorm a snapshop query 
 //				//then register itself as a continous query and hence update its result
 //				handleSnapShotQuery(query);
 //			}
 			//TODO CHeck if some more results are needed from neighbour evaluators
-			Boolean completed = sourcesInformations.get(query.getDataSrc()).getLocalHybridIndex().addContinousQuery(query);
+			Boolean completed = dataSourceInformation.getLocalHybridIndex().addContinousQuery(query);
 //			if (query.getDataSrc2() != null)
 //				sourcesInformations.get(query.getDataSrc2()).getLocalHybridIndex().addContinousQuery(query);
 			if (!completed)
 				forwardQueryTorecpientTask(query);
 		} else if (query.getCommand().equals(Command.updateCommand)) {
-			if (!sourcesInformations.containsKey(query.getDataSrc())) {
+			DataSourceInformation dataSourceInformation = getSourceInformation(query.getDataSrc());
+			if (dataSourceInformation == null) {
 				System.err.println("Data Source not found: " + query.getDataSrc());
 				return;
 
 			}
 			//delete then update
-			Query queryInfo = queryInformationHashMap.get(query.getSrcId()).get(query.getQueryId());
-			sourcesInformations.get(query.getDataSrc()).getLocalHybridIndex().updateContinousQuery(queryInfo, query);
+			Query queryInfo = getQueryInformation(query.getSrcId()).get(query.getQueryId());
+			dataSourceInformation.getLocalHybridIndex().updateContinousQuery(queryInfo, query);
 //			if (query.getDataSrc2() != null)
 //				sourcesInformations.get(query.getDataSrc2()).getLocalHybridIndex().updateContinousQuery(queryInfo, query);
 		} else if (query.getCommand().equals(Command.dropCommand)) {
 			//only getting information from oldStored Query as the new query may not have all information and it may contain source and query ids
-			Query oldQuery = queryInformationHashMap.get(query.getSrcId()).get(query.getQueryId());
-			sourcesInformations.get(oldQuery.getDataSrc()).getLocalHybridIndex().dropContinousQuery(oldQuery);
+			Query oldQuery = getQueryInformation(query.getSrcId()).get(query.getQueryId());
+			getSourceInformation(oldQuery.getDataSrc()).getLocalHybridIndex().dropContinousQuery(oldQuery);
 //			if (oldQuery.getDataSrc2() != null)
 //				sourcesInformations.get(oldQuery.getDataSrc2()).getLocalHybridIndex().dropContinousQuery(oldQuery);
-			queryInformationHashMap.get(oldQuery.getSrcId()).remove(oldQuery.getQueryId());
+			getQueryInformation(oldQuery.getSrcId()).remove(oldQuery.getQueryId());
 		}
 
 	}
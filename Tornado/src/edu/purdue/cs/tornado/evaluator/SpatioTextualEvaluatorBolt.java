@@ -24,12 +24,15 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import org.apache.storm.Config;
 import org.apache.storm.Constants;
 import org.apache.storm.metric.api.AssignableMetric;
+import org.apache.storm.metric.api.IMetric;
 import org.apache.storm.task.OutputCollector;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.topology.OutputFieldsDeclarer;
@@ -46,6 +49,7 @@ import edu.purdue.cs.tornado.helper.PartitionsHelper;
 import edu.purdue.cs.tornado.helper.Point;
 import edu.purdue.cs.tornado.helper.QueryType;
 import edu.purdue.cs.tornado.helper.Rectangle;
+import edu.purdue.cs.tornado.helper.SourceIdRegistry;
 import edu.purdue.cs.tornado.helper.SpatialHelper;
 import edu.purdue.cs.tornado.helper.SpatioTextualConstants;
 import edu.purdue.cs.tornado.helper.TextHelpers;
@@ -60,6 +64,9 @@ import edu.purdue.cs.tornado.index.global.GlobalOptimizedPartitionedTextAwareInd
 import edu.purdue.cs.tornado.index.global.RandomTextRouting;
 import edu.purdue.cs.tornado.index.local.LocalIndexKNNIterator;
 import edu.purdue.cs.tornado.index.local.LocalIndexType;
+import edu.purdue.cs.tornado.index.local.fast.FAST;
+import edu.purdue.cs.tornado.index.local.fast.FASTTuner;
+import edu.purdue.cs.tornado.index.local.hybridgrid.LocalHybridGridIndex;
 import edu.purdue.cs.tornado.loadbalance.Cell;
 import edu.purdue.cs.tornado.messages.CombinedTuple;
 import edu.purdue.cs.tornado.messages.Control;
@@ -113,6 +120,10 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 	public List<Integer> evaluatorBoltTasks; //this keeps track of the evaluator bolts ids 
 	public List<Integer> indexBoltTasks; //this keeps track of the evaluator bolts ids 
 	public HashMap<String, DataSourceInformation> sourcesInformations; //this keeps track of the type of every input source 
+	//the per source state indexed by the SourceIdRegistry handle of the source, used on the per tuple path 
+	public DataSourceInformation[] sourcesInformationsByHandle;
+	public HashMap<Integer, Query>[] queryInformationByHandle;
+	public HashMap<Integer, Query>[] externalTopKByHandle;
 
 	//******************Global Grid  parameters ********************************
 	public IndexCellCoordinates globalIndexSelfcoordinates;
@@ -123,6 +134,14 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 	public TopologyContext context; //storm context
 	public OutputCollector collector;
 	public LocalIndexType localIndexType;
+
+	// *******************Output batching attributes *********************
+	public int outputBatchSize; // matches per query sent in one output tuple, 1 sends every match on its own
+	public long outputBatchMaxLatency; // milli seconds a match can wait in a batch
+	public LinkedHashMap<Query, CombinedTuple> outputBatches; // query -> pending matches of the query
+	public int pendingOutputMatches;
+	public long oldestPendingOutputTime;
+
 	public GlobalIndexType globalIndexType;
 	public ArrayList<Cell> partitions;
 	public Cell myPartition = null;
@@ -143,17 +162,14 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 	}
 
 	public IndexCell addAndIndexADataObject(DataObject dataObject) {
-		String sourceId = dataObject.getSrcId();
-		IndexCell indexCell = sourcesInformations.get(sourceId).getLocalHybridIndex().addDataObject(dataObject);
+		IndexCell indexCell = getSourceInformation(dataObject).getLocalHybridIndex().addDataObject(dataObject);
 		//	sourcesInformations.get(sourceId).getLocalTextIndex().addDataObject(dataObject);
 		return indexCell;
 
 	}
 
 	public void addAndIndexPersistentWindowDataObject(DataObject dataObject) {
-		String sourceId = dataObject.getSrcId();
-
-		sourcesInformations.get(sourceId).addDataObject(dataObject);
+		getSourceInformation(dataObject).addDataObject(dataObject);
 
 	}
 
@@ -219,11 +235,12 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 	 */
 	DataObject dropCurrnetDataObject(DataObject dataObject) {
 		ArrayList<ResultSetChange> changes = null;
-		if (sourcesInformations.get(dataObject.getSrcId()).getObjectToLocalCellIndex().containsKey(dataObject.getObjectId())) {
-			IndexCell indexCell = sourcesInformations.get(dataObject.getSrcId()).getObjectToLocalCellIndex().get(dataObject.getObjectId());
+		DataSourceInformation sourceInformation = getSourceInformation(dataObject);
+		if (sourceInformation.getObjectToLocalCellIndex().containsKey(dataObject.getObjectId())) {
+			IndexCell indexCell = sourceInformation.getObjectToLocalCellIndex().get(dataObject.getObjectId());
 			DataObject removedDataObject = indexCell.dropDataObject(dataObject.getObjectId());
-			sourcesInformations.get(dataObject.getSrcId()).getObjectToLocalCellIndex().remove(dataObject.getObjectId());
-			sourcesInformations.get(dataObject.getSrcId()).getLocalTextIndex().dropDataObject(dataObject);
+			sourceInformation.getObjectToLocalCellIndex().remove(dataObject.getObjectId());
+			sourceInformation.getLocalTextIndex().dropDataObject(dataObject);
 			return removedDataObject;
 		} else
 			return null;//object not found and hence cannot be removed //TODO maybe throw an exception
@@ -239,22 +256,36 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 				boolean ack = handleDataObject(input);
 				//	if(ack)collector.ack(input);
 			} else if (sourceType.contains(SpatioTextualConstants.Index_Bolt_STreamIDExtension_Query)) {
+				//a query update or drop replaces the query object that keys its output batch
+				flushOutputBatches();
 				handleQuery(input);
 				//	collector.ack(input);
 			} else if (SpatioTextualConstants.isControlStreamSource(sourceType)) {
+				flushOutputBatches();
 				handleControlMessage(input);
 				//	collector.ack(input);
 			} else if (isTickTuple(input)) {
+				flushOutputBatches();
 				handleTickTuple(input);
 				//collector.ack(input);
 			}
+			if (pendingOutputMatches > 0 && System.currentTimeMillis() - oldestPendingOutputTime >= outputBatchMaxLatency)
+				flushOutputBatches();
 
 		} catch (Exception e) {
 			e.printStackTrace(System.err);
 		}
 	}
 
+	@Override
+	public Map<String, Object> getComponentConfiguration() {
+		Config conf = new Config();
+		conf.put(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS, 1);//flushes the output batches of idle evaluators
+		return conf;
+	}
+
 	public void handleTickTuple(Tuple tuple) {
+		cleanExpiredQueries();
 
 		//		Iterator<Entry<String, DataSourceInformation>> itr = sourcesInformations.entrySet().iterator();
 		//		while (itr.hasNext()) {
@@ -282,6 +313,19 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 
 	}
 
+	/**
+	 * Removes the range queries that expired since the previous tick from the
+	 * grid indexes of the data sources, a FAST index drops its expired queries
+	 * and cleans the entries of its next cell
+	 */
+	void cleanExpiredQueries() {
+		for (DataSourceInformation sourceInfo : sourcesInformations.values())
+			if (sourceInfo.getLocalHybridIndex() instanceof LocalHybridGridIndex)
+				sourceInfo.getLocalHybridIndex().cleanUp();
+			else if (sourceInfo.getLocalHybridIndex() instanceof FAST)
+				((FAST) sourceInfo.getLocalHybridIndex()).cleanNextSetOfEntries();
+	}
+
 	public static boolean isTickTuple(Tuple tuple) {
 		return tuple.getSourceComponent().equals(Constants.SYSTEM_COMPONENT_ID) && tuple.getSourceStreamId().equals(Constants.SYSTEM_TICK_STREAM_ID);
 	}
@@ -303,7 +347,7 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 					List <DataObject> indexedDataObjectsMap = indexCell.getStoredObjects();
 					Iterator dataObjectIterator = indexedDataObjectsMap.iterator();
 					for (DataObject dataObject:indexedDataObjectsMap) {
-						if (TextHelpers.evaluateTextualPredicate(dataObject.getObjectText(), query.getQueryText(), query.getTextualPredicate())) {
+						if (TextHelpers.evaluateTextualPredicate(dataObject.getObjectTextIds(), query.getQueryTextIds(), query.getTextualPredicate())) {
 							changes.addAll(query.processDataObject(dataObject));
 						}
 					}
@@ -362,6 +406,8 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 
 	void generateOutput(ArrayList<Integer> queriesIdList, String srcId, DataObject obj, Command command) {
 		//System.out.println("[Output: command: "+command+" query:" + srcId + "\n******" + obj.toString() + "]");
+		if (pendingOutputMatches > 0)
+			flushOutputBatches(queriesIdList, srcId);
 		this.outputTuplesCount += queriesIdList.size();
 		CombinedTuple outputTuple = new CombinedTuple();
 		outputTuple.setDataObject(obj);
@@ -376,6 +422,8 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 
 	void generateOutput(Query q, ArrayList<DataObject> objList, Command command) {
 		//System.out.println("[Output: command: "+command+" query:" + q.toString() + "\n**number of objects" + objList.size() + "]");
+		if (pendingOutputMatches > 0)
+			flushOutputBatch(q);
 		this.outputTuplesCount += objList.size();
 		CombinedTuple outputTuple = new CombinedTuple();
 		outputTuple.dataObjectList = objList;
@@ -390,6 +438,8 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 
 	void generateOutput(Query q, DataObject obj, ArrayList<DataObject> obj2List, Command obj1Command, Command obj2Command) {
 		//	System.out.println("[Output: command  "+obj1Command+" query:"  + q.toString() + "\n******" + obj.toString() + "\n******" + obj2.toString() + "]");
+		if (pendingOutputMatches > 0)
+			flushOutputBatch(q);
 		this.outputTuplesCount++;
 		CombinedTuple outputTuple = new CombinedTuple();
 		outputTuple.setDataObject(obj);
@@ -406,6 +456,10 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 	}
 
 	void generateOutput(Query q, DataObject obj, Command command) {
+		if (outputBatchSize > 1) {
+			addToOutputBatch(q, obj, command);
+			return;
+		}
 				System.out.println("[Output: command: "+command+" query:" + q.toString() + "\n******" + obj.toString() + "]");
 		this.outputTuplesCount++;
 		CombinedTuple outputTuple = new CombinedTuple();
@@ -420,6 +474,8 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 	}
 
 	void generateOutput(Query q, DataObject obj, DataObject obj2, Command obj1Command, Command obj2Command) {
+		if (pendingOutputMatches > 0)
+			flushOutputBatch(q);
 					System.out.println("[Output: command  "+obj1Command+" query:"  + q.toString() + "\n******" + obj.toString() + "\n******" + obj2.toString() + "]");
 		this.outputTuplesCount++;
 		CombinedTuple outputTuple = new CombinedTuple();
@@ -436,6 +492,70 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 		collector.emit(SpatioTextualConstants.Bolt_Output_STreamIDExtension, new Values(outputTuple));
 	}
 
+	/**
+	 * Adds a match to the output batch of its query, a full batch is emitted as
+	 * one tuple with the objects and their commands in match order
+	 */
+	void addToOutputBatch(Query q, DataObject obj, Command command) {
+		this.outputTuplesCount++;
+		CombinedTuple outputBatch = outputBatches.get(q);
+		if (outputBatch == null) {
+			outputBatch = new CombinedTuple();
+			Query miniQuery = new Query();
+			miniQuery.setQueryId(q.getQueryId());
+			miniQuery.setSrcId(q.getSrcId());
+			miniQuery.setDataSrc(q.getDataSrc());
+			outputBatch.setQuery(miniQuery);
+			outputBatch.setDataObjectList(new ArrayList<DataObject>());
+			outputBatch.setDataObjectCommandList(new ArrayList<Command>());
+			outputBatches.put(q, outputBatch);
+		}
+		if (pendingOutputMatches == 0)
+			oldestPendingOutputTime = System.currentTimeMillis();
+		outputBatch.addDataObject(obj, command);
+		pendingOutputMatches++;
+		if (outputBatch.getDataObjectList().size() >= outputBatchSize) {
+			outputBatches.remove(q);
+			pendingOutputMatches -= outputBatch.getDataObjectList().size();
+			collector.emit(SpatioTextualConstants.Bolt_Output_STreamIDExtension, new Values(outputBatch));
+		}
+	}
+
+	/**
+	 * Emits the pending matches of a query, called before any other output of
+	 * the query to keep the matches of every query in order
+	 */
+	void flushOutputBatch(Query q) {
+		CombinedTuple outputBatch = outputBatches.remove(q);
+		if (outputBatch == null)
+			return;
+		pendingOutputMatches -= outputBatch.getDataObjectList().size();
+		collector.emit(SpatioTextualConstants.Bolt_Output_STreamIDExtension, new Values(outputBatch));
+	}
+
+	void flushOutputBatches(ArrayList<Integer> queriesIdList, String srcId) {
+		HashMap<Integer, Query> queries = getQueryInformation(srcId);
+		if (queries == null)
+			return;
+		for (Integer queryId : queriesIdList) {
+			Query q = queries.get(queryId);
+			if (q != null)
+				flushOutputBatch(q);
+		}
+	}
+
+	/**
+	 * Emits all the pending output batches
+	 */
+	public void flushOutputBatches() {
+		if (pendingOutputMatches == 0)
+			return;
+		for (CombinedTuple outputBatch : outputBatches.values())
+			collector.emit(SpatioTextualConstants.Bolt_Output_STreamIDExtension, new Values(outputBatch));
+		outputBatches.clear();
+		pendingOutputMatches = 0;
+	}
+
 	public void generateOutputForResultChange(ArrayList<ResultSetChange> changes) {
 		for (ResultSetChange change : changes) {
 			generateOutput(change.getQuery(), change.getDataObject(), change.getChangeType());
@@ -454,39 +574,41 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 	public void handleContinousQuery(Query query) {
 
 		if (query.getCommand().equals(Command.addCommand)) {
-			if (!sourcesInformations.containsKey(query.getDataSrc())) {
+			DataSourceInformation dataSourceInformation = getSourceInformation(query.getDataSrc());
+			if (dataSourceInformation == null) {
 				System.err.println("Data Source not found: " + query.getDataSrc());
 				return;
 
 			}
-			queryInformationHashMap.get(query.getSrcId()).put(query.getQueryId(), query);
+			getQueryInformation(query.getSrcId()).put(query.getQueryId(), query);
 			//			if (!sourcesInformations.get(query.getDataSrc()).isVolatile() || (query.getDataSrc2() != null && !sourcesInformations.get(query.getDataSrc2()).isVolatile())) {
 			//				//this means that this query works on existing data and hence needs to first perorm a snapshop query 
 			//				//then register itself as a continous query and hence update its result
 			//				handleSnapShotQuery(query);
 			//			}
 			//TODO CHeck if some more results are needed from neighbour evaluators
-			sourcesInformations.get(query.getDataSrc()).getLocalHybridIndex().addContinousQuery(query);
+			dataSourceInformation.getLocalHybridIndex().addContinousQuery(query);
 //			if (query.getDataSrc2() != null)
 //				sourcesInformations.get(query.getDataSrc2()).getLocalHybridIndex().addContinousQuery(query);
 		} else if (query.getCommand().equals(Command.updateCommand)) {
-			if (!sourcesInformations.containsKey(query.getDataSrc())) {
+			DataSourceInformation dataSourceInformation = getSourceInformation(query.getDataSrc());
+			if (dataSourceInformation == null) {
 				System.err.println("Data Source not found: " + query.getDataSrc());
 				return;
 
 			}
 			//delete then update
-			Query queryInfo = queryInformationHashMap.get(query.getSrcId()).get(query.getQueryId());
-			sourcesInformations.get(query.getDataSrc()).getLocalHybridIndex().updateContinousQuery(queryInfo, query);
+			Query queryInfo = getQueryInformation(query.getSrcId()).get(query.getQueryId());
+			dataSourceInformation.getLocalHybridIndex().updateContinousQuery(queryInfo, query);
 //			if (query.getDataSrc2() != null)
 //				sourcesInformations.get(query.getDataSrc2()).getLocalHybridIndex().updateContinousQuery(queryInfo, query);
 		} else if (query.getCommand().equals(Command.dropCommand)) {
 			//only getting information from oldStored Query as the new query may not have all information and it may contain source and query ids
-			Query oldQuery = queryInformationHashMap.get(query.getSrcId()).get(query.getQueryId());
-			sourcesInformations.get(oldQuery.getDataSrc()).getLocalHybridIndex().dropContinousQuery(oldQuery);
+			Query oldQuery = getQueryInformation(query.getSrcId()).get(query.getQueryId());
+			getSourceInformation(oldQuery.getDataSrc()).getLocalHybridIndex().dropContinousQuery(oldQuery);
 //			if (oldQuery.getDataSrc2() != null)
 //				sourcesInformations.get(oldQuery.getDataSrc2()).getLocalHybridIndex().dropContinousQuery(oldQuery);
-			queryInformationHashMap.get(oldQuery.getSrcId()).remove(oldQuery.getQueryId());
+			getQueryInformation(oldQuery.getSrcId()).remove(oldQuery.getQueryId());
 		}
 
 	}
@@ -526,7 +648,7 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 
 		ArrayList<Query> affectedKNNQueries = new ArrayList<Query>();
 		ArrayList<ResultSetChange> changes = new ArrayList<ResultSetChange>();
-		IndexCell previousCell = sourcesInformations.get(dataObject.getSrcId()).getObjectToLocalCellIndex().get(dataObject.getObjectId());
+		IndexCell previousCell = getSourceInformation(dataObject).getObjectToLocalCellIndex().get(dataObject.getObjectId());
 		if (Command.dropCommand.equals(dataObject.getCommand()) && previousCell != null) {
 			//This removes the object from this cell all together 
 			DataObject removedDataObject = dropCurrnetDataObject(dataObject);
@@ -541,7 +663,7 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 			//if yes update the data object 
 			//if no drop the data object from the old cell adjust queries accordingly
 			//then add the query to the new index cell and adjust the relevant queries accordingly
-			IndexCell newIndexCell = sourcesInformations.get(dataObject.getSrcId()).getLocalHybridIndex().mapDataObjectToIndexCell(dataObject);
+			IndexCell newIndexCell = getSourceInformation(dataObject).getLocalHybridIndex().mapDataObjectToIndexCell(dataObject);
 			DataObject previousDataObject = previousCell.getDataObject(dataObject.getObjectId());
 			//TODO this function needs optimization by finding out common text between the previous object and the new object 
 			//and reflect this change in the textual index within the grid cell
@@ -597,32 +719,43 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 	boolean handleDataObject(Tuple input) throws Exception {
 
 		//System.out.println("Input: " + input.toString());
-		//	DataObjectList dataObjectList = (DataObjectList) input.getValueByField(SpatioTextualConstants.data);
-		DataObject dataObject = (DataObject) input.getValueByField(SpatioTextualConstants.data);
+		//index bolts send batches of data objects as a DataObjectList 
+		Object data = input.getValueByField(SpatioTextualConstants.data);
+		if (data instanceof DataObjectList) {
+			ArrayList<DataObject> dataObjects = ((DataObjectList) data).getDataObjects();
+			for (int i = 0; i < dataObjects.size(); i++) {
+				try {
+					handleDataObject(dataObjects.get(i));
+				} catch (Exception e) {
+					//a failing object does not drop the rest of the batch 
+					e.printStackTrace(System.err);
+				}
+			}
+			return false;
+		}
+		return handleDataObject((DataObject) data);
+	}
+
+	boolean handleDataObject(DataObject dataObject) throws Exception {
 		//Boolean ack= dataObject.getObjectId()%10==0;
 		boolean ack = false;
 		//		if (!SpatialHelper.overlapsSpatially(dataObject.getLocation(), selfBounds))
 		//			return;
-		String source = "";
-		//for (int i = 0; i < dataObjectList.getDataObjects().size(); i++) {
-		//dataObject = dataObjectList.getDataObjects().get(i);
-
-		source = dataObject.getSrcId();
-		if (sourcesInformations.get(source).isPersistent())
+		DataSourceInformation sourceInformation = getSourceInformation(dataObject);
+		if (sourceInformation.isPersistent())
 			handlePersisentDataObject(dataObject);
-		if (sourcesInformations.get(source).isCurrent())
+		if (sourceInformation.isCurrent())
 			handleCurrentDataObject(dataObject);
-		else if (sourcesInformations.get(source).isVolatile())
+		else if (sourceInformation.isVolatile())
 			handleVolatileDataObject(dataObject);
 
 		//_inputDataCountMetric.incr();
 		return ack;
-		//}
 	}
 
 	public void handleDropExternalKNNQueryRequest(Control controlMessage) {
 		Query outSideQuery = controlMessage.getQueriesList().get(0);
-		this.externalTopKMap.get(outSideQuery.getDataSrc()).remove(outSideQuery.getQueryId());
+		getExternalTopK(outSideQuery.getDataSrc()).remove(outSideQuery.getQueryId());
 	}
 
 	public void handleExternalKNNPredicateResultSetChange(Control controlMessage) {
@@ -631,7 +764,7 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 		ArrayList<ResultSetChange> internalResultSetChanges = new ArrayList<ResultSetChange>();
 		for (ResultSetChange resultSetChange : resultSetChanges) {
 			Query externalQuery = resultSetChange.getQuery();
-			Query internalQuery = queryInformationHashMap.get(externalQuery.getSrcId()).get(externalQuery.getQueryId());
+			Query internalQuery = getQueryInformation(externalQuery.getSrcId()).get(externalQuery.getQueryId());
 			DataObject dataObject = resultSetChange.getDataObject();
 			//			Command changeType = resultSetChange.getChangeType();
 			dataObject.setCommand(resultSetChange.getChangeType());
@@ -660,7 +793,7 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 	public void handleExternalSnapshotKNNQueryAnswer(Control controlMessage, Integer taskId) {
 		Query outSideQuery = controlMessage.getQueriesList().get(0);
 
-		Query internalQuery = queryInformationHashMap.get(outSideQuery.getSrcId()).get(outSideQuery.getQueryId());
+		Query internalQuery = getQueryInformation(outSideQuery.getSrcId()).get(outSideQuery.getQueryId());
 		Integer taskIdIndex = ((KNNQuery)internalQuery).getPendingKNNTaskIds().indexOf(taskId);
 		if (taskIdIndex != null)
 			((KNNQuery)internalQuery).getPendingKNNTaskIds().remove(taskId);
@@ -689,7 +822,7 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 		((KNNQuery)query).resetKNNStructures();
 		//TODO consider generating a class for the localIndex and have the query 
 		//initiate an iterator on the index 
-		LocalIndexKNNIterator it = sourcesInformations.get(query.getDataSrc()).getLocalHybridIndex().LocalKNNIterator(((KNNQuery)query).getFocalPoint());
+		LocalIndexKNNIterator it = getSourceInformation(query.getDataSrc()).getLocalHybridIndex().LocalKNNIterator(((KNNQuery)query).getFocalPoint());
 		((KNNQuery)query).setLocalKnnIterator(it);
 		((KNNQuery)query).setContinousQuery(false);
 		//this is one way of evaluating the textual KNN query 
@@ -716,7 +849,7 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 		collector.emitDirect(taskId, SpatioTextualConstants.getBoltBoltControlStreamId(id), new Values(controlMessage));
 		//this registers the external continous query if it is originally continous
 		if (continousQuery)
-			this.externalTopKMap.get(query.getDataSrc()).put(query.getQueryId(), query);
+			getExternalTopK(query.getDataSrc()).put(query.getQueryId(), query);
 	}
 
 	/**
@@ -776,10 +909,10 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 	 */
 	public void handleSnapShotTextualJoinQuery(JoinQuery query) {
 
-		if (sourcesInformations.get(query.getDataSrc()).isVolatile() || sourcesInformations.get(query.getDataSrc2()).isVolatile())
+		if (getSourceInformation(query.getDataSrc()).isVolatile() || getSourceInformation(query.getDataSrc2()).isVolatile())
 			return;
 
-		ArrayList<IndexCell> relevantIndexCells1 = sourcesInformations.get(query.getDataSrc()).getOverlappingIndexCellWithData(query.getSpatialRange(), query.getQueryText());
+		ArrayList<IndexCell> relevantIndexCells1 = getSourceInformation(query.getDataSrc()).getOverlappingIndexCellWithData(query.getSpatialRange(), query.getQueryText());
 		ArrayList<DataObject> joinedTuples;
 		if (relevantIndexCells1 != null) {
 			for (IndexCell indexCell : relevantIndexCells1) {
@@ -787,7 +920,7 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 				if (allIndexCellDataObjects != null && allIndexCellDataObjects.size() != 0) {
 					Rectangle relevantRect = SpatialHelper.expand(indexCell.getBounds(), query.getDistance());
 					relevantRect = SpatialHelper.spatialIntersect(relevantRect, query.getSpatialRange());
-					ArrayList<IndexCell> relevantIndexCells2 = sourcesInformations.get(query.getDataSrc2()).getOverlappingIndexCellWithData(relevantRect, query.getQueryText2());
+					ArrayList<IndexCell> relevantIndexCells2 = getSourceInformation(query.getDataSrc2()).getOverlappingIndexCellWithData(relevantRect, query.getQueryText2());
 					ArrayList<DataObject> allIndexCellDataObjects2 = new ArrayList<DataObject>();
 					for (IndexCell indexCell2 : relevantIndexCells2) {
 						allIndexCellDataObjects2.addAll(indexCell2.getStoredObjects(relevantRect, query.getQueryText2(), query.getTextualPredicate()));
@@ -797,7 +930,7 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 						for (DataObject dataObject : allIndexCellDataObjects) {
 							for (DataObject dataObject2 : allIndexCellDataObjects2) {
 								if (SpatialHelper.getDistanceInBetween(dataObject.getLocation(), dataObject2.getLocation()) <= query.getDistance()
-										&& TextHelpers.evaluateTextualPredicate(dataObject.getObjectText(), dataObject2.getObjectText(), query.getJoinTextualPredicate()))
+										&& TextHelpers.evaluateTextualPredicate(dataObject.getObjectTextIds(), dataObject2.getObjectTextIds(), query.getJoinTextualPredicate()))
 									joinedTuples.add(dataObject2);
 							}
 							if (!joinedTuples.isEmpty())
@@ -819,7 +952,7 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 		query.resetKNNStructures();
 		//TODO consider generating a class for the localIndex and have the query 
 		//initiate an iterator on the index 
-		LocalIndexKNNIterator it = sourcesInformations.get(query.getDataSrc()).getLocalHybridIndex().LocalKNNIterator(query.getFocalPoint());
+		LocalIndexKNNIterator it = getSourceInformation(query.getDataSrc()).getLocalHybridIndex().LocalKNNIterator(query.getFocalPoint());
 		query.setLocalKnnIterator(it);
 		//this is one way of evaluating the textual KNN query 
 		//first apply the spatial predicate the locate the query in a cell index 
@@ -846,13 +979,13 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 
 	public void handleSnapShotTextualRangeQuery(Query query) {
 		ArrayList<DataObject> outputObjects = new ArrayList<DataObject>();
-		ArrayList<IndexCell> relevantIndexCells = sourcesInformations.get(query.getDataSrc()).getLocalHybridIndex().getOverlappingIndexCellWithData(query.getSpatialRange(), query.getQueryText());
+		ArrayList<IndexCell> relevantIndexCells = getSourceInformation(query.getDataSrc()).getLocalHybridIndex().getOverlappingIndexCellWithData(query.getSpatialRange(), query.getQueryText());
 		if (relevantIndexCells != null)
 			for (IndexCell indexCell : relevantIndexCells) {
 				Collection<DataObject> allIndexCellDataObjects = indexCell.getStoredObjects();
 				for (DataObject dataObject : allIndexCellDataObjects) {
 					this.visitedDataObjectCount++;
-					if (SpatialHelper.overlapsSpatially(dataObject.getLocation(), query.getSpatialRange()) && TextHelpers.evaluateTextualPredicate(dataObject.getObjectText(), query.getQueryText(), query.getTextualPredicate()))
+					if (SpatialHelper.overlapsSpatially(dataObject.getLocation(), query.getSpatialRange()) && TextHelpers.evaluateTextualPredicate(dataObject.getObjectTextIds(), query))
 						outputObjects.add(dataObject);
 
 				}
@@ -882,7 +1015,7 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 		//			fromNeighbour = false;
 		//		}
 		//		if (!fromNeighbour) 
-		ArrayList<List<Query>> queries = sourcesInformations.get(dataObject.getSrcId()).getLocalHybridIndex().getReleventSpatialKeywordRangeQueries(dataObject, fromNeighbour);
+		ArrayList<List<Query>> queries = getSourceInformation(dataObject).getLocalHybridIndex().getReleventSpatialKeywordRangeQueries(dataObject, fromNeighbour);
 		if (queries == null)
 			return;
 		//for every source 
@@ -892,7 +1025,7 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 			if (srcQueryList.size() > 0) {
 				queryScrId = srcQueryList.get(0).getSrcId();
 				for (Query q : srcQueryList) {
-					if (TextualPredicate.OVERlAPS.equals(q.getTextualPredicate()) || TextHelpers.evaluateTextualPredicate(dataObject.getObjectText(), q.getQueryText(), q.getTextualPredicate()))
+					if (TextualPredicate.OVERlAPS.equals(q.getTextualPredicate()) || TextHelpers.evaluateTextualPredicate(dataObject.getObjectTextIds(), q.getQueryTextIds(), q.getTextualPredicate()))
 						qualifiedQueriesIds.add(q.getQueryId());
 				}
 				if (qualifiedQueriesIds.size() > 0)
@@ -912,7 +1045,7 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 
 		}
 
-		Map<String, Query> queriesMap = sourcesInformations.get(dataObject.getSrcId()).getLocalHybridIndex().getReleventQueries(dataObject, fromNeighbour);
+		Map<String, Query> queriesMap = getSourceInformation(dataObject).getLocalHybridIndex().getReleventQueries(dataObject, fromNeighbour);
 
 		Iterator queriesIterator = queriesMap.entrySet().iterator();
 		while (queriesIterator.hasNext()) {
@@ -921,7 +1054,7 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 
 			if (!fromNeighbour && q.getQueryType().equals(QueryType.queryTextualRange)) {
 				//apply spatial predicate then textual predicate 
-				if (SpatialHelper.overlapsSpatially(dataObject.getLocation(), q.getSpatialRange()) && TextHelpers.evaluateTextualPredicate(dataObject.getObjectText(), q.getQueryText(), q.getTextualPredicate())) {
+				if (SpatialHelper.overlapsSpatially(dataObject.getLocation(), q.getSpatialRange()) && TextHelpers.evaluateTextualPredicate(dataObject.getObjectTextIds(), q)) {
 					generateOutput(q, dataObject, Command.addCommand);
 
 				}
@@ -959,12 +1092,14 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 			this.indexBoltTasks = context.getComponentTasks(SpatioTextualConstants.getIndexId(id));
 			queryTimeMEtric = new AssignableMetric(0);
 			context.registerMetric("queryTimeMEtric", queryTimeMEtric, 10);
+			prepareOutputBatches();
 			//**************************************************************************************
 			//preparing local and global indexes
 			prepareLocalAndGlobalIndexes();
 			//**************************************************************************************
 			//preparing data sources information 
 			prepareDataAndQuerySourceInfo();
+			prepareFASTTuning();
 			//**************************************************************************************
 			//read static data congfiguration and data 
 			prepareStaticData();
@@ -974,9 +1109,19 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 
 	}
 
+	public void prepareOutputBatches() {
+		Object batchSize = stormConf.get(SpatioTextualConstants.OUTPUT_BATCH_SIZE);
+		Object maxLatency = stormConf.get(SpatioTextualConstants.OUTPUT_BATCH_MAX_LATENCY_MS);
+		this.outputBatchSize = batchSize == null ? SpatioTextualConstants.DEFAULT_OUTPUT_BATCH_SIZE : ((Number) batchSize).intValue();
+		this.outputBatchMaxLatency = maxLatency == null ? SpatioTextualConstants.DEFAULT_OUTPUT_BATCH_MAX_LATENCY_MS : ((Number) maxLatency).longValue();
+		this.outputBatches = new LinkedHashMap<Query, CombinedTuple>();
+		this.pendingOutputMatches = 0;
+	}
+
 	public void prepareDataAndQuerySourceInfo() {
 		System.out.println("***************************Printing Bolt configuration*******************");
 		Iterator it = stormConf.entrySet().iterator();
+		SourceIdRegistry.getInstance().registerConfiguredSources(stormConf);
 		sourcesInformations = new HashMap<String, DataSourceInformation>();
 		//**************************************************************************************
 		//initializing the local variables
@@ -1002,6 +1147,7 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 			} else
 				continue;
 
+			sourceId = SourceIdRegistry.getInstance().intern(sourceId);
 			String value = "" + (String) pair.getValue();
 			if (value.contains(SpatioTextualConstants.Volatile))
 				persistenceState = SpatioTextualConstants.volatilePersistenceState;
@@ -1023,6 +1169,92 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 			System.out.println(key + " = " + value);
 
 		}
+		indexSourcesByHandle();
+	}
+
+	/**
+	 * Attaches a tuner to the FAST indexes of the sources if the topology asks
+	 * for it and reports the parameters of the FAST indexes as a metric
+	 */
+	public void prepareFASTTuning() {
+		Object tuning = stormConf.get(SpatioTextualConstants.FAST_TUNING);
+		boolean tuned = tuning != null && Boolean.parseBoolean(tuning.toString());
+		boolean hasFAST = false;
+		for (DataSourceInformation sourceInformation : sourcesInformations.values())
+			if (sourceInformation.localHybridIndex instanceof FAST) {
+				FAST fast = (FAST) sourceInformation.localHybridIndex;
+				if (tuned)
+					fast.tuner = new FASTTuner(fast);
+				hasFAST = true;
+			}
+		if (!hasFAST)
+			return;
+		context.registerMetric("fastTuning", new IMetric() {
+			@Override
+			public Object getValueAndReset() {
+				HashMap<String, Object> metrics = new HashMap<String, Object>();
+				for (DataSourceInformation sourceInformation : sourcesInformations.values())
+					if (sourceInformation.localHybridIndex instanceof FAST)
+						metrics.put(sourceInformation.getDataSourceId(), ((FAST) sourceInformation.localHybridIndex).getTuningMetrics());
+				return metrics;
+			}
+		}, 10);
+	}
+
+	/**
+	 * Indexes the per source maps by the SourceIdRegistry handles of the sources,
+	 * sources without a handle are only found in the maps
+	 */
+	public void indexSourcesByHandle() {
+		int size = SourceIdRegistry.getInstance().size();
+		sourcesInformationsByHandle = new DataSourceInformation[size];
+		queryInformationByHandle = new HashMap[size];
+		externalTopKByHandle = new HashMap[size];
+		for (DataSourceInformation sourceInformation : sourcesInformations.values()) {
+			int handle = sourceInformation.getSourceHandle();
+			if (handle < 0 || handle >= size)
+				continue;
+			sourcesInformationsByHandle[handle] = sourceInformation;
+			if (queryInformationHashMap != null)
+				queryInformationByHandle[handle] = queryInformationHashMap.get(sourceInformation.getDataSourceId());
+			if (externalTopKMap != null)
+				externalTopKByHandle[handle] = externalTopKMap.get(sourceInformation.getDataSourceId());
+		}
+	}
+
+	public DataSourceInformation getSourceInformation(DataObject dataObject) {
+		DataSourceInformation sourceInformation = getByHandle(sourcesInformationsByHandle, dataObject.getSrcHandle());
+		return sourceInformation != null ? sourceInformation : sourcesInformations.get(dataObject.getSrcId());
+	}
+
+	public DataSourceInformation getSourceInformation(String sourceId) {
+		DataSourceInformation sourceInformation = getByHandle(sourcesInformationsByHandle, SourceIdRegistry.getInstance().getHandle(sourceId));
+		return sourceInformation != null ? sourceInformation : sourcesInformations.get(sourceId);
+	}
+
+	/**
+	 * @return query id to query of the queries of the query source sourceId
+	 */
+	public HashMap<Integer, Query> getQueryInformation(String sourceId) {
+		HashMap<Integer, Query> queries = getByHandle(queryInformationByHandle, SourceIdRegistry.getInstance().getHandle(sourceId));
+		return queries != null ? queries : queryInformationHashMap.get(sourceId);
+	}
+
+	/**
+	 * @return query id to external KNN query of the queries on the data source sourceId
+	 */
+	public HashMap<Integer, Query> getExternalTopK(String sourceId) {
+		HashMap<Integer, Query> queries = getByHandle(externalTopKByHandle, SourceIdRegistry.getInstance().getHandle(sourceId));
+		return queries != null ? queries : externalTopKMap.get(sourceId);
+	}
+
+	public HashMap<Integer, Query> getExternalTopK(DataObject dataObject) {
+		HashMap<Integer, Query> queries = getByHandle(externalTopKByHandle, dataObject.getSrcHandle());
+		return queries != null ? queries : externalTopKMap.get(dataObject.getSrcId());
+	}
+
+	private static <T> T getByHandle(T[] byHandle, int handle) {
+		return byHandle != null && handle >= 0 && handle < byHandle.length ? byHandle[handle] : null;
 	}
 
 	/**
@@ -1078,8 +1310,7 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 	}
 
 	public void processDataObjectForExternalKNNPredicates(DataObject obj) throws Exception {
-		String source = obj.getSrcId();
-		Map<Integer, Query> externalPredicates = externalTopKMap.get(source);
+		Map<Integer, Query> externalPredicates = getExternalTopK(obj);
 		if (externalPredicates != null) {
 			Iterator<Entry<Integer, Query>> queriesIterator = externalPredicates.entrySet().iterator();
 			while (queriesIterator.hasNext()) {
@@ -1143,7 +1374,7 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 	 * @param q
 	 */
 	void processVolatileDataObjectForTextualKNNQuery(DataObject dataObject, Query q, Boolean fromNeighbour) {
-		if (!TextHelpers.evaluateTextualPredicate(dataObject.getObjectText(), q.getQueryText(), q.getTextualPredicate())) {
+		if (!TextHelpers.evaluateTextualPredicate(dataObject.getObjectTextIds(), q.getQueryTextIds(), q.getTextualPredicate())) {
 			//this data object does not overlap with the textual predicate of the query and hence cannot affect the result
 
 		}
@@ -1164,11 +1395,11 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 		// verify the textual predicate of the incomming data source and the query 
 		if (dataObject.getSrcId().equals(q.getDataSrc())) {
 			otherDataSource = q.getDataSrc2();
-			if (!TextHelpers.evaluateTextualPredicate(dataObject.getObjectText(), q.getQueryText(), q.getTextualPredicate()))
+			if (!TextHelpers.evaluateTextualPredicate(dataObject.getObjectTextIds(), q.getQueryTextIds(), q.getTextualPredicate()))
 				return;
 		} else {
 			otherDataSource = q.getDataSrc();
-			if (!TextHelpers.evaluateTextualPredicate(dataObject.getObjectText(), q.getQueryText2(), q.getTextualPredicate2()))
+			if (!TextHelpers.evaluateTextualPredicate(dataObject.getObjectTextIds(), q.getQueryText2Ids(), q.getTextualPredicate2()))
 				return;
 		}
 
@@ -1178,7 +1409,7 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 
 		dataObject.extendRelevantArea(relevantArea);
 
-		ArrayList<IndexCell> relevantIndexCells = sourcesInformations.get(otherDataSource).getLocalHybridIndex().getOverlappingIndexCells(relevantArea);
+		ArrayList<IndexCell> relevantIndexCells = getSourceInformation(otherDataSource).getLocalHybridIndex().getOverlappingIndexCells(relevantArea);
 
 		for (IndexCell indexCell : relevantIndexCells) {
 
@@ -1188,9 +1419,9 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 				//this is the the theta join operator 
 				List< DataObject> storedObjects = indexCell.getStoredObjects();
 				for (DataObject storedDataObject:storedObjects) {
-					if (TextHelpers.evaluateTextualPredicate(dataObject.getObjectText(), storedDataObject.getObjectText(), q.getJoinTextualPredicate())
-							&& (otherDataSource.equals(q.getDataSrc2()) && TextHelpers.evaluateTextualPredicate(storedDataObject.getObjectText(), q.getQueryText2(), q.getTextualPredicate2())
-									|| otherDataSource.equals(q.getDataSrc()) && TextHelpers.evaluateTextualPredicate(storedDataObject.getObjectText(), q.getQueryText(), q.getTextualPredicate()))
+					if (TextHelpers.evaluateTextualPredicate(dataObject.getObjectTextIds(), storedDataObject.getObjectTextIds(), q.getJoinTextualPredicate())
+							&& (otherDataSource.equals(q.getDataSrc2()) && TextHelpers.evaluateTextualPredicate(storedDataObject.getObjectTextIds(), q.getQueryText2Ids(), q.getTextualPredicate2())
+									|| otherDataSource.equals(q.getDataSrc()) && TextHelpers.evaluateTextualPredicate(storedDataObject.getObjectTextIds(), q.getQueryTextIds(), q.getTextualPredicate()))
 
 					&& SpatialHelper.getDistanceInBetween(dataObject.getLocation(), storedDataObject.getLocation()) <= q.getDistance() //evaluate distance 
 
@@ -1231,5 +1462,6 @@ public class SpatioTextualEvaluatorBolt extends BaseRichBolt {
 
 	public void setSourcesInformations(HashMap<String, DataSourceInformation> sourcesInformations) {
 		this.sourcesInformations = sourcesInformations;
+		indexSourcesByHandle();
 	}
 }
@@ -69,6 +69,15 @@ public abstract class IndexCell {
 
 	public abstract ArrayList<List<Query>> geSpatiotTextualOverlappingQueries(Point p, ArrayList<String> keywords);
 
+	/**
+	 * Same as geSpatiotTextualOverlappingQueries(p, keywords), cells that keep
+	 * keyword signatures of their queries use keywordsSignature to reject
+	 * non matching objects early
+	 */
+	public ArrayList<List<Query>> geSpatiotTextualOverlappingQueries(Point p, ArrayList<String> keywords, long keywordsSignature) {
+		return geSpatiotTextualOverlappingQueries(p, keywords);
+	}
+
 	public abstract Rectangle getBounds();
 
 	public abstract HashMap<String, List<Query>> getTextualOverlappingQueries(ArrayList<String> keywords);
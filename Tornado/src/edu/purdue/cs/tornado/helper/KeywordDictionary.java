@@ -0,0 +1,262 @@
+/**
+ * Copyright Jul 5, 2015
+ * Author : Ahmed Mahmood
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.purdue.cs.tornado.helper;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Worker wide dictionary that maps keywords to dense integer term ids.
+ * Data objects and queries are encoded against the same instance so their
+ * sorted term id arrays can be compared with integer merges.
+ *
+ * The first sharedTermCount ids come from the keyword file keywords.dict, it is
+ * read from the class path and then from SpatioTextualConstants.KEYWORD_DICTIONARY_FILE,
+ * and is identical in every worker, these are the only ids written to the wire.
+ * Terms discovered from the stream get worker local ids after the shared ones and
+ * travel as strings, the receiving worker encodes them against its own dictionary.
+ *
+ * At most maxLocalTerms local terms are kept. When they are used up the local
+ * terms are dropped and a new generation of local ids starts after the last
+ * one, ids are not reused so arrays of an older generation never match a term
+ * they do not have. Cached arrays are checked with isCurrent and encoded again.
+ * Once the int id space is used up getOrAddTermId throws IllegalStateException.
+ *
+ * Lookups are lock free, adding a new term takes the dictionary lock.
+ */
+public class KeywordDictionary {
+	private static final int INITIAL_SIZE = 1 << 12;
+	public static final int DEFAULT_MAX_LOCAL_TERMS = 1 << 20;
+	private static final int MIN_LOCAL_TERMS = 1 << 8;//a keyword list must fit in one generation
+	private static final String SHARED_TERMS_RESOURCE = "keywords.dict";
+	private static final KeywordDictionary instance = new KeywordDictionary(SpatioTextualConstants.KEYWORD_DICTIONARY_FILE, DEFAULT_MAX_LOCAL_TERMS);
+
+	private final String[] sharedTerms;
+	private final int sharedTermCount;
+	private final int maxLocalTerms;
+	private volatile Generation generation;
+
+	/**
+	 * The local terms of one generation, the map also holds the shared terms
+	 */
+	private static class Generation {
+		final int number;
+		final int firstLocalId;
+		final ConcurrentHashMap<String, Integer> termIds;
+		volatile String[] localTerms;
+		volatile int localSize;
+
+		Generation(int number, int firstLocalId, String[] sharedTerms) {
+			this.number = number;
+			this.firstLocalId = firstLocalId;
+			this.termIds = new ConcurrentHashMap<String, Integer>(Math.max(INITIAL_SIZE, sharedTerms.length * 2));
+			for (int i = 0; i < sharedTerms.length; i++)
+				termIds.put(sharedTerms[i], i);
+			this.localTerms = new String[INITIAL_SIZE];
+			this.localSize = 0;
+		}
+	}
+
+	public static KeywordDictionary getInstance() {
+		return instance;
+	}
+
+	public KeywordDictionary() {
+		this(null, DEFAULT_MAX_LOCAL_TERMS);
+	}
+
+	/**
+	 * Loads the shared terms from a file with one keyword per line, lines can
+	 * also be "keyword,count" as produced by BuildKeywordDictionary.
+	 * The keywords.dict class path resource is used first, a missing file gives
+	 * a dictionary without shared terms.
+	 * @param sharedTermsFilePath
+	 * @param maxLocalTerms local terms kept before a new generation of local ids starts
+	 */
+	public KeywordDictionary(String sharedTermsFilePath, int maxLocalTerms) {
+		LinkedHashSet<String> terms = new LinkedHashSet<String>();
+		InputStream sharedTermsStream = null;
+		try {
+			if (sharedTermsFilePath != null)
+				sharedTermsStream = KeywordDictionary.class.getClassLoader().getResourceAsStream(SHARED_TERMS_RESOURCE);
+			if (sharedTermsStream == null && sharedTermsFilePath != null && new File(sharedTermsFilePath).exists())
+				sharedTermsStream = new FileInputStream(sharedTermsFilePath);
+			if (sharedTermsStream != null) {
+				BufferedReader reader = new BufferedReader(new InputStreamReader(sharedTermsStream, "UTF-8"));
+				String line;
+				while ((line = reader.readLine()) != null) {
+					int comma = line.indexOf(',');
+					String term = (comma >= 0 ? line.substring(0, comma) : line).trim().toLowerCase();
+					if (!term.isEmpty())
+						terms.add(term);
+				}
+				reader.close();
+			}
+		} catch (IOException e) {
+			e.printStackTrace(System.err);
+		}
+		this.sharedTerms = terms.toArray(new String[terms.size()]);
+		this.sharedTermCount = sharedTerms.length;
+		this.maxLocalTerms = Math.max(maxLocalTerms, MIN_LOCAL_TERMS);
+		this.generation = new Generation(0, sharedTermCount, sharedTerms);
+	}
+
+	/**
+	 * @param term
+	 * @return the id of the term, or -1 if it is not in the dictionary
+	 */
+	public int getTermId(String term) {
+		Integer id = generation.termIds.get(term);
+		return id == null ? -1 : id;
+	}
+
+	public int getOrAddTermId(String term) {
+		Integer id = generation.termIds.get(term);
+		if (id != null)
+			return id;
+		synchronized (this) {
+			Generation current = generation;
+			id = current.termIds.get(term);
+			if (id != null)
+				return id;
+			if (current.localSize == maxLocalTerms) {
+				//the ids of the next generation follow the ids of this one, reusing them would let old arrays match other terms
+				int firstLocalId = current.firstLocalId + current.localSize;
+				if (firstLocalId > Integer.MAX_VALUE - maxLocalTerms)
+					throw new IllegalStateException("Keyword dictionary ran out of term ids after " + current.number + " generations of local terms");
+				current = new Generation(current.number + 1, firstLocalId, sharedTerms);
+				generation = current;
+			}
+			int localId = current.localSize;
+			String[] localTerms = current.localTerms;
+			if (localId == localTerms.length)
+				localTerms = Arrays.copyOf(localTerms, Math.min(localTerms.length * 2, maxLocalTerms));
+			localTerms[localId] = term;
+			current.localTerms = localTerms;
+			current.localSize = localId + 1;
+			int newId = current.firstLocalId + localId;
+			current.termIds.put(term, newId);
+			return newId;
+		}
+	}
+
+	/**
+	 * @param termId
+	 * @return the term, or null for a local id of an older generation
+	 */
+	public String getTerm(int termId) {
+		if (termId < sharedTermCount)
+			return sharedTerms[termId];
+		Generation current = generation;
+		int localId = termId - current.firstLocalId;
+		if (localId < 0 || localId >= current.localSize)
+			return null;
+		return current.localTerms[localId];
+	}
+
+	/**
+	 * @return the number of shared terms and local terms of the current generation
+	 */
+	public int size() {
+		return sharedTermCount + generation.localSize;
+	}
+
+	public int getSharedTermCount() {
+		return sharedTermCount;
+	}
+
+	public boolean isShared(int termId) {
+		return termId < sharedTermCount;
+	}
+
+	/**
+	 * Changes whenever the local terms are dropped
+	 */
+	public int getGeneration() {
+		return generation.number;
+	}
+
+	/**
+	 * A sorted array encoded by this dictionary is current when its largest id
+	 * is shared or a local id of the current generation
+	 * @param termIds
+	 * @return false if the array has to be encoded again
+	 */
+	public boolean isCurrent(int[] termIds) {
+		if (termIds.length == 0)
+			return true;
+		int lastId = termIds[termIds.length - 1];
+		if (lastId < sharedTermCount)
+			return true;
+		Generation current = generation;
+		return lastId >= current.firstLocalId && lastId - current.firstLocalId < current.localSize;
+	}
+
+	/**
+	 * Encodes a keyword list into a sorted array of distinct term ids
+	 * @param keywords
+	 * @return
+	 */
+	public int[] encode(ArrayList<String> keywords) {
+		if (keywords == null)
+			return null;
+		int[] ids = new int[keywords.size()];
+		Generation encodedGeneration;
+		do {
+			//all the ids of the array belong to one generation
+			encodedGeneration = generation;
+			for (int i = 0; i < ids.length; i++)
+				ids[i] = getOrAddTermId(keywords.get(i));
+		} while (encodedGeneration != generation);
+		return sortDistinct(ids, ids.length);
+	}
+
+	public ArrayList<String> decode(int[] termIds) {
+		if (termIds == null)
+			return null;
+		ArrayList<String> keywords = new ArrayList<String>(termIds.length);
+		for (int id : termIds)
+			keywords.add(getTerm(id));
+		return keywords;
+	}
+
+	/**
+	 * Sorts the first length ids and removes duplicates
+	 * @param ids
+	 * @param length
+	 * @return an array that only contains the distinct ids
+	 */
+	public static int[] sortDistinct(int[] ids, int length) {
+		Arrays.sort(ids, 0, length);
+		int distinct = 0;
+		for (int i = 0; i < length; i++)
+			if (distinct == 0 || ids[distinct - 1] != ids[i])
+				ids[distinct++] = ids[i];
+		return distinct == ids.length ? ids : Arrays.copyOf(ids, distinct);
+	}
+}
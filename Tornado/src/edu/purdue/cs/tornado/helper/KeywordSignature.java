@@ -0,0 +1,63 @@
+/**
+ * Copyright Jul 5, 2015
+ * Author : Ahmed Mahmood
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.purdue.cs.tornado.helper;
+
+import java.util.ArrayList;
+
+/**
+ * 64 bit Bloom style signatures of keyword lists, every keyword sets one bit.
+ * The signatures only give false positives so they are used to reject objects
+ * before probing the keyword maps of index cells:
+ * an object can only share a keyword with a set of queries if its signature
+ * intersects the OR-ed signature of the queries, and it can only contain all
+ * keywords of a query if it has all the bits of the query signature.
+ * The bit of a keyword only depends on String.hashCode so signatures are the
+ * same in every worker.
+ */
+public class KeywordSignature {
+
+	public static long getKeywordBit(String keyword) {
+		int h = keyword.hashCode() * 0x9E3779B9;
+		return 1L << (h >>> 26);
+	}
+
+	public static long getSignature(ArrayList<String> keywords) {
+		long signature = 0;
+		if (keywords == null)
+			return signature;
+		for (int i = 0; i < keywords.size(); i++)
+			signature |= getKeywordBit(keywords.get(i));
+		return signature;
+	}
+
+	/**
+	 * @return false if the keywords of the two signatures are surely disjoint
+	 */
+	public static boolean mayOverlap(long signature1, long signature2) {
+		return (signature1 & signature2) != 0;
+	}
+
+	/**
+	 * @return false if the keywords of the container surely miss a keyword of the subset
+	 */
+	public static boolean mayContain(long containerSignature, long subsetSignature) {
+		return (containerSignature & subsetSignature) == subsetSignature;
+	}
+}
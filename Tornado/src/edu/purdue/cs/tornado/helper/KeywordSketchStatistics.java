@@ -0,0 +1,334 @@
+/**
+ * Copyright Jul 5, 2015
+ * Author : Ahmed Mahmood
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.purdue.cs.tornado.helper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Bounded keyword statistics: a Count-Min sketch estimates the count of every
+ * keyword and a Space-Saving table keeps the topK most frequent keywords.
+ * Memory does not depend on the number of distinct keywords.
+ * The table is a stream summary, its counters are kept in buckets of equal
+ * count sorted by count, so the minimum counter replaced by a new keyword is
+ * found in constant time and a counter changed by d moves over at most d buckets.
+ * Every decayInterval updates all counts are halved so old query keywords fade out.
+ * Not thread safe, every index owns its own instance.
+ */
+public class KeywordSketchStatistics implements KeywordStatistics {
+	public static int DEFAULT_DEPTH = 4;
+	public static int DEFAULT_WIDTH = 1 << 14;
+	public static int DEFAULT_TOP_K = 256;
+	public static int DEFAULT_DECAY_INTERVAL = 1 << 20;
+	private static final int[] SEEDS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F, 0x165667B1, 0xD3A2646C, 0xFD7046C5, 0xB55A4F09 };
+
+	private final int[][] counts;
+	private final int widthMask;
+	private final HashMap<String, Counter> topKeywords;
+	private Bucket minBucket;//the bucket with the lowest count, the head of the bucket list
+	private final int topK;
+	private final int decayInterval;
+	private int updatesSinceDecay;
+
+	public KeywordSketchStatistics() {
+		this(DEFAULT_DEPTH, DEFAULT_WIDTH, DEFAULT_TOP_K, DEFAULT_DECAY_INTERVAL);
+	}
+
+	/**
+	 * @param depth number of hash rows, at most 8
+	 * @param width counters per row, rounded up to a power of two
+	 * @param topK size of the frequent keywords table
+	 * @param decayInterval updates between halving the counts, 0 disables the decay
+	 */
+	public KeywordSketchStatistics(int depth, int width, int topK, int decayInterval) {
+		depth = Math.max(1, Math.min(depth, SEEDS.length));
+		width = Integer.highestOneBit(Math.max(width, 2) * 2 - 1);
+		this.counts = new int[depth][width];
+		this.widthMask = width - 1;
+		this.topK = topK;
+		this.topKeywords = new HashMap<String, Counter>(topK * 2);
+		this.decayInterval = decayInterval;
+		this.updatesSinceDecay = 0;
+	}
+
+	/**
+	 * A frequent keyword, its count is the count of its bucket
+	 */
+	private static final class Counter {
+		String keyword;
+		Bucket bucket;
+		Counter prev, next;
+
+		Counter(String keyword) {
+			this.keyword = keyword;
+		}
+	}
+
+	/**
+	 * The counters with the same count
+	 */
+	private static final class Bucket {
+		int count;
+		Counter first;
+		Bucket prev, next;
+
+		Bucket(int count) {
+			this.count = count;
+		}
+	}
+
+	/**
+	 * Restores written statistics, counts is used as is
+	 * 
+	 * @param counts the counters of every hash row, the width is a power of two
+	 * @param topKeywords the counts of the frequent keywords
+	 */
+	public KeywordSketchStatistics(int[][] counts, Map<String, Integer> topKeywords, int topK, int decayInterval, int updatesSinceDecay) {
+		this.counts = counts;
+		this.widthMask = counts[0].length - 1;
+		this.topK = topK;
+		this.topKeywords = new HashMap<String, Counter>(topK * 2);
+		for (Entry<String, Integer> e : topKeywords.entrySet()) {
+			if (e.getValue() <= 0)
+				continue;
+			Counter counter = new Counter(e.getKey());
+			place(counter, e.getValue(), minBucket);
+			this.topKeywords.put(e.getKey(), counter);
+		}
+		this.decayInterval = decayInterval;
+		this.updatesSinceDecay = updatesSinceDecay;
+	}
+
+	private int index(int hash, int row) {
+		int h = hash * SEEDS[row];
+		return (h ^ (h >>> 16)) & widthMask;
+	}
+
+	public int addQueryCount(String keyword, int delta) {
+		int hash = keyword.hashCode();
+		int estimate = Integer.MAX_VALUE;
+		for (int row = 0; row < counts.length; row++) {
+			int i = index(hash, row);
+			counts[row][i] = Math.max(0, counts[row][i] + delta);
+			estimate = Math.min(estimate, counts[row][i]);
+		}
+		Counter counter = topKeywords.get(keyword);
+		if (counter != null) {
+			int count = Math.max(0, counter.bucket.count + delta);
+			Bucket near = detach(counter);
+			if (count == 0)
+				topKeywords.remove(keyword);
+			else {
+				place(counter, count, near);
+				estimate = Math.min(estimate, count);
+			}
+		} else if (delta > 0 && topK > 0) {
+			if (topKeywords.size() < topK) {
+				counter = new Counter(keyword);
+				place(counter, delta, minBucket);
+				topKeywords.put(keyword, counter);
+			} else if (minBucket.count < estimate) {
+				//space saving replaces the minimum counter and inherits its count,
+				//only done when the sketch estimate shows the keyword is more frequent
+				counter = minBucket.first;
+				int count = minBucket.count + delta;
+				topKeywords.remove(counter.keyword);
+				Bucket near = detach(counter);
+				counter.keyword = keyword;
+				place(counter, count, near);
+				topKeywords.put(keyword, counter);
+			}
+		}
+		if (decayInterval > 0 && ++updatesSinceDecay >= decayInterval)
+			decay();
+		return estimate;
+	}
+
+	public int getQueryCount(String keyword) {
+		int hash = keyword.hashCode();
+		int estimate = Integer.MAX_VALUE;
+		for (int row = 0; row < counts.length; row++)
+			estimate = Math.min(estimate, counts[row][index(hash, row)]);
+		Counter counter = topKeywords.get(keyword);
+		if (counter != null)
+			estimate = Math.min(estimate, counter.bucket.count);
+		return estimate;
+	}
+
+	public String getRarestKeyword(List<String> keywords) {
+		String rarestKeyword = null;
+		int minCount = Integer.MAX_VALUE;
+		for (int i = 0; i < keywords.size(); i++) {
+			int count = getQueryCount(keywords.get(i));
+			if (count < minCount) {
+				minCount = count;
+				rarestKeyword = keywords.get(i);
+			}
+		}
+		return rarestKeyword;
+	}
+
+	public ArrayList<String> getFrequentKeywords() {
+		return new ArrayList<String>(topKeywords.keySet());
+	}
+
+	/**
+	 * Halves all counts
+	 */
+	public void decay() {
+		updatesSinceDecay = 0;
+		for (int row = 0; row < counts.length; row++)
+			for (int i = 0; i < counts[row].length; i++)
+				counts[row][i] >>>= 1;
+		//halving keeps the order of the buckets, neighbours with the same halved count merge
+		Bucket bucket = minBucket;
+		while (bucket != null) {
+			Bucket next = bucket.next;
+			bucket.count >>>= 1;
+			if (bucket.count == 0) {
+				for (Counter counter = bucket.first; counter != null; counter = counter.next)
+					topKeywords.remove(counter.keyword);
+				minBucket = next;
+				if (next != null)
+					next.prev = null;
+			} else if (bucket.prev != null && bucket.prev.count == bucket.count) {
+				Bucket merged = bucket.prev;
+				while (bucket.first != null) {
+					Counter counter = bucket.first;
+					bucket.first = counter.next;
+					addToBucket(counter, merged);
+				}
+				merged.next = next;
+				if (next != null)
+					next.prev = merged;
+			}
+			bucket = next;
+		}
+	}
+
+	/**
+	 * Removes the counter from its bucket and drops the bucket when it is empty
+	 * @return a bucket next to the old position of the counter, null if there are no buckets left
+	 */
+	private Bucket detach(Counter counter) {
+		Bucket bucket = counter.bucket;
+		if (counter.prev != null)
+			counter.prev.next = counter.next;
+		else
+			bucket.first = counter.next;
+		if (counter.next != null)
+			counter.next.prev = counter.prev;
+		counter.prev = null;
+		counter.next = null;
+		counter.bucket = null;
+		if (bucket.first != null)
+			return bucket;
+		if (bucket.prev != null)
+			bucket.prev.next = bucket.next;
+		else
+			minBucket = bucket.next;
+		if (bucket.next != null)
+			bucket.next.prev = bucket.prev;
+		return bucket.prev != null ? bucket.prev : bucket.next;
+	}
+
+	/**
+	 * Adds the counter to the bucket of count, the search for the bucket starts at near
+	 */
+	private void place(Counter counter, int count, Bucket near) {
+		Bucket floor = near;
+		while (floor != null && floor.count > count)
+			floor = floor.prev;
+		Bucket ceiling = floor == null ? minBucket : floor.next;
+		while (ceiling != null && ceiling.count <= count) {
+			floor = ceiling;
+			ceiling = ceiling.next;
+		}
+		if (floor == null || floor.count != count) {
+			Bucket bucket = new Bucket(count);
+			bucket.prev = floor;
+			bucket.next = ceiling;
+			if (floor != null)
+				floor.next = bucket;
+			else
+				minBucket = bucket;
+			if (ceiling != null)
+				ceiling.prev = bucket;
+			floor = bucket;
+		}
+		addToBucket(counter, floor);
+	}
+
+	private static void addToBucket(Counter counter, Bucket bucket) {
+		counter.bucket = bucket;
+		counter.prev = null;
+		counter.next = bucket.first;
+		if (bucket.first != null)
+			bucket.first.prev = counter;
+		bucket.first = counter;
+	}
+
+	/**
+	 * @return the count a keyword has to exceed to replace a frequent keyword,
+	 *         0 while the frequent keywords table is not full
+	 */
+	public int getMinimumFrequentCount() {
+		return topKeywords.size() < topK || minBucket == null ? 0 : minBucket.count;
+	}
+
+	/**
+	 * @return the counters of every hash row, not a copy
+	 */
+	public int[][] getCounts() {
+		return counts;
+	}
+
+	/**
+	 * @return the counts of the frequent keywords
+	 */
+	public HashMap<String, Integer> getTopKeywordCounts() {
+		HashMap<String, Integer> topKeywordCounts = new HashMap<String, Integer>(topKeywords.size() * 2);
+		for (Entry<String, Counter> e : topKeywords.entrySet())
+			topKeywordCounts.put(e.getKey(), e.getValue().bucket.count);
+		return topKeywordCounts;
+	}
+
+	public int getTopK() {
+		return topK;
+	}
+
+	public int getDecayInterval() {
+		return decayInterval;
+	}
+
+	public int getUpdatesSinceDecay() {
+		return updatesSinceDecay;
+	}
+
+	/**
+	 * @return the number of bytes used by the counters
+	 */
+	public long getMemorySize() {
+		return 4L * counts.length * counts[0].length + 96L * topKeywords.size();
+	}
+}
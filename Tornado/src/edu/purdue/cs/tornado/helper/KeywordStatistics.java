@@ -0,0 +1,51 @@
+/**
+ * Copyright Jul 5, 2015
+ * Author : Ahmed Mahmood
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.purdue.cs.tornado.helper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keyword selectivity statistics of the indexed queries.
+ * Counts are estimates, implementations may over estimate and decay them over time.
+ */
+public interface KeywordStatistics {
+
+	/**
+	 * Adds delta (negative when queries are removed) to the query count of keyword
+	 * @return the estimated count after the update
+	 */
+	public int addQueryCount(String keyword, int delta);
+
+	/**
+	 * @return the estimated number of queries that have keyword, 0 if it was never seen
+	 */
+	public int getQueryCount(String keyword);
+
+	/**
+	 * @return the keyword with the lowest estimated count, the first one on ties
+	 */
+	public String getRarestKeyword(List<String> keywords);
+
+	/**
+	 * @return the most frequent keywords tracked by the statistics
+	 */
+	public ArrayList<String> getFrequentKeywords();
+}
@@ -0,0 +1,276 @@
+/**
+ * Copyright Jul 5, 2015
+ * Author : Ahmed Mahmood
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.purdue.cs.tornado.helper;
+
+import java.util.ArrayList;
+
+/**
+ * Single pass keyword tokenizer that produces the same distinct sorted keyword
+ * list as the regex based TextHelpers.transformIntoSortedArrayListOfStringRegex
+ * without regular expressions and without intermediate string copies.
+ *
+ * A tokenizer instance keeps its scratch buffers between calls and is not
+ * thread safe, use one instance per thread (TextHelpers keeps a thread local one).
+ */
+public class KeywordTokenizer {
+	private static final int INITIAL_TEXT_SIZE = 512;
+	private static final int INITIAL_TOKEN_SIZE = 64;
+	private static final int INSERTION_SORT_THRESHOLD = 16;
+
+	private static final CharArraySet stopWords = new CharArraySet(TextHelpers.SET_VALUES);
+
+	private char[] text; //copy of the original text
+	private char[] lowerText; //lower case version of the text used for stop word lookup and output
+	private int[] tokenStart;
+	private int[] tokenLength;
+	private int[] order; //indexes of relevant tokens sorted on their original case
+	private int tokenCount;
+	private String[] keywords; //reusable sorted output buffer
+	private int keywordCount;
+
+	public KeywordTokenizer() {
+		text = new char[INITIAL_TEXT_SIZE];
+		lowerText = new char[INITIAL_TEXT_SIZE];
+		tokenStart = new int[INITIAL_TOKEN_SIZE];
+		tokenLength = new int[INITIAL_TOKEN_SIZE];
+		order = new int[INITIAL_TOKEN_SIZE];
+		keywords = new String[INITIAL_TOKEN_SIZE];
+		tokenCount = 0;
+		keywordCount = 0;
+	}
+
+	/**
+	 * Tokenizes the input text into the internal sorted keyword buffer
+	 * @param inputText
+	 * @return the number of distinct relevant keywords
+	 */
+	public int tokenize(String inputText) {
+		int length = inputText.length();
+		if (text.length < length) {
+			text = new char[length];
+			lowerText = new char[length];
+		}
+		inputText.getChars(0, length, text, 0);
+		tokenCount = 0;
+		int start = -1;
+		boolean onlyAlphanumeric = true;
+		for (int i = 0; i <= length; i++) {
+			char c = i < length ? text[i] : ' ';
+			if (isAlphanumeric(c)) {
+				if (start < 0) {
+					start = i;
+					onlyAlphanumeric = true;
+				}
+				lowerText[i] = (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+			} else if (c == '@' || c == '/' || c == '.' || c == ':' || c == '_') {
+				//these characters do not split a token but make it irrelevant
+				if (start < 0)
+					start = i;
+				onlyAlphanumeric = false;
+			} else if (start >= 0) {
+				if (onlyAlphanumeric)
+					addTokenIfRelevant(start, i - start);
+				start = -1;
+			}
+		}
+		sortTokens(0, tokenCount - 1);
+		keywordCount = 0;
+		int previous = -1;
+		for (int i = 0; i < tokenCount; i++) {
+			int token = order[i];
+			if (previous >= 0 && equalsLowerCase(previous, token))
+				continue;
+			previous = token;
+			keywords[keywordCount++] = new String(lowerText, tokenStart[token], tokenLength[token]);
+		}
+		return keywordCount;
+	}
+
+	public int size() {
+		return keywordCount;
+	}
+
+	public String getKeyword(int i) {
+		return keywords[i];
+	}
+
+	/**
+	 * Copies the current keyword buffer into a new list
+	 * @return
+	 */
+	public ArrayList<String> toArrayList() {
+		ArrayList<String> result = new ArrayList<String>(keywordCount);
+		for (int i = 0; i < keywordCount; i++)
+			result.add(keywords[i]);
+		return result;
+	}
+
+	private void addTokenIfRelevant(int start, int length) {
+		if (length < SpatioTextualConstants.relevenatKeyWordMinSize || length >= SpatioTextualConstants.relevenatKeyWordMaxSize)
+			return;
+		if (containsHttp(start, length))
+			return;
+		if (stopWords.contains(lowerText, start, length))
+			return;
+		if (tokenCount == tokenStart.length)
+			growTokens();
+		tokenStart[tokenCount] = start;
+		tokenLength[tokenCount] = length;
+		order[tokenCount] = tokenCount;
+		tokenCount++;
+	}
+
+	private void growTokens() {
+		int newSize = tokenStart.length * 2;
+		int[] newStart = new int[newSize];
+		int[] newLength = new int[newSize];
+		int[] newOrder = new int[newSize];
+		String[] newKeywords = new String[newSize];
+		System.arraycopy(tokenStart, 0, newStart, 0, tokenCount);
+		System.arraycopy(tokenLength, 0, newLength, 0, tokenCount);
+		System.arraycopy(order, 0, newOrder, 0, tokenCount);
+		tokenStart = newStart;
+		tokenLength = newLength;
+		order = newOrder;
+		keywords = newKeywords;
+	}
+
+	/**
+	 * The regex version checks String.contains("http") on the original case
+	 */
+	private boolean containsHttp(int start, int length) {
+		int end = start + length - 3;
+		for (int i = start; i < end; i++)
+			if (text[i] == 'h' && text[i + 1] == 't' && text[i + 2] == 't' && text[i + 3] == 'p')
+				return true;
+		return false;
+	}
+
+	/**
+	 * Same ordering as String.compareTo on the original (case sensitive) tokens
+	 */
+	private int compareTokens(int token1, int token2) {
+		int start1 = tokenStart[token1], start2 = tokenStart[token2];
+		int length1 = tokenLength[token1], length2 = tokenLength[token2];
+		int min = Math.min(length1, length2);
+		for (int i = 0; i < min; i++) {
+			int diff = text[start1 + i] - text[start2 + i];
+			if (diff != 0)
+				return diff;
+		}
+		return length1 - length2;
+	}
+
+	private boolean equalsLowerCase(int token1, int token2) {
+		int length = tokenLength[token1];
+		if (length != tokenLength[token2])
+			return false;
+		int start1 = tokenStart[token1], start2 = tokenStart[token2];
+		for (int i = 0; i < length; i++)
+			if (lowerText[start1 + i] != lowerText[start2 + i])
+				return false;
+		return true;
+	}
+
+	private void sortTokens(int low, int high) {
+		while (high - low >= INSERTION_SORT_THRESHOLD) {
+			int pivot = order[(low + high) >>> 1];
+			int i = low, j = high;
+			while (i <= j) {
+				while (compareTokens(order[i], pivot) < 0)
+					i++;
+				while (compareTokens(order[j], pivot) > 0)
+					j--;
+				if (i <= j) {
+					int temp = order[i];
+					order[i++] = order[j];
+					order[j--] = temp;
+				}
+			}
+			//recurse on the smaller half and loop on the larger one
+			if (j - low < high - i) {
+				sortTokens(low, j);
+				low = i;
+			} else {
+				sortTokens(i, high);
+				high = j;
+			}
+		}
+		for (int i = low + 1; i <= high; i++) {
+			int token = order[i];
+			int j = i - 1;
+			while (j >= low && compareTokens(order[j], token) > 0) {
+				order[j + 1] = order[j];
+				j--;
+			}
+			order[j + 1] = token;
+		}
+	}
+
+	private static boolean isAlphanumeric(char c) {
+		return (c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+	}
+
+	/**
+	 * Open addressing set of lower case words that can be probed with a char range
+	 */
+	static class CharArraySet {
+		private final char[][] table;
+		private final int mask;
+
+		CharArraySet(String[] words) {
+			int capacity = Integer.highestOneBit(Math.max(words.length, 1) * 4);
+			table = new char[capacity][];
+			mask = capacity - 1;
+			for (String word : words) {
+				char[] chars = word.toLowerCase().toCharArray();
+				if (!contains(chars, 0, chars.length))
+					table[findSlot(chars, 0, chars.length)] = chars;
+			}
+		}
+
+		boolean contains(char[] buffer, int start, int length) {
+			return table[findSlot(buffer, start, length)] != null;
+		}
+
+		private int findSlot(char[] buffer, int start, int length) {
+			int slot = hash(buffer, start, length) & mask;
+			while (table[slot] != null && !equals(table[slot], buffer, start, length))
+				slot = (slot + 1) & mask;
+			return slot;
+		}
+
+		private static int hash(char[] buffer, int start, int length) {
+			int h = 0;
+			for (int i = start; i < start + length; i++)
+				h = 31 * h + buffer[i];
+			return h ^ (h >>> 16);
+		}
+
+		private static boolean equals(char[] word, char[] buffer, int start, int length) {
+			if (word.length != length)
+				return false;
+			for (int i = 0; i < length; i++)
+				if (word[i] != buffer[start + i])
+					return false;
+			return true;
+		}
+	}
+}
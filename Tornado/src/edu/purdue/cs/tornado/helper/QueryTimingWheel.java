@@ -0,0 +1,180 @@
+/**
+ * Copyright Jul 5, 2015
+ * Author : Ahmed Mahmood
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.purdue.cs.tornado.helper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.purdue.cs.tornado.messages.Query;
+
+/**
+ * A hierarchical timing wheel of continuous queries by their remove time. A
+ * query expires at the first time that is above its remove time. Every level
+ * has SLOTS slots, a slot of level l covers SLOTS^l times and holds the
+ * queries that expire in it, a bitmap per level marks the occupied slots.
+ * advance(now) jumps from one occupied slot to the next, the queries of a
+ * slot of an upper level are moved to the lower levels when the time reaches
+ * the slot, so advancing costs the number of expired and moved queries and
+ * not the elapsed time. The remove time of a query is read again when its
+ * slot is reached, a later remove time moves the query forward and a query
+ * that never expires leaves the wheel. Queries are not removed from the
+ * wheel when they are dropped, the index skips the expired queries it no
+ * longer holds. Not thread safe, every index owns its own instance.
+ */
+public class QueryTimingWheel {
+	static final int SLOT_BITS = 6;
+	static final int SLOTS = 1 << SLOT_BITS;
+	static final int SLOT_MASK = SLOTS - 1;
+	static final int LEVELS = (Long.SIZE + SLOT_BITS - 1) / SLOT_BITS;
+
+	private final ArrayList<Query>[][] slots;//by level and slot, created when first used
+	private final long[] occupied;//bitmap of the non empty slots per level
+	private ArrayList<Query> expired;//queries that expired before they were added
+	private long time;//the queries with a remove time below time have been returned
+	private int size;
+
+	public QueryTimingWheel() {
+		this(0);
+	}
+
+	public QueryTimingWheel(long time) {
+		this.slots = newLevels();
+		this.occupied = new long[LEVELS];
+		this.expired = new ArrayList<Query>();
+		this.time = time;
+		this.size = 0;
+	}
+
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * The number of queries in the wheel including the dropped ones that are
+	 * not reached yet
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Adds the query, a query without a remove time or with Long.MAX_VALUE
+	 * never expires and is not added
+	 */
+	public boolean add(Query query) {
+		Long removeTime = query.getRemoveTime();
+		if (removeTime == null || removeTime == Long.MAX_VALUE)
+			return false;
+		place(query, removeTime + 1);
+		size++;
+		return true;
+	}
+
+	private void place(Query query, long expireTime) {
+		if (expireTime <= time) {
+			expired.add(query);
+			return;
+		}
+		//the level of the highest bit where the expire time differs from the time
+		int level = (Long.SIZE - 1 - Long.numberOfLeadingZeros(expireTime ^ time)) / SLOT_BITS;
+		int slot = (int) (expireTime >>> (level * SLOT_BITS)) & SLOT_MASK;
+		if (slots[level] == null)
+			slots[level] = newLevel();
+		if (slots[level][slot] == null)
+			slots[level][slot] = new ArrayList<Query>();
+		slots[level][slot].add(query);
+		occupied[level] |= 1L << slot;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ArrayList<Query>[][] newLevels() {
+		return (ArrayList<Query>[][]) new ArrayList<?>[LEVELS][];
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ArrayList<Query>[] newLevel() {
+		return (ArrayList<Query>[]) new ArrayList<?>[SLOTS];
+	}
+
+	/**
+	 * The first time of the earliest occupied slot of the level. The slots of
+	 * a level are after the time and before the slots of the upper levels, so
+	 * the lowest occupied slot of the lowest occupied level comes first.
+	 */
+	long getSlotTime(int level) {
+		int shift = (level + 1) * SLOT_BITS;
+		long prefix = shift >= Long.SIZE ? 0 : time >>> shift << shift;
+		return prefix | ((long) Long.numberOfTrailingZeros(occupied[level]) << (level * SLOT_BITS));
+	}
+
+	/**
+	 * Moves the time to now and returns the queries with a remove time below
+	 * now, a time before the current time returns only the queries that were
+	 * added after their remove time
+	 */
+	public List<Query> advance(long now) {
+		ArrayList<Query> result = new ArrayList<Query>();
+		if (!expired.isEmpty()) {
+			ArrayList<Query> queries = expired;
+			expired = new ArrayList<Query>();
+			expire(queries, result);
+		}
+		while (true) {
+			int level = 0;
+			while (level < LEVELS && occupied[level] == 0)
+				level++;
+			if (level == LEVELS)
+				break;
+			long slotTime = getSlotTime(level);
+			if (slotTime > now)
+				break;
+			time = slotTime;
+			int slot = (int) (time >>> (level * SLOT_BITS)) & SLOT_MASK;
+			ArrayList<Query> queries = slots[level][slot];
+			slots[level][slot] = null;
+			occupied[level] &= ~(1L << slot);
+			expire(queries, result);
+		}
+		if (now > time)
+			time = now;
+		return result;
+	}
+
+	/**
+	 * Adds the queries that expired at the time to the result and moves the
+	 * other ones to the slots of their remove time
+	 */
+	private void expire(ArrayList<Query> queries, ArrayList<Query> result) {
+		for (Query query : queries) {
+			Long removeTime = query.getRemoveTime();
+			if (removeTime == null || removeTime == Long.MAX_VALUE)
+				size--;
+			else if (removeTime < time) {
+				result.add(query);
+				size--;
+			} else
+				place(query, removeTime + 1);
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright Jul 5, 2015
+ * Author : Ahmed Mahmood
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.purdue.cs.tornado.helper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Worker wide registry that maps source ids (the component ids of the data and
+ * query sources) to small dense integer handles. Every worker registers the
+ * same sorted list of component ids from the topology configuration
+ * (SpatioTextualConstants.SOURCE_IDS) so handles can be written to the wire
+ * instead of the source id strings. Ids that were not registered have no handle.
+ * 
+ * getSourceId returns the registered String instance, so source ids read from
+ * the wire are interned and can be compared by reference.
+ * 
+ * The bolts use the same handles to index their per source state in arrays, the
+ * data and query sources of the configuration are registered by every worker in
+ * sorted order before any tuple is processed.
+ */
+public class SourceIdRegistry {
+	private static final SourceIdRegistry instance = new SourceIdRegistry();
+
+	private final ConcurrentHashMap<String, Integer> handles;
+	private volatile String[] sourceIds;
+	private volatile int size;
+
+	public static SourceIdRegistry getInstance() {
+		return instance;
+	}
+
+	public SourceIdRegistry() {
+		handles = new ConcurrentHashMap<String, Integer>();
+		sourceIds = new String[16];
+		size = 0;
+	}
+
+	/**
+	 * Registers the source ids that are not registered yet in the given order
+	 * @param ids
+	 */
+	public synchronized void register(Collection<String> ids) {
+		for (String id : ids)
+			if (id != null && !handles.containsKey(id)) {
+				String[] currentIds = sourceIds;
+				if (size == currentIds.length)
+					currentIds = Arrays.copyOf(currentIds, currentIds.length * 2);
+				currentIds[size] = id;
+				sourceIds = currentIds;
+				handles.put(id, size);
+				size++;
+			}
+	}
+
+	/**
+	 * @return the sorted ids of the data and query sources declared in conf
+	 */
+	public static ArrayList<String> getConfiguredSourceIds(Map conf) {
+		ArrayList<String> sourceIds = new ArrayList<String>();
+		for (Object key : conf.keySet()) {
+			String name = "" + key;
+			if (name.startsWith(DataSourceType.DATA_SOURCE.name()))
+				sourceIds.add(name.substring(DataSourceType.DATA_SOURCE.name().length() + 1));
+			else if (name.startsWith(DataSourceType.QUERY_SOURCE.name()))
+				sourceIds.add(name.substring(DataSourceType.QUERY_SOURCE.name().length() + 1));
+		}
+		Collections.sort(sourceIds);
+		return sourceIds;
+	}
+
+	/**
+	 * Registers the data and query sources declared in conf, sources registered
+	 * before keep their handles
+	 */
+	public void registerConfiguredSources(Map conf) {
+		register(getConfiguredSourceIds(conf));
+	}
+
+	/**
+	 * @param sourceId
+	 * @return the handle of sourceId, or -1 if it is not registered
+	 */
+	public int getHandle(String sourceId) {
+		if (sourceId == null)
+			return -1;
+		Integer handle = handles.get(sourceId);
+		return handle == null ? -1 : handle;
+	}
+
+	public String getSourceId(int handle) {
+		return sourceIds[handle];
+	}
+
+	/**
+	 * @return the registered instance equal to sourceId, or sourceId if it is not registered
+	 */
+	public String intern(String sourceId) {
+		int handle = getHandle(sourceId);
+		return handle < 0 ? sourceId : sourceIds[handle];
+	}
+
+	public int size() {
+		return size;
+	}
+}
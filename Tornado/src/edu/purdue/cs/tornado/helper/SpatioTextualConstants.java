@@ -23,6 +23,29 @@ public class SpatioTextualConstants {
 	//Properties file which has all the configurable parameters required for execution of this Topology.
 	public static final String CONFIG_PROPERTIES_FILE = "resources/config.properties";
 	public static final String CLUSTER_CONFIG_PROPERTIES_FILE = "resources/clusterconfig.properties";
+	//Keywords that get the same term id in every worker, one keyword per line, built by BuildKeywordDictionary and also read from the class path
+	public static final String KEYWORD_DICTIONARY_FILE = "resources/keywords.dict";
+	//Topology configuration: sorted component ids that get a SourceIdRegistry handle in every worker
+	public static final String SOURCE_IDS = "tornado.source.ids";
+	//Topology configuration: coordinate encoding of the serializers, double (default), float or fixed
+	public static final String COORDINATE_ENCODING = "tornado.serializer.coordinate.encoding";
+	//Topology configuration: data objects per batch sent from an index bolt to an evaluator, 1 disables batching
+	public static final String DATA_BATCH_SIZE = "tornado.data.batch.size";
+	public static final int DEFAULT_DATA_BATCH_SIZE = 32;
+	//Topology configuration: milli seconds a data object can wait in an index bolt batch, idle streams are flushed every second
+	public static final String DATA_BATCH_MAX_LATENCY_MS = "tornado.data.batch.max.latency.ms";
+	public static final long DEFAULT_DATA_BATCH_MAX_LATENCY_MS = 10;
+	//Topology configuration: matches per query sent by an evaluator in one output tuple, 1 (default) sends every match on its own
+	public static final String OUTPUT_BATCH_SIZE = "tornado.output.batch.size";
+	public static final int DEFAULT_OUTPUT_BATCH_SIZE = 1;
+	//Topology configuration: milli seconds a match can wait in an evaluator output batch, idle evaluators flush on their tick tuple
+	public static final String OUTPUT_BATCH_MAX_LATENCY_MS = "tornado.output.batch.max.latency.ms";
+	public static final long DEFAULT_OUTPUT_BATCH_MAX_LATENCY_MS = 10;
+	//Topology configuration: estimated bytes of an index cell block moved between evaluators by load balancing
+	public static final String MIGRATION_BLOCK_BYTES = "tornado.migration.block.bytes";
+	public static final int DEFAULT_MIGRATION_BLOCK_BYTES = 256 * 1024;
+	//Topology configuration: true lets the FAST local indexes tune their trie split, degradation and cleaning parameters, false (default) keeps them fixed
+	public static final String FAST_TUNING = "tornado.fast.tuning";
 
 	//**********************************************************************************
 	//**********************Spatio-textual index constants
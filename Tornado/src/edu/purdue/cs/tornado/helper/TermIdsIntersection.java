@@ -0,0 +1,179 @@
+/**
+ * Copyright Jul 5, 2015
+ * Author : Ahmed Mahmood
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.purdue.cs.tornado.helper;
+
+/**
+ * Intersection kernels over sorted distinct term id arrays.
+ * contains and overlaps pick the kernel from the array sizes:
+ * a branch light scan when the larger array is tiny, galloping search when one
+ * array is much longer than the other (long tweet, short query) and a linear
+ * merge otherwise. The thresholds come from TextIntersectionPerformance.
+ */
+public class TermIdsIntersection {
+	public static final int SMALL_SIZE = 12; //max size of the larger array to use the branch light scan
+	public static final int GALLOP_RATIO = 4; //min size ratio between the arrays to use galloping for contains
+	public static final int OVERLAPS_GALLOP_RATIO = 16; //overlaps exits on the first shared term so merging stays cheaper longer
+
+	/**
+	 * @param container sorted distinct term ids
+	 * @param subset sorted distinct term ids
+	 * @return true if container has all terms of subset
+	 */
+	public static boolean contains(int[] container, int[] subset) {
+		int n = container.length, m = subset.length;
+		if (m > n)
+			return false;
+		if (m == 0)
+			return true;
+		if (n <= SMALL_SIZE)
+			return containsSmall(container, subset);
+		if (n >= m * GALLOP_RATIO)
+			return containsGallop(container, subset);
+		return containsMerge(container, subset);
+	}
+
+	/**
+	 * @param termIds1 sorted distinct term ids
+	 * @param termIds2 sorted distinct term ids
+	 * @return true if the arrays share a term
+	 */
+	public static boolean overlaps(int[] termIds1, int[] termIds2) {
+		int[] shorter = termIds1, longer = termIds2;
+		if (shorter.length > longer.length) {
+			shorter = termIds2;
+			longer = termIds1;
+		}
+		if (shorter.length == 0)
+			return false;
+		if (longer.length <= SMALL_SIZE)
+			return overlapsSmall(shorter, longer);
+		if (longer.length >= shorter.length * OVERLAPS_GALLOP_RATIO)
+			return overlapsGallop(shorter, longer);
+		return overlapsMerge(shorter, longer);
+	}
+
+	public static boolean containsMerge(int[] container, int[] subset) {
+		int n = container.length, m = subset.length;
+		int i = 0, j = 0;
+		while (i < n && j < m) {
+			if (container[i] < subset[j])
+				i++;
+			else if (container[i] > subset[j])
+				return false;
+			else {
+				i++;
+				j++;
+			}
+		}
+		return j == m;
+	}
+
+	public static boolean overlapsMerge(int[] termIds1, int[] termIds2) {
+		int n1 = termIds1.length, n2 = termIds2.length;
+		int i = 0, j = 0;
+		while (i < n1 && j < n2) {
+			if (termIds1[i] < termIds2[j])
+				i++;
+			else if (termIds1[i] > termIds2[j])
+				j++;
+			else
+				return true;
+		}
+		return false;
+	}
+
+	public static boolean containsGallop(int[] container, int[] subset) {
+		int from = 0;
+		for (int j = 0; j < subset.length; j++) {
+			int position = gallop(container, from, subset[j]);
+			if (position >= container.length || container[position] != subset[j])
+				return false;
+			from = position + 1;
+		}
+		return true;
+	}
+
+	public static boolean overlapsGallop(int[] shorter, int[] longer) {
+		int from = 0;
+		for (int j = 0; j < shorter.length && from < longer.length; j++) {
+			int position = gallop(longer, from, shorter[j]);
+			if (position < longer.length && longer[position] == shorter[j])
+				return true;
+			from = position;
+		}
+		return false;
+	}
+
+	/**
+	 * Each term of the subset is compared to every term of the container without
+	 * early exits so the inner loop compiles to compares and adds only
+	 */
+	public static boolean containsSmall(int[] container, int[] subset) {
+		int matched = 0;
+		for (int j = 0; j < subset.length; j++) {
+			int term = subset[j];
+			for (int i = 0; i < container.length; i++)
+				matched += container[i] == term ? 1 : 0;
+		}
+		return matched == subset.length;
+	}
+
+	public static boolean overlapsSmall(int[] termIds1, int[] termIds2) {
+		int matched = 0;
+		for (int j = 0; j < termIds1.length; j++) {
+			int term = termIds1[j];
+			for (int i = 0; i < termIds2.length; i++)
+				matched += termIds2[i] == term ? 1 : 0;
+		}
+		return matched > 0;
+	}
+
+	/**
+	 * Exponential search followed by a binary search
+	 * @param termIds sorted term ids
+	 * @param from first position to consider
+	 * @param key
+	 * @return the first position at or after from whose term is >= key, or termIds.length
+	 */
+	static int gallop(int[] termIds, int from, int key) {
+		int n = termIds.length;
+		if (from >= n || termIds[from] >= key)
+			return from;
+		int step = 1;
+		int low = from; //termIds[low] < key
+		int high = from + step;
+		while (high < n && termIds[high] < key) {
+			low = high;
+			step <<= 1;
+			high = from + step;
+		}
+		if (high > n)
+			high = n;
+		//termIds[low] < key and (high == n or termIds[high] >= key)
+		while (low + 1 < high) {
+			int middle = (low + high) >>> 1;
+			if (termIds[middle] < key)
+				low = middle;
+			else
+				high = middle;
+		}
+		return high;
+	}
+}
@@ -26,6 +26,8 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
 
+import edu.purdue.cs.tornado.messages.Query;
+
 public class TextHelpers {
 	public static final String[] SET_VALUES = new String[] { "a","ab","abt","attwaction","attwicted",
 			"as","able","about","above","according","accordingly","across","actually","after","afterwards",
@@ -81,12 +83,29 @@ public class TextHelpers {
 			"would","would","wouldnt","woz","wtf","wtv","xoxo","yes","yet","ykyat","yolo","you","youd","youll","youre","youve",
 			"your","yours","yourself","yourselves","yoyo","zero","ztwitt","2moro","2nite" /*,"http" ,"https"*/ };
 	protected static final HashSet<String> stop_list= new HashSet<String>(Arrays.asList(SET_VALUES));
+	private static final ThreadLocal<KeywordTokenizer> tokenizer = new ThreadLocal<KeywordTokenizer>() {
+		@Override
+		protected KeywordTokenizer initialValue() {
+			return new KeywordTokenizer();
+		}
+	};
 	/**
 	 * This method transforms an string into a distinct sorted keyword list 
 	 * @param inputText
 	 * @return
 	 */
 	public static ArrayList<String> transformIntoSortedArrayListOfString(String inputText) {
+		KeywordTokenizer keywordTokenizer = tokenizer.get();
+		keywordTokenizer.tokenize(inputText);
+		return keywordTokenizer.toArrayList();
+	}
+	/**
+	 * Regex based version of transformIntoSortedArrayListOfString, kept as the reference 
+	 * implementation for the KeywordTokenizer 
+	 * @param inputText
+	 * @return
+	 */
+	public static ArrayList<String> transformIntoSortedArrayListOfStringRegex(String inputText) {
 		String[] splitText = inputText.replaceAll("[^A-Za-z0-9@/.:_]" , " ").split(SpatioTextualConstants.textDelimiter);
 		Arrays.sort(splitText);
 		ArrayList<String> sortedTextList = new ArrayList<String>(Arrays.asList(splitText));
@@ -193,6 +212,82 @@ public static boolean overlapsTextually(Set<String> textMap,ArrayList<String> te
 			return overlapsTextually(textMap, textList2);
 		return false;
 		}
+	/**
+	 * Same as evaluateTextualPredicate on keyword lists but on sorted term id arrays
+	 * from the KeywordDictionary
+	 * @param termIds1
+	 * @param termIds2
+	 * @param textualPredicate
+	 * @return
+	 */
+	public static boolean evaluateTextualPredicate(int[] termIds1, int[] termIds2, TextualPredicate textualPredicate) {
+		if (TextualPredicate.NONE.equals(textualPredicate))
+			return true;
+		else if (TextualPredicate.CONTAINS.equals(textualPredicate))
+			return containsTextually(termIds1, termIds2);
+		else if (textualPredicate == null || TextualPredicate.OVERlAPS.equals(textualPredicate))
+			return overlapsTextually(termIds1, termIds2);
+		return false;
+	}
+	/**
+	 * Evaluates the textual predicate of the query on the object terms,
+	 * a BOOLEAN_EXPR query matches if the object has all terms of one of its conjunctions
+	 * @param objectTermIds
+	 * @param query
+	 * @return
+	 */
+	public static boolean evaluateTextualPredicate(int[] objectTermIds, Query query) {
+		if (!TextualPredicate.BOOLEAN_EXPR.equals(query.getTextualPredicate()))
+			return evaluateTextualPredicate(objectTermIds, query.getQueryTextIds(), query.getTextualPredicate());
+		ArrayList<Query> conjunctionQueries = query.getConjunctionQueries();
+		if (conjunctionQueries != null)
+			for (Query conjunctionQuery : conjunctionQueries)
+				if (containsTextually(objectTermIds, conjunctionQuery.getQueryTextIds()))
+					return true;
+		return false;
+	}
+	/**
+	 * This method returns true if the input sorted term id arrays have shared terms
+	 * @param termIds1
+	 * @param termIds2
+	 * @return
+	 */
+	public static boolean overlapsTextually(int[] termIds1, int[] termIds2) {
+		return TermIdsIntersection.overlaps(termIds1, termIds2);
+	}
+	/**
+	 * This method determines if the container sorted term id array contains all terms of the subset array
+	 * @param termIdsContainer
+	 * @param termIdsSubset
+	 * @return
+	 */
+	public static boolean containsTextually(int[] termIdsContainer, int[] termIdsSubset) {
+		return TermIdsIntersection.contains(termIdsContainer, termIdsSubset);
+	}
+	/**
+	 * This method returns the count of overlapping terms of two sorted term id arrays
+	 * @param termIds1
+	 * @param termIds2
+	 * @return
+	 */
+	public static int getTextOverlapCount(int[] termIds1, int[] termIds2) {
+		int n1 = termIds1.length;
+		int n2 = termIds2.length;
+		int i = 0, j = 0;
+		int count = 0;
+		while (i < n1 && j < n2) {
+			if (termIds1[i] < termIds2[j])
+				i++;
+			else if (termIds1[i] > termIds2[j])
+				j++;
+			else {
+				count++;
+				i++;
+				j++;
+			}
+		}
+		return count;
+	}
 	/**
 	 * This method returns true if input list have shared keywords 
 	 * This method assumes that input lists are sorted on text to speed up the overlap identification process and entries in this arraylist are distinict
@@ -0,0 +1,158 @@
+/**
+ * Copyright Jul 5, 2015
+ * Author : Ahmed Mahmood
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.purdue.cs.tornado.helper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of tokenized texts, retweets and repeated posts are
+ * tokenized once. Entries are keyed by a 64 bit hash of the original text and
+ * keep the text itself so a hash collision never returns the wrong keywords.
+ * The cached keyword arrays and lists are shared between all callers and must
+ * not be modified.
+ * Not thread safe, every spout owns its own instance.
+ */
+public class TokenizationCache {
+	public static int DEFAULT_CAPACITY = 1 << 16;
+
+	private static class CachedKeywords {
+		final String text;
+		final String[] keywords;
+		final ArrayList<String> keywordList;
+
+		CachedKeywords(String text, ArrayList<String> keywordList) {
+			this.text = text;
+			this.keywords = keywordList.toArray(new String[keywordList.size()]);
+			this.keywordList = keywordList;
+		}
+	}
+
+	private final int capacity;
+	private final LinkedHashMap<Long, CachedKeywords> entries;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	public TokenizationCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity maximum number of cached texts
+	 */
+	public TokenizationCache(int capacity) {
+		this.capacity = Math.max(1, capacity);
+		this.entries = new LinkedHashMap<Long, CachedKeywords>(Math.min(this.capacity, 1 << 16) * 4 / 3 + 1, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, CachedKeywords> eldest) {
+				if (size() > TokenizationCache.this.capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * FNV-1a 64 bit hash of the characters of text
+	 */
+	public static long hash(String text) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < text.length(); i++) {
+			h ^= text.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+
+	/**
+	 * @return the distinct sorted keywords of text as produced by
+	 *         TextHelpers.transformIntoSortedArrayListOfString, shared and not to be modified
+	 */
+	public String[] getKeywords(String text) {
+		return lookup(text).keywords;
+	}
+
+	/**
+	 * @return the cached keyword list of text, shared by all the objects with
+	 *         the same text and not to be modified
+	 */
+	public ArrayList<String> getKeywordList(String text) {
+		return lookup(text).keywordList;
+	}
+
+	private CachedKeywords lookup(String text) {
+		Long key = hash(text);
+		CachedKeywords cached = entries.get(key);
+		if (cached != null && cached.text.equals(text)) {
+			hits++;
+			return cached;
+		}
+		misses++;
+		cached = new CachedKeywords(text, TextHelpers.transformIntoSortedArrayListOfString(text));
+		entries.put(key, cached);
+		return cached;
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	public double getHitRate() {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0.0 : (double) hits / lookups;
+	}
+
+	public void resetStatistics() {
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+
+	public void clear() {
+		entries.clear();
+	}
+
+	@Override
+	public String toString() {
+		return "TokenizationCache[size: " + entries.size() + "/" + capacity + " , hits: " + hits + " , misses: " + misses + " , evictions: " + evictions + " , hit rate: " + getHitRate() + "]";
+	}
+}
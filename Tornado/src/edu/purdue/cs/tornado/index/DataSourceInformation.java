@@ -26,6 +26,7 @@ import java.util.Map;
 import edu.purdue.cs.tornado.helper.DataSourceType;
 import edu.purdue.cs.tornado.helper.IndexCell;
 import edu.purdue.cs.tornado.helper.Rectangle;
+import edu.purdue.cs.tornado.helper.SourceIdRegistry;
 import edu.purdue.cs.tornado.helper.SpatioTextualConstants;
 import edu.purdue.cs.tornado.index.local.LocalHybridIndex;
 import edu.purdue.cs.tornado.index.local.LocalIndexType;
@@ -44,6 +45,7 @@ import edu.purdue.cs.tornado.messages.DataObject;
  */
 public class DataSourceInformation {
 	public String dataSourceId; // component id of the data source
+	public int sourceHandle; // SourceIdRegistry handle of dataSourceId, -1 if it is not registered
 	public DataSourceType dataSourceType; // Query, data source
 	public String persisteneceState; // data source
 	public Double timeSlidingWindow; // data source
@@ -65,7 +67,8 @@ public class DataSourceInformation {
 	public Integer fineGridGran ;
 	public DataSourceInformation(Rectangle selfBounds, String dataSourceId, DataSourceType dataSourceType, String persisteneceState, String cleanState, Boolean local,LocalIndexType localIndexType,Integer fineGridGran) {
 
-		this.dataSourceId = dataSourceId;
+		this.sourceHandle = SourceIdRegistry.getInstance().getHandle(dataSourceId);
+		this.dataSourceId = sourceHandle >= 0 ? SourceIdRegistry.getInstance().getSourceId(sourceHandle) : dataSourceId;
 		this.dataSourceType = dataSourceType;
 		this.persisteneceState = persisteneceState;
 		this.cleanState = cleanState;
@@ -84,7 +87,7 @@ public class DataSourceInformation {
 				break;
 				
 			case FAST:
-				this.localHybridIndex = new FAST(selfBounds, 512,8);
+				this.localHybridIndex = new FAST(selfBounds, this, 512, 8, fineGridGran == null ? 512 : fineGridGran);
 				break;
 			
 			case SPATIAL_GRID:
@@ -137,6 +140,10 @@ public class DataSourceInformation {
 		return dataSourceId;
 	}
 
+	public int getSourceHandle() {
+		return sourceHandle;
+	}
+
 	public DataSourceType getDataSourceType() {
 		return dataSourceType;
 	}
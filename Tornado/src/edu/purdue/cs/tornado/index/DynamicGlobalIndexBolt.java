@@ -9,7 +9,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.storm.Config;
 import org.apache.storm.task.OutputCollector;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.tuple.Tuple;
@@ -45,6 +44,8 @@ public class DynamicGlobalIndexBolt extends GlobalIndexBolt {
 	private boolean beginAdaptive = false;//for experimenal purposes only 
 	private int counterAfterPlan;
 	private int numberOfTickToWait = 2;
+	private static final int TICKS_PER_LOAD_CHECK = 10;//the load of the evaluators is checked every 10 one second ticks
+	private int ticksSinceLoadCheck;
 	private int planNumber;
 
 	/**
@@ -87,13 +88,6 @@ public class DynamicGlobalIndexBolt extends GlobalIndexBolt {
 
 	}
 
-	@Override
-	public Map<String, Object> getComponentConfiguration() {
-		Config conf = new Config();
-		conf.put(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS, 10);//in seconds //OLD:10
-		return conf;
-	}
-
 	@Override
 	protected boolean handleData(Tuple input, String source) throws Exception {
 		beginAdaptive = true;
@@ -200,6 +194,12 @@ public class DynamicGlobalIndexBolt extends GlobalIndexBolt {
 	protected void handleTickTuple(Tuple tuple) {
 		if (!beginAdaptive)
 			return;
+		//the one second tick of the index bolt flushes the data batches, the load is checked less often
+		if (++ticksSinceLoadCheck < TICKS_PER_LOAD_CHECK) {
+			collector.ack(tuple);
+			return;
+		}
+		ticksSinceLoadCheck = 0;
 		if (0 == selfTaskIndex) {
 			if (!StillApplyingNewPlan) {//NEW ADDITION
 				this.counterAfterPlan++;
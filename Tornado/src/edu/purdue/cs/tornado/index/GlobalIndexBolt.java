@@ -41,6 +41,7 @@ import edu.purdue.cs.tornado.helper.DataSourceType;
 import edu.purdue.cs.tornado.helper.Point;
 import edu.purdue.cs.tornado.helper.QueryType;
 import edu.purdue.cs.tornado.helper.Rectangle;
+import edu.purdue.cs.tornado.helper.SourceIdRegistry;
 import edu.purdue.cs.tornado.helper.SpatialHelper;
 import edu.purdue.cs.tornado.helper.SpatioTextualConstants;
 import edu.purdue.cs.tornado.helper.TextHelpers;
@@ -89,6 +90,7 @@ public class GlobalIndexBolt extends BaseRichBolt {
 	protected List<Integer> evaluatorBoltTasks; // this keeps track of the evaluator bolts IDs
 	protected List<Integer> indexBoltTasks;
 	protected Map<String, DataSourceInformation> sourcesInformations; // this keeps track of the type of every input source
+	protected DataSourceInformation[] sourcesInformationsByTask; // the sources of the default streams indexed by the id of the emitting task
 	protected Boolean reliable;
 
 	// ******************Index parameters ********************************
@@ -106,6 +108,13 @@ public class GlobalIndexBolt extends BaseRichBolt {
 	protected TopologyContext context; // storm context
 	protected OutputCollector collector;
 
+	// *******************Data batching attributes *********************
+	protected int dataBatchSize; // data objects per batch sent to an evaluator, 1 sends every object on its own
+	protected long dataBatchMaxLatency; // milli seconds a data object can wait in a batch
+	protected HashMap<Integer, DataObjectList> dataBatches; // evaluator task -> pending data objects
+	protected int pendingDataObjects;
+	protected long oldestPendingDataTime;
+
 	//************************Statistics attributes *********************
 	//transient CountMetric _inputDataCountMetric;
 	//transient ReducedMetric _indexingDataTimeMeanMetric;
@@ -147,19 +156,26 @@ public class GlobalIndexBolt extends BaseRichBolt {
 
 		// get tuple source information
 		try {
-			String source = getSourceName(input);
-			DataSourceType sourceType = getDataSourceType(source);
+			DataSourceInformation sourceInformation = getSourceInformation(input);
+			String source = sourceInformation != null ? sourceInformation.getDataSourceId() : getSourceName(input);
+			DataSourceType sourceType = sourceInformation != null ? sourceInformation.getDataSourceType() : getDataSourceType(source);
 			if (DataSourceType.DATA_SOURCE.equals(sourceType)) {
 				Boolean ack = handleData(input, source.toString());
+				if (pendingDataObjects > 0 && System.currentTimeMillis() - oldestPendingDataTime >= dataBatchMaxLatency)
+					flushDataBatches();
 				//				if (ack)
 				//					collector.ack(input);
 			} else if (DataSourceType.QUERY_SOURCE.equals(sourceType)) {
+				//evaluators see the data objects received before the query first
+				flushDataBatches();
 				handleQuery(input, source.toString());
 				//		collector.ack(input);
 			} else if (DataSourceType.CONTROL.equals(sourceType)) {
+				flushDataBatches();
 				handleControl(input);
 				//	collector.ack(input);
 			} else if (isTickTuple(input)) {
+				flushDataBatches();
 				handleTickTuple(input);
 				//	collector.ack(input);
 			}
@@ -184,6 +200,17 @@ public class GlobalIndexBolt extends BaseRichBolt {
 		return sourceType;
 	}
 
+	/**
+	 * @return the information of the data or query source of input, tuples of the default 
+	 * stream are resolved by the id of the emitting task without building the source name
+	 */
+	protected DataSourceInformation getSourceInformation(Tuple input) {
+		int sourceTask = input.getSourceTask();
+		if (sourceTask >= 0 && sourceTask < sourcesInformationsByTask.length && sourcesInformationsByTask[sourceTask] != null && SpatioTextualConstants.Default.equals(input.getSourceStreamId()))
+			return sourcesInformationsByTask[sourceTask];
+		return sourcesInformations.get(getSourceName(input));
+	}
+
 	protected String getSourceName(Tuple input) {
 		String source = input.getSourceComponent();
 		String streamId = input.getSourceStreamId();
@@ -223,6 +250,61 @@ public class GlobalIndexBolt extends BaseRichBolt {
 
 	}
 
+	/**
+	 * A batch is flushed by the first tuple that arrives after its oldest data
+	 * object waited dataBatchMaxLatency milli seconds. Ticks are at least one
+	 * second apart, so a data object of an idle stream waits at most the larger
+	 * of dataBatchMaxLatency and one second. Subclasses keep this tick.
+	 */
+	@Override
+	public Map<String, Object> getComponentConfiguration() {
+		Config conf = new Config();
+		conf.put(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS, 1);//flushes the data batches of idle streams
+		return conf;
+	}
+
+	/**
+	 * Sends a data object to an evaluator task, the object is added to the batch
+	 * of the task when batching is enabled
+	 */
+	protected void emitData(Integer evaluatorTask, DataObject dataObject) {
+		if (dataBatchSize <= 1) {
+			collector.emitDirect(evaluatorTask, SpatioTextualConstants.getIndexBoltDataStreamId(id), new Values(dataObject));
+			return;
+		}
+		DataObjectList dataObjectList = dataBatches.get(evaluatorTask);
+		if (dataObjectList == null) {
+			dataObjectList = new DataObjectList();
+			dataBatches.put(evaluatorTask, dataObjectList);
+		}
+		if (pendingDataObjects == 0)
+			oldestPendingDataTime = System.currentTimeMillis();
+		dataObjectList.addDataObject(dataObject);
+		pendingDataObjects++;
+		if (dataObjectList.getDataObjects().size() >= dataBatchSize) {
+			pendingDataObjects -= dataObjectList.getDataObjects().size();
+			emitDataBatch(evaluatorTask, dataObjectList);
+		}
+	}
+
+	/**
+	 * Sends all the pending data batches
+	 */
+	protected void flushDataBatches() {
+		if (pendingDataObjects == 0)
+			return;
+		for (Map.Entry<Integer, DataObjectList> entry : dataBatches.entrySet())
+			if (!entry.getValue().getDataObjects().isEmpty())
+				emitDataBatch(entry.getKey(), entry.getValue());
+		pendingDataObjects = 0;
+	}
+
+	private void emitDataBatch(Integer evaluatorTask, DataObjectList dataObjectList) {
+		collector.emitDirect(evaluatorTask, SpatioTextualConstants.getIndexBoltDataStreamId(id), new Values(dataObjectList));
+		//the emitted list belongs to the tuple now
+		dataBatches.put(evaluatorTask, new DataObjectList());
+	}
+
 	protected boolean handleData(Tuple input, String source) throws Exception {
 		// identify the evaluator bolt to submit your tuple to
 		// if persistent update the last evaluator bolt information and emit to
@@ -231,6 +313,7 @@ public class GlobalIndexBolt extends BaseRichBolt {
 		// the evaluator bolt should detect this and remove the previous tuple
 		// and the send to the proper bolt
 		DataObject dataObject = readDataObject(input, source);
+		DataSourceInformation sourceInformation = sourcesInformations.get(source);
 		//	boolean ack = dataObject.getObjectId() %10 == 0;
 		boolean ack = false;
 		if (Command.addCommand.equals(dataObject.getCommand()) || Command.updateCommand.equals(dataObject.getCommand()) || dataObject.getCommand() == null //assuming that a null data object command means an add command
@@ -242,25 +325,23 @@ public class GlobalIndexBolt extends BaseRichBolt {
 			if (globalIndex.isTextOnlyIndex()) {
 				ArrayList<Integer> evaluatorsTasks = globalIndex.getTaskIDsContainingKeywordData(dataObject);
 				for(Integer evalauatorTask: evaluatorsTasks)
-					collector.emitDirect(evalauatorTask, SpatioTextualConstants.getIndexBoltDataStreamId(id), new Values(dataObject));
+					emitData(evalauatorTask, dataObject);
 
 			} else {
 				Integer evalauatorTask = globalIndex.getTaskIDsContainingPoint(dataObject.getLocation());
-				if (sourcesInformations.get(source).isCurrent()) {
-					Integer previousEvalauatorTask = sourcesInformations.get(source).getDataLastBoltTasKInformation().get(dataObject.getObjectId());
+				if (sourceInformation.isCurrent()) {
+					Integer previousEvalauatorTask = sourceInformation.getDataLastBoltTasKInformation().get(dataObject.getObjectId());
 					//	sourcesInformations.get(source).getLastBoltTasKInformation().put(dataObject.getObjectId(), evalauatorTaskList);
-					if (!evalauatorTask.equals(previousEvalauatorTask)) {
+					if (previousEvalauatorTask != null && !evalauatorTask.equals(previousEvalauatorTask)) {
 						//this means there are previous location information about this object and hence 
 						//we make sure that the command for this dataobject is an update 
 						DataObject removeDataObject = new DataObject();
 						removeDataObject.setCommand(Command.dropCommand);
 						removeDataObject.setObjectId(dataObject.getObjectId());
-						removeDataObject.setSrcId(dataObject.getSrcId());
-						DataObjectList removeDataObjectList = new DataObjectList();
-						removeDataObjectList.addDataObject(removeDataObject);
-						collector.emitDirect(previousEvalauatorTask, SpatioTextualConstants.getIndexBoltDataStreamId(id), new Values(removeDataObjectList));
+						removeDataObject.setSrcId(dataObject.getSrcId(), dataObject.getSrcHandle());
+						emitData(previousEvalauatorTask, removeDataObject);
 					}
-					sourcesInformations.get(source).getDataLastBoltTasKInformation().put(dataObject.getObjectId(), evalauatorTask);
+					sourceInformation.getDataLastBoltTasKInformation().put(dataObject.getObjectId(), evalauatorTask);
 				}
 				//sending the new dataobject information to proper bolt task 
 				if (globalIndex.isTextAware()) {
@@ -268,13 +349,13 @@ public class GlobalIndexBolt extends BaseRichBolt {
 						//					if (ack)
 						//						collector.emitDirect(evalauatorTask, SpatioTextualConstants.getIndexBoltDataStreamId(id), input, new Values(dataObject));
 						//					else
-						collector.emitDirect(evalauatorTask, SpatioTextualConstants.getIndexBoltDataStreamId(id), new Values(dataObject));
+						emitData(evalauatorTask, dataObject);
 					} else {
 						//		_inputDataCountMetric.incr();
 					}
 				} else {
 
-					collector.emitDirect(evalauatorTask, SpatioTextualConstants.getIndexBoltDataStreamId(id), new Values(dataObject));
+					emitData(evalauatorTask, dataObject);
 				}
 			}
 		}
@@ -333,7 +414,20 @@ public class GlobalIndexBolt extends BaseRichBolt {
 				evalauatorTaskList = mapQueryToPartitions(query);
 				sourcesInformations.get(source).getQueryLastBoltTasKInformation().put(query.getQueryId(), evalauatorTaskList);
 				if (globalIndex.isTextAware()) {
-					HashSet<String> text = globalIndex.addTextToTaskID(evalauatorTaskList, query.getQueryText(), query.getTextualPredicate() == TextualPredicate.OVERlAPS, isForwardGlobalIndex());
+					HashSet<String> text = null;
+					if (TextualPredicate.BOOLEAN_EXPR.equals(query.getTextualPredicate()) && query.getComplexQueryText() != null) {
+						//one keyword of every conjunction is enough to route the objects that may match
+						for (ArrayList<String> conjunction : query.getComplexQueryText()) {
+							HashSet<String> conjunctionText = globalIndex.addTextToTaskID(evalauatorTaskList, conjunction, false, isForwardGlobalIndex());
+							if (conjunctionText == null)
+								continue;
+							if (text == null)
+								text = conjunctionText;
+							else
+								text.addAll(conjunctionText);
+						}
+					} else
+						text = globalIndex.addTextToTaskID(evalauatorTaskList, query.getQueryText(), query.getTextualPredicate() == TextualPredicate.OVERlAPS, isForwardGlobalIndex());
 					if (isForwardGlobalIndex()) {
 						for (Integer task : evalauatorTaskList)
 							collector.emitDirect(task, id + SpatioTextualConstants.Index_Bolt_STreamIDExtension_Query, input, new Values(query));
@@ -407,8 +501,41 @@ public class GlobalIndexBolt extends BaseRichBolt {
 		selfTaskIndex = context.getThisTaskIndex();
 		buildGlobalIndex();
 		initMetrics(context);
+		prepareDataBatches();
 
 		readDataSourcesInformation();
+		indexSourcesByTask();
+	}
+
+	/**
+	 * Maps the tasks of every source component to the information of the source
+	 */
+	protected void indexSourcesByTask() {
+		int maxTask = 0;
+		HashMap<Integer, DataSourceInformation> sourceTasks = new HashMap<Integer, DataSourceInformation>();
+		for (DataSourceInformation sourceInformation : sourcesInformations.values()) {
+			if (sourceInformation.getDataSourceId() == null)
+				continue;
+			List<Integer> tasks = context.getComponentTasks(sourceInformation.getDataSourceId());
+			if (tasks == null)
+				continue;
+			for (Integer task : tasks) {
+				sourceTasks.put(task, sourceInformation);
+				maxTask = Math.max(maxTask, task);
+			}
+		}
+		sourcesInformationsByTask = new DataSourceInformation[sourceTasks.isEmpty() ? 0 : maxTask + 1];
+		for (Map.Entry<Integer, DataSourceInformation> sourceTask : sourceTasks.entrySet())
+			sourcesInformationsByTask[sourceTask.getKey()] = sourceTask.getValue();
+	}
+
+	protected void prepareDataBatches() {
+		Object batchSize = stormConf.get(SpatioTextualConstants.DATA_BATCH_SIZE);
+		Object maxLatency = stormConf.get(SpatioTextualConstants.DATA_BATCH_MAX_LATENCY_MS);
+		this.dataBatchSize = batchSize == null ? SpatioTextualConstants.DEFAULT_DATA_BATCH_SIZE : ((Number) batchSize).intValue();
+		this.dataBatchMaxLatency = maxLatency == null ? SpatioTextualConstants.DEFAULT_DATA_BATCH_MAX_LATENCY_MS : ((Number) maxLatency).longValue();
+		this.dataBatches = new HashMap<Integer, DataObjectList>();
+		this.pendingDataObjects = 0;
 	}
 
 	//////////////
@@ -444,7 +571,11 @@ public class GlobalIndexBolt extends BaseRichBolt {
 		DataObject dataObject = null;
 		if (input.contains(SpatioTextualConstants.dataObject)) {
 			dataObject = (DataObject) input.getValueByField(SpatioTextualConstants.dataObject);
-			dataObject.setSrcId(source);
+			DataSourceInformation sourceInformation = sourcesInformations.get(source);
+			if (sourceInformation != null)
+				dataObject.setSrcId(sourceInformation.getDataSourceId(), sourceInformation.getSourceHandle());
+			else
+				dataObject.setSrcId(source);
 		}
 		return dataObject;
 
@@ -457,6 +588,7 @@ public class GlobalIndexBolt extends BaseRichBolt {
 	protected void readDataSourcesInformation() {
 		System.out.println("***************************Evaluating bolt configuration*******************");
 		Iterator it = stormConf.entrySet().iterator();
+		SourceIdRegistry.getInstance().registerConfiguredSources(stormConf);
 		sourcesInformations = new HashMap<String, DataSourceInformation>();
 		String sourceId = "";
 		DataSourceType sourceType;
@@ -481,6 +613,7 @@ public class GlobalIndexBolt extends BaseRichBolt {
 				sourceId = key.substring(DataSourceType.QUERY_SOURCE.name().length() + 1);
 			} else
 				continue;
+			sourceId = SourceIdRegistry.getInstance().intern(sourceId);
 			String value = "" + (String) pair.getValue();
 			if (value.contains(SpatioTextualConstants.Volatile))
 				persistenceState = SpatioTextualConstants.volatilePersistenceState;
@@ -509,7 +642,7 @@ public class GlobalIndexBolt extends BaseRichBolt {
 	public static Query readQueryByType(Tuple input, QueryType queryType, String source) {
 		Query query = new Query();
 		query.setQueryId(input.getIntegerByField(SpatioTextualConstants.queryIdField));
-		query.setSrcId(source);
+		query.setSrcId(SourceIdRegistry.getInstance().intern(source));
 		query.setQueryType(queryType);
 		query.setTimeStamp(input.getLongByField(SpatioTextualConstants.queryTimeStampField));
 		query.setDataSrc(input.getStringByField(SpatioTextualConstants.dataSrc));
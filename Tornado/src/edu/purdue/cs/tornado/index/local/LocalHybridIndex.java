@@ -40,5 +40,9 @@ public abstract class LocalHybridIndex {
 	public abstract void cleanUp() ;
 	public abstract IndexCellCoordinates mapDataPointToPartition(Point point) ;
 	public abstract IndexCell getIndexCellFromCoordinates(IndexCellCoordinates indexCell);
+	//load balancing, partitions and index cells are on the fine grid of the evaluators
+	public abstract void setPartition(Cell myPartition, Rectangle selfBounds);
+	public abstract void addIndexCellsFromPartition(IndexCell indexCell, boolean textAware);
+	public abstract void removeIndexCellsFromPartition(Cell partition, boolean textAware);
 
 }
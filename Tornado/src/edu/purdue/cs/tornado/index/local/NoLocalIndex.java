@@ -190,7 +190,7 @@ public class NoLocalIndex extends LocalHybridIndex {
 //			}
 //		}
 //		ArrayList<List<Query>> result = new ArrayList<List<Query>>(queriesMap.values());
-		return indexCell.geSpatiotTextualOverlappingQueries(dataObject.getLocation(),dataObject.getObjectText());
+		return indexCell.geSpatiotTextualOverlappingQueries(dataObject.getLocation(),dataObject.getObjectText(),dataObject.getTextSignature());
 
 	}
 
@@ -223,4 +223,21 @@ public class NoLocalIndex extends LocalHybridIndex {
 		return null;
 	}
 
+	@Override
+	public void setPartition(Cell myPartition, Rectangle selfBounds) {
+		this.selfBounds = selfBounds;
+	}
+
+	@Override
+	public void addIndexCellsFromPartition(IndexCell indexCell, boolean textAware) {
+		// TODO Auto-generated method stub
+
+	}
+
+	@Override
+	public void removeIndexCellsFromPartition(Cell partition, boolean textAware) {
+		// TODO Auto-generated method stub
+
+	}
+
 }
@@ -20,6 +20,7 @@
 package edu.purdue.cs.tornado.index.local.fast;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -33,22 +34,24 @@ import edu.purdue.cs.tornado.messages.Query;
 
 public class ExpandbleIndex {
 
-	public ConcurrentHashMap<String, Object> ptp;//queries that fall only within the cells range
-	Iterator<Entry<String, Object>> cleaningIterator;
+	public ConcurrentHashMap<String, KeywordIndex> ptp;//queries that fall only within the cells range
+	Iterator<Entry<String, KeywordIndex>> cleaningIterator;
 	boolean test;
 	Query testObject;
 	int level;
 	int debugQID = -1;
-	public static HashMap<String, KeywordFrequencyStats> overallQueryTextSummery;
+	public HashMap<String, KeywordFrequencyStats> overallQueryTextSummery;
+	public int queryTimeStampCounter;//a query with a lower remove time is expired
 
 	public ExpandbleIndex() {
 		ptp = null;
 		overallQueryTextSummery = new HashMap<String, KeywordFrequencyStats>();
+		queryTimeStampCounter = 0;
 	}
 
-	public Object addInternalQueryNoShare(Query query) {
+	public KeywordIndex addInternalQueryNoShare(Query query) {
 		if (ptp == null) {
-			ptp = new ConcurrentHashMap<String, Object>();
+			ptp = new ConcurrentHashMap<String, KeywordIndex>();
 		}
 		Queue<Query> queue = new LinkedList<Query>();
 		boolean inserted = false;
@@ -72,11 +75,10 @@ public class ExpandbleIndex {
 		}
 		
 		inserted = insertAtKeyWord(keyword, query);
-		if (inserted)
-			if (ptp.get(keyword) instanceof ArrayList)
-				return ptp.get(keyword);
-			else
-				return null;
+		if (inserted) {
+			KeywordIndex keywordIndex = ptp.get(keyword);
+			return keywordIndex.queries != null ? keywordIndex : null;
+		}
 		else {
 			queue.add(query);
 
@@ -96,54 +98,49 @@ public class ExpandbleIndex {
 			else {
 				for (String term : query.getQueryText()) {
 					//mark all these keywords as tries
-					if (ptp.get(term) instanceof ArrayList) {
+					KeywordIndex termIndex = ptp.get(term);
+					if (termIndex != null && termIndex.queries != null) {
 						
-						queue.addAll((ArrayList<Query>) ptp.get(term));
-						ptp.put(term, new KeywordTrieCellMinimalExperiment());
+						queue.addAll(Arrays.asList(termIndex.queries));
+						ptp.put(term, new KeywordIndex(new KeywordTrieCellMinimalExperiment()));
 					}
 				}
 			}
 			;
-			KeywordTrieCellMinimalExperiment currentCell = (KeywordTrieCellMinimalExperiment) ptp.get(query.getQueryText().get(0));
+			KeywordTrieCellMinimalExperiment currentCell = ptp.get(query.getQueryText().get(0)).trieCell;
 
 			for (int j = 1; j < query.getQueryText().size() & !inserted; j++) {
 				keyword = query.getQueryText().get(j);
 				if (currentCell.trieCells == null)
-					currentCell.trieCells = new HashMap<String, Object>();
+					currentCell.trieCells = new ConcurrentHashMap<String, KeywordIndex>();
 
-				Object cell = currentCell.trieCells.get(keyword);
+				KeywordIndex cell = currentCell.trieCells.get(keyword);
 				if (cell == null) {
-					currentCell.trieCells.put(keyword, query);
+					currentCell.putTrieCell(keyword, new KeywordIndex(query));
 					inserted = true;
-				} else if (cell instanceof Query) {
-					if (((Query) cell).getRemoveTime() > FAST.queryTimeStampCounter) {
-						ArrayList<Query> queries = new ArrayList<Query>();
-						queries.add((Query) cell);
-						queries.add((Query) query);
-						currentCell.trieCells.put(keyword, queries);
+				} else if (cell.query != null) {
+					if (cell.query.getRemoveTime() > queryTimeStampCounter) {
+						currentCell.putTrieCell(keyword, new KeywordIndex(new Query[] { cell.query, query }));
 						inserted = true;
 					} else {
-						currentCell.trieCells.put(keyword, query);
+						currentCell.putTrieCell(keyword, new KeywordIndex(query));
 						inserted = true;
 					}
-				} else if (cell instanceof ArrayList && ((ArrayList<Query>) cell).size() <= FAST.Trie_SPLIT_THRESHOLD) {
-					((ArrayList<Query>) cell).add(query);
+				} else if (cell.queries != null && cell.queries.length <= FAST.Trie_SPLIT_THRESHOLD) {
+					currentCell.putTrieCell(keyword, cell.add(query));
 					inserted = true;
-				} else if (cell instanceof ArrayList && ((ArrayList<Query>) cell).size() > FAST.Trie_SPLIT_THRESHOLD) {
+				} else if (cell.queries != null) {
 					KeywordTrieCellMinimalExperiment newCell = new KeywordTrieCellMinimalExperiment();
-					((ArrayList<Query>) cell).add(query);
-					newCell.trieCells = new HashMap<String, Object>();
+					cell = cell.add(query);
+					newCell.trieCells = new ConcurrentHashMap<String, KeywordIndex>();
 					newCell.queries = new ArrayList<Query>();
-					currentCell.trieCells.put(keyword, newCell);
-					for (Query otherQuery : ((ArrayList<Query>) cell)) {
+					currentCell.putTrieCell(keyword, new KeywordIndex(newCell));
+					for (Query otherQuery : cell.queries) {
 						if (otherQuery.getQueryText().size() > (j + 1)) {
 
-							Object otherCell = newCell.trieCells.get(otherQuery.getQueryText().get(j + 1));
-							if (otherCell == null) {
-								otherCell = new ArrayList<Query>();
-							}
-							((ArrayList<Query>) otherCell).add(otherQuery);
-							newCell.trieCells.put(otherQuery.getQueryText().get(j + 1), otherCell);
+							String nextKeyword = otherQuery.getQueryText().get(j + 1);
+							KeywordIndex otherCell = newCell.trieCells.get(nextKeyword);
+							newCell.putTrieCell(nextKeyword, otherCell == null ? new KeywordIndex(new Query[] { otherQuery }) : otherCell.add(otherQuery));
 						} else {
 							newCell.queries.add(otherQuery);
 						}
@@ -152,14 +149,15 @@ public class ExpandbleIndex {
 					if (newCell.queries != null && newCell.queries.size() == 0)
 						newCell.queries = null;
 					inserted = true;
-				} else if (cell instanceof KeywordTrieCellMinimalExperiment) {
+				} else {
+					KeywordTrieCellMinimalExperiment trieCell = cell.trieCell;
 					if (j < (query.getQueryText().size() - 1)) {
-						currentCell = (KeywordTrieCellMinimalExperiment) cell;
+						currentCell = trieCell;
 					} else {
 
-						if (((KeywordTrieCellMinimalExperiment) cell).queries == null)
-							((KeywordTrieCellMinimalExperiment) cell).queries = new ArrayList<Query>();
-						((KeywordTrieCellMinimalExperiment) cell).queries.add(query);
+						if (trieCell.queries == null)
+							trieCell.queries = new ArrayList<Query>();
+						trieCell.queries.add(query);
 						
 
 						inserted = true;
@@ -186,30 +184,27 @@ public class ExpandbleIndex {
 		boolean inserted = false;
 		if (!ptp.containsKey(keyword)) {
 			inserted = true;
-			ptp.put(keyword, query);
+			ptp.put(keyword, new KeywordIndex(query));
 			return inserted;
 		} else { //this keyword already exists in the index
-			Object keywordIndex = ptp.get(keyword);
+			KeywordIndex keywordIndex = ptp.get(keyword);
 			if (keywordIndex == null) {
-				ptp.put(keyword, query);
+				ptp.put(keyword, new KeywordIndex(query));
 				inserted = true;
 				return inserted;
 			}
-			if (keywordIndex instanceof Query) { //single query 
-				Query exitingQuery = (Query) keywordIndex;
-				ArrayList<Query> rareQueries = new ArrayList<Query>();
-				rareQueries.add(exitingQuery);
-				rareQueries.add(query);
+			if (keywordIndex.query != null) { //single query 
+				Query exitingQuery = keywordIndex.query;
 				inserted = true;
-				ptp.put(keyword, rareQueries);
+				ptp.put(keyword, new KeywordIndex(new Query[] { exitingQuery, query }));
 				return inserted;
 
-			} else if ((keywordIndex instanceof ArrayList) && ((ArrayList<Query>) keywordIndex).size() < FAST.Trie_SPLIT_THRESHOLD) { // this keyword is rare
-				((ArrayList<Query>) keywordIndex).add(query);
+			} else if (keywordIndex.queries != null && keywordIndex.queries.length < FAST.Trie_SPLIT_THRESHOLD) { // this keyword is rare
+				ptp.put(keyword, keywordIndex.add(query));
 				inserted = true;
 				return inserted;
-			} else if ((keywordIndex instanceof ArrayList) && ((ArrayList<Query>) keywordIndex).size() >= FAST.Trie_SPLIT_THRESHOLD) { // this keyword is rare
-				if (!((ArrayList<Query>) keywordIndex).contains(query)) {
+			} else if (keywordIndex.queries != null) { // this keyword is rare
+				if (!keywordIndex.contains(query)) {
 					inserted = false;
 					return inserted;
 				} else {
@@ -217,36 +212,34 @@ public class ExpandbleIndex {
 					return inserted;
 				}
 				//then trie insert for all frequent keywords 
-			} else if (keywordIndex instanceof KeywordTrieCellMinimalExperiment) {
+			} else {
 				inserted = false;
 				return inserted;
-			} else {
-				System.err.println("This is an error you should never be here");
 			}
 		}
-		return false;
 	}
 
 	public String getOtherKeywordToInser(Query query) {
 		int minSize = Integer.MAX_VALUE;
 		String minKeyword = null;
 		for (String term : query.getQueryText()) {
-			if (!ptp.containsKey(term)) {
+			KeywordIndex termIndex = ptp.get(term);
+			if (termIndex == null) {
 				int size = 0;
 				if (size < minSize) {
 					minSize = size;
 					minKeyword = term;
 				}
 
-			} else if (ptp.containsKey(term) && ptp.get(term) instanceof Query) {
+			} else if (termIndex.query != null) {
 				int size = 1;
 				if (size < minSize) {
 					minSize = size;
 					minKeyword = term;
 				}
 
-			} else if (ptp.containsKey(term) && ptp.get(term) instanceof ArrayList) {
-				int size = ((ArrayList<Query>) ptp.get(term)).size();
+			} else if (termIndex.queries != null) {
+				int size = termIndex.queries.length;
 				if (size < minSize) {
 					minSize = size;
 					minKeyword = term;
@@ -261,22 +254,22 @@ public class ExpandbleIndex {
 		ArrayList<String> remainingKewords = new ArrayList<String>();
 		for (int i = 0; i < keywords.size(); i++) {
 			String keyword = keywords.get(i);
-			Object keyWordIndex = ptp.get(keyword);
+			KeywordIndex keyWordIndex = ptp.get(keyword);
 			if (keyWordIndex != null) {
-				if (keyWordIndex instanceof Query) {
-					Query query = ((Query) keyWordIndex);
+				if (keyWordIndex.query != null) {
+					Query query = keyWordIndex.query;
 					if (keywords.size() >= query.getQueryText().size() && TextHelpers.containsTextually(keywords, query.getQueryText())) {
 						finalQueries.add(query);
 					}
-				} else if (keyWordIndex instanceof ArrayList) {
-					ArrayList<Query> rareQueries = (ArrayList<Query>) keyWordIndex;
+				} else if (keyWordIndex.queries != null) {
+					Query[] rareQueries = keyWordIndex.queries;
 					for (Query q : rareQueries) {
 						if (keywords.size() >= q.getQueryText().size() && TextHelpers.containsTextually(keywords, q.getQueryText())) {
 							finalQueries.add(q);
 						}
 					}
-				} else if (keyWordIndex instanceof KeywordTrieCellMinimalExperiment) {
-					((KeywordTrieCellMinimalExperiment) keyWordIndex).findTextualOnly(keywords, i+1, finalQueries, 1);
+				} else {
+					keyWordIndex.trieCell.findTextualOnly(keywords, i+1, finalQueries, 1);
 
 				}
 			}
@@ -18,37 +18,61 @@
  * limitations under the License.
  * 
  * 
- * This version is meant for the fair comparison of with the state of the art
- *  index that does not have any other cluster and tornado related attributes
+ * The queries are indexed in the multi-level FAST pyramid, the data objects,
+ * the load balancing cost and the KNN queries are kept in the cells of the fine
+ * grid of the evaluators. Without a DataSourceInformation the index is the
+ * standalone FAST used for the comparison with the state of the art indexes,
+ * its continuous KNN queries are indexed in a second pyramid by the square of
+ * their k-th distance and are updated by processDataObjectForKNNQueries.
+ * The range queries with a remove time wait in an expiry wheel, the cleaning
+ * removes exactly the queries that expired since the previous cleaning.
+ * The range queries of the pyramid can be matched by many threads while one
+ * thread inserts, drops and cleans the queries, the fine grid cells are used by
+ * the writer thread only.
  */
 package edu.purdue.cs.tornado.index.local.fast;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
+import edu.purdue.cs.tornado.helper.Command;
 import edu.purdue.cs.tornado.helper.IndexCell;
 import edu.purdue.cs.tornado.helper.IndexCellCoordinates;
+import edu.purdue.cs.tornado.helper.KeywordSketchStatistics;
+import edu.purdue.cs.tornado.helper.KeywordStatistics;
 import edu.purdue.cs.tornado.helper.Point;
+import edu.purdue.cs.tornado.helper.QueryTimingWheel;
+import edu.purdue.cs.tornado.helper.QueryType;
 import edu.purdue.cs.tornado.helper.Rectangle;
 import edu.purdue.cs.tornado.helper.SpatialHelper;
 import edu.purdue.cs.tornado.helper.SpatioTextualConstants;
+import edu.purdue.cs.tornado.helper.TextHelpers;
+import edu.purdue.cs.tornado.helper.TextualPredicate;
+import edu.purdue.cs.tornado.index.DataSourceInformation;
 import edu.purdue.cs.tornado.index.local.LocalHybridIndex;
-import edu.purdue.cs.tornado.index.local.LocalIndexKNNIterator;
 import edu.purdue.cs.tornado.loadbalance.Cell;
 import edu.purdue.cs.tornado.messages.DataObject;
+import edu.purdue.cs.tornado.messages.KNNQuery;
 import edu.purdue.cs.tornado.messages.Query;
+import edu.purdue.cs.tornado.messages.ResultSetChange;
 
 public class FAST  extends LocalHybridIndex {
 	public double localXstep;
 	public double localYstep;
-	public ConcurrentHashMap<Integer, IndexCellOptimizedExperiment> index;
+	public FASTCellTable index;
 	public Rectangle selfBounds;
 	public int gridGranularity;
 	public int maxLevel;
@@ -56,23 +80,48 @@ public class FAST  extends LocalHybridIndex {
 	public static int Degredation_Ratio = 2;
 	public static int Trie_OVERLALL_MERGE_THRESHOLD = 2;
 	public static int MAX_ENTRIES_PER_CLEANING_INTERVAL = 10;
+	//the parameters of this FAST, a new FAST starts with the static values above
+	public int trieSplitThreshold;
+	public int degradationRatio;
+	public int overallMergeThreshold;
+	public int maxEntriesPerCleaningInterval;
+	public FASTTuner tuner;//adjusts the parameters while the queries are inserted, null keeps them fixed
 	public IndexCellOptimizedExperiment cellBeingCleaned;
 	public boolean lastCellCleaningDone; //to check if an entireCellHasBeenCleaned
 	public int splitThreshold = 5;
-	public  HashMap<String, KeywordFrequencyStats> overallQueryTextSummery;
-	public static int totalVisited = 0;
-	public static int spatialOverlappingQuries = 0;
-	public int minInsertedLevel;
-	public int maxInsertedLevel;
+	public KeywordStatistics overallQueryTextSummery;//bounded query keyword counts used to pick the rarest keyword
+	public int totalVisited = 0;
+	public int spatialOverlappingQuries = 0;
+	public int numberOfHashEntries = 0;
+	public volatile int minInsertedLevel;
+	public volatile int maxInsertedLevel;
 	public int minInsertedLevelInterleaved;
 	public int maxInsertedLevelInterleaved;
-	public static int queryTimeStampCounter;
-	public int objectTimeStampCounter;
+	public volatile int queryTimeStampCounter;//counts the inserted queries
+	public volatile long expiryTime;//a query with a lower remove time is expired, see updateExpiryTime
+	public volatile int structureVersion;//odd while indexed queries are moved, the searches that overlap a move are repeated
 	public int debugQueryId =-1;
-	public Iterator<Entry<Integer, IndexCellOptimizedExperiment>> cleaningIterator;//iterates over cells to clean expired entries
+	public Iterator<IndexCellOptimizedExperiment> cleaningIterator;//iterates over cells to clean expired entries
+	public QueryTimingWheel expiryWheel;//the indexed range queries by their remove time in expiryTime units
+	public DataSourceInformation dataSourcesInformation;
+	public HashMap<Integer, IndexCell> partitionIndex;//fine grid cells holding the data objects, the cost and the KNN queries
+	public ArrayList<Query> globalKNNQueries;
+	public FAST knnPyramid;//continuous KNN queries of the standalone FAST by their k-th distance, created with the first such query
+	HashMap<String, KNNQuery> pyramidKNNQueries;//the queries of knnPyramid by their unique id
+	HashMap<Integer, ArrayList<Query>> knnResultQueries;//the queries of knnPyramid that have the object in their top-k list, by object id
+	public Cell myPartition;
+	public int fineGridGran;
+	public double fineXstep;
+	public double fineYstep;
+	public int allDataCount;
 
 	public FAST(Rectangle selfBounds, Integer xGridGranularity, Integer maxLevel) {
+		this(selfBounds, null, xGridGranularity, maxLevel, xGridGranularity);
+	}
+
+	public FAST(Rectangle selfBounds, DataSourceInformation dataSourcesInformation, Integer xGridGranularity, Integer maxLevel, Integer fineGridGran) {
 		this.selfBounds = selfBounds;
+		this.dataSourcesInformation = dataSourcesInformation;
 		Double globalXrange = SpatioTextualConstants.xMaxRange;
 		Double globalYrange = SpatioTextualConstants.yMaxRange;
 		this.gridGranularity = xGridGranularity;
@@ -83,15 +132,32 @@ public class FAST  extends LocalHybridIndex {
 		this.maxInsertedLevel = -1;
 		this.minInsertedLevelInterleaved = -1;
 		this.maxInsertedLevelInterleaved = -1;
-		index = new ConcurrentHashMap<Integer, IndexCellOptimizedExperiment>();
-		overallQueryTextSummery = new HashMap<String, KeywordFrequencyStats>();
-
+		index = new FASTCellTable(gridGranularity, this.maxLevel);
+		overallQueryTextSummery = new KeywordSketchStatistics();
+		trieSplitThreshold = Trie_SPLIT_THRESHOLD;
+		degradationRatio = Degredation_Ratio;
+		overallMergeThreshold = Trie_OVERLALL_MERGE_THRESHOLD;
+		maxEntriesPerCleaningInterval = MAX_ENTRIES_PER_CLEANING_INTERVAL;
+		tuner = null;
 		
 		queryTimeStampCounter = 0;
-		objectTimeStampCounter = 0;
+		structureVersion = 0;
 		cleaningIterator = null;
 		cellBeingCleaned = null;
 		lastCellCleaningDone = true;
+		updateExpiryTime();
+		expiryWheel = new QueryTimingWheel(expiryTime);
+
+		this.fineGridGran = fineGridGran;
+		this.fineXstep = globalXrange / fineGridGran;
+		this.fineYstep = globalYrange / fineGridGran;
+		this.partitionIndex = new HashMap<Integer, IndexCell>();
+		this.globalKNNQueries = new ArrayList<Query>();
+		this.knnPyramid = null;
+		this.pyramidKNNQueries = new HashMap<String, KNNQuery>();
+		this.knnResultQueries = new HashMap<Integer, ArrayList<Query>>();
+		this.allDataCount = 0;
+		this.myPartition = new Cell((int) (selfBounds.getMin().getY() / fineYstep), (int) (selfBounds.getMax().getY() / fineYstep), (int) (selfBounds.getMin().getX() / fineXstep), (int) (selfBounds.getMax().getX() / fineXstep));
 	}
 
 	public FAST(Rectangle selfBounds, Integer xGridGranularity, Integer maxLevel, Integer splitThreshold) {
@@ -100,27 +166,26 @@ public class FAST  extends LocalHybridIndex {
 
 	}
 
-	public Integer mapToRawMajor(int level, int x, int y, int gridGranularity) {
+	public int mapToRawMajor(int level, int x, int y, int gridGranularity) {
 		return (level << 22) + y * gridGranularity + x;
 	}
 
 	public double getAverageRankedInvListSize() {
 		Double sum = 0.0, count = 0.0;
-		ConcurrentHashMap<Integer, IndexCellOptimizedExperiment> levelIndex = index;
-		Iterator itr = levelIndex.values().iterator();
+		Iterator itr = index.iterator();
 		while (itr.hasNext()) {
 			IndexCellOptimizedExperiment cell = (IndexCellOptimizedExperiment) itr.next();
 			if (cell.ptp != null) {
-				Iterator itr2 = cell.ptp.values().iterator();
+				Iterator<KeywordIndex> itr2 = cell.ptp.values().iterator();
 				while (itr2.hasNext()) {
-					Object queries = (Object) itr2.next();
-					if (queries != null && queries instanceof ArrayList && ((ArrayList<Query>) queries).size() > 0) {
+					KeywordIndex keywordIndex = itr2.next();
+					if (keywordIndex.queries != null && keywordIndex.queries.length > 0) {
 						count++;
-						sum += ((ArrayList<Query>) queries).size();
+						sum += keywordIndex.queries.length;
 					}
-					if (queries != null && queries instanceof KeywordTrieCellMinimalExperiment && ((KeywordTrieCellMinimalExperiment) queries).queries != null && ((KeywordTrieCellMinimalExperiment) queries).queries.size() > 0) {
+					if (keywordIndex.trieCell != null && keywordIndex.trieCell.queries != null && keywordIndex.trieCell.queries.size() > 0) {
 						count++;
-						sum += ((KeywordTrieCellMinimalExperiment) queries).queries.size();
+						sum += keywordIndex.trieCell.queries.size();
 					}
 				}
 			}
@@ -129,9 +194,295 @@ public class FAST  extends LocalHybridIndex {
 
 	}
 
+	/**
+	 * The estimated heap size in bytes of every level of the pyramid: the cell
+	 * table, the cells, their inverted lists and tries. The queries are not
+	 * included as a query is shared by the cells of several levels.
+	 */
+	public long[] getMemoryPerLevel() {
+		long[] memory = index.getMemoryPerLevel();
+		Set<Object> counted = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+		for (IndexCellOptimizedExperiment cell : index)
+			memory[cell.level] += cell.getEstimatedSize(counted);
+		return memory;
+	}
+
+	/**
+	 * Writes the range query pyramid to file, called by the thread that
+	 * inserts the queries
+	 *
+	 * @return the size of the snapshot in bytes
+	 */
+	public long saveSnapshot(File file) throws IOException {
+		return FASTSnapshot.write(this, file);
+	}
+
+	/**
+	 * Restores the range query pyramid of a snapshot in this FAST, which has
+	 * no range queries yet and the granularity and levels of the saved FAST
+	 */
+	public void loadSnapshot(File file) throws IOException {
+		FASTSnapshot.read(this, file);
+	}
+
+	/**
+	 * The parameters of this FAST followed by the metrics of its tuner
+	 */
+	public LinkedHashMap<String, Number> getTuningMetrics() {
+		LinkedHashMap<String, Number> metrics = new LinkedHashMap<String, Number>();
+		metrics.put("trieSplitThreshold", trieSplitThreshold);
+		metrics.put("degradationRatio", degradationRatio);
+		metrics.put("overallMergeThreshold", overallMergeThreshold);
+		metrics.put("maxEntriesPerCleaningInterval", maxEntriesPerCleaningInterval);
+		if (tuner != null)
+			metrics.putAll(tuner.getMetrics());
+		return metrics;
+	}
+
 	public Boolean addContinousQuery(Query q) {
+		FASTTuner tuner = this.tuner;
+		if (tuner == null)
+			return addQuery(q);
+		long start = System.nanoTime();
+		Boolean completed = addQuery(q);
+		tuner.recordInsert(System.nanoTime() - start);
+		return completed;
+	}
+
+	Boolean addQuery(Query q) {
 		queryTimeStampCounter++;
+		updateExpiryTime();
+		if (knnPyramid != null) {
+			knnPyramid.queryTimeStampCounter = queryTimeStampCounter;
+			knnPyramid.updateExpiryTime();
+		}
+		if (QueryType.queryTextualKNN.equals(q.getQueryType()))
+			return addKNNQuery(q);
+		Boolean completed = true;
+		if (dataSourcesInformation != null) {
+			//the cells of the load balancer, queries overlapping a cell that is being transmitted are forwarded
+			for (IndexCellCoordinates indexCellCoordinates : mapRecToIndexCells(q.getSpatialRange(), myPartition)) {
+				IndexCell indexCell = getIndexCellCreateIfNull(indexCellCoordinates);
+				if (indexCell.isTransmitted())
+					completed = false;
+			}
+		}
+		completed &= indexQuery(q);
+		scheduleExpiry(q);
+		return completed;
+	}
+
+	/**
+	 * Adds the indexed queries of q to the expiry wheel, the conjunctions of a
+	 * BOOLEAN_EXPR query expire one by one
+	 */
+	void scheduleExpiry(Query q) {
+		if (TextualPredicate.BOOLEAN_EXPR.equals(q.getTextualPredicate())) {
+			if (q.getConjunctionQueries() != null)
+				for (Query conjunctionQuery : q.getConjunctionQueries())
+					expiryWheel.add(conjunctionQuery);
+		} else
+			expiryWheel.add(q);
+	}
+
+	/**
+	 * The standalone FAST counts the inserted queries, its queries expire
+	 * after a number of insertions. The FAST of an evaluator gets the remove
+	 * times of the global index in milliseconds and expires its queries by
+	 * the wall clock.
+	 */
+	void updateExpiryTime() {
+		expiryTime = dataSourcesInformation == null ? queryTimeStampCounter : System.currentTimeMillis();
+	}
+
+	/**
+	 * Removes the queries that expired since the last call from the cells
+	 * overlapping their range, the dropped queries are skipped
+	 * 
+	 * @return the number of removed queries
+	 */
+	public int dropExpiredQueries() {
+		updateExpiryTime();
+		int dropped = 0;
+		for (Query q : expiryWheel.advance(expiryTime))
+			if (!q.isDeleted()) {
+				//the wheel holds the indexed instance, it is deleted even if its cells already dropped it
+				removeContinousQuery(q);
+				deleteQuery(q);
+				dropped++;
+			}
+		return dropped;
+	}
+
+	/**
+	 * Inserts the query in the pyramid, every conjunction of a BOOLEAN_EXPR
+	 * query is a CONTAINS query indexed under its rarest keyword
+	 */
+	Boolean indexQuery(Query q) {
+		if (TextualPredicate.BOOLEAN_EXPR.equals(q.getTextualPredicate())) {
+			Boolean completed = true;
+			if (q.getConjunctionQueries() != null)
+				for (Query conjunctionQuery : q.getConjunctionQueries()) {
+					conjunctionQuery.deleted = false;
+					completed &= insertContinousQuery(conjunctionQuery);
+				}
+			return completed;
+		}
+		q.deleted = false;
+		return insertContinousQuery(q);
+	}
+
+	/**
+	 * KNN queries are kept in the fine grid cells around their focal point
+	 * similar to the hybrid grid index
+	 */
+	Boolean addKNNQuery(Query q) {
+		if (isPyramidKNNQuery(q))
+			return indexKNNQuery((KNNQuery) q);
+		if (dataSourcesInformation != null && dataSourcesInformation.isVolatile()) {
+			((KNNQuery) q).resetKNNStructures();
+			globalKNNQueries.add(q);
+		}
+		IndexCell indexCell = getIndexCellCreateIfNull(mapDataPointToPartition(((KNNQuery) q).getFocalPoint()));
+		if (indexCell.isTransmitted())
+			return false;
+		indexCell.addQuery(q);
+		return true;
+	}
+
+	/**
+	 * A KNN query of the standalone FAST is indexed in the KNN pyramid if the
+	 * objects of its result contain all its keywords, the pyramid only finds
+	 * the queries whose keywords are all in the object
+	 */
+	boolean isPyramidKNNQuery(Query q) {
+		if (dataSourcesInformation != null || q.getQueryText() == null || q.getQueryText().isEmpty())
+			return false;
+		TextualPredicate textualPredicate = q.getTextualPredicate();
+		return TextualPredicate.CONTAINS.equals(textualPredicate) || (q.getQueryText().size() == 1 && (textualPredicate == null || TextualPredicate.OVERlAPS.equals(textualPredicate)));
+	}
+
+	FAST getKNNPyramid() {
+		if (knnPyramid == null) {
+			//the pyramid expires its queries by the time stamps of this index
+			knnPyramid = new FAST(selfBounds, gridGranularity, maxLevel);
+			knnPyramid.queryTimeStampCounter = queryTimeStampCounter;
+			knnPyramid.updateExpiryTime();
+		}
+		return knnPyramid;
+	}
+
+	/**
+	 * Inserts the query in the KNN pyramid with the range of its current top-k
+	 * list, a query without a remove time never expires
+	 */
+	Boolean indexKNNQuery(KNNQuery q) {
+		dropPyramidKNNQuery(q);
+		q.resetKNNStructures();
+		if (q.getRemoveTime() == null)
+			q.setRemoveTime(Long.MAX_VALUE);
+		q.setSpatialRange(getKNNRange(q));
+		pyramidKNNQueries.put(q.getUniqueIDFromQuerySourceAndQueryId(), q);
+		return getKNNPyramid().indexQuery(q);
+	}
+
+	/**
+	 * The square around the focal point with the k-th distance as half of its
+	 * side inside the space, the whole space while the query has less than k
+	 * objects
+	 */
+	public static Rectangle getKNNRange(KNNQuery q) {
+		if (q.getKNNlistSize() < q.getK())
+			return new Rectangle(new Point(0, 0), new Point(SpatioTextualConstants.xMaxRange, SpatioTextualConstants.yMaxRange));
+		double distance = q.getFarthestDistance();
+		Point focalPoint = q.getFocalPoint();
+		return new Rectangle(new Point(Math.max(0, focalPoint.getX() - distance), Math.max(0, focalPoint.getY() - distance)),
+				new Point(Math.min(SpatioTextualConstants.xMaxRange, focalPoint.getX() + distance), Math.min(SpatioTextualConstants.yMaxRange, focalPoint.getY() + distance)));
+	}
+
+	/**
+	 * Moves the query to the cells of its new range if its k-th distance grew
+	 * beyond the indexed range or shrank to less than half of it, a range that
+	 * shrank less stays indexed as it still contains the top-k objects
+	 */
+	void updateKNNRange(KNNQuery q) {
+		Rectangle indexedRange = q.getSpatialRange();
+		Rectangle range = getKNNRange(q);
+		if (SpatialHelper.insideSpatially(indexedRange, range)
+				&& 2 * (range.getMax().getX() - range.getMin().getX()) > indexedRange.getMax().getX() - indexedRange.getMin().getX())
+			return;
+		knnPyramid.beginStructureChange();
+		knnPyramid.removeContinousQuery(q);
+		q.setSpatialRange(range);
+		knnPyramid.indexQuery(q);
+	}
+
+	/**
+	 * Updates the KNN queries of the KNN pyramid with the data object: the
+	 * queries whose range contains the object and the queries that have the
+	 * object in their top-k list, so an object that moves away from a query
+	 * still updates it. Called by the thread that inserts the queries.
+	 * 
+	 * @return the changes of the top-k lists
+	 */
+	public ArrayList<ResultSetChange> processDataObjectForKNNQueries(DataObject dataObject) {
+		ArrayList<ResultSetChange> changes = new ArrayList<ResultSetChange>();
+		if (knnPyramid == null)
+			return changes;
+		ArrayList<Query> queries = new ArrayList<Query>();
+		List<Query> rangeQueries = knnPyramid.findRangeQueries(dataObject, null, null);
+		if (rangeQueries != null)
+			queries.addAll(rangeQueries);
+		ArrayList<Query> resultQueries = knnResultQueries.get(dataObject.getObjectId());
+		if (resultQueries != null)
+			for (Query q : resultQueries)
+				if (!queries.contains(q))
+					queries.add(q);
+		for (Query q : queries) {
+			KNNQuery knnQuery = (KNNQuery) q;
+			ArrayList<ResultSetChange> queryChanges = knnQuery.processDataObject(dataObject);
+			if (queryChanges.isEmpty())
+				continue;
+			for (ResultSetChange change : queryChanges)
+				updateKNNResultQueries(change.getDataObject().getObjectId(), knnQuery, change.getChangeType());
+			updateKNNRange(knnQuery);
+			changes.addAll(queryChanges);
+		}
+		return changes;
+	}
 
+	void updateKNNResultQueries(Integer objectId, Query q, Command changeType) {
+		ArrayList<Query> resultQueries = knnResultQueries.get(objectId);
+		if (Command.addCommand.equals(changeType)) {
+			if (resultQueries == null) {
+				resultQueries = new ArrayList<Query>();
+				knnResultQueries.put(objectId, resultQueries);
+			}
+			resultQueries.add(q);
+		} else if (Command.dropCommand.equals(changeType) && resultQueries != null) {
+			resultQueries.remove(q);
+			if (resultQueries.isEmpty())
+				knnResultQueries.remove(objectId);
+		}
+	}
+
+	/**
+	 * Removes the query with the source and id of query from the KNN pyramid
+	 * 
+	 * @return false if the pyramid has no such query
+	 */
+	boolean dropPyramidKNNQuery(Query query) {
+		KNNQuery knnQuery = pyramidKNNQueries.remove(query.getUniqueIDFromQuerySourceAndQueryId());
+		if (knnQuery == null)
+			return false;
+		knnPyramid.removeContinousQuery(knnQuery);
+		knnPyramid.deleteQuery(knnQuery);
+		for (DataObject dataObject : knnQuery.getKNNList())
+			updateKNNResultQueries(dataObject.getObjectId(), knnQuery, Command.dropCommand);
+		return true;
+	}
+
+	Boolean insertContinousQuery(Query q) {
 		Boolean completed = true;
 		//Query q = new Query(q1);
 
@@ -159,6 +510,9 @@ public class FAST  extends LocalHybridIndex {
 					levelxMaxCell = (int) (entry.range.getMax().getX() / levelStep);
 					levelyMaxCell = (int) (entry.range.getMax().getY() / levelStep);
 				}
+				//a range that ends on the boundary of the space ends in the last cell
+				levelxMaxCell = Math.min(levelGranuality - 1, levelxMaxCell);
+				levelyMaxCell = Math.min(levelGranuality - 1, levelyMaxCell);
 
 				if (minInsertedLevel == -1)
 					minInsertedLevel = maxInsertedLevel = level;
@@ -170,25 +524,24 @@ public class FAST  extends LocalHybridIndex {
 				int minCount = Integer.MAX_VALUE;
 
 				for (String keyword : entry.query.getQueryText()) {
-					KeywordFrequencyStats stats = overallQueryTextSummery.get(keyword);
-					if (stats == null) {
-						stats = new KeywordFrequencyStats(1, 1, objectTimeStampCounter);
-						overallQueryTextSummery.put(keyword, stats);
+					int queryCount = overallQueryTextSummery.getQueryCount(keyword);
+					if (queryCount == 0) {
+						overallQueryTextSummery.addQueryCount(keyword, 1);
 						minkeyword = keyword;
 						minCount = 0;
 					} else {
 						if (level == maxLevel)
-							stats.queryCount++;
-						if (stats.queryCount < minCount) {
+							queryCount = overallQueryTextSummery.addQueryCount(keyword, 1);
+						if (queryCount < minCount) {
 
-							minCount = stats.queryCount;
+							minCount = queryCount;
 							minkeyword = keyword;
 						}
 					}
 				}
 
-				Integer coodinate = 0;
-				ArrayList<Query> sharedQueries = null;
+				int coodinate = 0;
+				KeywordIndex sharedQueries = null;
 				boolean forceInsert = false;
 				if (level == 0)
 					forceInsert = true;
@@ -196,20 +549,21 @@ public class FAST  extends LocalHybridIndex {
 					forceInsert = true;
 				else
 					forceInsert = false;
-				for (Integer i = levelxMinCell; i <= levelxMaxCell; i++) {
-					for (Integer j = levelyMinCell; j <= levelyMaxCell; j++) {
+				for (int i = levelxMinCell; i <= levelxMaxCell; i++) {
+					for (int j = levelyMinCell; j <= levelyMaxCell; j++) {
 						coodinate = mapToRawMajor(level, i, j, levelGranuality);
-						if (!index.containsKey(coodinate)) {
+						IndexCellOptimizedExperiment indexCell = index.get(coodinate);
+						if (indexCell == null) {
 							Rectangle bounds = getBoundForIndexCell(i, j, levelStep);
 							if (bounds.getMin().getX() >= SpatioTextualConstants.xMaxRange || bounds.getMin().getY() >= SpatioTextualConstants.yMaxRange)
 								continue;
-							index.put(coodinate, new IndexCellOptimizedExperiment(bounds, coodinate, level,overallQueryTextSummery));
+							indexCell = new IndexCellOptimizedExperiment(this, bounds, coodinate, level,overallQueryTextSummery);
+							index.put(indexCell);
 						}
-						IndexCellOptimizedExperiment indexCell = index.get(coodinate);
 						if (SpatialHelper.overlapsSpatially(entry.query.getSpatialRange(), indexCell.bounds)) {
 							if (i == levelxMinCell && j == levelyMinCell) {
-								sharedQueries = (ArrayList<Query>) indexCell.addInternalQueryNoShare(minkeyword, entry.query, null, insertNextLevelQueries, forceInsert);
-							} else if (sharedQueries != null && sharedQueries instanceof ArrayList) {
+								sharedQueries = indexCell.addInternalQueryNoShare(minkeyword, entry.query, null, insertNextLevelQueries, forceInsert);
+							} else if (sharedQueries != null) {
 								indexCell.addInternalQuery(minkeyword, entry.query, sharedQueries, insertNextLevelQueries, forceInsert);
 							} else
 								indexCell.addInternalQueryNoShare(minkeyword, entry.query, null, insertNextLevelQueries, forceInsert);
@@ -224,24 +578,49 @@ public class FAST  extends LocalHybridIndex {
 			currentLevelQueries = insertNextLevelQueries;
 			level--;
 		}
-		
+		//the moved queries are in their new cells
+		endStructureChange();
 		return completed;
 	}
 
+	/**
+	 * Called by the writer before it moves a query that is already indexed,
+	 * the searches that start before the move ends are repeated
+	 */
+	void beginStructureChange() {
+		if ((structureVersion & 1) == 0)
+			structureVersion++;
+	}
+
+	void endStructureChange() {
+		if ((structureVersion & 1) == 1)
+			structureVersion++;
+	}
+
+	/**
+	 * Drops the queries that expired since the last call and cleans the
+	 * remaining entries of the next cell, at most maxEntriesPerCleaningInterval
+	 * entries of a cell are visited per call
+	 */
 	public void cleanNextSetOfEntries() {
+		dropExpiredQueries();
 		if (cleaningIterator == null || !cleaningIterator.hasNext())
-			cleaningIterator = index.entrySet().iterator();
+			cleaningIterator = index.iterator();
+		if (lastCellCleaningDone && !cleaningIterator.hasNext())
+			return;
 		IndexCellOptimizedExperiment cell;
 		if (lastCellCleaningDone)
-			cell = cleaningIterator.next().getValue();
+			cell = cleaningIterator.next();
 		else
 			cell = cellBeingCleaned;
 		boolean cleaningDone = cell.clean();
+		lastCellCleaningDone = cleaningDone;
 		if (!cleaningDone) {
 			cellBeingCleaned = cell;
 		}
-		if (cell.ptp == null)
-			cleaningIterator.remove();
+		//the cell may have left the index when its last query expired
+		if (cell.ptp == null && index.get(cell.coordinate) == cell)
+			index.remove(cell.coordinate);
 
 	}
 
@@ -250,174 +629,580 @@ public class FAST  extends LocalHybridIndex {
 		return bounds;
 	}
 
-	public Integer getCountPerKeywrodsAll(ArrayList<String> keywords) {
-
-		return 0;
-	}
-
 	public Rectangle getSelfBounds() {
 		return selfBounds;
 	}
 
-	public Integer mapDataPointToPartition(int level, Point point, double step, int granularity) {
-		Double x = point.getX();
-		Double y = point.getY();
-		Integer xCell = (int) ((x) / step);
-		Integer yCell = (int) ((y) / step);
-		Integer indexCellCoordinate = mapToRawMajor(level, xCell, yCell, granularity);
-		return indexCellCoordinate;
+	public int mapDataPointToPartition(int level, Point point, double step, int granularity) {
+		int xCell = Math.min(granularity - 1, (int) (point.getX() / step));
+		int yCell = Math.min(granularity - 1, (int) (point.getY() / step));
+		return mapToRawMajor(level, xCell, yCell, granularity);
 	}
 
 	public void setSelfBounds(Rectangle selfBounds) {
 		this.selfBounds = selfBounds;
 	}
 
+	/**
+	 * Can be called by many threads while one thread inserts, removes and
+	 * cleans the queries. The search is repeated if it overlaps a move of
+	 * indexed queries so that it does not miss or repeat a query that is
+	 * indexed before the search starts.
+	 */
 	public ArrayList<List<Query>> getReleventSpatialKeywordRangeQueries(DataObject dataObject, Boolean fromNeighbour) {
-		objectTimeStampCounter++;
-		List<Query> result = new LinkedList<Query>();
 		ArrayList<List<Query>> results = new ArrayList<List<Query>>();
+		List<Query> result = findRangeQueries(dataObject, null, null);
+		if (result != null)
+			results.add(result);
+		return results;
+	}
+
+	/**
+	 * Matches a batch of objects. The objects are sorted by their cell of the
+	 * finest inserted level, so the objects of a cell are matched one after the
+	 * other, the pyramid cells above them are looked up once and their tries
+	 * stay in the cache. The results are in the order of the objects, the
+	 * result of an object is the same list of queries as the result of
+	 * getReleventSpatialKeywordRangeQueries, and empty if no query is indexed.
+	 */
+	public ArrayList<List<Query>> getReleventSpatialKeywordRangeQueries(List<DataObject> dataObjects) {
+		ArrayList<List<Query>> results = new ArrayList<List<Query>>(dataObjects.size());
+		int finestLevel = Math.max(minInsertedLevel, 0);
+		double step = localXstep * (1 << finestLevel);
+		int granualrity = this.gridGranularity >> finestLevel;
+		//the cell in the upper bits and the position of the object in the lower bits
+		long[] orderedObjects = new long[dataObjects.size()];
+		for (int i = 0; i < dataObjects.size(); i++) {
+			results.add(null);
+			orderedObjects[i] = ((long) mapDataPointToPartition(finestLevel, dataObjects.get(i).getLocation(), step, granualrity) << 32) | i;
+		}
+		Arrays.sort(orderedObjects);
+		int[] pathCoordinates = new int[maxLevel + 1];
+		IndexCellOptimizedExperiment[] pathCells = new IndexCellOptimizedExperiment[maxLevel + 1];
+		Arrays.fill(pathCoordinates, -1);
+		for (long orderedObject : orderedObjects) {
+			int position = (int) orderedObject;
+			List<Query> result = findRangeQueries(dataObjects.get(position), pathCoordinates, pathCells);
+			results.set(position, result == null ? new LinkedList<Query>() : result);
+		}
+		return results;
+	}
+
+	/**
+	 * Repeats the search of the object until it does not overlap a move of
+	 * indexed queries
+	 * 
+	 * @param pathCoordinates
+	 *            the coordinates of the last looked up cell of every level, or
+	 *            null to look up all the cells
+	 * @param pathCells
+	 *            the last looked up cell of every level
+	 * @return null if no query is indexed
+	 */
+	List<Query> findRangeQueries(DataObject dataObject, int[] pathCoordinates, IndexCellOptimizedExperiment[] pathCells) {
+		FASTTuner tuner = this.tuner;
+		long start = tuner != null && tuner.sampleMatch() ? System.nanoTime() : 0;
+		while (true) {
+			int version;
+			while (((version = structureVersion) & 1) == 1)
+				Thread.yield();
+			List<Query> result = new LinkedList<Query>();
+			boolean indexed = findRangeQueries(dataObject, result, pathCoordinates, pathCells);
+			if (version == structureVersion) {
+				if (start != 0)
+					tuner.recordMatch(System.nanoTime() - start);
+				if (!indexed)
+					return null;
+				removeDuplicateConjunctions(result);
+				return result;
+			}
+			//the cells of the path may have been replaced by the move
+			if (pathCoordinates != null)
+				Arrays.fill(pathCoordinates, -1);
+		}
+	}
+
+	boolean findRangeQueries(DataObject dataObject, List<Query> result, int[] pathCoordinates, IndexCellOptimizedExperiment[] pathCells) {
+		int minInsertedLevel = this.minInsertedLevel;
 		if (minInsertedLevel == -1)
-			return results;
+			return false;
+		int maxInsertedLevel = this.maxInsertedLevel;
 		double step = (maxInsertedLevel == 0) ? localXstep : (localXstep * (2 << (maxInsertedLevel - 1)));
 		int granualrity = this.gridGranularity >> maxInsertedLevel;
 		ArrayList<String> keywords = dataObject.getObjectText();
 		for (int level = maxInsertedLevel; level >= minInsertedLevel && keywords != null && keywords.size() > 0; level--) {
-			Integer cellCoordinates = mapDataPointToPartition(level, dataObject.getLocation(), step, granualrity);
-			IndexCellOptimizedExperiment indexCellOptimized = index.get(cellCoordinates);
+			int cellCoordinates = mapDataPointToPartition(level, dataObject.getLocation(), step, granualrity);
+			IndexCellOptimizedExperiment indexCellOptimized;
+			if (pathCoordinates == null)
+				indexCellOptimized = index.get(cellCoordinates);
+			else if (pathCoordinates[level] == cellCoordinates)
+				indexCellOptimized = pathCells[level];
+			else {
+				indexCellOptimized = index.get(cellCoordinates);
+				pathCoordinates[level] = cellCoordinates;
+				pathCells[level] = indexCellOptimized;
+			}
 			if (indexCellOptimized != null) {
-				keywords = indexCellOptimized.getInternalSpatiotTextualOverlappingQueries(dataObject.getLocation(), keywords, result);
+				keywords = indexCellOptimized.getInternalSpatiotTextualOverlappingQueries(dataObject.getLocation(), keywords, dataObject.getTextSignature(), result);
 			}
 			step /= 2;
 			granualrity <<= 1;
 		}
-		results.add(result);
-		return results;
+		return true;
 	}
 
-	@Override
-	public IndexCell addDataObject(DataObject dataObject) {
-		// TODO Auto-generated method stub
-		return null;
+	/**
+	 * Keeps one conjunction query per BOOLEAN_EXPR query, the parents are kept
+	 * in a local set as the queries are shared by the searching threads
+	 * @param result
+	 */
+	void removeDuplicateConjunctions(List<Query> result) {
+		HashSet<Query> parentQueries = null;
+		Iterator<Query> itr = result.iterator();
+		while (itr.hasNext()) {
+			Query parentQuery = itr.next().getParentQuery();
+			if (parentQuery == null)
+				continue;
+			if (parentQueries == null)
+				parentQueries = new HashSet<Query>();
+			if (!parentQueries.add(parentQuery))
+				itr.remove();
+		}
+	}
+
+	/**
+	 * Compares the queries by identity or by their source, id and text, the
+	 * conjunctions of a BOOLEAN_EXPR query share the source and id of the
+	 * parent query
+	 */
+	static boolean sameQuery(Query query, Query other) {
+		if (query == other)
+			return true;
+		return query.getQueryId() != null && query.getQueryId().equals(other.getQueryId()) && query.getSrcId() != null && query.getSrcId().equals(other.getSrcId())
+				&& query.getQueryText() != null && query.getQueryText().equals(other.getQueryText());
+	}
+
+	/**
+	 * Removes the query from the list
+	 *
+	 * @return true if the query was found
+	 */
+	static boolean removeQuery(List<Query> queries, Query query) {
+		return removeQuery(queries, query, null);
+	}
+
+	/**
+	 * Removes the query from the list and adds the removed list entries to
+	 * removedQueries if it is not null
+	 *
+	 * @return true if the query was found
+	 */
+	static boolean removeQuery(List<Query> queries, Query query, List<Query> removedQueries) {
+		if (queries == null)
+			return false;
+		boolean removed = false;
+		Iterator<Query> itr = queries.iterator();
+		while (itr.hasNext()) {
+			Query q = itr.next();
+			if (sameQuery(q, query)) {
+				itr.remove();
+				if (removedQueries != null)
+					removedQueries.add(q);
+				removed = true;
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Finds the pyramid cells of all the inserted levels that overlap the
+	 * rectangle, large rectangles scan the existing cells instead of the
+	 * coordinates of the level
+	 */
+	ArrayList<IndexCellOptimizedExperiment> getOverlappingCells(Rectangle rectangle) {
+		ArrayList<IndexCellOptimizedExperiment> cells = new ArrayList<IndexCellOptimizedExperiment>();
+		if (minInsertedLevel == -1 || rectangle == null)
+			return cells;
+		for (int level = maxInsertedLevel; level >= minInsertedLevel; level--) {
+			int levelGranuality = (int) (gridGranularity / Math.pow(2, level));
+			double levelStep = (SpatioTextualConstants.xMaxRange / levelGranuality);
+			int levelxMinCell = Math.max(0, (int) (rectangle.getMin().getX() / levelStep));
+			int levelyMinCell = Math.max(0, (int) (rectangle.getMin().getY() / levelStep));
+			int levelxMaxCell = Math.min(levelGranuality - 1, (int) (rectangle.getMax().getX() / levelStep));
+			int levelyMaxCell = Math.min(levelGranuality - 1, (int) (rectangle.getMax().getY() / levelStep));
+			if ((long) (levelxMaxCell - levelxMinCell + 1) * (levelyMaxCell - levelyMinCell + 1) > index.size()) {
+				for (IndexCellOptimizedExperiment cell : index)
+					if (cell.level == level && SpatialHelper.overlapsSpatially(rectangle, cell.bounds))
+						cells.add(cell);
+			} else {
+				for (int i = levelxMinCell; i <= levelxMaxCell; i++)
+					for (int j = levelyMinCell; j <= levelyMaxCell; j++) {
+						IndexCellOptimizedExperiment cell = index.get(mapToRawMajor(level, i, j, levelGranuality));
+						if (cell != null && SpatialHelper.overlapsSpatially(rectangle, cell.bounds))
+							cells.add(cell);
+					}
+			}
+		}
+		return cells;
+	}
+
+	/**
+	 * Retrieves the distinct queries of the pyramid that overlap the
+	 * rectangle, a BOOLEAN_EXPR query is reported once by its parent query
+	 */
+	public ArrayList<Query> getOverlappingQueries(Rectangle rectangle) {
+		ArrayList<Query> entries = new ArrayList<Query>();
+		for (IndexCellOptimizedExperiment cell : getOverlappingCells(rectangle))
+			cell.collectQueries(entries);
+		HashSet<Query> distinctQueries = new HashSet<Query>();
+		ArrayList<Query> queries = new ArrayList<Query>();
+		for (Query q : entries) {
+			Query query = q.getParentQuery() == null ? q : q.getParentQuery();
+			if (q.getRemoveTime() > expiryTime && SpatialHelper.overlapsSpatially(q.getSpatialRange(), rectangle) && distinctQueries.add(query))
+				queries.add(query);
+		}
+		return queries;
 	}
 
 	@Override
 	public Boolean dropContinousQuery(Query query) {
-		// TODO Auto-generated method stub
-		return null;
+		if (TextualPredicate.BOOLEAN_EXPR.equals(query.getTextualPredicate())) {
+			if (query.getConjunctionQueries() != null)
+				for (Query conjunctionQuery : query.getConjunctionQueries())
+					removeContinousQuery(conjunctionQuery);
+			return true;
+		}
+		if (QueryType.queryTextualKNN.equals(query.getQueryType())) {
+			if (dropPyramidKNNQuery(query) || removeQuery(globalKNNQueries, query))
+				return true;
+			IndexCell indexCell = getIndexCellFromCoordinates(mapDataPointToPartition(((KNNQuery) query).getFocalPoint()));
+			if (indexCell != null)
+				indexCell.dropQuery(query);
+			return true;
+		}
+		removeContinousQuery(query);
+		return true;
+	}
+
+	/**
+	 * Removes the query from all the pyramid cells overlapping its range, cells
+	 * that become empty leave the index. The stored queries that equal query
+	 * are marked deleted, so the expiry wheel skips them, query itself may be
+	 * a stale or a received copy that was never indexed here.
+	 * 
+	 * @return true if a stored query was removed
+	 */
+	boolean removeContinousQuery(Query query) {
+		ArrayList<Query> removedQueries = new ArrayList<Query>();
+		for (IndexCellOptimizedExperiment cell : getOverlappingCells(query.getSpatialRange())) {
+			cell.removeQuery(query, removedQueries);
+			if (cell.ptp == null)
+				index.remove(cell.coordinate);
+		}
+		for (Query storedQuery : removedQueries)
+			deleteQuery(storedQuery);
+		return !removedQueries.isEmpty();
+	}
+
+	/**
+	 * Marks the stored query deleted and removes it from the keyword
+	 * statistics once
+	 */
+	void deleteQuery(Query storedQuery) {
+		if (!storedQuery.isDeleted()) {
+			storedQuery.deleted = true;
+			for (String keyword : storedQuery.getQueryText())
+				overallQueryTextSummery.addQueryCount(keyword, -1);
+		}
 	}
 
 	@Override
-	public Integer getCountPerKeywrodsAll(ArrayList<String> keywords, Rectangle rect) {
-		// TODO Auto-generated method stub
-		return null;
+	public Boolean updateContinousQuery(Query oldQuery, Query query) {
+		if (oldQuery != null)
+			dropContinousQuery(oldQuery);
+		return addContinousQuery(query);
 	}
 
 	@Override
-	public Integer getCountPerKeywrodsAny(ArrayList<String> keywords) {
-		// TODO Auto-generated method stub
-		return null;
+	public IndexCell addDataObject(DataObject dataObject) {
+		IndexCell indexCell = getIndexCellCreateIfNull(mapDataPointToPartition(dataObject.getLocation()));
+		indexCell.addDataObject(dataObject);
+		allDataCount++;
+		return indexCell;
+	}
+
+	Integer mapToFineGrid(IndexCellCoordinates indexCellCoordinates) {
+		return indexCellCoordinates.getY() * fineGridGran + indexCellCoordinates.getX();
+	}
+
+	Rectangle getBoundForIndexCell(IndexCellCoordinates indexCellCoordinates) {
+		Integer i = indexCellCoordinates.getX();
+		Integer j = indexCellCoordinates.getY();
+		return new Rectangle(new Point(i * fineXstep, j * fineYstep), new Point((i + 1) * fineXstep, (j + 1) * fineYstep));
+	}
+
+	public IndexCell getIndexCellCreateIfNull(IndexCellCoordinates indexCellCoordinates) {
+		IndexCell indexCell = partitionIndex.get(mapToFineGrid(indexCellCoordinates));
+		if (indexCell == null) {
+			indexCell = new FASTIndexCell(this, getBoundForIndexCell(indexCellCoordinates), indexCellCoordinates);
+			partitionIndex.put(mapToFineGrid(indexCellCoordinates), indexCell);
+		}
+		return indexCell;
 	}
 
 	@Override
-	public Integer getCountPerKeywrodsAny(ArrayList<String> keywords, Rectangle rect) {
-		// TODO Auto-generated method stub
-		return null;
+	public IndexCell getIndexCellFromCoordinates(IndexCellCoordinates indexCell) {
+		return partitionIndex.get(mapToFineGrid(indexCell));
 	}
 
+	/**
+	 * Maps the point to its cell in the fine grid, points on the boundary of
+	 * the space map to the last cell
+	 */
 	@Override
-	public Integer getCountPerRec(Rectangle rec) {
-		// TODO Auto-generated method stub
-		return null;
+	public IndexCellCoordinates mapDataPointToPartition(Point point) {
+		int xCell = Math.max(0, Math.min(fineGridGran - 1, (int) (point.getX() / fineXstep)));
+		int yCell = Math.max(0, Math.min(fineGridGran - 1, (int) (point.getY() / fineYstep)));
+		return new IndexCellCoordinates(xCell, yCell);
+	}
+
+	/**
+	 * Maps the rectangle to the fine grid cells it overlaps inside the bounds
+	 * of the partition
+	 */
+	ArrayList<IndexCellCoordinates> mapRecToIndexCells(Rectangle rectangle, Cell partition) {
+		ArrayList<IndexCellCoordinates> indexCells = new ArrayList<IndexCellCoordinates>();
+		if (rectangle == null)
+			return indexCells;
+		int xMinCell = Math.max(partition.getLeft(), (int) (rectangle.getMin().getX() / fineXstep));
+		int yMinCell = Math.max(partition.getBottom(), (int) (rectangle.getMin().getY() / fineYstep));
+		int xMaxCell = Math.min(partition.getRight() - 1, (int) (rectangle.getMax().getX() / fineXstep));
+		int yMaxCell = Math.min(partition.getTop() - 1, (int) (rectangle.getMax().getY() / fineYstep));
+		for (int xCell = xMinCell; xCell <= xMaxCell; xCell++)
+			for (int yCell = yMinCell; yCell <= yMaxCell; yCell++)
+				indexCells.add(new IndexCellCoordinates(xCell, yCell));
+		return indexCells;
+	}
+
+	ArrayList<IndexCellCoordinates> mapRecToIndexCells(Rectangle rectangle) {
+		return mapRecToIndexCells(rectangle, new Cell(0, fineGridGran, 0, fineGridGran));
+	}
+
+	@Override
+	public IndexCell mapDataObjectToIndexCell(DataObject dataObject) {
+		return getIndexCellFromCoordinates(mapDataPointToPartition(dataObject.getLocation()));
 	}
 
 	@Override
 	public IndexCell getOverlappingIndexCells(Point point) {
-		// TODO Auto-generated method stub
-		return null;
+		return getIndexCellFromCoordinates(mapDataPointToPartition(point));
 	}
 
 	@Override
 	public ArrayList<IndexCell> getOverlappingIndexCells(Rectangle rectangle) {
-		// TODO Auto-generated method stub
-		return null;
+		ArrayList<IndexCell> relevantIndexCells = new ArrayList<IndexCell>();
+		for (IndexCellCoordinates indexCellCoordinates : mapRecToIndexCells(rectangle)) {
+			IndexCell indexCell = getIndexCellFromCoordinates(indexCellCoordinates);
+			if (indexCell != null)
+				relevantIndexCells.add(indexCell);
+		}
+		return relevantIndexCells;
 	}
 
 	@Override
 	public ArrayList<IndexCell> getOverlappingIndexCellWithData(Rectangle rectangle) {
-		// TODO Auto-generated method stub
-		return null;
+		ArrayList<IndexCell> relevantIndexCells = new ArrayList<IndexCell>();
+		for (IndexCell indexCell : getOverlappingIndexCells(rectangle))
+			if (indexCell.getDataObjectCount() > 0)
+				relevantIndexCells.add(indexCell);
+		return relevantIndexCells;
 	}
 
 	@Override
 	public ArrayList<IndexCell> getOverlappingIndexCellWithData(Rectangle rectangle, ArrayList<String> keywords) {
-		// TODO Auto-generated method stub
-		return null;
+		ArrayList<IndexCell> relevantIndexCells = new ArrayList<IndexCell>();
+		for (IndexCell indexCell : getOverlappingIndexCells(rectangle))
+			if (indexCell.getDataObjectCount() > 0 && TextHelpers.overlapsTextually(indexCell.getAllDataTextInCell(), keywords))
+				relevantIndexCells.add(indexCell);
+		return relevantIndexCells;
 	}
 
 	@Override
 	public ArrayList<IndexCell> getOverlappingIndexCellWithData(ArrayList<String> keywords) {
-		// TODO Auto-generated method stub
-		return null;
+		return getOverlappingIndexCellWithData(selfBounds, keywords);
+	}
+
+	public Integer getCountPerKeywrodsAll(ArrayList<String> keywords) {
+		Integer sum = 0;
+		for (IndexCell indexCell : partitionIndex.values())
+			sum += indexCell.estimateDataObjectCountAll(keywords);
+		return sum;
 	}
 
 	@Override
-	public Map<String, Query> getReleventQueries(DataObject dataObject, Boolean fromNeighbour) {
-		// TODO Auto-generated method stub
-		return null;
+	public Integer getCountPerKeywrodsAll(ArrayList<String> keywords, Rectangle rect) {
+		Integer sum = 0;
+		for (IndexCell indexCell : getOverlappingIndexCells(rect))
+			sum += indexCell.estimateDataObjectCountAll(keywords);
+		return sum;
 	}
 
 	@Override
-	public LocalIndexKNNIterator KNNIterator(Point focalPoint, Double distance) {
-		// TODO Auto-generated method stub
-		return null;
+	public Integer getCountPerKeywrodsAny(ArrayList<String> keywords) {
+		Integer sum = 0;
+		for (IndexCell indexCell : partitionIndex.values())
+			sum += indexCell.estimateDataObjectCountAny(keywords);
+		return sum;
 	}
 
 	@Override
-	public LocalIndexKNNIterator LocalKNNIterator(Point focalPoint) {
-		// TODO Auto-generated method stub
-		return null;
+	public Integer getCountPerKeywrodsAny(ArrayList<String> keywords, Rectangle rect) {
+		Integer sum = 0;
+		for (IndexCell indexCell : getOverlappingIndexCells(rect))
+			sum += indexCell.estimateDataObjectCountAny(keywords);
+		return sum;
 	}
 
 	@Override
-	public IndexCell mapDataObjectToIndexCell(DataObject dataObject) {
-		// TODO Auto-generated method stub
-		return null;
+	public Integer getCountPerRec(Rectangle rec) {
+		Integer sum = 0;
+		for (IndexCell indexCell : getOverlappingIndexCells(rec))
+			sum += indexCell.getDataObjectCount();
+		return sum;
+	}
+
+	/**
+	 * This function retrtives all relevant queries that maybe affected by the
+	 * addition of a new data object, the map is keyed by the query source and
+	 * query id
+	 */
+	@Override
+	public Map<String, Query> getReleventQueries(DataObject dataObject, Boolean fromNeighbour) {
+		HashMap<String, Query> queriesMap = new HashMap<String, Query>();
+		ArrayList<Query> queries = new ArrayList<Query>(globalKNNQueries);
+		Rectangle range = fromNeighbour ? dataObject.getRelevantArea() : new Rectangle(dataObject.getLocation(), dataObject.getLocation());
+		queries.addAll(getOverlappingQueries(range));
+		if (knnPyramid != null)
+			queries.addAll(knnPyramid.getOverlappingQueries(range));
+		for (IndexCell indexCell : getOverlappingIndexCells(range))
+			queries.addAll(((FASTIndexCell) indexCell).getKNNQueries());
+		for (Query q : queries) {
+			String unqQueryId = q.getUniqueIDFromQuerySourceAndQueryId();
+			if (!queriesMap.containsKey(unqQueryId))
+				queriesMap.put(unqQueryId, q);
+		}
+		return queriesMap;
+	}
+
+	@Override
+	public LocalKNNFASTIterator KNNIterator(Point focalPoint, Double distance) {
+		return new LocalKNNFASTIterator(this, focalPoint, distance);
+	}
+
+	@Override
+	public LocalKNNFASTIterator LocalKNNIterator(Point focalPoint) {
+		return new LocalKNNFASTIterator(this, focalPoint);
 	}
 
 	@Override
 	public ArrayList<IndexCell> getIndexCellsFromPartition(Cell partition) {
-		// TODO Auto-generated method stub
-		return null;
+		ArrayList<IndexCell> result = new ArrayList<IndexCell>();
+		for (int i = partition.getLeft(); i < partition.getRight(); i++)
+			for (int j = partition.getBottom(); j < partition.getTop(); j++) {
+				IndexCell indexCell = getIndexCellFromCoordinates(new IndexCellCoordinates(i, j));
+				if (indexCell != null)
+					result.add(indexCell);
+			}
+		return result;
 	}
 
+	/**
+	 * Removes the cells of the partition and the pyramid queries that lie
+	 * entirely inside it, queries that also overlap the remaining area stay
+	 * indexed
+	 */
 	@Override
-	public Boolean updateContinousQuery(Query oldQuery, Query query) {
-		// TODO Auto-generated method stub
-		return null;
+	public void removeIndexCellsFromPartition(Cell partition, boolean textAware) {
+		for (int i = partition.getLeft(); i < partition.getRight(); i++)
+			for (int j = partition.getBottom(); j < partition.getTop(); j++)
+				partitionIndex.remove(mapToFineGrid(new IndexCellCoordinates(i, j)));
+		Rectangle partitionBounds = new Rectangle(new Point(partition.getLeft() * fineXstep, partition.getBottom() * fineYstep), new Point(partition.getRight() * fineXstep, partition.getTop() * fineYstep));
+		for (Query q : getOverlappingQueries(partitionBounds))
+			if (SpatialHelper.insideSpatially(partitionBounds, q.getSpatialRange()))
+				dropContinousQuery(q);
 	}
 
+	/**
+	 * Adds a cell received from another evaluator, the range queries of the
+	 * cell are inserted in the pyramid once even if they arrive with several
+	 * cells or are already indexed here, and wait in the expiry wheel like the
+	 * inserted queries
+	 */
 	@Override
-	public Set<String> getUpdatedTextSummery() {
-		// TODO Auto-generated method stub
-		return null;
+	public void addIndexCellsFromPartition(IndexCell indexCell, boolean textAware) {
+		IndexCell localIndexCell = getIndexCellCreateIfNull(indexCell.getGlobalCoordinates());
+		localIndexCell.setIndexCellCost(indexCell.getIndexCellCost());
+		for (DataObject dataObject : indexCell.getStoredObjects()) {
+			localIndexCell.addDataObject(dataObject);
+			allDataCount++;
+		}
+		if (indexCell.getStoredQueries() == null)
+			return;
+		for (Query q : indexCell.getStoredQueries()) {
+			if (QueryType.queryTextualKNN.equals(q.getQueryType()))
+				localIndexCell.addQuery(q);
+			else {
+				//only an indexed copy of the query is dropped, a query that is new here is just inserted
+				dropContinousQuery(q);
+				indexQuery(q);
+				scheduleExpiry(q);
+			}
+		}
 	}
 
 	@Override
-	public void cleanUp() {
-		// TODO Auto-generated method stub
-		
+	public void setPartition(Cell myPartition, Rectangle selfBounds) {
+		this.myPartition = myPartition;
+		this.selfBounds = selfBounds;
 	}
 
+	/**
+	 * FAST keeps bounded keyword statistics of the queries and not their exact
+	 * text, the text aware global index is not updated from it
+	 */
 	@Override
-	public IndexCellCoordinates mapDataPointToPartition(Point point) {
-		// TODO Auto-generated method stub
+	public Set<String> getUpdatedTextSummery() {
 		return null;
 	}
 
+	/**
+	 * Drops the expired queries of the expiry wheel, completes the cleaning of
+	 * all the pyramid cells and removes the expired KNN queries of the KNN
+	 * pyramid and of the fine grid cells
+	 */
 	@Override
-	public IndexCell getIndexCellFromCoordinates(IndexCellCoordinates indexCell) {
-		// TODO Auto-generated method stub
-		return null;
+	public void cleanUp() {
+		beginCleanUpTime = (new Date()).getTime();
+		dropExpiredQueries();
+		Iterator<IndexCellOptimizedExperiment> itr = index.iterator();
+		while (itr.hasNext()) {
+			IndexCellOptimizedExperiment cell = itr.next();
+			while (!cell.clean())
+				;
+			if (cell.ptp == null)
+				itr.remove();
+		}
+		cleaningIterator = null;
+		cellBeingCleaned = null;
+		lastCellCleaningDone = true;
+		for (IndexCell indexCell : partitionIndex.values())
+			indexCell.findandRemoveExpriedQueries();
+		if (knnPyramid != null) {
+			for (KNNQuery q : new ArrayList<KNNQuery>(pyramidKNNQueries.values()))
+				if (q.getRemoveTime() < expiryTime)
+					dropPyramidKNNQuery(q);
+			knnPyramid.cleanUp();
+		}
 	}
 
 }
@@ -0,0 +1,299 @@
+/**
+ * Copyright Jul 5, 2015
+ * Author : Ahmed Mahmood
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.purdue.cs.tornado.index.local.fast;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The cells of the FAST pyramid by their coordinate (level<<22)+y*gran+x. A
+ * level with at most MAX_DENSE_LEVEL_CELLS cells is a dense array indexed by
+ * y*gran+x, the other levels share an open addressing table with int keys, so
+ * a lookup does not box the coordinate. The table is searched by many threads
+ * while one thread adds and removes cells. A removed cell keeps the key of its
+ * slot until the table is rebuilt, so the probe sequence of a key never changes
+ * under a search.
+ */
+public class FASTCellTable implements Iterable<IndexCellOptimizedExperiment> {
+	public static final int MAX_DENSE_LEVEL_CELLS = 1 << 14;
+	static final int LEVEL_SHIFT = 22;
+	static final int OFFSET_MASK = (1 << LEVEL_SHIFT) - 1;
+	static final int EMPTY_KEY = -1;
+	static final int MIN_CAPACITY = 16;
+	//estimated heap sizes in bytes
+	public static final int ESTIMATED_ARRAY_SIZE = 32;
+	public static final int ESTIMATED_REFERENCE_SIZE = 4;
+	public static final int ESTIMATED_KEY_SIZE = 4;
+
+	/**
+	 * The open addressing slots, a rebuilt table gets new slots so that a
+	 * search keeps a consistent view of the slots it started with
+	 */
+	static class Slots {
+		final int[] keys;
+		final AtomicReferenceArray<IndexCellOptimizedExperiment> cells;
+		int usedKeys;//keys of the live and the removed cells
+
+		Slots(int capacity) {
+			keys = new int[capacity];
+			for (int i = 0; i < capacity; i++)
+				keys[i] = EMPTY_KEY;
+			cells = new AtomicReferenceArray<IndexCellOptimizedExperiment>(capacity);
+			usedKeys = 0;
+		}
+	}
+
+	private final int gridGranularity;
+	private final AtomicReferenceArray<IndexCellOptimizedExperiment>[] denseLevels;//null for the levels in the slots
+	private volatile Slots slots;
+	private volatile int size;
+
+	public FASTCellTable(int gridGranularity, int maxLevel) {
+		this.gridGranularity = gridGranularity;
+		this.denseLevels = newDenseLevels(maxLevel + 1);
+		this.slots = new Slots(MIN_CAPACITY);
+		this.size = 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static AtomicReferenceArray<IndexCellOptimizedExperiment>[] newDenseLevels(int levels) {
+		return (AtomicReferenceArray<IndexCellOptimizedExperiment>[]) new AtomicReferenceArray<?>[levels];
+	}
+
+	static int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	int getLevelCellCount(int level) {
+		int levelGranularity = gridGranularity >> level;
+		return levelGranularity * levelGranularity;
+	}
+
+	boolean isDense(int level) {
+		return level < denseLevels.length && (long) getLevelCellCount(level) <= MAX_DENSE_LEVEL_CELLS;
+	}
+
+	public IndexCellOptimizedExperiment get(int coordinate) {
+		if (size == 0)//reading size makes the keys added before it visible
+			return null;
+		int level = coordinate >>> LEVEL_SHIFT;
+		if (level < denseLevels.length) {
+			AtomicReferenceArray<IndexCellOptimizedExperiment> denseLevel = denseLevels[level];
+			if (denseLevel != null)
+				return denseLevel.get(coordinate & OFFSET_MASK);
+			if (isDense(level))
+				return null;
+		}
+		Slots slots = this.slots;
+		int mask = slots.keys.length - 1;
+		for (int i = hash(coordinate) & mask;; i = (i + 1) & mask) {
+			int key = slots.keys[i];
+			if (key == coordinate)
+				return slots.cells.get(i);
+			if (key == EMPTY_KEY)
+				return null;
+		}
+	}
+
+	public IndexCellOptimizedExperiment get(int level, int x, int y, int levelGranularity) {
+		return get((level << LEVEL_SHIFT) + y * levelGranularity + x);
+	}
+
+	public boolean containsKey(int coordinate) {
+		return get(coordinate) != null;
+	}
+
+	/**
+	 * Adds or replaces the cell of its coordinate, only called by the writer
+	 */
+	public void put(IndexCellOptimizedExperiment cell) {
+		int coordinate = cell.coordinate;
+		int level = coordinate >>> LEVEL_SHIFT;
+		if (isDense(level)) {
+			AtomicReferenceArray<IndexCellOptimizedExperiment> denseLevel = denseLevels[level];
+			if (denseLevel == null) {
+				denseLevel = new AtomicReferenceArray<IndexCellOptimizedExperiment>(getLevelCellCount(level));
+				denseLevels[level] = denseLevel;
+			}
+			if (denseLevel.getAndSet(coordinate & OFFSET_MASK, cell) == null)
+				size++;
+			return;
+		}
+		Slots slots = this.slots;
+		if ((slots.usedKeys + 1) * 2 > slots.keys.length)
+			slots = rebuild();
+		int mask = slots.keys.length - 1;
+		int i = hash(coordinate) & mask;
+		while (slots.keys[i] != EMPTY_KEY && slots.keys[i] != coordinate)
+			i = (i + 1) & mask;
+		if (slots.keys[i] == EMPTY_KEY) {
+			slots.keys[i] = coordinate;
+			slots.usedKeys++;
+		}
+		if (slots.cells.getAndSet(i, cell) == null)
+			size++;
+	}
+
+	/**
+	 * Removes the cell of the coordinate, only called by the writer
+	 */
+	public IndexCellOptimizedExperiment remove(int coordinate) {
+		int level = coordinate >>> LEVEL_SHIFT;
+		IndexCellOptimizedExperiment cell = null;
+		if (isDense(level)) {
+			AtomicReferenceArray<IndexCellOptimizedExperiment> denseLevel = denseLevels[level];
+			if (denseLevel != null)
+				cell = denseLevel.getAndSet(coordinate & OFFSET_MASK, null);
+		} else {
+			Slots slots = this.slots;
+			int mask = slots.keys.length - 1;
+			for (int i = hash(coordinate) & mask; slots.keys[i] != EMPTY_KEY; i = (i + 1) & mask)
+				if (slots.keys[i] == coordinate) {
+					cell = slots.cells.getAndSet(i, null);
+					break;
+				}
+		}
+		if (cell != null)
+			size--;
+		return cell;
+	}
+
+	/**
+	 * Copies the live cells to new slots with a load of at most one fourth and
+	 * publishes them
+	 */
+	Slots rebuild() {
+		Slots oldSlots = this.slots;
+		int liveCells = 0;
+		for (int i = 0; i < oldSlots.keys.length; i++)
+			if (oldSlots.cells.get(i) != null)
+				liveCells++;
+		int capacity = MIN_CAPACITY;
+		while (capacity < (liveCells + 1) * 4)
+			capacity <<= 1;
+		Slots newSlots = new Slots(capacity);
+		int mask = capacity - 1;
+		for (int j = 0; j < oldSlots.keys.length; j++) {
+			IndexCellOptimizedExperiment cell = oldSlots.cells.get(j);
+			if (cell == null)
+				continue;
+			int i = hash(oldSlots.keys[j]) & mask;
+			while (newSlots.keys[i] != EMPTY_KEY)
+				i = (i + 1) & mask;
+			newSlots.keys[i] = oldSlots.keys[j];
+			newSlots.cells.set(i, cell);
+			newSlots.usedKeys++;
+		}
+		this.slots = newSlots;
+		return newSlots;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * The estimated heap size of the table per level, the open addressing slots
+	 * are divided over the levels by their number of cells
+	 */
+	public long[] getMemoryPerLevel() {
+		long[] memory = new long[denseLevels.length];
+		int[] sparseCells = new int[denseLevels.length];
+		int totalSparseCells = 0;
+		for (int level = 0; level < denseLevels.length; level++)
+			if (denseLevels[level] != null)
+				memory[level] += ESTIMATED_ARRAY_SIZE + (long) ESTIMATED_REFERENCE_SIZE * denseLevels[level].length();
+		Slots slots = this.slots;
+		for (int i = 0; i < slots.keys.length; i++) {
+			IndexCellOptimizedExperiment cell = slots.cells.get(i);
+			if (cell != null) {
+				sparseCells[cell.level]++;
+				totalSparseCells++;
+			}
+		}
+		long slotsMemory = 2 * ESTIMATED_ARRAY_SIZE + (long) (ESTIMATED_KEY_SIZE + ESTIMATED_REFERENCE_SIZE) * slots.keys.length;
+		for (int level = 0; level < denseLevels.length && totalSparseCells > 0; level++)
+			memory[level] += slotsMemory * sparseCells[level] / totalSparseCells;
+		return memory;
+	}
+
+	/**
+	 * Iterates over the cells present when the iteration starts, remove()
+	 * removes the last cell from the table
+	 */
+	@Override
+	public Iterator<IndexCellOptimizedExperiment> iterator() {
+		return new Iterator<IndexCellOptimizedExperiment>() {
+			Slots iteratedSlots = slots;
+			int level = 0;
+			int position = 0;
+			IndexCellOptimizedExperiment next = advance();
+			IndexCellOptimizedExperiment last = null;
+
+			IndexCellOptimizedExperiment advance() {
+				for (; level < denseLevels.length; level++, position = 0) {
+					AtomicReferenceArray<IndexCellOptimizedExperiment> denseLevel = denseLevels[level];
+					if (denseLevel == null)
+						continue;
+					while (position < denseLevel.length()) {
+						IndexCellOptimizedExperiment cell = denseLevel.get(position++);
+						if (cell != null)
+							return cell;
+					}
+				}
+				while (position < iteratedSlots.keys.length) {
+					IndexCellOptimizedExperiment cell = iteratedSlots.cells.get(position++);
+					if (cell != null)
+						return cell;
+				}
+				return null;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public IndexCellOptimizedExperiment next() {
+				if (next == null)
+					throw new NoSuchElementException("Nothing Next ");
+				last = next;
+				next = advance();
+				return last;
+			}
+
+			@Override
+			public void remove() {
+				if (last == null)
+					throw new IllegalStateException();
+				if (get(last.coordinate) == last)
+					FASTCellTable.this.remove(last.coordinate);
+				last = null;
+			}
+		};
+	}
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright Jul 5, 2015
+ * Author : Ahmed Mahmood
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.purdue.cs.tornado.index.local.fast;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.purdue.cs.tornado.helper.IndexCellCoordinates;
+import edu.purdue.cs.tornado.helper.Rectangle;
+import edu.purdue.cs.tornado.index.local.hybridgrid.GridIndexCell;
+import edu.purdue.cs.tornado.messages.Query;
+
+/**
+ * A cell of the fine grid of the evaluators inside FAST. The cell stores the
+ * data objects, the cost and the KNN queries of its area, the range queries
+ * are only indexed in the FAST pyramid and are looked up from there.
+ */
+public class FASTIndexCell extends GridIndexCell {
+	private FAST fast;
+
+	public FASTIndexCell(FAST fast, Rectangle bounds, IndexCellCoordinates globalCoordinates) {
+		super(bounds, false, 0, globalCoordinates);
+		this.fast = fast;
+	}
+
+	/**
+	 * The pyramid queries overlapping the cell followed by the KNN queries
+	 * stored in the cell
+	 */
+	@Override
+	public ArrayList<Query> getStoredQueries() {
+		ArrayList<Query> queries = fast.getOverlappingQueries(getBounds());
+		if (super.getStoredQueries() != null)
+			queries.addAll(super.getStoredQueries());
+		return queries;
+	}
+
+	@Override
+	public List<Query> getQueries() {
+		return getStoredQueries();
+	}
+
+	/**
+	 * The KNN queries stored in the cell
+	 */
+	public ArrayList<Query> getKNNQueries() {
+		if (super.getStoredQueries() == null)
+			return new ArrayList<Query>();
+		return super.getStoredQueries();
+	}
+}
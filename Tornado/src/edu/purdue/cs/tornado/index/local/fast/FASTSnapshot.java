@@ -0,0 +1,374 @@
+/**
+ * Copyright Jul 5, 2015
+ * Author : Ahmed Mahmood
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.purdue.cs.tornado.index.local.fast;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import edu.purdue.cs.tornado.helper.KeywordSketchStatistics;
+import edu.purdue.cs.tornado.helper.Point;
+import edu.purdue.cs.tornado.helper.QueryTimingWheel;
+import edu.purdue.cs.tornado.helper.Rectangle;
+import edu.purdue.cs.tornado.helper.SpatioTextualConstants;
+import edu.purdue.cs.tornado.messages.Query;
+import edu.purdue.cs.tornado.serializer.KeywordSketchStatisticsSerializer;
+import edu.purdue.cs.tornado.serializer.KryoPool;
+import edu.purdue.cs.tornado.serializer.KryoPool.PooledKryo;
+
+/**
+ * Writes the range query pyramid of FAST to a stream and restores it without
+ * inserting the queries again. The snapshot has a header with the pyramid
+ * parameters, the keyword statistics, every indexed query once, and the
+ * cells with their inverted lists and tries in which the queries and the
+ * keywords are numbers. Lists that are shared by several cells stay shared.
+ * The queries are written by the serializers of KryoPool, so the snapshot is
+ * read back by workers with the same keyword file and source ids. The KNN
+ * queries and the data objects are not part of the snapshot.
+ * 
+ * Both directions are sequential, a snapshot is written by the thread that
+ * inserts the queries and restored in a FAST without queries.
+ */
+public class FASTSnapshot {
+	public static final int MAGIC = 0x46415354;
+	public static final int VERSION = 1;
+	public static final int BUFFER_SIZE = 1 << 20;
+	//entry tags
+	static final int SINGLE_QUERY = 0;
+	static final int QUERY_LIST = 1;
+	static final int SHARED_QUERY_LIST = 2;
+	static final int TRIE_CELL = 3;
+
+	private Output output;
+	private Input input;
+	private PooledKryo pooledKryo;
+	//writer: the numbers of the queries, the keywords and the shared lists, reader: the reverse
+	private IdentityHashMap<Query, Integer> queryNumbers;
+	private HashMap<String, Integer> keywordNumbers;
+	private IdentityHashMap<KeywordIndex, Integer> listNumbers;
+	private ArrayList<Query> queries;
+	private ArrayList<String> keywords;
+	private ArrayList<KeywordIndex> lists;
+
+	/**
+	 * @return the size of the snapshot in bytes
+	 */
+	public static long write(FAST fast, File file) throws IOException {
+		FileOutputStream stream = new FileOutputStream(file);
+		try {
+			write(fast, stream);
+		} finally {
+			stream.close();
+		}
+		return file.length();
+	}
+
+	public static void read(FAST fast, File file) throws IOException {
+		FileInputStream stream = new FileInputStream(file);
+		try {
+			read(fast, stream);
+		} finally {
+			stream.close();
+		}
+	}
+
+	public static void write(FAST fast, OutputStream stream) {
+		FASTSnapshot snapshot = new FASTSnapshot();
+		snapshot.output = new Output(stream, BUFFER_SIZE);
+		snapshot.pooledKryo = KryoPool.getInstance().borrow();
+		try {
+			snapshot.writeFAST(fast);
+			snapshot.output.flush();
+		} finally {
+			KryoPool.getInstance().release(snapshot.pooledKryo);
+		}
+	}
+
+	/**
+	 * Restores the pyramid of the snapshot in fast, fast must not have range
+	 * queries and must have the granularity and levels of the written FAST
+	 */
+	public static void read(FAST fast, InputStream stream) {
+		FASTSnapshot snapshot = new FASTSnapshot();
+		snapshot.input = new Input(stream, BUFFER_SIZE);
+		snapshot.pooledKryo = KryoPool.getInstance().borrow();
+		try {
+			snapshot.readFAST(fast);
+		} finally {
+			KryoPool.getInstance().release(snapshot.pooledKryo);
+		}
+	}
+
+	void writeFAST(FAST fast) {
+		output.writeInt(MAGIC);
+		output.writeInt(VERSION, true);
+		output.writeInt(fast.gridGranularity, true);
+		output.writeInt(fast.maxLevel, true);
+		output.writeInt(fast.minInsertedLevel + 1, true);
+		output.writeInt(fast.maxInsertedLevel + 1, true);
+		output.writeInt(fast.queryTimeStampCounter, true);
+		KeywordSketchStatisticsSerializer.write(output, (KeywordSketchStatistics) fast.overallQueryTextSummery);
+
+		queryNumbers = new IdentityHashMap<Query, Integer>();
+		queries = new ArrayList<Query>();
+		ArrayList<Query> entries = new ArrayList<Query>();
+		for (IndexCellOptimizedExperiment cell : fast.index) {
+			entries.clear();
+			cell.collectQueries(entries);
+			for (Query q : entries) {
+				Query query = q.getParentQuery() == null ? q : q.getParentQuery();
+				if (!queryNumbers.containsKey(query)) {
+					queryNumbers.put(query, queries.size());
+					queries.add(query);
+				}
+			}
+		}
+		output.writeInt(queries.size(), true);
+		for (Query query : queries) {
+			pooledKryo.kryo.writeClassAndObject(output, query);
+			output.writeBoolean(query.isDeleted());
+			output.writeInt(query.expireTime, false);
+		}
+
+		keywordNumbers = new HashMap<String, Integer>();
+		listNumbers = new IdentityHashMap<KeywordIndex, Integer>();
+		output.writeInt(fast.index.size(), true);
+		for (IndexCellOptimizedExperiment cell : fast.index) {
+			output.writeInt(cell.coordinate);
+			output.writeLong(cell.textSignature);
+			writeEntries(cell.ptp);
+		}
+	}
+
+	void readFAST(FAST fast) {
+		if (input.readInt() != MAGIC)
+			throw new IllegalArgumentException("Not a FAST snapshot");
+		int version = input.readInt(true);
+		if (version != VERSION)
+			throw new IllegalArgumentException("Unsupported FAST snapshot version " + version);
+		int gridGranularity = input.readInt(true);
+		int maxLevel = input.readInt(true);
+		if (gridGranularity != fast.gridGranularity || maxLevel != fast.maxLevel)
+			throw new IllegalArgumentException("The snapshot has granularity " + gridGranularity + " and " + maxLevel + " levels, FAST has " + fast.gridGranularity + " and " + fast.maxLevel);
+		if (!fast.index.isEmpty())
+			throw new IllegalStateException("FAST already has queries");
+		int minInsertedLevel = input.readInt(true) - 1;
+		int maxInsertedLevel = input.readInt(true) - 1;
+		fast.queryTimeStampCounter = input.readInt(true);
+		fast.updateExpiryTime();
+		fast.overallQueryTextSummery = KeywordSketchStatisticsSerializer.read(input);
+
+		int queryCount = input.readInt(true);
+		queries = new ArrayList<Query>(queryCount);
+		for (int i = 0; i < queryCount; i++) {
+			Query query = (Query) pooledKryo.kryo.readClassAndObject(input);
+			query.deleted = input.readBoolean();
+			query.expireTime = input.readInt(false);
+			queries.add(query);
+		}
+
+		keywords = new ArrayList<String>();
+		lists = new ArrayList<KeywordIndex>();
+		int cellCount = input.readInt(true);
+		for (int i = 0; i < cellCount; i++) {
+			int coordinate = input.readInt();
+			int level = coordinate >>> FASTCellTable.LEVEL_SHIFT;
+			int levelGranuality = (int) (fast.gridGranularity / Math.pow(2, level));
+			double levelStep = (SpatioTextualConstants.xMaxRange / levelGranuality);
+			int offset = coordinate & FASTCellTable.OFFSET_MASK;
+			Rectangle bounds = fast.getBoundForIndexCell(offset % levelGranuality, offset / levelGranuality, levelStep);
+			IndexCellOptimizedExperiment cell = new IndexCellOptimizedExperiment(fast, bounds, coordinate, level, fast.overallQueryTextSummery);
+			cell.textSignature = input.readLong();
+			cell.ptp = readEntries();
+			fast.index.put(cell);
+		}
+		fast.minInsertedLevel = minInsertedLevel;
+		fast.maxInsertedLevel = maxInsertedLevel;
+		//the expiry wheel is rebuilt from the query table
+		fast.expiryWheel = new QueryTimingWheel(fast.expiryTime);
+		for (Query query : queries)
+			if (!query.isDeleted())
+				fast.scheduleExpiry(query);
+	}
+
+	void writeEntries(ConcurrentHashMap<String, KeywordIndex> entries) {
+		if (entries == null) {
+			output.writeInt(0, true);
+			return;
+		}
+		output.writeInt(entries.size() + 1, true);
+		for (Entry<String, KeywordIndex> entry : entries.entrySet()) {
+			writeKeyword(entry.getKey());
+			writeEntry(entry.getValue());
+		}
+	}
+
+	ConcurrentHashMap<String, KeywordIndex> readEntries() {
+		int size = input.readInt(true) - 1;
+		if (size < 0)
+			return null;
+		ConcurrentHashMap<String, KeywordIndex> entries = new ConcurrentHashMap<String, KeywordIndex>(Math.max(16, size * 2));
+		for (int i = 0; i < size; i++) {
+			String keyword = readKeyword();
+			entries.put(keyword, readEntry());
+		}
+		return entries;
+	}
+
+	void writeEntry(KeywordIndex keywordIndex) {
+		if (keywordIndex.query != null) {
+			output.writeInt(SINGLE_QUERY, true);
+			writeQuery(keywordIndex.query);
+		} else if (keywordIndex.queries != null) {
+			Integer number = listNumbers.get(keywordIndex);
+			if (number != null) {
+				output.writeInt(SHARED_QUERY_LIST, true);
+				output.writeInt(number, true);
+				return;
+			}
+			listNumbers.put(keywordIndex, listNumbers.size());
+			output.writeInt(QUERY_LIST, true);
+			output.writeInt(keywordIndex.queries.length, true);
+			for (Query query : keywordIndex.queries)
+				writeQuery(query);
+		} else {
+			output.writeInt(TRIE_CELL, true);
+			writeTrieCell(keywordIndex.trieCell);
+		}
+	}
+
+	KeywordIndex readEntry() {
+		int tag = input.readInt(true);
+		switch (tag) {
+		case SINGLE_QUERY:
+			return new KeywordIndex(readQuery());
+		case QUERY_LIST:
+			Query[] listQueries = new Query[input.readInt(true)];
+			for (int i = 0; i < listQueries.length; i++)
+				listQueries[i] = readQuery();
+			KeywordIndex list = new KeywordIndex(listQueries);
+			lists.add(list);
+			return list;
+		case SHARED_QUERY_LIST:
+			return lists.get(input.readInt(true));
+		case TRIE_CELL:
+			return new KeywordIndex(readTrieCell());
+		default:
+			throw new IllegalArgumentException("Unknown FAST snapshot entry " + tag);
+		}
+	}
+
+	void writeTrieCell(KeywordTrieCellMinimalExperiment trieCell) {
+		writeQueries(trieCell.queries);
+		writeQueries(trieCell.finalQueries);
+		output.writeLong(trieCell.signature);
+		writeEntries(trieCell.trieCells);
+	}
+
+	KeywordTrieCellMinimalExperiment readTrieCell() {
+		KeywordTrieCellMinimalExperiment trieCell = new KeywordTrieCellMinimalExperiment();
+		trieCell.queries = readQueries();
+		trieCell.finalQueries = readQueries();
+		trieCell.signature = input.readLong();
+		trieCell.trieCells = readEntries();
+		return trieCell;
+	}
+
+	void writeQueries(List<Query> queries) {
+		if (queries == null) {
+			output.writeInt(0, true);
+			return;
+		}
+		output.writeInt(queries.size() + 1, true);
+		for (Query query : queries)
+			writeQuery(query);
+	}
+
+	ArrayList<Query> readQueries() {
+		int size = input.readInt(true) - 1;
+		if (size < 0)
+			return null;
+		ArrayList<Query> result = new ArrayList<Query>(size);
+		for (int i = 0; i < size; i++)
+			result.add(readQuery());
+		return result;
+	}
+
+	/**
+	 * A query is written as its number, a conjunction query as the number of
+	 * its parent query and its position in the conjunctions of the parent
+	 */
+	void writeQuery(Query query) {
+		Query parentQuery = query.getParentQuery();
+		if (parentQuery == null) {
+			output.writeInt(queryNumbers.get(query) << 1, true);
+			return;
+		}
+		output.writeInt((queryNumbers.get(parentQuery) << 1) | 1, true);
+		ArrayList<Query> conjunctionQueries = parentQuery.getConjunctionQueries();
+		int position = 0;
+		while (conjunctionQueries.get(position) != query)
+			position++;
+		output.writeInt(position, true);
+	}
+
+	Query readQuery() {
+		int number = input.readInt(true);
+		Query query = queries.get(number >>> 1);
+		if ((number & 1) == 0)
+			return query;
+		return query.getConjunctionQueries().get(input.readInt(true));
+	}
+
+	/**
+	 * A keyword is written as a string the first time and as its number after
+	 */
+	void writeKeyword(String keyword) {
+		Integer number = keywordNumbers.get(keyword);
+		if (number != null) {
+			output.writeInt(number + 1, true);
+			return;
+		}
+		keywordNumbers.put(keyword, keywordNumbers.size());
+		output.writeInt(0, true);
+		output.writeString(keyword);
+	}
+
+	String readKeyword() {
+		int number = input.readInt(true) - 1;
+		if (number >= 0)
+			return keywords.get(number);
+		String keyword = input.readString();
+		keywords.add(keyword);
+		return keyword;
+	}
+}
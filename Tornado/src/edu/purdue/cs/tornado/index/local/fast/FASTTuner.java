@@ -0,0 +1,150 @@
+/**
+ * Copyright Jul 5, 2015
+ * Author : Ahmed Mahmood
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.purdue.cs.tornado.index.local.fast;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adjusts the trie split threshold, the degradation ratio and the cleaning
+ * budget of one FAST while it runs. Every adjustmentInterval inserted queries
+ * the tuner compares the time spent matching objects with the time spent
+ * inserting queries since the last adjustment. When matching dominates the
+ * lists are split into tries earlier and trie cells push their queries to
+ * the next level earlier, unless the tries already reached maxTrieDepth. When
+ * inserting dominates both are done later. The cleaning budget follows the
+ * share of expired entries that the cleaning finds.
+ * 
+ * The insertions, the cleaning and the adjustments are done by the writer
+ * thread of FAST, the matches are timed by the reading threads, one in
+ * matchSampleMask + 1.
+ */
+public class FASTTuner {
+	public int minTrieSplitThreshold = 2;
+	public int maxTrieSplitThreshold = 64;
+	public int minDegradationRatio = 2;
+	public int maxDegradationRatio = 64;
+	public int minCleaningEntries = 10;
+	public int maxCleaningEntries = 1000;
+	public int maxTrieDepth = 4;
+	public int adjustmentInterval = 10000;
+	public int matchSampleMask = 63;
+	public double highMatchShare = 0.6;//matching dominates above this share of the time
+	public double lowMatchShare = 0.4;//inserting dominates below this share of the time
+	public double highExpiredShare = 0.25;
+	public double lowExpiredShare = 0.05;
+
+	private final FAST fast;
+	//observed by the writer since the last adjustment
+	private long insertNanos;
+	private int insertedQueries;
+	private int deepestTrie;
+	private long cleanedEntries;
+	private long expiredEntries;
+	//observed by the readers since the last adjustment
+	private int matchCalls;//not synchronized, only picks the timed matches
+	private final AtomicLong sampledMatchNanos;
+	private final AtomicLong sampledMatches;
+	//the last adjustment
+	private int adjustments;
+	private double lastMatchShare;
+	private int lastDeepestTrie;
+
+	public FASTTuner(FAST fast) {
+		this.fast = fast;
+		this.sampledMatchNanos = new AtomicLong();
+		this.sampledMatches = new AtomicLong();
+		this.lastMatchShare = -1;
+	}
+
+	/**
+	 * @return true if the match that starts is timed
+	 */
+	public boolean sampleMatch() {
+		return (++matchCalls & matchSampleMask) == 0;
+	}
+
+	public void recordMatch(long nanos) {
+		sampledMatchNanos.addAndGet(nanos);
+		sampledMatches.incrementAndGet();
+	}
+
+	public void recordInsert(long nanos) {
+		insertNanos += nanos;
+		if (++insertedQueries >= adjustmentInterval)
+			adjust();
+	}
+
+	public void recordTrieDepth(int depth) {
+		if (depth > deepestTrie)
+			deepestTrie = depth;
+	}
+
+	public void recordCleaning(int visitedEntries, int removedEntries) {
+		cleanedEntries += visitedEntries;
+		expiredEntries += removedEntries;
+	}
+
+	/**
+	 * Changes the parameters of fast by one step from what was observed since
+	 * the last adjustment
+	 */
+	public void adjust() {
+		long matches = sampledMatches.getAndSet(0);
+		long matchNanos = sampledMatchNanos.getAndSet(0);
+		if (matches > 0 && insertNanos > 0) {
+			//the sampled matches stand for matchSampleMask + 1 matches each
+			double totalMatchNanos = (double) matchNanos * (matchSampleMask + 1);
+			lastMatchShare = totalMatchNanos / (totalMatchNanos + insertNanos);
+			if (lastMatchShare > highMatchShare && deepestTrie < maxTrieDepth) {
+				fast.trieSplitThreshold = Math.max(minTrieSplitThreshold, fast.trieSplitThreshold / 2);
+				fast.degradationRatio = Math.max(minDegradationRatio, fast.degradationRatio / 2);
+			} else if (lastMatchShare < lowMatchShare || deepestTrie > maxTrieDepth) {
+				fast.trieSplitThreshold = Math.min(maxTrieSplitThreshold, fast.trieSplitThreshold * 2);
+				fast.degradationRatio = Math.min(maxDegradationRatio, fast.degradationRatio * 2);
+			}
+		}
+		if (cleanedEntries > 0) {
+			double expiredShare = (double) expiredEntries / cleanedEntries;
+			if (expiredShare > highExpiredShare)
+				fast.maxEntriesPerCleaningInterval = Math.min(maxCleaningEntries, fast.maxEntriesPerCleaningInterval * 2);
+			else if (expiredShare < lowExpiredShare)
+				fast.maxEntriesPerCleaningInterval = Math.max(minCleaningEntries, fast.maxEntriesPerCleaningInterval / 2);
+		}
+		adjustments++;
+		lastDeepestTrie = deepestTrie;
+		insertNanos = 0;
+		insertedQueries = 0;
+		deepestTrie = 0;
+		cleanedEntries = 0;
+		expiredEntries = 0;
+	}
+
+	/**
+	 * The number of adjustments and what the last adjustment observed
+	 */
+	public LinkedHashMap<String, Number> getMetrics() {
+		LinkedHashMap<String, Number> metrics = new LinkedHashMap<String, Number>();
+		metrics.put("adjustments", adjustments);
+		metrics.put("matchShare", lastMatchShare);
+		metrics.put("deepestTrie", lastDeepestTrie);
+		return metrics;
+	}
+}
@@ -35,17 +35,19 @@ import edu.purdue.cs.tornado.messages.Query;
 public class IndexCellOptimized {
 	public HashMap<String, ArrayList<MinimalRangeQuery>> rareAndOverlapKeywords;//queries that fall only within the cells range
 	public KeyWordTrieIndexMinimal trieIndex;
+	LocalHybridPyramidGridIndexOptimized pyramid;//counts the operations of the cell
 
-	public IndexCellOptimized() {
+	public IndexCellOptimized(LocalHybridPyramidGridIndexOptimized pyramid) {
 		rareAndOverlapKeywords = null;
+		this.pyramid = pyramid;
 	}
 
-	public IndexCellOptimized(Rectangle bounds) {
-		rareAndOverlapKeywords = null;
+	public IndexCellOptimized(LocalHybridPyramidGridIndexOptimized pyramid, Rectangle bounds) {
+		this(pyramid);
 	}
 
-	public IndexCellOptimized(Rectangle bounds, Integer globalCoordinates) {
-		rareAndOverlapKeywords = null;
+	public IndexCellOptimized(LocalHybridPyramidGridIndexOptimized pyramid, Rectangle bounds, Integer globalCoordinates) {
+		this(pyramid);
 	}
 
 	public IndexCellOptimized addDataObjectRecusrive(DataObject dataObject) {
@@ -79,19 +81,19 @@ public class IndexCellOptimized {
 		}
 
 		if (!rareAndOverlapKeywords.containsKey(keyword) && KeyWordTrieIndexMinimal.SPLIT_THRESHOLD_FREQ>0) {
-			LocalHybridPyramidGridIndexOptimized.numberOfHashEntries++;
+			pyramid.numberOfHashEntries++;
 			rareAndOverlapKeywords.put(keyword, new ArrayList<MinimalRangeQuery>());
 			rareAndOverlapKeywords.get(keyword).add(query);
-			LocalHybridPyramidGridIndexOptimized.queryInsertInvListNodeCounter++;
+			pyramid.queryInsertInvListNodeCounter++;
 		} else if ( KeyWordTrieIndexMinimal.SPLIT_THRESHOLD_FREQ>0&&(rareAndOverlapKeywords.get(keyword).size() < KeyWordTrieIndexMinimal.SPLIT_THRESHOLD_FREQ || query.getQueryText().size() == 1)) {
 			rareAndOverlapKeywords.get(keyword).add(query);
-			LocalHybridPyramidGridIndexOptimized.queryInsertInvListNodeCounter++;
+			pyramid.queryInsertInvListNodeCounter++;
 		} else {
 			if (trieIndex == null) {
-				trieIndex = new KeyWordTrieIndexMinimal();
+				trieIndex = new KeyWordTrieIndexMinimal(pyramid);
 			}
 			trieIndex.insert(query.getQueryText(), query);
-			LocalHybridPyramidGridIndexOptimized.queryInsertTrieNodeCounter++;
+			pyramid.queryInsertTrieNodeCounter++;
 			//	trieIndex.insert(new ArrayList<String>(query.getQueryText().subList(0, 2)), query);
 		}
 
@@ -122,14 +124,14 @@ public class IndexCellOptimized {
 		if (srcQueryList != null)
 			for (String keyword : keywords) {
 				List<MinimalRangeQuery> validQueries = srcQueryList.get(keyword);
-				LocalHybridPyramidGridIndexOptimized.objectSearchInvListHashAccess++;
+				pyramid.objectSearchInvListHashAccess++;
 				if (validQueries != null)
 					try {
 						for (MinimalRangeQuery q : validQueries) {
-							LocalHybridPyramidGridIndexOptimized.objectSearchInvListNodeCounter++;
-							LocalHybridPyramidGridIndexOptimized.totalVisited++;
+							pyramid.objectSearchInvListNodeCounter++;
+							pyramid.totalVisited++;
 							if (SpatialHelper.overlapsSpatially(p, q.getSpatialRange())) {
-								LocalHybridPyramidGridIndexOptimized.spatialOverlappingQuries++;
+								pyramid.spatialOverlappingQuries++;
 								if (TextualPredicate.OVERlAPS.equals(q.getTextualPredicate())) {
 									if (q.added != true) {
 										q.added = true;
@@ -148,14 +150,14 @@ public class IndexCellOptimized {
 
 			}
 		if (trieIndex != null) {
-			LocalHybridPyramidGridIndexOptimized.totalTrieAccess++;
+			pyramid.totalTrieAccess++;
 			List<MinimalRangeQuery> validQueries = trieIndex.find(keywords);
 			if (validQueries != null)
 				try {
 					for (MinimalRangeQuery q : validQueries) {
-						LocalHybridPyramidGridIndexOptimized.totalVisited++;
+						pyramid.totalVisited++;
 						if (SpatialHelper.overlapsSpatially(p, q.getSpatialRange())) {
-							LocalHybridPyramidGridIndexOptimized.spatialOverlappingQuries++;
+							pyramid.spatialOverlappingQuries++;
 							finalQueries.add(q);
 						}
 
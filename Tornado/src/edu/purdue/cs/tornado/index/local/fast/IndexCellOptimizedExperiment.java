@@ -20,36 +20,63 @@
 package edu.purdue.cs.tornado.index.local.fast;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import edu.purdue.cs.tornado.helper.KeywordSignature;
+import edu.purdue.cs.tornado.helper.KeywordStatistics;
 import edu.purdue.cs.tornado.helper.Point;
 import edu.purdue.cs.tornado.helper.Rectangle;
 import edu.purdue.cs.tornado.helper.SpatialHelper;
 import edu.purdue.cs.tornado.helper.TextHelpers;
 import edu.purdue.cs.tornado.messages.Query;
 
+/**
+ * A cell of the FAST pyramid. The cell is searched by many threads while one
+ * thread inserts, removes and cleans its queries, so the query lists that are
+ * reachable from ptp are never changed in place but replaced by changed
+ * copies. Moving indexed queries to a trie or to the next level is announced
+ * to FAST that makes the searches overlapping the move retry. An expired
+ * query that an insertion or a cleaning meets is dropped from this cell only,
+ * the expiry wheel of FAST removes it from its other cells, marks it deleted
+ * and updates the keyword statistics.
+ */
 public class IndexCellOptimizedExperiment {
-
-	public HashMap<String, Object> ptp;//queries that fall only within the cells range
-	Iterator<Entry<String, Object>> cleaningIterator;
+	//estimated heap sizes in bytes
+	public static final int ESTIMATED_CELL_SIZE = 136;
+	public static final int ESTIMATED_MAP_SIZE = 80;
+	public static final int ESTIMATED_MAP_ENTRY_SIZE = 40;
+	public static final int ESTIMATED_LIST_SIZE = 40;
+	public static final int ESTIMATED_REFERENCE_SIZE = 4;
+	public static final int ESTIMATED_TRIE_CELL_SIZE = 32;
+	public static final int ESTIMATED_KEYWORD_INDEX_SIZE = 24;
+	public static final int ESTIMATED_ARRAY_SIZE = 16;
+
+	public volatile ConcurrentHashMap<String, KeywordIndex> ptp;//queries that fall only within the cells range
+	Iterator<Entry<String, KeywordIndex>> cleaningIterator;
+	FAST fast;
 	Rectangle bounds;
 	int coordinate;
 	boolean test;
 	Query testObject ;
 	int level;
 	int debugQID=-1;
-	HashMap<String, KeywordFrequencyStats> overallQueryTextSummery;
+	KeywordStatistics overallQueryTextSummery;
+	volatile long textSignature;//OR of the keyword signatures of the queries inserted in ptp, may have stale bits of expired queries
+	long cleanedSignature;//signature of the entries kept by the current cleaning pass
 	
 
-	public IndexCellOptimizedExperiment(Rectangle bounds, Integer globalCoordinates, int level,HashMap<String, KeywordFrequencyStats> overallQueryTextSummery) {
+	public IndexCellOptimizedExperiment(FAST fast, Rectangle bounds, Integer globalCoordinates, int level, KeywordStatistics overallQueryTextSummery) {
 		ptp = null;
+		this.fast = fast;
 		this.bounds = bounds;
 		this.bounds.getMax().X-=.001;
 		this.bounds.getMax().Y-=.001;
@@ -60,41 +87,46 @@ public class IndexCellOptimizedExperiment {
 	}
 
 	
-	public void addInternalQuery(String keyword, Query query, ArrayList<Query> sharedQueries, ArrayList<ReinsertEntry>insertNextLevelQueries, boolean force) {
+	public void addInternalQuery(String keyword, Query query, KeywordIndex sharedQueries, ArrayList<ReinsertEntry>insertNextLevelQueries, boolean force) {
 		if (ptp == null) {
-			ptp = new HashMap<String, Object>();
+			ptp = new ConcurrentHashMap<String, KeywordIndex>();
 		}
+		addToSignature(KeywordSignature.getKeywordBit(keyword) | query.getTextSignature());
 		if (!ptp.containsKey(keyword) && sharedQueries != null) {
-			LocalHybridPyramidGridIndexOptimized.numberOfHashEntries++;
+			fast.numberOfHashEntries++;
 			ptp.put(keyword, sharedQueries);
 		} else {
-			Object keywordIndex = ptp.get(keyword);
-			if (keywordIndex instanceof Query) {
-				Query exitingQuery = (Query) keywordIndex;
-				if (exitingQuery.getRemoveTime() > FAST.queryTimeStampCounter) { //checking for the support of the query
+			KeywordIndex keywordIndex = ptp.get(keyword);
+			if (keywordIndex != null && keywordIndex.query != null) {
+				Query exitingQuery = keywordIndex.query;
+				if (exitingQuery.getRemoveTime() > fast.expiryTime) { //checking for the support of the query
 					if (sharedQueries.contains(exitingQuery)) {
 						ptp.put(keyword, sharedQueries);
-					} else if (sharedQueries.size() < FAST.Trie_SPLIT_THRESHOLD) {
-						sharedQueries.add(exitingQuery);
-						ptp.put(keyword, sharedQueries);
+					} else if (sharedQueries.queries.length < fast.trieSplitThreshold) {
+						ptp.put(keyword, sharedQueries.add(exitingQuery));
 					} else
 						addInternalQueryNoShare(keyword, query, sharedQueries, insertNextLevelQueries, force);
 				} else {
-					deleteQueryFromStats(query);
 					ptp.put(keyword, sharedQueries);
 				}
-			} else if (keywordIndex instanceof ArrayList && keywordIndex == sharedQueries) {
+			} else if (keywordIndex == sharedQueries) {
 				//already inserted do nothing;
 
-			} else if (keywordIndex instanceof ArrayList && keywordIndex != sharedQueries) {
+			} else if (keywordIndex != null && keywordIndex.queries != null) {
 				//already inserted do nothing;
+				Query[] keywordQueries = keywordIndex.queries;
 				ArrayList<Query> nonSharedQueries = new ArrayList<Query>();
-				for (Query q : (ArrayList<Query>) keywordIndex) {
+				for (Query q : keywordQueries) {
 					if (!sharedQueries.contains(q))
 						nonSharedQueries.add(q);
 				}
-				if (nonSharedQueries.size() > 0 && nonSharedQueries.size() + sharedQueries.size() <=   FAST.Trie_SPLIT_THRESHOLD) {
-					sharedQueries.addAll(nonSharedQueries);
+				if (nonSharedQueries.size() > 0 && nonSharedQueries.size() + sharedQueries.queries.length <=   fast.trieSplitThreshold) {
+					ArrayList<Query> mergedQueries = new ArrayList<Query>(Arrays.asList(sharedQueries.queries));
+					mergedQueries.addAll(nonSharedQueries);
+					ptp.put(keyword, new KeywordIndex(mergedQueries));
+				} else if (nonSharedQueries.size() == 0 && keywordQueries.length < fast.trieSplitThreshold
+						&& sharedQueries.queries.length == keywordQueries.length + 1 && !keywordIndex.contains(query)) {
+					//the shared queries are the queries of the keyword and the inserted query
 					ptp.put(keyword, sharedQueries);
 				} else {
 					addInternalQueryNoShare(keyword, query, sharedQueries, insertNextLevelQueries, force);
@@ -106,29 +138,20 @@ public class IndexCellOptimizedExperiment {
 		}
 	}
 
-	public void deleteQueryFromStats(Query query) {
-		if (query.isDeleted() == false) {
-			query.deleted = true;
-			for (String keyword : query.getQueryText()) {
-				overallQueryTextSummery.get(keyword).queryCount--;
-			}
-		}
-	}
-
-	public Object addInternalQueryNoShare(String keyword, Query query, ArrayList<Query> sharedQueries, ArrayList<ReinsertEntry> insertNextLevelQueries, boolean force) {
+	public KeywordIndex addInternalQueryNoShare(String keyword, Query query, KeywordIndex sharedQueries, ArrayList<ReinsertEntry> insertNextLevelQueries, boolean force) {
 		if (ptp == null) {
-			ptp = new HashMap<String, Object>();
+			ptp = new ConcurrentHashMap<String, KeywordIndex>();
 		}
 		Queue<Query> queue = new LinkedList<Query>();
 		boolean inserted = false;
+		addToSignature(KeywordSignature.getKeywordBit(keyword) | query.getTextSignature());
 		//step 1 find the best keyword to insert in:
 		
 		inserted = insertAtKeyWord(keyword, query, sharedQueries);
-		if (inserted)
-			if (ptp.get(keyword) instanceof ArrayList)
-				return ptp.get(keyword);
-			else
-				return null;
+		if (inserted) {
+			KeywordIndex keywordIndex = ptp.get(keyword);
+			return keywordIndex.queries != null ? keywordIndex : null;
+		}
 		else {
 			queue.add(query);
 
@@ -136,6 +159,7 @@ public class IndexCellOptimizedExperiment {
 
 		while (!queue.isEmpty()) {
 			query = queue.remove();
+			addToSignature(query.getTextSignature());
 			
 			inserted = false;
 
@@ -148,83 +172,74 @@ public class IndexCellOptimizedExperiment {
 			else {
 				for (String term : query.getQueryText()) {
 					//mark all these keywords as tries
-					if (ptp.get(term) instanceof ArrayList) {
-						
-						queue.addAll((ArrayList<Query>) ptp.get(term));
-						ptp.put(term, new KeywordTrieCellMinimalExperiment());
+					KeywordIndex termIndex = ptp.get(term);
+					if (termIndex != null && termIndex.queries != null) {
+						fast.beginStructureChange();
+						queue.addAll(Arrays.asList(termIndex.queries));
+						ptp.put(term, new KeywordIndex(new KeywordTrieCellMinimalExperiment()));
 					}
 				}
 			}
 			if(query.getQueryText()==null || query.getQueryText().isEmpty()) return null;
-			KeywordTrieCellMinimalExperiment currentCell = (KeywordTrieCellMinimalExperiment) ptp.get(query.getQueryText().get(0));
+			KeywordTrieCellMinimalExperiment currentCell = ptp.get(query.getQueryText().get(0)).trieCell;
+			int trieDepth = 1;
 
 			for (int j = 1; j < query.getQueryText().size() & !inserted; j++) {
 				keyword = query.getQueryText().get(j);
 				if (currentCell.trieCells == null)
-					currentCell.trieCells = new HashMap<String, Object>();
+					currentCell.trieCells = new ConcurrentHashMap<String, KeywordIndex>();
 
-				Object cell = currentCell.trieCells.get(keyword);
+				KeywordIndex cell = currentCell.trieCells.get(keyword);
 				if (cell == null) {
-					currentCell.trieCells.put(keyword, query);
+					currentCell.putTrieCell(keyword, new KeywordIndex(query));
 					inserted = true;
-				} else if (cell instanceof Query) {
-					if (((Query) cell).getRemoveTime() > FAST.queryTimeStampCounter) {
-						ArrayList<Query> queries = new ArrayList<Query>();
-						queries.add((Query) cell);
-						queries.add((Query) query);
-						currentCell.trieCells.put(keyword, queries);
+				} else if (cell.query != null) {
+					if (cell.query.getRemoveTime() > fast.expiryTime) {
+						currentCell.putTrieCell(keyword, new KeywordIndex(new Query[] { cell.query, query }));
 						inserted = true;
 					} else {
-						deleteQueryFromStats((Query) cell);
-						currentCell.trieCells.put(keyword, query);
+						currentCell.putTrieCell(keyword, new KeywordIndex(query));
 						inserted = true;
 					}
-				} else if (cell instanceof ArrayList && ((ArrayList<Query>) cell).size() <= FAST.Trie_SPLIT_THRESHOLD) {
-					((ArrayList<Query>) cell).add(query);
+				} else if (cell.queries != null && cell.queries.length <= fast.trieSplitThreshold) {
+					currentCell.putTrieCell(keyword, cell.add(query));
 					inserted = true;
-				} else if (cell instanceof ArrayList && ((ArrayList<Query>) cell).size() > FAST.Trie_SPLIT_THRESHOLD) {
+				} else if (cell.queries != null) {
+					//the new cell is filled before it replaces the list
 					KeywordTrieCellMinimalExperiment newCell = new KeywordTrieCellMinimalExperiment();
-					((ArrayList<Query>) cell).add(query);
-					newCell.trieCells = new HashMap<String, Object>();
+					newCell.trieCells = new ConcurrentHashMap<String, KeywordIndex>();
 					newCell.queries = new ArrayList<Query>();
-					currentCell.trieCells.put(keyword, newCell);
-					for (Query otherQuery : ((ArrayList<Query>) cell)) {
-						if (otherQuery.getRemoveTime() > FAST.queryTimeStampCounter) {
+					for (Query otherQuery : cell.add(query).queries) {
+						if (otherQuery.getRemoveTime() > fast.expiryTime) {
 							if (otherQuery.getQueryText().size() > (j + 1)) {
-
-								Object otherCell = newCell.trieCells.get(otherQuery.getQueryText().get(j + 1));
-								if (otherCell == null) {
-									otherCell = new ArrayList<Query>();
-								}
-								((ArrayList<Query>) otherCell).add(otherQuery);
-								newCell.trieCells.put(otherQuery.getQueryText().get(j + 1), otherCell);
+								String nextKeyword = otherQuery.getQueryText().get(j + 1);
+								KeywordIndex otherCell = newCell.trieCells.get(nextKeyword);
+								newCell.putTrieCell(nextKeyword, otherCell == null ? new KeywordIndex(new Query[] { otherQuery }) : otherCell.add(otherQuery));
 							} else {
 								newCell.queries.add(otherQuery);
 							}
-						} else {
-							deleteQueryFromStats(otherQuery);
 						}
 					}
 					if (newCell.queries != null && newCell.queries.size() == 0)
 						newCell.queries = null;
+					currentCell.putTrieCell(keyword, new KeywordIndex(newCell));
+					trieDepth = j + 1;
 					inserted = true;
-				} else if (cell instanceof KeywordTrieCellMinimalExperiment) {
+				} else {
+					KeywordTrieCellMinimalExperiment trieCell = cell.trieCell;
+					trieDepth = j + 1;
 					if (j < (query.getQueryText().size() - 1)) {
-						currentCell = (KeywordTrieCellMinimalExperiment) cell;
+						currentCell = trieCell;
 					} else {
 						if (level==0||checkSpanForForceInsertFinal(query)) {
-							if (((KeywordTrieCellMinimalExperiment) cell).finalQueries == null)
-								((KeywordTrieCellMinimalExperiment) cell).finalQueries = new ArrayList<Query>();
-							((KeywordTrieCellMinimalExperiment) cell).finalQueries.add(query);
+							trieCell.addFinalQuery(query);
 							
 						} else {
 
-							if (((KeywordTrieCellMinimalExperiment) cell).queries == null)
-								((KeywordTrieCellMinimalExperiment) cell).queries = new ArrayList<Query>();
-							((KeywordTrieCellMinimalExperiment) cell).queries.add(query);
+							trieCell.addQuery(query);
 							
-							if (((KeywordTrieCellMinimalExperiment) cell).queries.size() >  FAST.Degredation_Ratio) {
-								findQueriesToReinsert((KeywordTrieCellMinimalExperiment) cell, insertNextLevelQueries);
+							if (trieCell.queries.size() >  fast.degradationRatio) {
+								findQueriesToReinsert(trieCell, insertNextLevelQueries);
 							}
 						}
 						inserted = true;
@@ -235,34 +250,37 @@ public class IndexCellOptimizedExperiment {
 			}
 			if (!inserted) {
 				if ((level==0||checkSpanForForceInsertFinal(query)) ) {
-					if (currentCell.finalQueries == null)
-						currentCell.finalQueries = new ArrayList<Query>();
-					currentCell.finalQueries.add(query);
+					currentCell.addFinalQuery(query);
 					
 
 				} else {
-					if (currentCell.queries == null)
-						currentCell.queries = new ArrayList<Query>();
-					currentCell.queries.add(query);
+					currentCell.addQuery(query);
 				
-					if (currentCell.queries.size() > FAST.Degredation_Ratio)
+					if (currentCell.queries.size() > fast.degradationRatio)
 						findQueriesToReinsert(currentCell, insertNextLevelQueries);
 				}
 			}
+			if (fast.tuner != null)
+				fast.tuner.recordTrieDepth(trieDepth);
 
 		}
 
 		if(test ==true &&coordinate==16777766){
 			;;
-			KeywordTrieCellMinimalExperiment index1 = ((KeywordTrieCellMinimalExperiment)ptp.get("casino"));
-			KeywordTrieCellMinimalExperiment index2 = ((KeywordTrieCellMinimalExperiment)index1.trieCells.get("hotel"));
-			KeywordTrieCellMinimalExperiment index3 =  ((KeywordTrieCellMinimalExperiment)index2.trieCells.get("las"));
+			KeywordTrieCellMinimalExperiment index1 = ptp.get("casino").trieCell;
+			KeywordTrieCellMinimalExperiment index2 = index1.trieCells.get("hotel").trieCell;
+			KeywordTrieCellMinimalExperiment index3 = index2.trieCells.get("las").trieCell;
 			
 			if(!index3.finalQueries.contains(testObject))
 				System.out.println("There is an error here");
 		}
 		return null;
 	}
+	void addToSignature(long signature) {
+		textSignature |= signature;
+		cleanedSignature |= signature;
+	}
+
 	public boolean checkSpanForForceInsertFinal(Query query){
 		double queryRange = query.getSpatialRange().getMax().X-query.getSpatialRange().getMin().X;
 		double cellRange = bounds.getMax().X-bounds.getMin().X;
@@ -271,46 +289,42 @@ public class IndexCellOptimizedExperiment {
 		return false;
 		
 	}
-	public boolean insertAtKeyWord(String keyword,Query query, ArrayList<Query> sharedQueries) {
+	public boolean insertAtKeyWord(String keyword,Query query, KeywordIndex sharedQueries) {
 		boolean inserted = false;
 		if (!ptp.containsKey(keyword)) {
-			LocalHybridPyramidGridIndexOptimized.numberOfHashEntries++;
+			fast.numberOfHashEntries++;
 			inserted = true;
-			ptp.put(keyword, query);
+			ptp.put(keyword, new KeywordIndex(query));
 			return inserted;
 		} else { //this keyword already exists in the index
-			Object keywordIndex = ptp.get(keyword);
+			KeywordIndex keywordIndex = ptp.get(keyword);
 			if (keywordIndex == null) {
-				ptp.put(keyword, query);
+				ptp.put(keyword, new KeywordIndex(query));
 				inserted = true;
 				return inserted;
 			}
-			if (keywordIndex instanceof Query) { //single query 
-				Query exitingQuery = (Query) keywordIndex;
-				if (exitingQuery.getRemoveTime() > FAST.queryTimeStampCounter) { //checking for the support of the query
-					ArrayList<Query> rareQueries = new ArrayList<Query>();
-					rareQueries.add(exitingQuery);
-					rareQueries.add(query);
+			if (keywordIndex.query != null) { //single query 
+				Query exitingQuery = keywordIndex.query;
+				if (exitingQuery.getRemoveTime() > fast.expiryTime) { //checking for the support of the query
 					inserted = true;
-					ptp.put(keyword, rareQueries);
+					ptp.put(keyword, new KeywordIndex(new Query[] { exitingQuery, query }));
 					return inserted;
 				} else {
 					inserted = true;
-					deleteQueryFromStats(exitingQuery);
-					ptp.put(keyword, query);
+					ptp.put(keyword, new KeywordIndex(query));
 					return inserted;
 				}
 
-			} else if ((keywordIndex instanceof ArrayList) && ((ArrayList<Query>) keywordIndex).size() < FAST.Trie_SPLIT_THRESHOLD) { // this keyword is rare
-				if (((ArrayList<Query>) keywordIndex) != sharedQueries)
-					if (!((ArrayList<Query>) keywordIndex).contains( query)) {
-						((ArrayList<Query>) keywordIndex).add(query);
+			} else if (keywordIndex.queries != null && keywordIndex.queries.length < fast.trieSplitThreshold) { // this keyword is rare
+				if (keywordIndex != sharedQueries)
+					if (!keywordIndex.contains(query)) {
+						ptp.put(keyword, keywordIndex.add(query));
 					}
 				inserted = true;
 				return inserted;
-			} else if ((keywordIndex instanceof ArrayList) && ((ArrayList<Query>) keywordIndex).size() >= FAST.Trie_SPLIT_THRESHOLD) { // this keyword is rare
-				if (((ArrayList<Query>) keywordIndex) != sharedQueries) {
-					if (!((ArrayList<Query>) keywordIndex).contains( query)) {
+			} else if (keywordIndex.queries != null) { // this keyword is rare
+				if (keywordIndex != sharedQueries) {
+					if (!keywordIndex.contains(query)) {
 						inserted = false;
 						return inserted;
 					} else {
@@ -322,36 +336,34 @@ public class IndexCellOptimizedExperiment {
 					return inserted;
 				}
 				//then trie insert for all frequent keywords 
-			} else if (keywordIndex instanceof KeywordTrieCellMinimalExperiment) {
+			} else {
 				inserted = false;
 				return inserted;
-			} else {
-				System.err.println("This is an error you should never be here");
 			}
 		}
-		return false;
 	}
 
 	public String getOtherKeywordToInser(Query query) {
 		int minSize = Integer.MAX_VALUE;
 		String minKeyword = null;
 		for (String term : query.getQueryText()) {
-			if (!ptp.containsKey(term)) {
+			KeywordIndex termIndex = ptp.get(term);
+			if (termIndex == null) {
 				int size = 0;
 				if (size < minSize) {
 					minSize = size;
 					minKeyword = term;
 				}
 
-			} else if (ptp.containsKey(term) && ptp.get(term) instanceof Query) {
+			} else if (termIndex.query != null) {
 				int size = 1;
 				if (size < minSize) {
 					minSize = size;
 					minKeyword = term;
 				}
 
-			} else if (ptp.containsKey(term) && ptp.get(term) instanceof ArrayList) {
-				int size = ((ArrayList<Query>) ptp.get(term)).size();
+			} else if (termIndex.queries != null) {
+				int size = termIndex.queries.length;
 				if (size < minSize) {
 					minSize = size;
 					minKeyword = term;
@@ -364,94 +376,200 @@ public class IndexCellOptimizedExperiment {
 
 	public void findQueriesToReinsert(KeywordTrieCellMinimalExperiment cell, ArrayList<ReinsertEntry> insertNextLevelQueries) {
 		SpatialOverlapCompartor spatialOverlapCompartor = new SpatialOverlapCompartor(bounds);
-		Collections.sort(cell.queries, spatialOverlapCompartor);
-		int queriesSize =  cell.queries.size() ;
+		ArrayList<Query> queries = new ArrayList<Query>(cell.queries);
+		Collections.sort(queries, spatialOverlapCompartor);
+		int queriesSize =  queries.size() ;
 		for (int i = queriesSize - 1; i > queriesSize/2; i--) {
 		//for (int i = queriesSize - 1; i >=0; i--) {
-			Query query = cell.queries.remove(i);
+			Query query = queries.remove(i);
 			insertNextLevelQueries.add(new ReinsertEntry(SpatialHelper.spatialIntersect(bounds, query.getSpatialRange()), query));
 			
 		}
+		//the removed queries are found again once they are inserted in the next level
+		fast.beginStructureChange();
+		cell.queries = queries;
+	}
+
+	/**
+	 * Removes the query from the entries of its keywords, a cell without entries
+	 * has a null ptp. The removed stored queries are added to removedQueries,
+	 * they may be other instances than query.
+	 * 
+	 * @return true if the query was found
+	 */
+	public boolean removeQuery(Query query, List<Query> removedQueries) {
+		if (ptp == null)
+			return false;
+		boolean removed = false;
+		for (String keyword : query.getQueryText()) {
+			KeywordIndex keywordIndex = ptp.get(keyword);
+			if (keywordIndex == null)
+				continue;
+			if (keywordIndex.query != null) {
+				if (FAST.sameQuery(keywordIndex.query, query)) {
+					ptp.remove(keyword);
+					removedQueries.add(keywordIndex.query);
+					removed = true;
+				}
+			} else if (keywordIndex.queries != null) {
+				KeywordIndex remainingQueries = keywordIndex.remove(query, removedQueries);
+				if (remainingQueries == null)
+					ptp.remove(keyword);
+				else if (remainingQueries != keywordIndex)
+					ptp.put(keyword, remainingQueries);
+				removed |= remainingQueries != keywordIndex;
+			} else {
+				//an empty trie cell is kept, the search of the next levels continues with the keywords of the trie cells
+				removed |= keywordIndex.trieCell.removeQuery(query, removedQueries);
+			}
+		}
+		//the cleaning pass restarts on the changed ptp
+		cleaningIterator = null;
+		if (ptp.isEmpty())
+			ptp = null;
+		return removed;
+	}
+
+	/**
+	 * Adds every query entry of the cell to result, a query may be added more than once
+	 */
+	public void collectQueries(List<Query> result) {
+		ConcurrentHashMap<String, KeywordIndex> ptp = this.ptp;
+		if (ptp == null)
+			return;
+		for (KeywordIndex keywordIndex : ptp.values())
+			keywordIndex.collectQueries(result);
+	}
+
+	/**
+	 * The estimated heap size of the cell and its entries without the queries,
+	 * a list that is shared by several cells is only counted by the first cell
+	 * that adds it to counted
+	 */
+	public long getEstimatedSize(Set<Object> counted) {
+		long size = ESTIMATED_CELL_SIZE;
+		ConcurrentHashMap<String, KeywordIndex> ptp = this.ptp;
+		if (ptp == null)
+			return size;
+		size += ESTIMATED_MAP_SIZE;
+		for (KeywordIndex keywordIndex : ptp.values())
+			size += keywordIndex.getEstimatedSize(counted);
+		return size;
+	}
+
+	static long getEstimatedSize(ArrayList<Query> queries, Set<Object> counted) {
+		if (queries == null || !counted.add(queries))
+			return 0;
+		return ESTIMATED_LIST_SIZE + (long) ESTIMATED_REFERENCE_SIZE * queries.size();
 	}
 
 	//removal of expired entries;
 	public boolean clean() {
-		if (cleaningIterator == null || !cleaningIterator.hasNext())
+		if (ptp == null)
+			return true;
+		if (cleaningIterator == null || !cleaningIterator.hasNext()) {
 			cleaningIterator = ptp.entrySet().iterator();
+			cleanedSignature = 0;
+		}
 		Integer numberOfVisitedEntries = 0;
-		while (cleaningIterator.hasNext() && numberOfVisitedEntries < FAST.MAX_ENTRIES_PER_CLEANING_INTERVAL) {
-			Entry<String, Object> keywordIndexEntry = cleaningIterator.next();
-			Object keywordIndex = keywordIndexEntry.getValue();
+		int numberOfExpiredEntries = 0;
+		while (cleaningIterator.hasNext() && numberOfVisitedEntries < fast.maxEntriesPerCleaningInterval) {
+			Entry<String, KeywordIndex> keywordIndexEntry = cleaningIterator.next();
+			KeywordIndex keywordIndex = keywordIndexEntry.getValue();
 			String keyword = keywordIndexEntry.getKey();
-			if (keywordIndex instanceof Query) {
+			if (keywordIndex.query != null) {
 				numberOfVisitedEntries++;
-				if (((Query) keywordIndex).getRemoveTime() < FAST.queryTimeStampCounter)
+				if (keywordIndex.query.getRemoveTime() < fast.expiryTime) {
 					keywordIndex = null;
-			} else if (keywordIndex instanceof ArrayList) {
-				Iterator<Query> queriesItrator = ((ArrayList<Query>) keywordIndex).iterator();
-				while (queriesItrator.hasNext()) {
-					Query query = queriesItrator.next();
-					if (query.getRemoveTime() < FAST.queryTimeStampCounter)
-						queriesItrator.remove();
+					numberOfExpiredEntries++;
+				}
+			} else if (keywordIndex.queries != null) {
+				ArrayList<Query> remainingQueries = new ArrayList<Query>();
+				for (Query query : keywordIndex.queries) {
+					if (query.getRemoveTime() >= fast.expiryTime)
+						remainingQueries.add(query);
 					numberOfVisitedEntries++;
 				}
-				if (((ArrayList<Query>) keywordIndex).size() == 0)
+				numberOfExpiredEntries += keywordIndex.queries.length - remainingQueries.size();
+				if (remainingQueries.size() == 0)
 					keywordIndex = null;
-				else if (((ArrayList<Query>) keywordIndex).size() == 1) {
-					Query singleQuery = ((ArrayList<Query>) keywordIndex).get(0);
-					ptp.put(keyword, singleQuery);
-
-				}
-			} else if (keywordIndex instanceof KeywordTrieCellMinimalExperiment) {
+				else if (remainingQueries.size() == 1) {
+					Query singleQuery = remainingQueries.get(0);
+					ptp.put(keyword, new KeywordIndex(singleQuery));
 
+				} else if (remainingQueries.size() < keywordIndex.queries.length)
+					ptp.put(keyword, new KeywordIndex(remainingQueries));
+			} else {
+				KeywordTrieCellMinimalExperiment trieCell = keywordIndex.trieCell;
 				ArrayList<Query> combinedQueries = new ArrayList<Query>();
-				numberOfVisitedEntries += ((KeywordTrieCellMinimalExperiment) keywordIndex).clean(combinedQueries);
-				if (((KeywordTrieCellMinimalExperiment) keywordIndex).queries == null && ((KeywordTrieCellMinimalExperiment) keywordIndex).trieCells == null
-						&& overallQueryTextSummery.get(keyword).queryCount <= FAST.Trie_OVERLALL_MERGE_THRESHOLD)
+				numberOfVisitedEntries += trieCell.clean(combinedQueries, fast.expiryTime);
+				if (trieCell.queries == null && trieCell.trieCells == null
+						&& overallQueryTextSummery.getQueryCount(keyword) <= fast.overallMergeThreshold)
 					keywordIndex = null;
-				else if (combinedQueries.size() < FAST.Trie_OVERLALL_MERGE_THRESHOLD
-						&& overallQueryTextSummery.get(keyword).queryCount <= FAST.Trie_OVERLALL_MERGE_THRESHOLD)
-					ptp.put(keyword, combinedQueries);
+				else if (combinedQueries.size() < fast.overallMergeThreshold
+						&& overallQueryTextSummery.getQueryCount(keyword) <= fast.overallMergeThreshold)
+					ptp.put(keyword, new KeywordIndex(combinedQueries));
 			}
 			if (keywordIndex == null)
 				cleaningIterator.remove();
+			else
+				cleanedSignature |= KeywordSignature.getKeywordBit(keyword);
 
 		}
+		if (fast.tuner != null)
+			fast.tuner.recordCleaning(numberOfVisitedEntries, numberOfExpiredEntries);
 		if (cleaningIterator.hasNext())
 			return false;
-		else
+		else {
+			//a full pass drops the bits of the expired queries
+			textSignature = cleanedSignature;
+			if (ptp.isEmpty())
+				ptp = null;
 			return true;
+		}
 
 	}
 
 	public ArrayList<String> getInternalSpatiotTextualOverlappingQueries(Point p, ArrayList<String> keywords, List<Query> finalQueries) {
+		return getInternalSpatiotTextualOverlappingQueries(p, keywords, KeywordSignature.getSignature(keywords), finalQueries);
+	}
+
+	/**
+	 * @param keywordsSignature KeywordSignature of the data object, it may cover more
+	 * keywords than the remaining keywords of the upper level
+	 */
+	public ArrayList<String> getInternalSpatiotTextualOverlappingQueries(Point p, ArrayList<String> keywords, long keywordsSignature, List<Query> finalQueries) {
 		ArrayList<String> remainingKewords = new ArrayList<String>();
+		ArrayList<KeywordTrieCellMinimalExperiment> trieCells = new ArrayList<KeywordTrieCellMinimalExperiment>();
+		ConcurrentHashMap<String, KeywordIndex> ptp = this.ptp;
+		if (ptp == null || !KeywordSignature.mayOverlap(keywordsSignature, textSignature))
+			return remainingKewords; //no keyword of the object is in ptp
 		for (int i = 0; i < keywords.size(); i++) {
 			String keyword = keywords.get(i);
-			Object keyWordIndex = ptp.get(keyword);
+			KeywordIndex keyWordIndex = ptp.get(keyword);
 			if (keyWordIndex != null) {
-				if (keyWordIndex instanceof Query) {
-					Query query = ((Query) keyWordIndex);
-					if (keywords.size() >= query.getQueryText().size() && SpatialHelper.overlapsSpatially(p, query.getSpatialRange()) && TextHelpers.containsTextually(keywords, query.getQueryText())) {
+				if (keyWordIndex.query != null) {
+					Query query = keyWordIndex.query;
+					if (keywords.size() >= query.getQueryText().size() && KeywordSignature.mayContain(keywordsSignature, query.getTextSignature()) && SpatialHelper.overlapsSpatially(p, query.getSpatialRange()) && TextHelpers.containsTextually(keywords, query.getQueryText())) {
 						finalQueries.add(query);
 					}
-				} else if (keyWordIndex instanceof ArrayList) {
-					ArrayList<Query> rareQueries = (ArrayList<Query>) keyWordIndex;
+				} else if (keyWordIndex.queries != null) {
+					Query[] rareQueries = keyWordIndex.queries;
 					for (Query q : rareQueries) {
-						if (keywords.size() >= q.getQueryText().size() && SpatialHelper.overlapsSpatially(p, q.getSpatialRange()) && TextHelpers.containsTextually(keywords, q.getQueryText())) {
+						if (keywords.size() >= q.getQueryText().size() && KeywordSignature.mayContain(keywordsSignature, q.getTextSignature()) && SpatialHelper.overlapsSpatially(p, q.getSpatialRange()) && TextHelpers.containsTextually(keywords, q.getQueryText())) {
 							finalQueries.add(q);
 						}
 					}
-				} else if (keyWordIndex instanceof KeywordTrieCellMinimalExperiment) {
+				} else {
 					remainingKewords.add(keyword);
+					trieCells.add(keyWordIndex.trieCell);
 				}
 			}
 
 		}
+		//the trie cells found above, ptp may have changed since then
 		for (int i = 0; i < remainingKewords.size(); i++) {
-			String keyword = remainingKewords.get(i);
-			Object keyWordIndex = ptp.get(keyword);
-			((KeywordTrieCellMinimalExperiment) keyWordIndex).find(remainingKewords, i + 1, finalQueries, 0, p);
+			trieCells.get(i).find(remainingKewords, i + 1, finalQueries, 0, p, keywordsSignature);
 		}
 
 		return remainingKewords;
@@ -11,10 +11,12 @@ public class KeyWordTrieIndexMinimal {
 	public static int SPLIT_THRESHOLD = 0;
 	public static int SPLIT_THRESHOLD_FREQ =0;
 	int size = 0;
+	LocalHybridPyramidGridIndexOptimized pyramid;//counts the trie nodes and the search operations
 
-	public KeyWordTrieIndexMinimal() {
+	public KeyWordTrieIndexMinimal(LocalHybridPyramidGridIndexOptimized pyramid) {
+		this.pyramid = pyramid;
 		root = new KeywordTrieCellMinimal();
-		LocalHybridPyramidGridIndexOptimized.numberOfTrieNodes++;
+		pyramid.numberOfTrieNodes++;
 		root.trieCells = new HashMap<String, KeywordTrieCellMinimal>();
 		index = new HashMap<String, HashMap<String, ArrayList<MinimalRangeQuery>>>();
 	}
@@ -33,7 +35,7 @@ public class KeyWordTrieIndexMinimal {
 			KeywordTrieCellMinimal cell = currentCell.trieCells.get(keyword);
 			if (cell == null) {
 				cell = new KeywordTrieCellMinimal();
-				LocalHybridPyramidGridIndexOptimized.numberOfTrieNodes++;
+				pyramid.numberOfTrieNodes++;
 				currentCell.trieCells.put(keyword, cell);
 
 			}
@@ -50,7 +52,7 @@ public class KeyWordTrieIndexMinimal {
 					KeywordTrieCellMinimal otherCell = currentCell.trieCells.get(otherQuery.getQueryText().get(i + 1));
 					if (otherCell == null) {
 						otherCell = new KeywordTrieCellMinimal();
-						LocalHybridPyramidGridIndexOptimized.numberOfTrieNodes++;
+						pyramid.numberOfTrieNodes++;
 						currentCell.trieCells.put(otherQuery.getQueryText().get(i + 1), otherCell);
 					}
 					if (i + 1 == otherQuery.getQueryText().size() - 1) {//last keyword
@@ -86,7 +88,7 @@ public class KeyWordTrieIndexMinimal {
 			KeywordTrieCellMinimal cell = currentCell.trieCells.get(keyword);
 			if (cell == null) {
 				cell = new KeywordTrieCellMinimal();
-				LocalHybridPyramidGridIndexOptimized.numberOfTrieNodes++;
+				pyramid.numberOfTrieNodes++;
 				currentCell.trieCells.put(keyword, cell);
 
 			}
@@ -194,12 +196,12 @@ public class KeyWordTrieIndexMinimal {
 	public LinkedList<MinimalRangeQuery> find(ArrayList<String> keywordList) {
 		LinkedList<MinimalRangeQuery> result = new LinkedList<MinimalRangeQuery>();
 		
-		root.find(keywordList, 0, result, 0);
+		root.find(pyramid, keywordList, 0, result, 0);
 		return result;
 	}
 	public LinkedList<MinimalRangeQuery> find(ArrayList<String> keywordList,Integer[] opCount) {
 		LinkedList<MinimalRangeQuery> result = new LinkedList<MinimalRangeQuery>();
-		root.find(keywordList, 0, result, 0,opCount);
+		root.find(pyramid, keywordList, 0, result, 0,opCount);
 		return result;
 	}
 
@@ -0,0 +1,135 @@
+/**
+ * Copyright Jul 5, 2015
+ * Author : Ahmed Mahmood
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.purdue.cs.tornado.index.local.fast;
+
+import java.util.List;
+import java.util.Set;
+
+import edu.purdue.cs.tornado.messages.Query;
+
+/**
+ * The entry of a keyword in the ptp of a FAST cell or in the trie cells of a
+ * KeywordTrieCellMinimalExperiment. An entry holds exactly one of a single
+ * query, the array of the queries of a rare keyword or the trie cell of a
+ * frequent keyword. Entries are never changed, adding or removing a query puts
+ * a new entry, so a search reads the kind and the value of an entry together
+ * without type checks and casts. A list entry may be shared by the cells that
+ * a query is inserted in.
+ */
+public final class KeywordIndex {
+	static final Query[] NO_QUERIES = new Query[0];
+	public final Query query;
+	public final Query[] queries;
+	public final KeywordTrieCellMinimalExperiment trieCell;
+
+	public KeywordIndex(Query query) {
+		this(query, null, null);
+	}
+
+	public KeywordIndex(Query[] queries) {
+		this(null, queries, null);
+	}
+
+	public KeywordIndex(List<Query> queries) {
+		this(null, queries.toArray(NO_QUERIES), null);
+	}
+
+	public KeywordIndex(KeywordTrieCellMinimalExperiment trieCell) {
+		this(null, null, trieCell);
+	}
+
+	private KeywordIndex(Query query, Query[] queries, KeywordTrieCellMinimalExperiment trieCell) {
+		this.query = query;
+		this.queries = queries;
+		this.trieCell = trieCell;
+	}
+
+	/**
+	 * @return true if the queries of the list entry contain the query object
+	 */
+	public boolean contains(Query query) {
+		for (Query q : queries)
+			if (q == query)
+				return true;
+		return false;
+	}
+
+	/**
+	 * @return a list entry with the queries of this list entry and the query
+	 */
+	public KeywordIndex add(Query query) {
+		Query[] result = new Query[queries.length + 1];
+		System.arraycopy(queries, 0, result, 0, queries.length);
+		result[queries.length] = query;
+		return new KeywordIndex(result);
+	}
+
+	/**
+	 * Adds the removed stored queries to removedQueries
+	 * 
+	 * @return this entry if the query is not in the list, otherwise a list
+	 *         entry without the query or null if no query remains
+	 */
+	public KeywordIndex remove(Query query, List<Query> removedQueries) {
+		int remaining = 0;
+		Query[] result = new Query[queries.length];
+		for (Query q : queries)
+			if (!FAST.sameQuery(q, query))
+				result[remaining++] = q;
+			else
+				removedQueries.add(q);
+		if (remaining == queries.length)
+			return this;
+		if (remaining == 0)
+			return null;
+		Query[] trimmed = new Query[remaining];
+		System.arraycopy(result, 0, trimmed, 0, remaining);
+		return new KeywordIndex(trimmed);
+	}
+
+	/**
+	 * Adds the queries of the entry and of its trie cell to result
+	 */
+	public void collectQueries(List<Query> result) {
+		if (query != null)
+			result.add(query);
+		else if (queries != null)
+			for (Query q : queries)
+				result.add(q);
+		else
+			trieCell.collectQueries(result);
+	}
+
+	/**
+	 * The estimated heap size of the entry without the queries, a list entry
+	 * that is shared by several cells is only counted once
+	 */
+	public long getEstimatedSize(Set<Object> counted) {
+		long size = IndexCellOptimizedExperiment.ESTIMATED_MAP_ENTRY_SIZE;
+		if (!counted.add(this))
+			return size;
+		size += IndexCellOptimizedExperiment.ESTIMATED_KEYWORD_INDEX_SIZE;
+		if (queries != null)
+			size += IndexCellOptimizedExperiment.ESTIMATED_ARRAY_SIZE + (long) IndexCellOptimizedExperiment.ESTIMATED_REFERENCE_SIZE * queries.length;
+		else if (trieCell != null)
+			size += trieCell.getEstimatedSize(counted);
+		return size;
+	}
+}
@@ -18,15 +18,15 @@ public class KeywordTrieCellMinimal {
 		trieCells = null;
 	}
 
-	public void find(ArrayList<String> keywords, int start, LinkedList<MinimalRangeQuery> result, int level) {
-		LocalHybridPyramidGridIndexOptimized.objectSearchTrieNodeCounter++; //for visiting the current cell
+	public void find(LocalHybridPyramidGridIndexOptimized pyramid, ArrayList<String> keywords, int start, LinkedList<MinimalRangeQuery> result, int level) {
+		pyramid.objectSearchTrieNodeCounter++; //for visiting the current cell
 		if (storedQueries != null) {
 			result.addAll(storedQueries);
-			LocalHybridPyramidGridIndexOptimized.objectSearchTrieNodeCounter += storedQueries.size(); //for iterating over these queries 
+			pyramid.objectSearchTrieNodeCounter += storedQueries.size(); //for iterating over these queries 
 		}
 		if (verifiableQueries != null)
 			for (MinimalRangeQuery q : verifiableQueries) {
-				LocalHybridPyramidGridIndexOptimized.objectSearchTrieNodeCounter++; //for iterating overing verifiable queries 
+				pyramid.objectSearchTrieNodeCounter++; //for iterating overing verifiable queries 
 				if (TextHelpers.containsTextually(keywords, q.getQueryText()))
 					result.add(q);
 			}
@@ -35,26 +35,26 @@ public class KeywordTrieCellMinimal {
 			for (; i < keywords.size(); i++) {
 				String keyword = keywords.get(i);
 				KeywordTrieCellMinimal cell = trieCells.get(keyword);
-				LocalHybridPyramidGridIndexOptimized.objectSearchTrieHashAccess++; //these are the number of hash operations performed
+				pyramid.objectSearchTrieHashAccess++; //these are the number of hash operations performed
 				if (cell != null)
-					cell.find(keywords, i + 1, result, level + 1);
+					cell.find(pyramid, keywords, i + 1, result, level + 1);
 			}
 	}
-	public void find(ArrayList<String> keywords, int start, LinkedList<MinimalRangeQuery> result, int level, Integer[]opCount) {
+	public void find(LocalHybridPyramidGridIndexOptimized pyramid, ArrayList<String> keywords, int start, LinkedList<MinimalRangeQuery> result, int level, Integer[]opCount) {
 		
-		LocalHybridPyramidGridIndexOptimized.objectSearchTrieNodeCounter++; //for visiting the current cell
+		pyramid.objectSearchTrieNodeCounter++; //for visiting the current cell
 		if (storedQueries != null) {
 			opCount[2]++;
 			opCount[0]+=storedQueries.size();
 			result.addAll(storedQueries);
-			LocalHybridPyramidGridIndexOptimized.objectSearchTrieNodeCounter += storedQueries.size(); //for iterating over these queries 
+			pyramid.objectSearchTrieNodeCounter += storedQueries.size(); //for iterating over these queries 
 		}
 		if (verifiableQueries != null) {
 			
 			for (MinimalRangeQuery q : verifiableQueries) {
 				opCount[0]+=verifiableQueries.size();
 				//opCount[0]+=(q.queryText.size()+keywords.size());
-				LocalHybridPyramidGridIndexOptimized.objectSearchTrieNodeCounter++; //for iterating overing verifiable queries 
+				pyramid.objectSearchTrieNodeCounter++; //for iterating overing verifiable queries 
 				if (TextHelpers.containsTextually(keywords, q.getQueryText()))
 					result.add(q);
 			}
@@ -68,11 +68,11 @@ public class KeywordTrieCellMinimal {
 				String keyword = keywords.get(i);
 				KeywordTrieCellMinimal cell = trieCells.get(keyword);
 				//opCount[0]++;
-				LocalHybridPyramidGridIndexOptimized.objectSearchTrieHashAccess++; //these are the number of hash operations performed
+				pyramid.objectSearchTrieHashAccess++; //these are the number of hash operations performed
 				if (cell != null) {
 					
 					
-					cell.find(keywords, i + 1, result, level + 1,opCount);
+					cell.find(pyramid, keywords, i + 1, result, level + 1,opCount);
 				}
 				
 					
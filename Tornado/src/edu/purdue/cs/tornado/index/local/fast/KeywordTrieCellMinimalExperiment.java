@@ -1,20 +1,28 @@
 package edu.purdue.cs.tornado.index.local.fast;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import edu.purdue.cs.tornado.helper.KeywordSignature;
 import edu.purdue.cs.tornado.helper.Point;
 import edu.purdue.cs.tornado.helper.SpatialHelper;
 import edu.purdue.cs.tornado.helper.TextHelpers;
 import edu.purdue.cs.tornado.messages.Query;
 
+/**
+ * A trie cell of FAST. The lists of a published cell are never changed in
+ * place, the single writer replaces them by changed copies so that the cell
+ * can be searched while queries are inserted.
+ */
 public class KeywordTrieCellMinimalExperiment {
-	public HashMap<String, Object> trieCells;
-	public ArrayList<Query> queries;
-	public ArrayList<Query> finalQueries;
+	public volatile ConcurrentHashMap<String, KeywordIndex> trieCells;
+	public volatile ArrayList<Query> queries;
+	public volatile ArrayList<Query> finalQueries;
+	public volatile long signature;//OR of the keyword signatures of the trieCells keys
 	//public boolean extended ;
 
 	public KeywordTrieCellMinimalExperiment() {
@@ -24,13 +32,35 @@ public class KeywordTrieCellMinimalExperiment {
 		//	extended = false;
 	}
 
-	public void find(ArrayList<String> keywords, int start, List<Query> result, int level, Point location) {
+	public void putTrieCell(String keyword, KeywordIndex cell) {
+		//the signature covers the keyword before the cell can be found
+		signature |= KeywordSignature.getKeywordBit(keyword);
+		trieCells.put(keyword, cell);
+	}
+
+	public void addQuery(Query query) {
+		queries = copyAndAdd(queries, query);
+	}
+
+	public void addFinalQuery(Query query) {
+		finalQueries = copyAndAdd(finalQueries, query);
+	}
+
+	static ArrayList<Query> copyAndAdd(ArrayList<Query> queries, Query query) {
+		ArrayList<Query> result = queries == null ? new ArrayList<Query>() : new ArrayList<Query>(queries);
+		result.add(query);
+		return result;
+	}
+
+	public void find(ArrayList<String> keywords, int start, List<Query> result, int level, Point location, long keywordsSignature) {
+		ArrayList<Query> finalQueries = this.finalQueries;
 		if (finalQueries != null)
 			for (Query q : finalQueries) {
 				if (SpatialHelper.overlapsSpatially(location, q.getSpatialRange())) {
 					result.add(q);
 				}
 			}
+		ArrayList<Query> queries = this.queries;
 		if (queries != null)
 			for (Query q : queries) {
 				if (SpatialHelper.overlapsSpatially(location, q.getSpatialRange())) {
@@ -38,112 +68,220 @@ public class KeywordTrieCellMinimalExperiment {
 				}
 			}
 		int i = start;
-		HashMap<String, Object> currentCells = trieCells;
-		if (currentCells != null)
+		ConcurrentHashMap<String, KeywordIndex> currentCells = trieCells;
+		if (currentCells != null && KeywordSignature.mayOverlap(keywordsSignature, signature))
 			for (; i < keywords.size(); i++) {
 				String keyword = keywords.get(i);
-				Object cell = currentCells.get(keyword);
+				KeywordIndex cell = currentCells.get(keyword);
 
 				if (cell == null)
 					continue;
-				if (cell instanceof Query) {
-					if (SpatialHelper.overlapsSpatially(location, ((Query) cell).getSpatialRange()) && TextHelpers.containsTextually(keywords, ((Query) cell).getQueryText()))
-						result.add(((Query) cell));
+				if (cell.query != null) {
+					Query q = cell.query;
+					if (KeywordSignature.mayContain(keywordsSignature, q.getTextSignature()) && SpatialHelper.overlapsSpatially(location, q.getSpatialRange()) && TextHelpers.containsTextually(keywords, q.getQueryText()))
+						result.add(q);
 
-				} else if (cell instanceof ArrayList) {
-					for (Query q : ((ArrayList<Query>) cell)) {
-						if (SpatialHelper.overlapsSpatially(location, q.getSpatialRange()) && TextHelpers.containsTextually(keywords, q.getQueryText()))
+				} else if (cell.queries != null) {
+					for (Query q : cell.queries) {
+						if (KeywordSignature.mayContain(keywordsSignature, q.getTextSignature()) && SpatialHelper.overlapsSpatially(location, q.getSpatialRange()) && TextHelpers.containsTextually(keywords, q.getQueryText()))
 							result.add(q);
 					}
 
-				} else if (cell instanceof KeywordTrieCellMinimalExperiment) {
-					((KeywordTrieCellMinimalExperiment) cell).find(keywords, i + 1, result, level + 1, location);
+				} else {
+					cell.trieCell.find(keywords, i + 1, result, level + 1, location, keywordsSignature);
 				}
 
 			}
 	}
 
 	public void findTextualOnly(ArrayList<String> keywords, int start, List<Query> result, int level) {
-
+		ArrayList<Query> queries = this.queries;
 		if (queries != null)
 			result.addAll(queries);
 
 		int i = start;
-		HashMap<String, Object> currentCells = trieCells;
+		ConcurrentHashMap<String, KeywordIndex> currentCells = trieCells;
 		if (currentCells != null)
 			for (; i < keywords.size(); i++) {
 				String keyword = keywords.get(i);
-				Object cell = currentCells.get(keyword);
+				KeywordIndex cell = currentCells.get(keyword);
 
 				if (cell == null)
 					continue;
-				if (cell instanceof Query) {
-					if (TextHelpers.containsTextually(keywords, ((Query) cell).getQueryText(), i, level))
-						result.add(((Query) cell));
+				if (cell.query != null) {
+					if (TextHelpers.containsTextually(keywords, cell.query.getQueryText(), i, level))
+						result.add(cell.query);
 					
 
-				} else if (cell instanceof ArrayList) {
-					for (Query q : ((ArrayList<Query>) cell)) {
+				} else if (cell.queries != null) {
+					for (Query q : cell.queries) {
 						if (TextHelpers.containsTextually(keywords, q.getQueryText(), i, level))
 							result.add(q);
 						
 					}
 
-				} else if (cell instanceof KeywordTrieCellMinimalExperiment) {
-					((KeywordTrieCellMinimalExperiment) cell).findTextualOnly(keywords, i + 1, result, level + 1);
+				} else {
+					cell.trieCell.findTextualOnly(keywords, i + 1, result, level + 1);
 				}
 
 			}
 
 	}
 
-	public int clean(ArrayList<Query> combinedQueries) {
+	/**
+	 * Removes the query from this cell and from the trie cells of its
+	 * keywords, the removed stored queries are added to removedQueries
+	 * 
+	 * @return true if the query was found
+	 */
+	public boolean removeQuery(Query query, List<Query> removedQueries) {
+		boolean removed = false;
+		ArrayList<Query> remaining = copyAndRemove(queries, query, removedQueries);
+		if (remaining != queries) {
+			queries = remaining;
+			removed = true;
+		}
+		remaining = copyAndRemove(finalQueries, query, removedQueries);
+		if (remaining != finalQueries) {
+			finalQueries = remaining;
+			removed = true;
+		}
+		ConcurrentHashMap<String, KeywordIndex> trieCells = this.trieCells;
+		if (trieCells != null) {
+			for (String keyword : query.getQueryText()) {
+				KeywordIndex cell = trieCells.get(keyword);
+				if (cell == null)
+					continue;
+				if (cell.query != null) {
+					if (FAST.sameQuery(cell.query, query)) {
+						trieCells.remove(keyword);
+						removedQueries.add(cell.query);
+						removed = true;
+					}
+				} else if (cell.queries != null) {
+					KeywordIndex remainingCell = cell.remove(query, removedQueries);
+					if (remainingCell == null)
+						trieCells.remove(keyword);
+					else if (remainingCell != cell)
+						trieCells.put(keyword, remainingCell);
+					removed |= remainingCell != cell;
+				} else {
+					removed |= cell.trieCell.removeQuery(query, removedQueries);
+					if (cell.trieCell.isEmpty())
+						trieCells.remove(keyword);
+				}
+			}
+			if (trieCells.isEmpty())
+				this.trieCells = null;
+		}
+		return removed;
+	}
+
+	/**
+	 * @return queries if the query is not found, otherwise a copy without the
+	 *         query or null if the copy is empty
+	 */
+	static ArrayList<Query> copyAndRemove(ArrayList<Query> queries, Query query, List<Query> removedQueries) {
+		if (queries == null)
+			return null;
+		ArrayList<Query> result = new ArrayList<Query>(queries);
+		if (!FAST.removeQuery(result, query, removedQueries))
+			return queries;
+		return result.isEmpty() ? null : result;
+	}
+
+	/**
+	 * The estimated heap size of this cell and its trie cells without the
+	 * queries
+	 */
+	public long getEstimatedSize(Set<Object> counted) {
+		long size = IndexCellOptimizedExperiment.ESTIMATED_TRIE_CELL_SIZE + IndexCellOptimizedExperiment.getEstimatedSize(queries, counted)
+				+ IndexCellOptimizedExperiment.getEstimatedSize(finalQueries, counted);
+		ConcurrentHashMap<String, KeywordIndex> trieCells = this.trieCells;
+		if (trieCells == null)
+			return size;
+		size += IndexCellOptimizedExperiment.ESTIMATED_MAP_SIZE;
+		for (KeywordIndex cell : trieCells.values())
+			size += cell.getEstimatedSize(counted);
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return queries == null && finalQueries == null && trieCells == null;
+	}
+
+	/**
+	 * Adds the queries of this cell and of all its trie cells to result
+	 */
+	public void collectQueries(List<Query> result) {
+		ArrayList<Query> queries = this.queries, finalQueries = this.finalQueries;
+		ConcurrentHashMap<String, KeywordIndex> trieCells = this.trieCells;
+		if (queries != null)
+			result.addAll(queries);
+		if (finalQueries != null)
+			result.addAll(finalQueries);
+		if (trieCells != null)
+			for (KeywordIndex cell : trieCells.values())
+				cell.collectQueries(result);
+	}
+
+	/**
+	 * Removes the queries with a remove time before expiryTime and
+	 * adds the other queries to combinedQueries
+	 * 
+	 * @return the number of visited entries
+	 */
+	public int clean(ArrayList<Query> combinedQueries, long expiryTime) {
 		int operations = 0;
 		if (queries != null) {
-			Iterator<Query> queriesItr = queries.iterator();
-			while (queriesItr.hasNext()) {
-				Query query = queriesItr.next();
-				if (query.getRemoveTime() < FAST.queryTimeStampCounter)
-					queriesItr.remove();
-				else {
+			ArrayList<Query> remainingQueries = new ArrayList<Query>();
+			for (Query query : queries) {
+				if (query.getRemoveTime() >= expiryTime) {
+					remainingQueries.add(query);
 					combinedQueries.add(query);
 				}
 				operations++;
 			}
-			if (queries.size() == 0)
+			if (remainingQueries.size() == 0)
 				queries = null;
+			else if (remainingQueries.size() < queries.size())
+				queries = remainingQueries;
 		}
 		if (trieCells != null) {
-			Iterator<Entry<String, Object>> trieCellsItr = trieCells.entrySet().iterator();
+			long cleanedSignature = 0;
+			Iterator<Entry<String, KeywordIndex>> trieCellsItr = trieCells.entrySet().iterator();
 			while (trieCellsItr.hasNext()) {
-				Entry<String, Object> trieCellEntry = trieCellsItr.next();
-				Object cell = trieCellEntry.getValue();
-				if (cell instanceof Query) {
-					if (((Query) cell).getRemoveTime() < FAST.queryTimeStampCounter)
+				Entry<String, KeywordIndex> trieCellEntry = trieCellsItr.next();
+				KeywordIndex cell = trieCellEntry.getValue();
+				if (cell.query != null) {
+					if (cell.query.getRemoveTime() < expiryTime)
 						trieCellsItr.remove();
 					else {
-						combinedQueries.add((Query) cell);
+						combinedQueries.add(cell.query);
 					}
 					operations++;
-				} else if (cell instanceof ArrayList) {
-					Iterator<Query> queriesInternalItr = ((ArrayList<Query>) cell).iterator();
-					while (queriesInternalItr.hasNext()) {
-						Query query = queriesInternalItr.next();
-						if (query.getRemoveTime() < FAST.queryTimeStampCounter)
-							queriesInternalItr.remove();
-						else {
+				} else if (cell.queries != null) {
+					ArrayList<Query> remainingQueries = new ArrayList<Query>();
+					for (Query query : cell.queries) {
+						if (query.getRemoveTime() >= expiryTime) {
+							remainingQueries.add(query);
 							combinedQueries.add(query);
 						}
 						operations++;
 					}
-					if (((ArrayList<Query>) cell).size() == 0)
+					if (remainingQueries.size() == 0)
 						trieCellsItr.remove();
-				} else if (cell instanceof KeywordTrieCellMinimalExperiment) {
-					operations += ((KeywordTrieCellMinimalExperiment) cell).clean(combinedQueries);
-					if (((KeywordTrieCellMinimalExperiment) cell).queries == null && ((KeywordTrieCellMinimalExperiment) cell).trieCells == null)
+					else if (remainingQueries.size() < cell.queries.length)
+						trieCells.put(trieCellEntry.getKey(), new KeywordIndex(remainingQueries));
+				} else {
+					operations += cell.trieCell.clean(combinedQueries, expiryTime);
+					if (cell.trieCell.queries == null && cell.trieCell.trieCells == null)
 						trieCellsItr.remove();
 				}
 			}
+			for (String keyword : trieCells.keySet())
+				cleanedSignature |= KeywordSignature.getKeywordBit(keyword);
+			signature = cleanedSignature;
 			if (trieCells.size() == 0)
 				trieCells = null;
 		}
@@ -45,24 +45,24 @@ public class LocalHybridPyramidGridIndexOptimized {
 	public int maxLevel;
 
 	public HashMap<String, Integer> overallQueryTextSummery;
-	public static int totalVisited = 0;
-	public static int spatialOverlappingQuries = 0;
+	public int totalVisited = 0;
+	public int spatialOverlappingQuries = 0;
 	public int minInsertedLevel;
 	public int maxInsertedLevel;
 	public int splitThreshold = 5;
 
-	public static int queryInsertInvListNodeCounter = 0;
-	public static int overlapInsertInvListNodeCounter = 0;
-	public static int queryInsertTrieNodeCounter = 0;
-	public static int totalQueryInsertionsIncludingReplications = 0;
-	public static int numberOfHashEntries = 0;
-	public static int numberOfTrieNodes = 0;
-	public static int objectSearchInvListNodeCounter = 0;
-	public static int objectSearchTrieNodeCounter = 0;
-	public static int objectSearchTrieFinalNodeCounter = 0;
-	public static int objectSearchInvListHashAccess = 0;
-	public static int objectSearchTrieHashAccess = 0;
-	public static int totalTrieAccess =0;
+	public int queryInsertInvListNodeCounter = 0;
+	public int overlapInsertInvListNodeCounter = 0;
+	public int queryInsertTrieNodeCounter = 0;
+	public int totalQueryInsertionsIncludingReplications = 0;
+	public int numberOfHashEntries = 0;
+	public int numberOfTrieNodes = 0;
+	public int objectSearchInvListNodeCounter = 0;
+	public int objectSearchTrieNodeCounter = 0;
+	public int objectSearchTrieFinalNodeCounter = 0;
+	public int objectSearchInvListHashAccess = 0;
+	public int objectSearchTrieHashAccess = 0;
+	public int totalTrieAccess =0;
 
 	public LocalHybridPyramidGridIndexOptimized(Rectangle selfBounds, Integer xGridGranularity, Integer maxLevel) {
 		super();
@@ -243,7 +243,7 @@ public class LocalHybridPyramidGridIndexOptimized {
 				totalQueryInsertionsIncludingReplications++;
 				coodinate = mapToRawMajor(i, j, levelGranuality);
 				if (!levelIndex.containsKey(coodinate))
-					levelIndex.put(coodinate, new IndexCellOptimized(getBoundsForIndexCell(coodinate, levelGranuality, levelStep), coodinate));
+					levelIndex.put(coodinate, new IndexCellOptimized(this, getBoundsForIndexCell(coodinate, levelGranuality, levelStep), coodinate));
 				if (query.getTextualPredicate().equals(TextualPredicate.OVERlAPS))
 					levelIndex.get(coodinate).addInternalQuery(query);
 				else if (query.getTextualPredicate().equals(TextualPredicate.CONTAINS)) {
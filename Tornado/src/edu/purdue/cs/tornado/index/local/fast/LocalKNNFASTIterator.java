@@ -0,0 +1,129 @@
+/**
+ * Copyright Jul 5, 2015
+ * Author : Ahmed Mahmood
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.purdue.cs.tornado.index.local.fast;
+
+import java.util.ArrayList;
+import java.util.NoSuchElementException;
+
+import edu.purdue.cs.tornado.helper.IndexCell;
+import edu.purdue.cs.tornado.helper.IndexCellCoordinates;
+import edu.purdue.cs.tornado.helper.Point;
+import edu.purdue.cs.tornado.helper.SpatialHelper;
+import edu.purdue.cs.tornado.index.local.LocalIndexKNNIterator;
+import edu.purdue.cs.tornado.loadbalance.Cell;
+
+/**
+ * Iterates over the fine grid cells of the partition in rings around the
+ * focal point. The rings are built when they are first visited, the cells of
+ * a ring are created so that continuous KNN queries can be stored in them.
+ */
+public class LocalKNNFASTIterator extends LocalIndexKNNIterator {
+	private FAST fast;
+	private Cell partition;
+	private int focalX, focalY;
+	private int maxRing;
+	ArrayList<ArrayList<IndexCell>> orderedIndexList;
+	Integer orderedListIndex;
+
+	public LocalKNNFASTIterator(FAST fast, Point focalPoint) {
+		this.fast = fast;
+		this.partition = fast.myPartition;
+		IndexCellCoordinates focalCell = fast.mapDataPointToPartition(focalPoint);
+		focalX = Math.max(partition.getLeft(), Math.min(partition.getRight() - 1, focalCell.getX()));
+		focalY = Math.max(partition.getBottom(), Math.min(partition.getTop() - 1, focalCell.getY()));
+		maxRing = Math.max(Math.max(focalX - partition.getLeft(), partition.getRight() - 1 - focalX), Math.max(focalY - partition.getBottom(), partition.getTop() - 1 - focalY));
+		orderedIndexList = new ArrayList<ArrayList<IndexCell>>();
+		orderedListIndex = 0;
+	}
+
+	public LocalKNNFASTIterator(FAST fast, Point focalPoint, Double stratingDistance) {
+		this(fast, focalPoint);
+		Boolean stop = false;
+		while (hasNext() && !stop) {
+			for (IndexCell indexCell : next()) {
+				if (SpatialHelper.getMaxDistanceBetween(focalPoint, indexCell.getBounds()) > stratingDistance) {
+					stop = true;
+					break;
+				}
+			}
+			if (stop == true) {
+				orderedListIndex = Math.max(0, orderedListIndex - 1);
+			}
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		return orderedListIndex <= maxRing;
+	}
+
+	@Override
+	public boolean hasPrevious() {
+		return orderedListIndex > 0;
+	}
+
+	@Override
+	public ArrayList<IndexCell> next() {
+		if (!this.hasNext()) {
+			throw new NoSuchElementException("Nothing Next ");
+		}
+		if (orderedListIndex == orderedIndexList.size())
+			orderedIndexList.add(getRing(orderedListIndex));
+		return orderedIndexList.get(orderedListIndex++);
+	}
+
+	@Override
+	public ArrayList<IndexCell> previous() {
+		if (!this.hasPrevious()) {
+			throw new NoSuchElementException("Nothing Previous");
+		}
+		return orderedIndexList.get(--orderedListIndex);
+	}
+
+	/**
+	 * The cells of the partition at Chebyshev distance ring from the focal cell
+	 */
+	private ArrayList<IndexCell> getRing(int ring) {
+		ArrayList<IndexCell> indexCellList = new ArrayList<IndexCell>();
+		int minX = Math.max(focalX - ring, partition.getLeft()), maxX = Math.min(focalX + ring, partition.getRight() - 1);
+		int minY = Math.max(focalY - ring, partition.getBottom()), maxY = Math.min(focalY + ring, partition.getTop() - 1);
+		//the bottom and top rows then the left and right columns without the corners
+		for (int i = minX; i <= maxX; i++) {
+			if (focalY - ring == minY)
+				indexCellList.add(fast.getIndexCellCreateIfNull(new IndexCellCoordinates(i, minY)));
+			if (focalY + ring == maxY && ring > 0)
+				indexCellList.add(fast.getIndexCellCreateIfNull(new IndexCellCoordinates(i, maxY)));
+		}
+		for (int j = Math.max(minY, focalY - ring + 1); j <= Math.min(maxY, focalY + ring - 1); j++) {
+			if (focalX - ring == minX)
+				indexCellList.add(fast.getIndexCellCreateIfNull(new IndexCellCoordinates(minX, j)));
+			if (focalX + ring == maxX && ring > 0)
+				indexCellList.add(fast.getIndexCellCreateIfNull(new IndexCellCoordinates(maxX, j)));
+		}
+		return indexCellList;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("It is read-only");
+
+	}
+
+}
@@ -24,11 +24,13 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import edu.purdue.cs.tornado.helper.IndexCell;
 import edu.purdue.cs.tornado.helper.IndexCellCoordinates;
+import edu.purdue.cs.tornado.helper.KeywordSignature;
 import edu.purdue.cs.tornado.helper.Point;
 import edu.purdue.cs.tornado.helper.Rectangle;
 import edu.purdue.cs.tornado.helper.SpatialHelper;
@@ -45,6 +47,10 @@ public class GridIndexCell extends IndexCell {
 	private Integer indexCellCost;
 	private boolean transmitted;
 	private Long minExpireTime;
+	private long querySignature;//OR of the keyword signatures of the stored queries
+	private int expiredQueries;//stored queries marked deleted when they expired, purged in one pass
+	private LinkedHashMap<Integer, DataObject> storedObjects;//object id to the stored persistent or current object
+	private HashMap<String, Integer> dataText;//number of stored objects per keyword
 
 	
 	public GridIndexCell() {
@@ -99,6 +105,7 @@ public class GridIndexCell extends IndexCell {
 		}
 		if (query.getRemoveTime() < minExpireTime)
 			minExpireTime = query.getRemoveTime();
+		querySignature |= query.getTextSignature();
 
 		if (queriesInvertedList == null) {
 			queriesInvertedList = new HashMap<String, HashMap<String, ArrayList<Query>>>();
@@ -122,8 +129,17 @@ public class GridIndexCell extends IndexCell {
 	}
 
 	public void dropQuery(Query query) {
+		removeQuery(query);
+	}
+
+	/**
+	 * Removes the stored query with the source and the id of query
+	 * 
+	 * @return the removed query, null if the cell does not store it
+	 */
+	public Query removeQuery(Query query) {
 		if (storedQueries == null)
-			return;
+			return null;
 		int i = 0;
 		boolean found = false;
 		for (i = 0; i < storedQueries.size(); i++) {
@@ -136,6 +152,59 @@ public class GridIndexCell extends IndexCell {
 		if (found) {
 			Query q = storedQueries.remove(i);
 			removeQueryFromInvertedList(q);
+			return q;
+		}
+		return null;
+	}
+
+	/**
+	 * Counts a stored query that was marked deleted when it expired. The
+	 * matching skips the deleted queries, they are purged in one pass once
+	 * they are half of the stored queries, so an expiration costs a constant
+	 * time per cell of the query.
+	 */
+	public synchronized void expireQuery(Query query) {
+		if (storedQueries == null)
+			return;
+		expiredQueries++;
+		if (expiredQueries * 2 >= storedQueries.size())
+			purgeDeletedQueries();
+	}
+
+	/**
+	 * Removes the queries marked deleted from the stored queries and the
+	 * inverted lists
+	 */
+	synchronized void purgeDeletedQueries() {
+		expiredQueries = 0;
+		if (storedQueries == null)
+			return;
+		minExpireTime = Long.MAX_VALUE;
+		querySignature = 0;
+		Iterator<Query> itr = storedQueries.iterator();
+		while (itr.hasNext()) {
+			Query q = itr.next();
+			if (q.isDeleted())
+				itr.remove();
+			else {
+				if (q.getRemoveTime() < minExpireTime)
+					minExpireTime = q.getRemoveTime();
+				querySignature |= q.getTextSignature();
+			}
+		}
+		if (queriesInvertedList == null)
+			return;
+		for (HashMap<String, ArrayList<Query>> srcQueryList : queriesInvertedList.values()) {
+			Iterator<ArrayList<Query>> listItr = srcQueryList.values().iterator();
+			while (listItr.hasNext()) {
+				ArrayList<Query> queries = listItr.next();
+				Iterator<Query> queryItr = queries.iterator();
+				while (queryItr.hasNext())
+					if (queryItr.next().isDeleted())
+						queryItr.remove();
+				if (queries.isEmpty())
+					listItr.remove();
+			}
 		}
 	}
 
@@ -158,8 +227,14 @@ public class GridIndexCell extends IndexCell {
 	public Integer estimateDataObjectCountAny(ArrayList<String> keywords) {
 
 		Integer sum = 0;
-
-		return sum;
+		if (dataText == null)
+			return sum;
+		for (String keyword : keywords) {
+			Integer count = dataText.get(keyword);
+			if (count != null)
+				sum += count;
+		}
+		return Math.min(sum, getDataObjectCount());
 	}
 
 	public ArrayList<Query> findandRemoveExpriedQueries() {
@@ -167,6 +242,7 @@ public class GridIndexCell extends IndexCell {
 		if (nowTime < minExpireTime || storedQueries == null || storedQueries.size() == 0)
 			return null;
 		minExpireTime = Long.MAX_VALUE;
+		querySignature = 0;
 		Iterator<Query> itr = storedQueries.iterator();
 		ArrayList<Query> expriedList = new ArrayList<Query>();
 		while (itr.hasNext()) {
@@ -176,17 +252,30 @@ public class GridIndexCell extends IndexCell {
 				expriedList.add(q);
 				itr.remove();
 
-			} else if (q.getRemoveTime() < minExpireTime)
-				minExpireTime = q.getRemoveTime();
+			} else {
+				if (q.getRemoveTime() < minExpireTime)
+					minExpireTime = q.getRemoveTime();
+				querySignature |= q.getTextSignature();
+			}
 
 		}
 		return expriedList;
 	}
 
 	public synchronized ArrayList<List<Query>> geSpatiotTextualOverlappingQueries(Point p, ArrayList<String> keywords) {
+		return geSpatiotTextualOverlappingQueries(p, keywords, KeywordSignature.getSignature(keywords));
+	}
+
+	/**
+	 * @param keywordsSignature the KeywordSignature of keywords, objects that share
+	 * no signature bit with the stored queries are rejected without any map lookup
+	 */
+	@Override
+	public synchronized ArrayList<List<Query>> geSpatiotTextualOverlappingQueries(Point p, ArrayList<String> keywords, long keywordsSignature) {
 		ArrayList<List<Query>> result = new ArrayList<List<Query>>();
 		if (queriesInvertedList == null)
 			return result;
+		boolean mayMatch = KeywordSignature.mayOverlap(keywordsSignature, querySignature);
 		Iterator itr = queriesInvertedList.entrySet().iterator();
 		while (itr.hasNext()) {
 			//HashSet<Integer> queries = new HashSet<Integer>();
@@ -196,19 +285,23 @@ public class GridIndexCell extends IndexCell {
 			Map.Entry entry = (Map.Entry) itr.next();
 			HashMap<String, ArrayList<Query>> srcQueryList = (HashMap<String, ArrayList<Query>>) entry.getValue();
 			queryScrId = (String) entry.getKey();
+			if (!mayMatch) {
+				result.add(finalQueries);
+				continue;
+			}
 			for (String keyword : keywords) {
 				List<Query> validQueries = srcQueryList.get(keyword);
 				if (validQueries != null)
 					try {
 						for (Query q : validQueries) {
 
-							if (SpatialHelper.overlapsSpatially(p, q.getSpatialRange())) {
+							if (!q.isDeleted() && SpatialHelper.overlapsSpatially(p, q.getSpatialRange())) {
 								if (TextualPredicate.OVERlAPS.equals(q.getTextualPredicate())) {
 									if (q.added[0] != true) {
 										q.added[0] = true;
 										finalQueries.add(q);
 									}
-								} else if (TextualPredicate.CONTAINS.equals(q.getTextualPredicate())) {
+								} else if (TextualPredicate.CONTAINS.equals(q.getTextualPredicate()) && KeywordSignature.mayContain(keywordsSignature, q.getTextSignature())) {
 									if (q.visitied == 0)
 										tempQueries.add(q);
 									q.visitied++;
@@ -242,6 +335,8 @@ public class GridIndexCell extends IndexCell {
 	}
 
 	public HashMap<String, List<Query>> getTextualOverlappingQueries(ArrayList<String> keywords) {
+		if (expiredQueries > 0)
+			purgeDeletedQueries();
 		HashMap<String, List<Query>> result = new HashMap<String, List<Query>>();
 		Iterator itr = queriesInvertedList.entrySet().iterator();
 		while (itr.hasNext()) {
@@ -285,15 +380,27 @@ public class GridIndexCell extends IndexCell {
 		this.bounds = bounds;
 	}
 
+	/**
+	 * Replaces the stored queries, e.g., of a deserialized cell, and recomputes
+	 * their signature
+	 */
 	public void setStoredQueries(ArrayList<Query> storedQueries) {
 		this.storedQueries = storedQueries;
+		querySignature = 0;
+		if (storedQueries != null)
+			for (Query query : storedQueries)
+				querySignature |= query.getTextSignature();
 	}
 
 	public List<Query> getQueries() {
+		if (expiredQueries > 0)
+			purgeDeletedQueries();
 		return storedQueries;
 	}
 
 	public HashMap<String, HashMap<String, ArrayList<Query>>> getQueriesInvertedList() {
+		if (expiredQueries > 0)
+			purgeDeletedQueries();
 		return queriesInvertedList;
 	}
 
@@ -334,52 +441,95 @@ public class GridIndexCell extends IndexCell {
 	}
 
 	public ArrayList<Query> getStoredQueries() {
+		if (expiredQueries > 0)
+			purgeDeletedQueries();
 		return storedQueries;
 	}
 
-	public com.sun.tools.javac.util.List<DataObject> getStoredObjects() {
-		// TODO Auto-generated method stub
-		return null;
+	public List<DataObject> getStoredObjects() {
+		if (storedObjects == null)
+			return new ArrayList<DataObject>();
+		return new ArrayList<DataObject>(storedObjects.values());
 	}
 
 	public void setStoredObjects(com.sun.tools.javac.util.List<DataObject> objects) {
-		// TODO Auto-generated method stub
-
+		storedObjects = null;
+		dataText = null;
+		for (DataObject dataObject : objects)
+			addDataObject(dataObject);
 	}
 
 	public Integer getDataObjectCount() {
-		// TODO Auto-generated method stub
-		return null;
+		return storedObjects == null ? 0 : storedObjects.size();
 	}
 
 	public DataObject dropDataObject(Integer id) {
-		return null;
-
+		if (storedObjects == null)
+			return null;
+		DataObject dataObject = storedObjects.remove(id);
+		if (dataObject != null && dataObject.getObjectText() != null)
+			for (String keyword : dataObject.getObjectText()) {
+				Integer count = dataText.get(keyword);
+				if (count == null || count <= 1)
+					dataText.remove(keyword);
+				else
+					dataText.put(keyword, count - 1);
+			}
+		return dataObject;
 	}
 
 	public HashMap<String, Integer> getAllDataTextInCell() {
-		// TODO Auto-generated method stub
-		return null;
+		if (dataText == null)
+			return new HashMap<String, Integer>();
+		return dataText;
 	}
 
-	public com.sun.tools.javac.util.List<DataObject> getStoredObjects(Rectangle range, ArrayList<String> keywords, TextualPredicate predicate) {
-		// TODO Auto-generated method stub
-		return null;
+	public List<DataObject> getStoredObjects(Rectangle range, ArrayList<String> keywords, TextualPredicate predicate) {
+		ArrayList<DataObject> result = new ArrayList<DataObject>();
+		if (storedObjects == null)
+			return result;
+		for (DataObject dataObject : storedObjects.values())
+			if (SpatialHelper.overlapsSpatially(dataObject.getLocation(), range) && TextHelpers.evaluateTextualPredicate(dataObject.getObjectText(), keywords, predicate))
+				result.add(dataObject);
+		return result;
 	}
 
 	public DataObject getDataObject(Integer id) {
-		// TODO Auto-generated method stub
-		return null;
+		if (storedObjects == null)
+			return null;
+		return storedObjects.get(id);
 	}
 
-	public void addDataObject(DataObject id) {
-		// TODO Auto-generated method stub
-
+	/**
+	 * Stores the object, an object with the same id replaces the stored one
+	 */
+	public void addDataObject(DataObject dataObject) {
+		if (storedObjects == null) {
+			storedObjects = new LinkedHashMap<Integer, DataObject>();
+			dataText = new HashMap<String, Integer>();
+		}
+		dropDataObject(dataObject.getObjectId());
+		storedObjects.put(dataObject.getObjectId(), dataObject);
+		if (dataObject.getObjectText() != null)
+			for (String keyword : dataObject.getObjectText()) {
+				Integer count = dataText.get(keyword);
+				dataText.put(keyword, count == null ? 1 : count + 1);
+			}
 	}
 
+	/**
+	 * Estimates the number of objects that contain all keywords as the count of
+	 * the rarest keyword
+	 */
 	public int estimateDataObjectCountAll(ArrayList<String> keywords) {
-		// TODO Auto-generated method stub
-		return 0;
+		if (dataText == null)
+			return 0;
+		int min = getDataObjectCount();
+		for (String keyword : keywords) {
+			Integer count = dataText.get(keyword);
+			min = Math.min(min, count == null ? 0 : count);
+		}
+		return min;
 	}
 
 }
@@ -24,17 +24,18 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
 
 import edu.purdue.cs.tornado.helper.IndexCell;
 import edu.purdue.cs.tornado.helper.IndexCellCoordinates;
 import edu.purdue.cs.tornado.helper.Point;
+import edu.purdue.cs.tornado.helper.QueryTimingWheel;
 import edu.purdue.cs.tornado.helper.QueryType;
 import edu.purdue.cs.tornado.helper.Rectangle;
 import edu.purdue.cs.tornado.helper.SpatioTextualConstants;
 import edu.purdue.cs.tornado.helper.TextHelpers;
+import edu.purdue.cs.tornado.helper.TextualPredicate;
 import edu.purdue.cs.tornado.index.DataSourceInformation;
 import edu.purdue.cs.tornado.index.local.LocalHybridIndex;
 import edu.purdue.cs.tornado.loadbalance.Cell;
@@ -60,8 +61,7 @@ public class LocalHybridGridIndex extends LocalHybridIndex {
 	public Cell myPartition;
 	public Integer fineGridGran;
 
-	public HashMap<String, Integer> overallQueryTextSummery;
-	public boolean textUpdated;
+	public QueryTimingWheel expiryWheel;//the range queries stored in the cells by their remove time in milliseconds
 
 	public LocalHybridGridIndex(Rectangle selfBounds, DataSourceInformation dataSourcesInformation, Integer fineGridGran) {
 		this(selfBounds, dataSourcesInformation, fineGridGran, fineGridGran, false, 0);
@@ -83,18 +83,24 @@ public class LocalHybridGridIndex extends LocalHybridIndex {
 		this.yGridGranularity = yGridGranularity;
 		this.localXstep = (globalXrange / this.xGridGranularity);
 		this.localYstep = (globalYrange / this.yGridGranularity);
-		this.textUpdated = false;
 		//		this.localXcellCount = (int) ((selfBounds.getMax().getX() - selfBounds.getMin().getX()) / localXstep);
 		//		this.localYcellCount = (int) ((selfBounds.getMax().getY() - selfBounds.getMin().getY()) / localYstep);
 		this.index = new HashMap<Integer, HashMap<Integer, IndexCell>>();
 		this.globalKNNQueries = new ArrayList<Query>();
 		this.level = level;
-		overallQueryTextSummery = new HashMap<String, Integer>();
+		expiryWheel = new QueryTimingWheel(new Date().getTime());
 		this.myPartition = new Cell((int) (selfBounds.getMin().getY() / localYstep), (int) (selfBounds.getMax().getY() / localYstep), (int) (selfBounds.getMin().getX() / localXstep), (int) (selfBounds.getMax().getX() / localXstep));
 	}
 
 	public Boolean addContinousQuery(Query query) {
 		Boolean completed = true;
+		if (TextualPredicate.BOOLEAN_EXPR.equals(query.getTextualPredicate())) {
+			//every conjunction is indexed as a CONTAINS query, the cells report a query once
+			if (query.getConjunctionQueries() != null)
+				for (Query conjunctionQuery : query.getConjunctionQueries())
+					completed &= addContinousQuery(conjunctionQuery);
+			return completed;
+		}
 		if (query.getQueryType().equals(QueryType.queryTextualKNN)) {
 
 			// initially assume that the incomming KKN query for a
@@ -105,6 +111,7 @@ public class LocalHybridGridIndex extends LocalHybridIndex {
 			}
 		}
 
+		query.deleted = false;
 		ArrayList<IndexCellCoordinates> indexCells = mapQueryToPartitions(query);
 		for (IndexCellCoordinates indexCellCoordinate : indexCells) {
 
@@ -114,18 +121,15 @@ public class LocalHybridGridIndex extends LocalHybridIndex {
 				addIndexCellFromCoordinates(indexCellCoordinate, indexCell);
 
 			}
-			if (!indexCell.isTransmitted()) {
+			if (!indexCell.isTransmitted())
 				indexCell.addQuery(query);
-				for (String s : query.getQueryText()) {
-					if (!overallQueryTextSummery.containsKey(s))
-						overallQueryTextSummery.put(s, 1);
-					else
-						overallQueryTextSummery.put(s, overallQueryTextSummery.get(s) + 1);
-				}
-			} else
+			else
 
 				completed = false;
 		}
+		//the cells of a continuous KNN query change with its result, it expires when it is dropped
+		if (!QueryType.queryTextualKNN.equals(query.getQueryType()))
+			expiryWheel.add(query);
 
 		return completed;
 	}
@@ -153,6 +157,12 @@ public class LocalHybridGridIndex extends LocalHybridIndex {
 	}
 
 	public Boolean dropContinousQuery(Query query) {
+		if (TextualPredicate.BOOLEAN_EXPR.equals(query.getTextualPredicate())) {
+			if (query.getConjunctionQueries() != null)
+				for (Query conjunctionQuery : query.getConjunctionQueries())
+					dropContinousQuery(conjunctionQuery);
+			return true;
+		}
 		//first check inside the globalNKK list and if found return 
 		if (query.getQueryType().equals(QueryType.queryTextualKNN)) {
 			int i = 0;
@@ -172,20 +182,10 @@ public class LocalHybridGridIndex extends LocalHybridIndex {
 		for (IndexCellCoordinates indexCell : indexCells) {
 			if (indexCell == null)
 				continue;
-			index.get(indexCell.getX()).get(indexCell.getY()).dropQuery(query);
-
-		}
-		for (String s : query.getQueryText()) {
-			if (overallQueryTextSummery.containsKey(s)) {
-				int remainingCount = overallQueryTextSummery.get(s) - indexCells.size();
-				if (remainingCount > 0)
-					overallQueryTextSummery.put(s, remainingCount);
-				else if (remainingCount <= 0) {
-					overallQueryTextSummery.remove(s);
-					textUpdated = true;
-				}
-
-			}
+			Query storedQuery = ((GridIndexCell) index.get(indexCell.getX()).get(indexCell.getY())).removeQuery(query);
+			//the expiry wheel skips the dropped query
+			if (storedQuery != null)
+				storedQuery.deleted = true;
 
 		}
 		return true;
@@ -537,6 +537,12 @@ public class LocalHybridGridIndex extends LocalHybridIndex {
 		this.selfBounds = selfBounds;
 	}
 
+	@Override
+	public void setPartition(Cell myPartition, Rectangle selfBounds) {
+		this.myPartition = myPartition;
+		this.selfBounds = selfBounds;
+	}
+
 	//TODO we need to find a better way to update a query 
 	public Boolean updateContinousQuery(Query oldQuery, Query query) {
 		dropContinousQuery(oldQuery);
@@ -551,7 +557,7 @@ public class LocalHybridGridIndex extends LocalHybridIndex {
 		IndexCell indexCell = getIndexCellFromCoordinates(cellCoordinates);
 		if (indexCell == null)
 			return null;
-		ArrayList<List<Query>> result = indexCell.geSpatiotTextualOverlappingQueries(dataObject.getLocation(), dataObject.getObjectText());
+		ArrayList<List<Query>> result = indexCell.geSpatiotTextualOverlappingQueries(dataObject.getLocation(), dataObject.getObjectText(), dataObject.getTextSignature());
 
 		return result;
 	}
@@ -567,14 +573,13 @@ public class LocalHybridGridIndex extends LocalHybridIndex {
 		return result;
 	}
 
+	@Override
 	public void removeIndexCellsFromPartition(Cell partition, boolean textAware) {
 		for (int i = partition.getLeft(); i < partition.getRight(); i++)
 			if (index.containsKey(i)) {
 				for (int j = partition.getBottom(); j < partition.getTop(); j++)
 					if (index.get(i).containsKey(j)) {
-						IndexCell cell = index.get(i).remove(j);
-						if (textAware)
-							removeTextSummeryFromIndexCell(cell);
+						index.get(i).remove(j);
 					}
 				index.remove(i);
 			}
@@ -585,109 +590,73 @@ public class LocalHybridGridIndex extends LocalHybridIndex {
 			if (!index.containsKey(indexCell.getGlobalCoordinates().getX()))
 				index.put(indexCell.getGlobalCoordinates().getX(), new HashMap<Integer, IndexCell>());
 			index.get(indexCell.getGlobalCoordinates().getX()).put(indexCell.getGlobalCoordinates().getY(), indexCell);
-			if (textAware)
-				addTextSummeryFromIndexCell(indexCell);
+			scheduleExpiry(indexCell);
 		}
 	}
 
+	@Override
 	public void addIndexCellsFromPartition(IndexCell indexCell, boolean textAware) {
 
 		if (!index.containsKey(indexCell.getGlobalCoordinates().getX()))
 			index.put(indexCell.getGlobalCoordinates().getX(), new HashMap<Integer, IndexCell>());
 		index.get(indexCell.getGlobalCoordinates().getX()).put(indexCell.getGlobalCoordinates().getY(), indexCell);
-		if (textAware)
-			addTextSummeryFromIndexCell(indexCell);
+		scheduleExpiry(indexCell);
 
 	}
 
-	@Override
-	public HashSet<String> getUpdatedTextSummery() {
-		if (textUpdated) {
-			textUpdated = false;
-			HashSet<String> s = new HashSet<String>();
-			s.addAll(overallQueryTextSummery.keySet());
-
-			return s;
-		}
-		return null;
-	}
-
-	public void removeTextSummeryFromIndexCell(IndexCell cell) {
-		for (Entry<String, HashMap<String, ArrayList<Query>>> e : cell.getQueriesInvertedList().entrySet()) {
-			Iterator<Entry<String, ArrayList<Query>>> itr = e.getValue().entrySet().iterator();
-			while (itr.hasNext()) {
-				Entry<String, ArrayList<Query>> entry = itr.next();
-				if (overallQueryTextSummery.containsKey(entry.getKey())) {
-					int remainingCount = overallQueryTextSummery.get(entry.getKey()) - entry.getValue().size();
-					if (remainingCount > 0)
-						overallQueryTextSummery.put(entry.getKey(), remainingCount);
-					else if (remainingCount <= 0) {
-						overallQueryTextSummery.remove(entry.getKey());
-						textUpdated = true;
-					}
-
-				}
-			}
-		}
-
+	/**
+	 * Adds the queries of a cell received from another evaluator to the expiry
+	 * wheel
+	 */
+	private void scheduleExpiry(IndexCell indexCell) {
+		if (indexCell.getStoredQueries() != null)
+			for (Query query : indexCell.getStoredQueries())
+				if (!QueryType.queryTextualKNN.equals(query.getQueryType()))
+					expiryWheel.add(query);
 	}
 
-	public void addTextSummeryFromIndexCell(IndexCell cell) {
-		if (cell.getQueriesInvertedList() == null)
-			return;
-		for (Entry<String, HashMap<String, ArrayList<Query>>> e : cell.getQueriesInvertedList().entrySet()) {
-			Iterator<Entry<String, ArrayList<Query>>> itr = e.getValue().entrySet().iterator();
-			while (itr.hasNext()) {
-				Entry<String, ArrayList<Query>> entry = itr.next();
-				if (!overallQueryTextSummery.containsKey(entry.getKey())) {
-					if (entry.getValue().size() != 0)
-						overallQueryTextSummery.put(entry.getKey(), entry.getValue().size());
-				} else {
-					if ((overallQueryTextSummery.get(entry.getKey()) + entry.getValue().size()) != 0)
-						overallQueryTextSummery.put(entry.getKey(), overallQueryTextSummery.get(entry.getKey()) + entry.getValue().size());
-
-				}
-
+	/**
+	 * The keywords of the stored queries, collected from the inverted lists of
+	 * the cells when the text aware global index asks for them
+	 */
+	@Override
+	public HashSet<String> getUpdatedTextSummery() {
+		HashSet<String> s = new HashSet<String>();
+		for (HashMap<Integer, IndexCell> yCellList : index.values())
+			for (IndexCell cell : yCellList.values()) {
+				HashMap<String, HashMap<String, ArrayList<Query>>> queriesInvertedList = cell.getQueriesInvertedList();
+				if (queriesInvertedList == null)
+					continue;
+				for (HashMap<String, ArrayList<Query>> keywordQueries : queriesInvertedList.values())
+					for (Entry<String, ArrayList<Query>> entry : keywordQueries.entrySet())
+						if (!entry.getValue().isEmpty())
+							s.add(entry.getKey());
 			}
-		}
-
+		return s;
 	}
 
+	/**
+	 * Removes the range queries that expired since the last clean up, called
+	 * by the evaluator every tick. The expiry wheel returns only the expired
+	 * queries, an expired query is marked deleted so that all its cells skip
+	 * it at once and every cell purges its deleted queries in one pass once
+	 * they are half of its queries. A dropped query is already marked deleted
+	 * and is skipped.
+	 */
 	@Override
 	public void cleanUp() {
 		beginCleanUpTime = (new Date()).getTime();
-		Boolean hasQueries = false;
-		for (int i = myPartition.getLeft(); i < myPartition.getRight(); i++)
-			if (index.containsKey(i)) {
-				for (int j = myPartition.getBottom(); j < myPartition.getTop(); j++)
-					if (index.get(i).containsKey(j)) {
-						IndexCell cell = index.get(i).get(j);
-						ArrayList<Query> expiredQueries = cell.findandRemoveExpriedQueries();
-						if (cell.getStoredQueries().size() != 0)
-							hasQueries = true;
-						if (expiredQueries != null) {
-							for (Query query : expiredQueries) {
-								for (String s : query.getQueryText()) {
-									if (overallQueryTextSummery.containsKey(s)) {
-										int remainingCount = overallQueryTextSummery.get(s) - 1;
-										if (remainingCount > 0)
-											overallQueryTextSummery.put(s, remainingCount);
-										else if (remainingCount <= 0) {
-											overallQueryTextSummery.remove(s);
-											textUpdated = true;
-										}
-
-									}
-
-								}
-							}
-						}
-					}
-
+		for (Query query : expiryWheel.advance(beginCleanUpTime)) {
+			if (query.isDeleted())
+				continue;
+			query.deleted = true;
+			for (IndexCellCoordinates indexCellCoordinates : mapQueryToPartitions(query)) {
+				//the cells that moved to another evaluator took their queries along
+				IndexCell cell = getIndexCellFromCoordinates(indexCellCoordinates);
+				if (cell != null)
+					((GridIndexCell) cell).expireQuery(query);
 			}
-		//		if(hasQueries==false &&!overallQueryTextSummery.isEmpty())
-		//			System.err.println("There is an error in cleaning");
-
+		}
 	}
 
 }
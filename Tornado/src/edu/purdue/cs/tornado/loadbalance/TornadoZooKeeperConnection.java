@@ -1,6 +1,5 @@
 package edu.purdue.cs.tornado.loadbalance;
 
-import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -15,6 +14,11 @@ import org.apache.storm.shade.org.apache.zookeeper.KeeperException;
 import org.apache.storm.shade.org.apache.zookeeper.WatchedEvent;
 import org.apache.storm.shade.org.apache.zookeeper.Watcher;
 
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import edu.purdue.cs.tornado.serializer.KryoPool;
+
 /**
  * 
  * Class to communicate with the ZooKeeper, write and read statistical informations, and barrier
@@ -77,8 +81,7 @@ public class TornadoZooKeeperConnection {
 	public short readData(){
 		try {
 			byte[] data = client.getData().forPath("/ExecutorBoltStat/"+myId);
-			ByteBuffer wrapped = ByteBuffer.wrap(data); // big-endian by default
-			return wrapped.getShort();
+			return (short) readInts(data, 1)[0];
 		} catch (Exception e) {
 			System.out.println("Error reading data from: "+"/ExecutorBoltStat/"+myId);
 			e.printStackTrace();
@@ -87,21 +90,9 @@ public class TornadoZooKeeperConnection {
 	}
 
 	public int[] readDataFrom(String ID){
-		int[] stat = new int[9];
 		try {
 			byte[] data = client.getData().forPath("/ExecutorBoltStat/"+ID);
-			ByteBuffer wrapped = ByteBuffer.wrap(data); // big-endian by default
-			stat[0] = wrapped.getInt();
-			stat[1] = wrapped.getInt();
-			stat[2] = wrapped.getInt();
-			stat[3] = wrapped.getInt();
-			stat[4] = wrapped.getInt();
-			stat[5] = wrapped.getInt();
-			stat[6] = wrapped.getInt();
-			stat[7] = wrapped.getInt();
-			stat[8] = wrapped.getInt();
-
-			return stat;
+			return readInts(data, 9);
 		} catch (Exception e) {
 			System.out.println("Error reading data from: "+"/ExecutorBoltStat/"+ID);
 			e.printStackTrace();
@@ -109,29 +100,52 @@ public class TornadoZooKeeperConnection {
 		return null;
 	}
 	public int[] readParitionsFrom(String ID){
-		int[] stat = new int[4];
 		try {
 			byte[] data = client.getData().forPath("/Partitions/"+ID);
-			ByteBuffer wrapped = ByteBuffer.wrap(data); // big-endian by default
-			stat[0] = wrapped.getInt();
-			stat[1] = wrapped.getInt();
-			stat[2] = wrapped.getInt();
-			stat[3] = wrapped.getInt();
-			return stat;
+			return readInts(data, 4);
 		} catch (Exception e) {
 			System.out.println("Error reading data from: "+"/Partitions/"+ID);
 			e.printStackTrace();
 		}
 		return null;
 	}
+
+	/**
+	 * Statistics are written as zigzag varints with the pooled Kryo buffers
+	 */
+	private static byte[] writeInts(int[] values, ArrayList<Integer> xColumnStat, ArrayList<Integer> yRowStat) {
+		KryoPool.PooledKryo pooledKryo = KryoPool.getInstance().borrow();
+		try {
+			Output output = pooledKryo.getOutput();
+			for (int value : values)
+				output.writeInt(value, false);
+			if (xColumnStat != null)
+				for (Integer value : xColumnStat)
+					output.writeInt(value, false);
+			if (yRowStat != null)
+				for (Integer value : yRowStat)
+					output.writeInt(value, false);
+			return output.toBytes();
+		} finally {
+			KryoPool.getInstance().release(pooledKryo);
+		}
+	}
+
+	private static int[] readInts(byte[] data, int count) {
+		KryoPool.PooledKryo pooledKryo = KryoPool.getInstance().borrow();
+		try {
+			Input input = pooledKryo.getInput(data);
+			int[] values = new int[count];
+			for (int i = 0; i < count; i++)
+				values[i] = input.readInt(false);
+			return values;
+		} finally {
+			KryoPool.getInstance().release(pooledKryo);
+		}
+	}
+
 	public void writeParitionsFrom(int id, int left, int bottom, int right, int top ){
-		ByteBuffer dbuf = ByteBuffer.allocate(36);
-		dbuf.putInt(left);
-		dbuf.putInt(bottom);
-		dbuf.putInt(right);
-		dbuf.putInt(top);
-	
-		byte[] bytes = dbuf.array();
+		byte[] bytes = writeInts(new int[] { left, bottom, right, top }, null, null);
 		try {
 			client.setData().forPath("/Partitions/"+id,bytes);
 		} catch (Exception e) {
@@ -144,19 +158,7 @@ public class TornadoZooKeeperConnection {
 		writeData(statData, statQuery, coord, axis,0,0, 0, 0, 0);
 	}
 	public void writeData(int statData, int statQuery, int coord, int axis,int rightRemainaing, int statQuery2, int coord2, int axis2,int upperRemainining){
-		ByteBuffer dbuf = ByteBuffer.allocate(36);
-		dbuf.putInt(statData);
-		dbuf.putInt(statQuery);
-		dbuf.putInt(coord);
-		dbuf.putInt(axis);
-		dbuf.putInt(rightRemainaing);
-		dbuf.putInt(statQuery2);
-		dbuf.putInt(coord2);
-		dbuf.putInt(axis2);
-		dbuf.putInt(upperRemainining);
-		
-		
-		byte[] bytes = dbuf.array();
+		byte[] bytes = writeInts(new int[] { statData, statQuery, coord, axis, rightRemainaing, statQuery2, coord2, axis2, upperRemainining }, null, null);
 		try {
 			client.setData().forPath("/ExecutorBoltStat/"+myId,bytes);
 		} catch (Exception e) {
@@ -165,22 +167,7 @@ public class TornadoZooKeeperConnection {
 		}
 	}
 	public void writeData(int statData, int statQuery, int coord, int axis,int rightRemainaing, int statQuery2, int coord2, int axis2,int upperRemainining, ArrayList<Integer>xColumnStat,ArrayList<Integer>yRowStat){
-		ByteBuffer dbuf = ByteBuffer.allocate(36+4*(xColumnStat.size()+yRowStat.size()));
-		dbuf.putInt(statData);
-		dbuf.putInt(statQuery);
-		dbuf.putInt(coord);
-		dbuf.putInt(axis);
-		dbuf.putInt(rightRemainaing);
-		dbuf.putInt(statQuery2);
-		dbuf.putInt(coord2);
-		dbuf.putInt(axis2);
-		dbuf.putInt(upperRemainining);
-		for(Integer i:xColumnStat)
-			dbuf.putInt(i);
-		for(Integer j:yRowStat)
-			dbuf.putInt(j);
-		
-		byte[] bytes = dbuf.array();
+		byte[] bytes = writeInts(new int[] { statData, statQuery, coord, axis, rightRemainaing, statQuery2, coord2, axis2, upperRemainining }, xColumnStat, yRowStat);
 		try {
 			client.setData().forPath("/ExecutorBoltStat/"+myId,bytes);
 		} catch (Exception e) {
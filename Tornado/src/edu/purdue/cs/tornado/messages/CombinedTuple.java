@@ -29,6 +29,8 @@ public class CombinedTuple {
 	public DataObject dataObject2;
 	public ArrayList<DataObject> dataObjectList;
 	public ArrayList<DataObject> dataObject2List;
+	//the commands of the objects of dataObjectList when an evaluator batches the matches of a query 
+	public ArrayList<Command> dataObjectCommandList;
 	
 	public Command dataObjectCommand;
 	public Command dataObject2Command;
@@ -42,6 +44,27 @@ public class CombinedTuple {
 	public void setDataObjectList(ArrayList<DataObject> dataObjectList) {
 		this.dataObjectList = dataObjectList;
 	}
+	public ArrayList<Command> getDataObjectCommandList() {
+		return dataObjectCommandList;
+	}
+	public void setDataObjectCommandList(ArrayList<Command> dataObjectCommandList) {
+		this.dataObjectCommandList = dataObjectCommandList;
+	}
+	/**
+	 * Adds a match to a batch of matches of the query, in emission order 
+	 */
+	public void addDataObject(DataObject dataObject, Command command) {
+		dataObjectList.add(dataObject);
+		dataObjectCommandList.add(command);
+	}
+	/**
+	 * @return the command of the i-th object of dataObjectList, the command of the tuple when the objects do not have their own commands 
+	 */
+	public Command getDataObjectCommand(int i) {
+		if (dataObjectCommandList == null)
+			return dataObjectCommand;
+		return dataObjectCommandList.get(i);
+	}
 	public String getQueryListSrcId() {
 		return queryListSrcId;
 	}
@@ -103,6 +126,10 @@ public class CombinedTuple {
 		if(dataObject2!=null){
 			toReturn +="\n"+dataObject2.toString();
 		}
+		if(dataObjectList!=null){
+			for(int i=0;i<dataObjectList.size();i++)
+				toReturn +="\n"+getDataObjectCommand(i)+" "+dataObjectList.get(i).toString();
+		}
 		return toReturn;
 	}
 }
@@ -58,6 +58,7 @@ public class Control {
 	public Integer forwardTextIndexTaskIndex;
 	public HashSet<String> textSummery;
 	public IndexCell indexCell;
+	public IndexCellBlock indexCellBlock; //cells moved by load balancing 
 	public Long textSummaryTimeStamp;
 	public HashSet<String> getTextSummery() {
 		return textSummery;
@@ -137,6 +138,13 @@ public class Control {
 	public void setIndexCell(IndexCell indexCell) {
 		this.indexCell = indexCell;
 	}
+	public IndexCellBlock getIndexCellBlock() {
+		return indexCellBlock;
+	}
+
+	public void setIndexCellBlock(IndexCellBlock indexCellBlock) {
+		this.indexCellBlock = indexCellBlock;
+	}
 	public ArrayList<IndexCell> getIndexCells() {
 		return indexCells;
 	}
@@ -161,6 +169,7 @@ public class Control {
 		this.indexCells=null;
 		this.srcId=null;
 		this.indexCell =null;
+		this.indexCellBlock =null;
 		this.textSummery=null;
 		this.textSummeryTaskIdList=null;
 		this.singleQuery=null;
@@ -20,35 +20,52 @@
 package edu.purdue.cs.tornado.messages;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 
 import edu.purdue.cs.tornado.helper.Command;
+import edu.purdue.cs.tornado.helper.KeywordDictionary;
+import edu.purdue.cs.tornado.helper.KeywordSignature;
 import edu.purdue.cs.tornado.helper.Point;
 import edu.purdue.cs.tornado.helper.Rectangle;
+import edu.purdue.cs.tornado.helper.SourceIdRegistry;
 import edu.purdue.cs.tornado.helper.TextHelpers;
 
+/**
+ * Id, time stamp and coordinates are kept as primitives, the boxed getters are kept for 
+ * existing callers, a null id or time stamp is stored as 0. The keyword list and the original 
+ * text are immutable and shared by copies of the object, callers must not modify them.
+ * The source is also kept as its SourceIdRegistry handle, objects of registered sources 
+ * are compared by handle.
+ */
 public class DataObject {
+	private static final int UNRESOLVED_HANDLE = -2;
 	private String srcId;
-	private Integer objectId;
-	private Point location;
+	private int srcHandle = UNRESOLVED_HANDLE; //-1 when the source is not registered
+	private int objectId;
+	private double x;
+	private double y; //NaN when the object has no location 
+	private Point location; //lazily created view of x and y
 	private String originalText;
 	private ArrayList<String> objectText;
-	public HashSet<String>hashedText;
-	private Long timeStamp;
+	private int[] objectTextIds; //sorted term ids of objectText in the KeywordDictionary
+	private long textSignature; //KeywordSignature of objectText
+	private ArrayList<String> signedObjectText; //the keyword list textSignature was computed from
+	private long timeStamp;
 	private Rectangle relevantArea;
 	private Command command;
 	public boolean added;
 
 	
 	public DataObject(DataObject other){
-		this.srcId=""+other.srcId;
-		this.objectId=other.objectId.intValue();
-		this.location=new Point(other.location);
-		this.originalText=new String(other.originalText);
-		this.objectText=(ArrayList<String>) other.objectText.clone();
+		this.srcId=other.srcId;
+		this.srcHandle=other.srcHandle;
+		this.objectId=other.objectId;
+		this.x=other.x;
+		this.y=other.y;
+		this.originalText=other.originalText;
+		this.objectText=other.objectText;
+		this.objectTextIds=other.objectTextIds;
 		this.command=other.command;
 		this.added = false;
-		this.hashedText = new HashSet<String>();
 		
 	}
 	@Override
@@ -57,21 +74,31 @@ public class DataObject {
 			return true;
 		if (!(other instanceof DataObject))
 			return false;
-		return (this.srcId == ((DataObject) other).srcId && this.objectId == ((DataObject) other).objectId);
+		return (this.objectId == ((DataObject) other).objectId && equalsSource((DataObject) other));
+	}
+	@Override
+	public int hashCode() {
+		return 31 * objectId + (srcId == null ? 0 : srcId.hashCode());
+	}
+	private boolean equalsSource(DataObject other) {
+		if (this.srcId == other.srcId)
+			return true;
+		int handle = getSrcHandle();
+		if (handle >= 0)
+			return handle == other.getSrcHandle();
+		return this.srcId != null && this.srcId.equals(other.srcId);
 	}
 	public boolean equalsLocation(Object other) {
 		if (other == this)
 			return true;
 		if (!(other instanceof DataObject))
 			return false;
-		return (this.srcId == ((DataObject) other).srcId && this.objectId == ((DataObject) other).objectId &&this.location.equals(((DataObject) other).location));
+		return (this.objectId == ((DataObject) other).objectId && equalsSource((DataObject) other) && Double.compare(this.x, ((DataObject) other).x) == 0 && Double.compare(this.y, ((DataObject) other).y) == 0);
 	}
 
 	public DataObject() {
-		location = new Point();
 		objectText = new ArrayList<String>();
 		added = false;
-		hashedText = new HashSet<String>();
 	}
 
 	public Command getCommand() {
@@ -96,22 +123,71 @@ public class DataObject {
 
 	public void setSrcId(String srcId) {
 		this.srcId = srcId;
+		this.srcHandle = UNRESOLVED_HANDLE;
+	}
+
+	/**
+	 * @param srcId the registered instance of the source id
+	 * @param srcHandle the SourceIdRegistry handle of srcId, -1 if it is not registered
+	 */
+	public void setSrcId(String srcId, int srcHandle) {
+		this.srcId = srcId;
+		this.srcHandle = srcHandle;
+	}
+
+	/**
+	 * @return the SourceIdRegistry handle of the source, -1 if the source is not registered
+	 */
+	public int getSrcHandle() {
+		if (srcHandle == UNRESOLVED_HANDLE)
+			srcHandle = SourceIdRegistry.getInstance().getHandle(srcId);
+		return srcHandle;
 	}
 
 	public Integer getObjectId() {
 		return objectId;
 	}
 
+	public int getObjectIdValue() {
+		return objectId;
+	}
+
 	public void setObjectId(Integer objectId) {
+		this.objectId = objectId == null ? 0 : objectId.intValue();
+	}
+
+	public void setObjectId(int objectId) {
 		this.objectId = objectId;
 	}
 
+	/**
+	 * @return the location of the object, the returned point must not be modified, use setLocation
+	 */
 	public Point getLocation() {
+		if (location == null && !Double.isNaN(y))
+			location = new Point(x, y);
 		return location;
 	}
 
+	public double getX() {
+		return x;
+	}
+
+	public double getY() {
+		return y;
+	}
+
 	public void setLocation(Point location) {
-		this.location = location;
+		if (location == null)
+			setLocation(0.0, Double.NaN);
+		else
+			setLocation(location.getX(), location.getY());
+	}
+
+	public void setLocation(double x, double y) {
+		this.x = x;
+		this.y = y;
+		this.location = null;
 	}
 
 	public ArrayList<String> getObjectText() {
@@ -120,28 +196,59 @@ public class DataObject {
 
 	public void setObjectText(ArrayList<String> objectText) {
 		this.objectText = objectText;
+		this.objectTextIds = null;
+	}
+
+	public int[] getObjectTextIds() {
+		if (objectText != null && (objectTextIds == null || !KeywordDictionary.getInstance().isCurrent(objectTextIds)))
+			objectTextIds = KeywordDictionary.getInstance().encode(objectText);
+		return objectTextIds;
+	}
+
+	public void setObjectTextIds(int[] objectTextIds) {
+		this.objectTextIds = objectTextIds;
+	}
+
+	public long getTextSignature() {
+		if (objectText != signedObjectText) {
+			textSignature = KeywordSignature.getSignature(objectText);
+			signedObjectText = objectText;
+		}
+		return textSignature;
 	}
 
 	public Long getTimeStamp() {
 		return timeStamp;
 	}
 
+	public long getTimeStampValue() {
+		return timeStamp;
+	}
+
 	public void setTimeStamp(Long timeStamp) {
+		this.timeStamp = timeStamp == null ? 0 : timeStamp.longValue();
+	}
+
+	public void setTimeStamp(long timeStamp) {
 		this.timeStamp = timeStamp;
 	}
 
 	public DataObject(Integer objectId, Point location, String originalText, Long timeStamp, Command command) {
-		super();
-	
-		this.objectId = objectId;
-		this.location = location;
+		this(objectId, location, originalText, TextHelpers.transformIntoSortedArrayListOfString(originalText), timeStamp, command);
+	}
+
+	/**
+	 * Creates an object whose originalText was already tokenized into objectText, 
+	 * e.g., by a TokenizationCache
+	 */
+	public DataObject(Integer objectId, Point location, String originalText, ArrayList<String> objectText, Long timeStamp, Command command) {
+		setObjectId(objectId);
+		setLocation(location);
 		this.originalText = originalText;
-		ArrayList<String> objectTextList = TextHelpers.transformIntoSortedArrayListOfString(originalText);
-		this.objectText=objectTextList;
-		this.timeStamp = timeStamp;
+		this.objectText = objectText;
+		setTimeStamp(timeStamp);
 		this.command = command;
-		this.added= false;
-		this.hashedText = new HashSet<String>();
+		this.added = false;
 	}
 	public Rectangle getRelevantArea() {
 		return relevantArea;
@@ -0,0 +1,183 @@
+/**
+ * Copyright Jul 5, 2015
+ * Author : Ahmed Mahmood
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.purdue.cs.tornado.messages;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+import edu.purdue.cs.tornado.helper.IndexCell;
+import edu.purdue.cs.tornado.helper.IndexCellCoordinates;
+import edu.purdue.cs.tornado.helper.Point;
+import edu.purdue.cs.tornado.helper.Rectangle;
+import edu.purdue.cs.tornado.index.local.hybridgrid.GridIndexCell;
+
+/**
+ * A block of grid index cells moved between evaluators by load balancing, kept
+ * in columns. Every query of the block is kept once in the query table and the
+ * cells refer to their queries by their position in the table. The stored data
+ * objects of the cells follow in cell order. The receiver rebuilds the cells
+ * and their inverted lists with getIndexCells().
+ */
+public class IndexCellBlock {
+	//estimated serialized sizes in bytes, used to bound the size of a block
+	public static final int ESTIMATED_CELL_SIZE = 48;
+	public static final int ESTIMATED_QUERY_SIZE = 64;
+	public static final int ESTIMATED_KEYWORD_SIZE = 6;
+	public static final int ESTIMATED_QUERY_REFERENCE_SIZE = 2;
+	public static final int ESTIMATED_OBJECT_SIZE = 40;
+
+	public ArrayList<Query> queries; //query table
+	public int cellCount;
+	public int[] x; //global coordinates of the cells
+	public int[] y;
+	public int[] indexCellCost;
+	public long[] minExpireTime;
+	public double[] bounds; //minX, minY, maxX, maxY of every cell
+	public int[] queryOffsets; //the queries of cell i are cellQueries[queryOffsets[i]] to cellQueries[queryOffsets[i+1]-1]
+	public int[] cellQueries; //positions in the query table
+	public ArrayList<DataObject> dataObjects; //stored objects of all cells, in cell order
+	public int[] objectOffsets; //the objects of cell i are dataObjects.get(objectOffsets[i]) to dataObjects.get(objectOffsets[i+1]-1)
+	private int estimatedSize;
+	private IdentityHashMap<Query, Integer> queryPositions; //only used while adding cells
+
+	public IndexCellBlock() {
+		this(new ArrayList<Query>(), 16, 64);
+	}
+
+	public IndexCellBlock(ArrayList<Query> queries, int cellCapacity, int cellQueriesCapacity) {
+		this.queries = queries;
+		this.cellCount = 0;
+		this.x = new int[cellCapacity];
+		this.y = new int[cellCapacity];
+		this.indexCellCost = new int[cellCapacity];
+		this.minExpireTime = new long[cellCapacity];
+		this.bounds = new double[4 * cellCapacity];
+		this.queryOffsets = new int[cellCapacity + 1];
+		this.cellQueries = new int[cellQueriesCapacity];
+		this.dataObjects = new ArrayList<DataObject>();
+		this.objectOffsets = new int[cellCapacity + 1];
+		this.estimatedSize = 0;
+	}
+
+	/**
+	 * Adds the cell and the queries of the cell that are not in the query table yet
+	 * 
+	 * @return the estimated serialized size of the block
+	 */
+	public int addIndexCell(IndexCell indexCell) {
+		if (queryPositions == null)
+			queryPositions = new IdentityHashMap<Query, Integer>();
+		ensureCellCapacity(cellCount + 1);
+		x[cellCount] = indexCell.getGlobalCoordinates().getX();
+		y[cellCount] = indexCell.getGlobalCoordinates().getY();
+		indexCellCost[cellCount] = indexCell.getIndexCellCost() == null ? 0 : indexCell.getIndexCellCost();
+		minExpireTime[cellCount] = indexCell.getMinExpireTime() == null ? Long.MAX_VALUE : indexCell.getMinExpireTime();
+		Rectangle cellBounds = indexCell.getBounds();
+		bounds[4 * cellCount] = cellBounds.getMin().getX();
+		bounds[4 * cellCount + 1] = cellBounds.getMin().getY();
+		bounds[4 * cellCount + 2] = cellBounds.getMax().getX();
+		bounds[4 * cellCount + 3] = cellBounds.getMax().getY();
+		estimatedSize += ESTIMATED_CELL_SIZE;
+		int cellQueryCount = queryOffsets[cellCount];
+		ArrayList<Query> storedQueries = indexCell.getStoredQueries();
+		if (storedQueries != null) {
+			ensureCellQueriesCapacity(cellQueryCount + storedQueries.size());
+			for (Query query : storedQueries) {
+				Integer position = queryPositions.get(query);
+				if (position == null) {
+					position = queries.size();
+					queries.add(query);
+					queryPositions.put(query, position);
+					estimatedSize += ESTIMATED_QUERY_SIZE + ESTIMATED_KEYWORD_SIZE * (query.getQueryText() == null ? 0 : query.getQueryText().size());
+				}
+				cellQueries[cellQueryCount++] = position;
+			}
+			estimatedSize += ESTIMATED_QUERY_REFERENCE_SIZE * storedQueries.size();
+		}
+		Integer dataObjectCount = indexCell.getDataObjectCount();
+		if (dataObjectCount != null && dataObjectCount > 0)
+			for (DataObject dataObject : indexCell.getStoredObjects()) {
+				dataObjects.add(dataObject);
+				estimatedSize += ESTIMATED_OBJECT_SIZE + ESTIMATED_KEYWORD_SIZE * (dataObject.getObjectText() == null ? 0 : dataObject.getObjectText().size());
+			}
+		cellCount++;
+		queryOffsets[cellCount] = cellQueryCount;
+		objectOffsets[cellCount] = dataObjects.size();
+		return estimatedSize;
+	}
+
+	/**
+	 * Builds the grid index cells of the block, cells that share a query share the query object
+	 */
+	public ArrayList<IndexCell> getIndexCells() {
+		ArrayList<IndexCell> indexCells = new ArrayList<IndexCell>(cellCount);
+		for (int i = 0; i < cellCount; i++) {
+			Rectangle cellBounds = new Rectangle(new Point(bounds[4 * i], bounds[4 * i + 1]), new Point(bounds[4 * i + 2], bounds[4 * i + 3]));
+			GridIndexCell indexCell = new GridIndexCell(cellBounds, false, 0, new IndexCellCoordinates(x[i], y[i]));
+			for (int j = queryOffsets[i]; j < queryOffsets[i + 1]; j++)
+				indexCell.addQuery(queries.get(cellQueries[j]));
+			for (int j = objectOffsets[i]; j < objectOffsets[i + 1]; j++)
+				indexCell.addDataObject(dataObjects.get(j));
+			indexCell.setIndexCellCost(indexCellCost[i]);
+			indexCell.setMinExpireTime(minExpireTime[i]);
+			indexCells.add(indexCell);
+		}
+		return indexCells;
+	}
+
+	public int getCellCount() {
+		return cellCount;
+	}
+
+	public ArrayList<Query> getQueries() {
+		return queries;
+	}
+
+	public int getCellQueryCount() {
+		return queryOffsets[cellCount];
+	}
+
+	public ArrayList<DataObject> getDataObjects() {
+		return dataObjects;
+	}
+
+	public int getEstimatedSize() {
+		return estimatedSize;
+	}
+
+	private void ensureCellCapacity(int capacity) {
+		if (capacity <= x.length)
+			return;
+		int newCapacity = Math.max(capacity, 2 * x.length);
+		x = Arrays.copyOf(x, newCapacity);
+		y = Arrays.copyOf(y, newCapacity);
+		indexCellCost = Arrays.copyOf(indexCellCost, newCapacity);
+		minExpireTime = Arrays.copyOf(minExpireTime, newCapacity);
+		bounds = Arrays.copyOf(bounds, 4 * newCapacity);
+		queryOffsets = Arrays.copyOf(queryOffsets, newCapacity + 1);
+		objectOffsets = Arrays.copyOf(objectOffsets, newCapacity + 1);
+	}
+
+	private void ensureCellQueriesCapacity(int capacity) {
+		if (capacity > cellQueries.length)
+			cellQueries = Arrays.copyOf(cellQueries, Math.max(capacity, 2 * cellQueries.length));
+	}
+}
@@ -8,6 +8,7 @@ import java.util.PriorityQueue;
 
 import edu.purdue.cs.tornado.helper.Command;
 import edu.purdue.cs.tornado.helper.DataObjectKNNComparator;
+import edu.purdue.cs.tornado.helper.KeywordDictionary;
 import edu.purdue.cs.tornado.helper.Point;
 import edu.purdue.cs.tornado.helper.QueryType;
 import edu.purdue.cs.tornado.helper.Rectangle;
@@ -28,6 +29,7 @@ public class JoinQuery extends Query {
 	private  Integer  k;
 	private  ArrayList<String>  queryText;
 	private  ArrayList<String>  queryText2;
+	private  int[] queryText2Ids;
 	private  Long    timeStamp;
 	private  Rectangle spatialRange;
 	private  String dataSrc;
@@ -162,6 +164,17 @@ public class JoinQuery extends Query {
 
 	public void setQueryText2(ArrayList<String> queryText2) {
 		this.queryText2 = queryText2;
+		this.queryText2Ids = null;
+	}
+
+	public int[] getQueryText2Ids() {
+		if (queryText2 != null && (queryText2Ids == null || !KeywordDictionary.getInstance().isCurrent(queryText2Ids)))
+			queryText2Ids = KeywordDictionary.getInstance().encode(queryText2);
+		return queryText2Ids;
+	}
+
+	public void setQueryText2Ids(int[] queryText2Ids) {
+		this.queryText2Ids = queryText2Ids;
 	}
 
 
@@ -280,7 +293,7 @@ public class JoinQuery extends Query {
 	
 	public synchronized ArrayList<ResultSetChange> processDataObject(DataObject dataObject) {
 		ArrayList<ResultSetChange> changes = new ArrayList<>();
-		boolean textualPredicateMatched = TextHelpers.evaluateTextualPredicate(dataObject.getObjectText(),queryText, textualPredicate);
+		boolean textualPredicateMatched = TextHelpers.evaluateTextualPredicate(dataObject.getObjectTextIds(),getQueryTextIds(), textualPredicate);
 		boolean topkMayHaveChanged = false;
 		// If the new location update corresponds to an object that is already in the top-k list.
 		if (this.currentRanks.containsKey(dataObject.getObjectId())) {
@@ -1,9 +1,11 @@
 package edu.purdue.cs.tornado.messages;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.PriorityQueue;
 
 import edu.purdue.cs.tornado.helper.Command;
@@ -279,7 +281,7 @@ public class KNNQuery extends Query {
 	
 	public synchronized ArrayList<ResultSetChange> processDataObject(DataObject dataObject) {
 		ArrayList<ResultSetChange> changes = new ArrayList<>();
-		boolean textualPredicateMatched = TextHelpers.evaluateTextualPredicate(dataObject.getObjectText(),queryText, textualPredicate);
+		boolean textualPredicateMatched = TextHelpers.evaluateTextualPredicate(dataObject.getObjectTextIds(),getQueryTextIds(), textualPredicate);
 		boolean topkMayHaveChanged = false;
 		// If the new location update corresponds to an object that is already in the top-k list.
 		if (this.currentRanks.containsKey(dataObject.getObjectId())) {
@@ -398,6 +400,32 @@ public class KNNQuery extends Query {
 		}
 		return KNNlist;
 	}
+	/**
+	 * @return the current top-k objects ordered by their rank, rank 1 first
+	 */
+	public ArrayList<DataObject> getRankedKNNList() {
+		DataObject[] rankedObjects = new DataObject[currentRanks.size()];
+		for (Map.Entry<Integer, Integer> rank : currentRanks.entrySet())
+			rankedObjects[rank.getValue() - 1] = currentObjects.get(rank.getKey());
+		return new ArrayList<DataObject>(Arrays.asList(rankedObjects));
+	}
+
+	/**
+	 * Restores the top-k list of a query moved from another evaluator, the objects 
+	 * keep the ranks of their positions in rankedObjects, repeated objects are skipped, 
+	 * the focal point must be set before
+	 */
+	public synchronized void setRankedKNNList(ArrayList<DataObject> rankedObjects) {
+		resetKNNStructures();
+		for (DataObject dataObject : rankedObjects) {
+			if (currentRanks.containsKey(dataObject.getObjectId()))
+				continue;
+			topKQueue.add(dataObject);
+			currentRanks.put(dataObject.getObjectId(), currentRanks.size() + 1);
+			currentObjects.put(dataObject.getObjectId(), new DataObject(dataObject));
+		}
+		calcFarthestDisatance();
+	}
 	public ArrayList<Integer> getPendingKNNTaskIds() {
 		return pendingTopKTaskIds;
 	}
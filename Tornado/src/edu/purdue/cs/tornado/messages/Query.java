@@ -20,8 +20,11 @@
 package edu.purdue.cs.tornado.messages;
 
 import java.util.ArrayList;
+import java.util.TreeSet;
 
 import edu.purdue.cs.tornado.helper.Command;
+import edu.purdue.cs.tornado.helper.KeywordDictionary;
+import edu.purdue.cs.tornado.helper.KeywordSignature;
 import edu.purdue.cs.tornado.helper.Point;
 import edu.purdue.cs.tornado.helper.QueryType;
 import edu.purdue.cs.tornado.helper.Rectangle;
@@ -38,6 +41,10 @@ public class Query {
 	public int expireTime;
 	protected QueryType queryType;
 	protected ArrayList<String> queryText;
+	protected int[] queryTextIds;//sorted term ids in the KeywordDictionary
+	protected ArrayList<String> encodedQueryText;//the keyword list queryTextIds were encoded from
+	protected long textSignature;//KeywordSignature of the query text
+	protected ArrayList<String> signedQueryText;//the keyword list textSignature was computed from
 	protected long timeStamp;
 	protected Rectangle spatialRange;
 	protected String dataSrc;
@@ -45,6 +52,8 @@ public class Query {
 	protected Command command;
 	protected TextualPredicate textualPredicate;
 	protected ArrayList<ArrayList<String>> complexQueryText; //ors of ands DNF
+	protected ArrayList<Query> conjunctionQueries; //one CONTAINS query per conjunction of complexQueryText
+	protected Query parentQuery; //the BOOLEAN_EXPR query of a conjunction query
 	public Long getRemoveTime() {
 		return removeTime;
 	}
@@ -150,6 +159,35 @@ public class Query {
 		this.queryText = queryText;
 	}
 
+	/**
+	 * getQueryText is overridden by KNNQuery and JoinQuery so the term ids are 
+	 * re-encoded whenever the keyword list returned by getQueryText changes or
+	 * the dictionary dropped its local terms
+	 * @return
+	 */
+	public int[] getQueryTextIds() {
+		ArrayList<String> text = getQueryText();
+		if (text != encodedQueryText || queryTextIds != null && !KeywordDictionary.getInstance().isCurrent(queryTextIds)) {
+			queryTextIds = KeywordDictionary.getInstance().encode(text);
+			encodedQueryText = text;
+		}
+		return queryTextIds;
+	}
+
+	public void setQueryTextIds(int[] queryTextIds) {
+		this.queryTextIds = queryTextIds;
+		this.encodedQueryText = getQueryText();
+	}
+
+	public long getTextSignature() {
+		ArrayList<String> text = getQueryText();
+		if (text != signedQueryText) {
+			textSignature = KeywordSignature.getSignature(text);
+			signedQueryText = text;
+		}
+		return textSignature;
+	}
+
 	public String getSrcId() {
 		return srcId;
 	}
@@ -172,6 +210,36 @@ public class Query {
 
 	public void setComplexQueryText(ArrayList<ArrayList<String>> complexQueryText) {
 		this.complexQueryText = complexQueryText;
+		this.conjunctionQueries = null;
+	}
+
+	/**
+	 * Splits a BOOLEAN_EXPR query into one CONTAINS query per non empty conjunction
+	 * of complexQueryText, the local indexes store these instead of the query.
+	 * The conjunction queries share the added flag and the ids of this query so an
+	 * object that satisfies several conjunctions is reported once for this query.
+	 * @return
+	 */
+	public ArrayList<Query> getConjunctionQueries() {
+		if (conjunctionQueries == null && complexQueryText != null) {
+			conjunctionQueries = new ArrayList<Query>(complexQueryText.size());
+			for (ArrayList<String> conjunction : complexQueryText) {
+				if (conjunction == null || conjunction.isEmpty())
+					continue;
+				Query conjunctionQuery = new Query(this);
+				conjunctionQuery.setQueryText(new ArrayList<String>(new TreeSet<String>(conjunction)));
+				conjunctionQuery.setTextualPredicate(TextualPredicate.CONTAINS);
+				conjunctionQuery.setRemoveTime(removeTime);
+				conjunctionQuery.expireTime = expireTime;
+				conjunctionQuery.parentQuery = this;
+				conjunctionQueries.add(conjunctionQuery);
+			}
+		}
+		return conjunctionQueries;
+	}
+
+	public Query getParentQuery() {
+		return parentQuery;
 	}
 
 	//	public Point getFocalPoint() {
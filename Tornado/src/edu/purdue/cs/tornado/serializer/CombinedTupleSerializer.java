@@ -31,7 +31,13 @@ import edu.purdue.cs.tornado.messages.CombinedTuple;
 import edu.purdue.cs.tornado.messages.DataObject;
 import edu.purdue.cs.tornado.messages.Query;
 
+/**
+ * The objects of dataObjectList, the matches of a query batched by an evaluator,
+ * are written with DataObjectSerializer with delta object ids followed by one
+ * command byte per object.
+ */
 public class CombinedTupleSerializer  extends  com.esotericsoftware.kryo.Serializer<CombinedTuple>{
+	private static final Command[] COMMANDS = Command.values();
 
 	@Override
 	public CombinedTuple read(Kryo kryo, Input input, Class<CombinedTuple> outputTupleCLass) {
@@ -44,6 +50,8 @@ public class CombinedTupleSerializer  extends  com.esotericsoftware.kryo.Seriali
 		outputTuple.setQuery(kryo.readObjectOrNull(input,Query.class));
 		outputTuple.setQueriesIdList(kryo.readObjectOrNull(input,ArrayList.class));
 		outputTuple.setQueryListSrcId(kryo.readObjectOrNull(input,String.class));
+		outputTuple.setDataObjectList(readDataObjects(kryo, input));
+		outputTuple.setDataObjectCommandList(readCommands(input));
 		return outputTuple;
 	}
 
@@ -57,6 +65,63 @@ public class CombinedTupleSerializer  extends  com.esotericsoftware.kryo.Seriali
 		kryo.writeObjectOrNull(output,outputTuple.getQuery(),Query.class);
 		kryo.writeObjectOrNull(output,outputTuple.getQueriesIdList(),ArrayList.class);
 		kryo.writeObjectOrNull(output,outputTuple.getQueryListSrcId(),String.class);
+		writeDataObjects(kryo, output, outputTuple.getDataObjectList());
+		writeCommands(output, outputTuple.getDataObjectCommandList());
+	}
+
+	//lists are written as their size plus one, zero is a null list 
+	private static void writeDataObjects(Kryo kryo, Output output, ArrayList<DataObject> dataObjects) {
+		if (dataObjects == null) {
+			output.writeInt(0, true);
+			return;
+		}
+		DataObjectSerializer dataObjectSerializer = getDataObjectSerializer(kryo);
+		output.writeInt(dataObjects.size() + 1, true);
+		int previousObjectId = 0;
+		for (int i = 0; i < dataObjects.size(); i++) {
+			DataObject dataObject = dataObjects.get(i);
+			dataObjectSerializer.write(output, dataObject, previousObjectId);
+			previousObjectId = dataObject.getObjectIdValue();
+		}
+	}
+
+	private static ArrayList<DataObject> readDataObjects(Kryo kryo, Input input) {
+		int size = input.readInt(true) - 1;
+		if (size < 0)
+			return null;
+		DataObjectSerializer dataObjectSerializer = getDataObjectSerializer(kryo);
+		ArrayList<DataObject> dataObjects = new ArrayList<DataObject>(size);
+		int previousObjectId = 0;
+		for (int i = 0; i < size; i++) {
+			DataObject dataObject = dataObjectSerializer.read(input, previousObjectId);
+			previousObjectId = dataObject.getObjectIdValue();
+			dataObjects.add(dataObject);
+		}
+		return dataObjects;
+	}
+
+	private static void writeCommands(Output output, ArrayList<Command> commands) {
+		if (commands == null) {
+			output.writeInt(0, true);
+			return;
+		}
+		output.writeInt(commands.size() + 1, true);
+		for (int i = 0; i < commands.size(); i++)
+			output.writeByte(commands.get(i).ordinal());
+	}
+
+	private static ArrayList<Command> readCommands(Input input) {
+		int size = input.readInt(true) - 1;
+		if (size < 0)
+			return null;
+		ArrayList<Command> commands = new ArrayList<Command>(size);
+		for (int i = 0; i < size; i++)
+			commands.add(COMMANDS[input.readByte()]);
+		return commands;
+	}
+
+	private static DataObjectSerializer getDataObjectSerializer(Kryo kryo) {
+		return (DataObjectSerializer) kryo.getRegistration(DataObject.class).getSerializer();
 	}
 
 }
@@ -30,6 +30,7 @@ import edu.purdue.cs.tornado.helper.IndexCell;
 import edu.purdue.cs.tornado.loadbalance.LoadBalanceMessage;
 import edu.purdue.cs.tornado.messages.Control;
 import edu.purdue.cs.tornado.messages.DataObject;
+import edu.purdue.cs.tornado.messages.IndexCellBlock;
 import edu.purdue.cs.tornado.messages.Query;
 //TODO change to support all null values
 public class ControlSerializer extends  com.esotericsoftware.kryo.Serializer<Control> {
@@ -50,9 +51,9 @@ public class ControlSerializer extends  com.esotericsoftware.kryo.Serializer<Con
 		control.setTextSummery( kryo.readObjectOrNull(input,HashSet.class));
 		control.setTextSummeryTaskIdList(kryo.readObjectOrNull(input,ArrayList.class));
 		control.setTextSummaryTimeStamp(kryo.readObjectOrNull(input,Long.class));
-		control.setTextSummaryTimeStamp(kryo.readObjectOrNull(input,Long.class));
 		control.setForwardTextIndexTaskIndex(kryo.readObjectOrNull(input,Integer.class));
 		control.setForwardTextSummeryFromGlobalIndex(kryo.readObjectOrNull(input, ArrayList.class));
+		control.setIndexCellBlock(kryo.readObjectOrNull(input, IndexCellBlock.class));
 		return control;
 	}
 
@@ -73,6 +74,7 @@ public class ControlSerializer extends  com.esotericsoftware.kryo.Serializer<Con
 		kryo.writeObjectOrNull(output,control.getTextSummaryTimeStamp(),Long.class);
 		kryo.writeObjectOrNull(output,control.getForwardTextIndexTaskIndex(),Integer.class);
 		kryo.writeObjectOrNull(output,control.getForwardTextSummeryFromGlobalIndex(),ArrayList.class);
+		kryo.writeObjectOrNull(output,control.getIndexCellBlock(),IndexCellBlock.class);
 	}
 
 	
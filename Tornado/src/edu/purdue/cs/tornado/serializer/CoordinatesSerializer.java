@@ -0,0 +1,67 @@
+/**
+ * Copyright Jul 5, 2015
+ * Author : Ahmed Mahmood
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.purdue.cs.tornado.serializer;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Writes coordinates as full doubles, as floats, or as fixed point varints with
+ * FIXED_POINT_SCALE steps per unit. The encoding is chosen by the writer
+ * (SpatioTextualConstants.COORDINATE_ENCODING) and travels in the flags of
+ * the enclosing message, so readers do not need the configuration.
+ */
+public class CoordinatesSerializer {
+	public static final int DOUBLE = 0;
+	public static final int FLOAT = 1;
+	public static final int FIXED_POINT = 2;
+	public static final double FIXED_POINT_SCALE = 100.0;
+
+	/**
+	 * @param encoding DOUBLE, FLOAT or FIXED_POINT as a name from the configuration, null gives DOUBLE
+	 */
+	public static int getEncoding(String encoding) {
+		if (encoding == null || encoding.equalsIgnoreCase("double"))
+			return DOUBLE;
+		if (encoding.equalsIgnoreCase("float"))
+			return FLOAT;
+		if (encoding.equalsIgnoreCase("fixed") || encoding.equalsIgnoreCase("fixed_point"))
+			return FIXED_POINT;
+		throw new IllegalArgumentException("Unknown coordinate encoding " + encoding);
+	}
+
+	public static void write(Output output, double value, int encoding) {
+		if (encoding == FLOAT)
+			output.writeFloat((float) value);
+		else if (encoding == FIXED_POINT)
+			output.writeLong(Math.round(value * FIXED_POINT_SCALE), false);
+		else
+			output.writeDouble(value);
+	}
+
+	public static double read(Input input, int encoding) {
+		if (encoding == FLOAT)
+			return input.readFloat();
+		else if (encoding == FIXED_POINT)
+			return input.readLong(false) / FIXED_POINT_SCALE;
+		else
+			return input.readDouble();
+	}
+}
@@ -27,17 +27,22 @@ import com.esotericsoftware.kryo.io.Output;
 
 import edu.purdue.cs.tornado.messages.DataObject;
 import edu.purdue.cs.tornado.messages.DataObjectList;
-//TODO change to support all null values
+/**
+ * Writes the objects of the list with DataObjectSerializer, object ids are delta
+ * encoded against the previous object, consecutive spout ids take one byte.
+ */
 public class DataObjectListSerializer extends com.esotericsoftware.kryo.Serializer<DataObjectList>{
 
 	@Override
 	public DataObjectList read(Kryo kryo, Input input, Class<DataObjectList> dataObjectListClass) {
 		DataObjectList dataObjectList= new DataObjectList();
-		ArrayList<DataObject> dataObjects = new ArrayList<DataObject>();
-		int size = input.readInt();
+		DataObjectSerializer dataObjectSerializer = getDataObjectSerializer(kryo);
+		int size = input.readInt(true);
+		ArrayList<DataObject> dataObjects = new ArrayList<DataObject>(size);
+		int previousObjectId = 0;
 		for (int i =0 ;i< size;i++){
-			DataObject dataObject = new DataObject();
-			dataObject=kryo.readObject(input, DataObject.class);
+			DataObject dataObject = dataObjectSerializer.read(input, previousObjectId);
+			previousObjectId = dataObject.getObjectIdValue();
 			dataObjects.add(dataObject);
 		}
 			
@@ -47,13 +52,22 @@ public class DataObjectListSerializer extends com.esotericsoftware.kryo.Serializ
 
 	@Override
 	public void write(Kryo kryo, Output output, DataObjectList dataObjectList) {
+		DataObjectSerializer dataObjectSerializer = getDataObjectSerializer(kryo);
 		int size =0;
 		if (dataObjectList.getDataObjects()!=null)
 			size =dataObjectList.getDataObjects().size();
-		output.writeInt(size);
-		for(int i =0;i<size;i++)
-			kryo.writeObject(output, dataObjectList.getDataObjects().get(i));
+		output.writeInt(size, true);
+		int previousObjectId = 0;
+		for(int i =0;i<size;i++){
+			DataObject dataObject = dataObjectList.getDataObjects().get(i);
+			dataObjectSerializer.write(output, dataObject, previousObjectId);
+			previousObjectId = dataObject.getObjectIdValue();
+		}
 		
 	}
 
+	private static DataObjectSerializer getDataObjectSerializer(Kryo kryo) {
+		return (DataObjectSerializer) kryo.getRegistration(DataObject.class).getSerializer();
+	}
+
 }
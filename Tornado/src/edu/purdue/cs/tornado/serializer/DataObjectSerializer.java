@@ -19,48 +19,86 @@
  */
 package edu.purdue.cs.tornado.serializer;
 
-import java.util.ArrayList;
-
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 
 import edu.purdue.cs.tornado.helper.Command;
-import edu.purdue.cs.tornado.helper.Point;
-import edu.purdue.cs.tornado.helper.Rectangle;
 import edu.purdue.cs.tornado.messages.DataObject;
-//TODO change to support all null values
+
+/**
+ * Compact data object format: a flags byte, the source handle, the object id as
+ * a zigzag varint, the coordinates in the configured encoding, the keywords as
+ * term ids and the command ordinal. Lists write the object id as the delta to
+ * the previous object of the list.
+ */
 public class DataObjectSerializer extends  com.esotericsoftware.kryo.Serializer<DataObject>{
+	private static final int LOCATION = 1;
+	private static final int COMMAND = 2;
+	private static final int COORDINATE_ENCODING_SHIFT = 2; //2 bits
+	private static final Command[] COMMANDS = Command.values();
 
+	private int coordinateEncoding = CoordinatesSerializer.DOUBLE;
 
+	public int getCoordinateEncoding() {
+		return coordinateEncoding;
+	}
+
+	public void setCoordinateEncoding(int coordinateEncoding) {
+		this.coordinateEncoding = coordinateEncoding;
+	}
 
 	@Override
 	public DataObject read(Kryo kryo, Input input, Class<DataObject> dataObjectClass) {
-		DataObject dataObject = new DataObject();
-		dataObject.setSrcId(kryo.readObjectOrNull(input, String.class));
-		dataObject.setObjectId(kryo.readObjectOrNull(input, Integer.class));
-		dataObject.setLocation(kryo.readObjectOrNull(input, Point.class));
-		dataObject.setObjectText(kryo.readObjectOrNull(input, ArrayList.class));
-		//dataObject.setOriginalText(kryo.readObjectOrNull(input, String.class));
-		//dataObject.setTimeStamp(kryo.readObjectOrNull(input, Long.class));
-		//dataObject.setRelevantArea(kryo.readObjectOrNull(input, Rectangle.class));
-		dataObject.setCommand(kryo.readObjectOrNull(input, Command.class));
-		
-		return dataObject;
+		return read(input, 0);
 	}
 
 	@Override
 	public void write(Kryo kryo, Output output, DataObject dataObject) {
-		kryo.writeObjectOrNull(output,dataObject.getSrcId(),String.class);
-		kryo.writeObjectOrNull(output,dataObject.getObjectId(),Integer.class);
-		kryo.writeObjectOrNull(output,dataObject.getLocation(),Point.class);
-		kryo.writeObjectOrNull(output,dataObject.getObjectText(),ArrayList.class);
-		//kryo.writeObjectOrNull(output,dataObject.getOriginalText(),String.class);
-		//kryo.writeObjectOrNull(output,dataObject.getTimeStamp(),Long.class);
-		//kryo.writeObjectOrNull(output,dataObject.getRelevantArea(),Rectangle.class);
-		kryo.writeObjectOrNull(output,dataObject.getCommand(),Command.class);
+		write(output, dataObject, 0);
+	}
 
-		
+	/**
+	 * @param previousObjectId the object id is written as the difference to this id
+	 */
+	public void write(Output output, DataObject dataObject, int previousObjectId) {
+		int flags = coordinateEncoding << COORDINATE_ENCODING_SHIFT;
+		if (!Double.isNaN(dataObject.getY()))
+			flags |= LOCATION;
+		if (dataObject.getCommand() != null)
+			flags |= COMMAND;
+		output.writeByte(flags);
+		SourceIdSerializer.write(output, dataObject.getSrcId());
+		output.writeInt(dataObject.getObjectIdValue() - previousObjectId, false);
+		if ((flags & LOCATION) != 0) {
+			CoordinatesSerializer.write(output, dataObject.getX(), coordinateEncoding);
+			CoordinatesSerializer.write(output, dataObject.getY(), coordinateEncoding);
+		}
+		KeywordsSerializer.write(output, dataObject.getObjectText());
+		//original text, time stamp and relevant area are not sent
+		if ((flags & COMMAND) != 0)
+			output.writeByte(dataObject.getCommand().ordinal());
+	}
+
+	public DataObject read(Input input, int previousObjectId) {
+		DataObject dataObject = new DataObject();
+		int flags = input.readByte();
+		SourceIdSerializer.read(input, dataObject);
+		dataObject.setObjectId(previousObjectId + input.readInt(false));
+		if ((flags & LOCATION) != 0) {
+			int encoding = (flags >>> COORDINATE_ENCODING_SHIFT) & 3;
+			double x = CoordinatesSerializer.read(input, encoding);
+			double y = CoordinatesSerializer.read(input, encoding);
+			dataObject.setLocation(x, y);
+		} else {
+			dataObject.setLocation(null);
+		}
+		KeywordsSerializer.EncodedKeywords objectText = KeywordsSerializer.read(input);
+		dataObject.setObjectText(objectText.keywords);
+		dataObject.setObjectTextIds(objectText.termIds);
+		if ((flags & COMMAND) != 0)
+			dataObject.setCommand(COMMANDS[input.readByte()]);
+		return dataObject;
 	}
 
 }
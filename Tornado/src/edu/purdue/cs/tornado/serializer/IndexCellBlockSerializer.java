@@ -0,0 +1,106 @@
+/**
+ * Copyright Jul 5, 2015
+ * Author : Ahmed Mahmood
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.purdue.cs.tornado.serializer;
+
+import java.util.ArrayList;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import edu.purdue.cs.tornado.messages.DataObject;
+import edu.purdue.cs.tornado.messages.IndexCellBlock;
+import edu.purdue.cs.tornado.messages.Query;
+
+/**
+ * Writes the query table once, each query with its registered serializer, then
+ * the cells column by column: coordinates, costs, expire times, bounds, the
+ * number of queries of every cell and the query table positions, and last the
+ * number of stored objects of every cell and the objects.
+ */
+public class IndexCellBlockSerializer extends com.esotericsoftware.kryo.Serializer<IndexCellBlock> {
+
+	@Override
+	public IndexCellBlock read(Kryo kryo, Input input, Class<IndexCellBlock> indexCellBlockClass) {
+		int queryCount = input.readInt(true);
+		ArrayList<Query> queries = new ArrayList<Query>(queryCount);
+		for (int i = 0; i < queryCount; i++)
+			queries.add((Query) kryo.readClassAndObject(input));
+		int cellCount = input.readInt(true);
+		int cellQueryCount = input.readInt(true);
+		IndexCellBlock indexCellBlock = new IndexCellBlock(queries, cellCount, cellQueryCount);
+		for (int i = 0; i < cellCount; i++)
+			indexCellBlock.x[i] = input.readInt(true);
+		for (int i = 0; i < cellCount; i++)
+			indexCellBlock.y[i] = input.readInt(true);
+		for (int i = 0; i < cellCount; i++)
+			indexCellBlock.indexCellCost[i] = input.readInt(true);
+		for (int i = 0; i < cellCount; i++)
+			indexCellBlock.minExpireTime[i] = input.readBoolean() ? input.readLong(true) : Long.MAX_VALUE;
+		for (int i = 0; i < 4 * cellCount; i++)
+			indexCellBlock.bounds[i] = input.readDouble();
+		for (int i = 0; i < cellCount; i++)
+			indexCellBlock.queryOffsets[i + 1] = indexCellBlock.queryOffsets[i] + input.readInt(true);
+		for (int i = 0; i < cellQueryCount; i++)
+			indexCellBlock.cellQueries[i] = input.readInt(true);
+		for (int i = 0; i < cellCount; i++)
+			indexCellBlock.objectOffsets[i + 1] = indexCellBlock.objectOffsets[i] + input.readInt(true);
+		for (int i = 0; i < indexCellBlock.objectOffsets[cellCount]; i++)
+			indexCellBlock.dataObjects.add(kryo.readObject(input, DataObject.class));
+		indexCellBlock.cellCount = cellCount;
+		return indexCellBlock;
+	}
+
+	@Override
+	public void write(Kryo kryo, Output output, IndexCellBlock indexCellBlock) {
+		ArrayList<Query> queries = indexCellBlock.getQueries();
+		output.writeInt(queries.size(), true);
+		for (int i = 0; i < queries.size(); i++)
+			kryo.writeClassAndObject(output, queries.get(i));
+		int cellCount = indexCellBlock.getCellCount();
+		int cellQueryCount = indexCellBlock.getCellQueryCount();
+		output.writeInt(cellCount, true);
+		output.writeInt(cellQueryCount, true);
+		for (int i = 0; i < cellCount; i++)
+			output.writeInt(indexCellBlock.x[i], true);
+		for (int i = 0; i < cellCount; i++)
+			output.writeInt(indexCellBlock.y[i], true);
+		for (int i = 0; i < cellCount; i++)
+			output.writeInt(indexCellBlock.indexCellCost[i], true);
+		for (int i = 0; i < cellCount; i++) {
+			long minExpireTime = indexCellBlock.minExpireTime[i];
+			output.writeBoolean(minExpireTime != Long.MAX_VALUE);
+			if (minExpireTime != Long.MAX_VALUE)
+				output.writeLong(minExpireTime, true);
+		}
+		for (int i = 0; i < 4 * cellCount; i++)
+			output.writeDouble(indexCellBlock.bounds[i]);
+		for (int i = 0; i < cellCount; i++)
+			output.writeInt(indexCellBlock.queryOffsets[i + 1] - indexCellBlock.queryOffsets[i], true);
+		for (int i = 0; i < cellQueryCount; i++)
+			output.writeInt(indexCellBlock.cellQueries[i], true);
+		for (int i = 0; i < cellCount; i++)
+			output.writeInt(indexCellBlock.objectOffsets[i + 1] - indexCellBlock.objectOffsets[i], true);
+		ArrayList<DataObject> dataObjects = indexCellBlock.getDataObjects();
+		for (int i = 0; i < indexCellBlock.objectOffsets[cellCount]; i++)
+			kryo.writeObject(output, dataObjects.get(i));
+	}
+
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright Jul 5, 2015
+ * Author : Ahmed Mahmood
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.purdue.cs.tornado.serializer;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import edu.purdue.cs.tornado.helper.TextualPredicate;
+import edu.purdue.cs.tornado.messages.JoinQuery;
+
+/**
+ * Writes the query fields with the registered QuerySerializer followed by the second 
+ * source id, the join distance, the second keyword list and the textual predicates 
+ * of the second source and of the join.
+ */
+public class JoinQuerySerializer extends com.esotericsoftware.kryo.Serializer<JoinQuery> {
+	private static final int DISTANCE = 1;
+	private static final int TEXTUAL_PREDICATE2 = 1 << 1;
+	private static final int JOIN_TEXTUAL_PREDICATE = 1 << 2;
+	private static final int COORDINATE_ENCODING_SHIFT = 3; //2 bits
+	private static final TextualPredicate[] TEXTUAL_PREDICATES = TextualPredicate.values();
+
+	@Override
+	public JoinQuery read(Kryo kryo, Input input, Class<JoinQuery> joinQueryClass) {
+		JoinQuery query = new JoinQuery();
+		QuerySerializer.getQuerySerializer(kryo).readFields(input, query);
+		int flags = input.readInt(true);
+		query.setDataSrc2(SourceIdSerializer.read(input));
+		if ((flags & DISTANCE) != 0)
+			query.setDistance(CoordinatesSerializer.read(input, (flags >>> COORDINATE_ENCODING_SHIFT) & 3));
+		KeywordsSerializer.EncodedKeywords queryText2 = KeywordsSerializer.read(input);
+		query.setQueryText2(queryText2.keywords);
+		query.setQueryText2Ids(queryText2.termIds);
+		if ((flags & TEXTUAL_PREDICATE2) != 0)
+			query.setTextualPredicate2(TEXTUAL_PREDICATES[input.readByte()]);
+		if ((flags & JOIN_TEXTUAL_PREDICATE) != 0)
+			query.setJoinTextualPredicate(TEXTUAL_PREDICATES[input.readByte()]);
+		return query;
+	}
+
+	@Override
+	public void write(Kryo kryo, Output output, JoinQuery query) {
+		QuerySerializer querySerializer = QuerySerializer.getQuerySerializer(kryo);
+		querySerializer.writeFields(output, query);
+		int encoding = querySerializer.getCoordinateEncoding();
+		int flags = encoding << COORDINATE_ENCODING_SHIFT;
+		if (query.getDistance() != null)
+			flags |= DISTANCE;
+		if (query.getTextualPredicate2() != null)
+			flags |= TEXTUAL_PREDICATE2;
+		if (query.getJoinTextualPredicate() != null)
+			flags |= JOIN_TEXTUAL_PREDICATE;
+		output.writeInt(flags, true);
+		SourceIdSerializer.write(output, query.getDataSrc2());
+		if ((flags & DISTANCE) != 0)
+			CoordinatesSerializer.write(output, query.getDistance(), encoding);
+		KeywordsSerializer.write(output, query.getQueryText2());
+		if ((flags & TEXTUAL_PREDICATE2) != 0)
+			output.writeByte(query.getTextualPredicate2().ordinal());
+		if ((flags & JOIN_TEXTUAL_PREDICATE) != 0)
+			output.writeByte(query.getJoinTextualPredicate().ordinal());
+	}
+}
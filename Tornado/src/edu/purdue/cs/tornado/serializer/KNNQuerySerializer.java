@@ -0,0 +1,112 @@
+/**
+ * Copyright Jul 5, 2015
+ * Author : Ahmed Mahmood
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.purdue.cs.tornado.serializer;
+
+import java.util.ArrayList;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import edu.purdue.cs.tornado.helper.Point;
+import edu.purdue.cs.tornado.messages.DataObject;
+import edu.purdue.cs.tornado.messages.KNNQuery;
+
+/**
+ * Writes the query fields with the registered QuerySerializer followed by k, the focal 
+ * point, the distance and the current top-k objects in rank order, the ranks are not 
+ * written as they are the positions of the objects. Iterators and pending task ids are 
+ * local to the evaluator and are not sent.
+ */
+public class KNNQuerySerializer extends com.esotericsoftware.kryo.Serializer<KNNQuery> {
+	private static final int K = 1;
+	private static final int FOCAL_POINT = 1 << 1;
+	private static final int DISTANCE = 1 << 2;
+	private static final int CONTINOUS_QUERY = 1 << 3;
+	private static final int CONTINOUS_QUERY_VALUE = 1 << 4;
+	private static final int COORDINATE_ENCODING_SHIFT = 5; //2 bits
+
+	@Override
+	public KNNQuery read(Kryo kryo, Input input, Class<KNNQuery> knnQueryClass) {
+		KNNQuery query = new KNNQuery();
+		QuerySerializer.getQuerySerializer(kryo).readFields(input, query);
+		int flags = input.readInt(true);
+		int encoding = (flags >>> COORDINATE_ENCODING_SHIFT) & 3;
+		if ((flags & K) != 0)
+			query.setK(input.readInt(true));
+		if ((flags & FOCAL_POINT) != 0)
+			query.setFocalPoint(new Point(CoordinatesSerializer.read(input, encoding), CoordinatesSerializer.read(input, encoding)));
+		else
+			query.setFocalPoint(null);
+		if ((flags & DISTANCE) != 0)
+			query.setDistance(CoordinatesSerializer.read(input, encoding));
+		if ((flags & CONTINOUS_QUERY) != 0)
+			query.setContinousQuery((flags & CONTINOUS_QUERY_VALUE) != 0);
+		DataObjectSerializer dataObjectSerializer = getDataObjectSerializer(kryo);
+		int size = input.readInt(true);
+		ArrayList<DataObject> rankedObjects = new ArrayList<DataObject>(size);
+		int previousObjectId = 0;
+		for (int i = 0; i < size; i++) {
+			DataObject dataObject = dataObjectSerializer.read(input, previousObjectId);
+			previousObjectId = dataObject.getObjectIdValue();
+			rankedObjects.add(dataObject);
+		}
+		query.setRankedKNNList(rankedObjects);
+		return query;
+	}
+
+	@Override
+	public void write(Kryo kryo, Output output, KNNQuery query) {
+		QuerySerializer querySerializer = QuerySerializer.getQuerySerializer(kryo);
+		querySerializer.writeFields(output, query);
+		int encoding = querySerializer.getCoordinateEncoding();
+		int flags = encoding << COORDINATE_ENCODING_SHIFT;
+		if (query.getK() != null)
+			flags |= K;
+		if (query.getFocalPoint() != null)
+			flags |= FOCAL_POINT;
+		if (query.getDistance() != null)
+			flags |= DISTANCE;
+		if (query.getContinousQuery() != null)
+			flags |= query.getContinousQuery() ? CONTINOUS_QUERY | CONTINOUS_QUERY_VALUE : CONTINOUS_QUERY;
+		output.writeInt(flags, true);
+		if ((flags & K) != 0)
+			output.writeInt(query.getK(), true);
+		if ((flags & FOCAL_POINT) != 0) {
+			CoordinatesSerializer.write(output, query.getFocalPoint().getX(), encoding);
+			CoordinatesSerializer.write(output, query.getFocalPoint().getY(), encoding);
+		}
+		if ((flags & DISTANCE) != 0)
+			CoordinatesSerializer.write(output, query.getDistance(), encoding);
+		DataObjectSerializer dataObjectSerializer = getDataObjectSerializer(kryo);
+		ArrayList<DataObject> rankedObjects = query.getRankedKNNList();
+		output.writeInt(rankedObjects.size(), true);
+		int previousObjectId = 0;
+		for (int i = 0; i < rankedObjects.size(); i++) {
+			DataObject dataObject = rankedObjects.get(i);
+			dataObjectSerializer.write(output, dataObject, previousObjectId);
+			previousObjectId = dataObject.getObjectIdValue();
+		}
+	}
+
+	private static DataObjectSerializer getDataObjectSerializer(Kryo kryo) {
+		return (DataObjectSerializer) kryo.getRegistration(DataObject.class).getSerializer();
+	}
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright Jul 5, 2015
+ * Author : Ahmed Mahmood
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.purdue.cs.tornado.serializer;
+
+import java.util.HashMap;
+import java.util.Map.Entry;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import edu.purdue.cs.tornado.helper.KeywordSketchStatistics;
+
+/**
+ * Writes the counters of KeywordSketchStatistics as varints, rows with many
+ * empty counters take about one byte per counter, and the frequent keywords
+ * as strings with their counts.
+ */
+public class KeywordSketchStatisticsSerializer {
+
+	public static void write(Output output, KeywordSketchStatistics statistics) {
+		int[][] counts = statistics.getCounts();
+		output.writeInt(counts.length, true);
+		output.writeInt(counts[0].length, true);
+		for (int[] row : counts)
+			for (int count : row)
+				output.writeInt(count, true);
+		HashMap<String, Integer> topKeywords = statistics.getTopKeywordCounts();
+		output.writeInt(topKeywords.size(), true);
+		for (Entry<String, Integer> e : topKeywords.entrySet()) {
+			output.writeString(e.getKey());
+			output.writeInt(e.getValue(), true);
+		}
+		output.writeInt(statistics.getTopK(), true);
+		output.writeInt(statistics.getDecayInterval(), true);
+		output.writeInt(statistics.getUpdatesSinceDecay(), true);
+	}
+
+	public static KeywordSketchStatistics read(Input input) {
+		int[][] counts = new int[input.readInt(true)][input.readInt(true)];
+		for (int[] row : counts)
+			for (int i = 0; i < row.length; i++)
+				row[i] = input.readInt(true);
+		int size = input.readInt(true);
+		HashMap<String, Integer> topKeywords = new HashMap<String, Integer>(size * 2);
+		for (int i = 0; i < size; i++) {
+			String keyword = input.readString();
+			topKeywords.put(keyword, input.readInt(true));
+		}
+		int topK = input.readInt(true);
+		int decayInterval = input.readInt(true);
+		return new KeywordSketchStatistics(counts, topKeywords, topK, decayInterval, input.readInt(true));
+	}
+}
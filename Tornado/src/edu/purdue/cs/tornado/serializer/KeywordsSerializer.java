@@ -0,0 +1,91 @@
+/**
+ * Copyright Jul 5, 2015
+ * Author : Ahmed Mahmood
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.purdue.cs.tornado.serializer;
+
+import java.util.ArrayList;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import edu.purdue.cs.tornado.helper.KeywordDictionary;
+
+/**
+ * Writes keyword lists as term ids of the KeywordDictionary. Terms shared by all
+ * workers are written as varint ids, other terms are written as strings and are
+ * added to the dictionary of the reading worker.
+ * The keyword order of the list is kept as is.
+ */
+public class KeywordsSerializer {
+	private static final int LITERAL_TERM = 1;
+
+	public static void write(Output output, ArrayList<String> keywords) {
+		if (keywords == null) {
+			output.writeInt(0, true);
+			return;
+		}
+		KeywordDictionary dictionary = KeywordDictionary.getInstance();
+		output.writeInt(keywords.size() + 1, true);
+		for (int i = 0; i < keywords.size(); i++) {
+			String keyword = keywords.get(i);
+			int termId = dictionary.getTermId(keyword);
+			if (termId >= 0 && dictionary.isShared(termId)) {
+				output.writeInt(termId << 1, true);
+			} else {
+				output.writeInt(LITERAL_TERM, true);
+				output.writeString(keyword);
+			}
+		}
+	}
+
+	public static EncodedKeywords read(Input input) {
+		int size = input.readInt(true) - 1;
+		if (size < 0)
+			return new EncodedKeywords(null, null);
+		KeywordDictionary dictionary = KeywordDictionary.getInstance();
+		int generation = dictionary.getGeneration();
+		ArrayList<String> keywords = new ArrayList<String>(size);
+		int[] termIds = new int[size];
+		for (int i = 0; i < size; i++) {
+			int tag = input.readInt(true);
+			if (tag == LITERAL_TERM) {
+				String keyword = input.readString();
+				keywords.add(keyword);
+				termIds[i] = dictionary.getOrAddTermId(keyword);
+			} else {
+				termIds[i] = tag >>> 1;
+				keywords.add(dictionary.getTerm(termIds[i]));
+			}
+		}
+		if (generation != dictionary.getGeneration())
+			//the local terms were dropped while the literal terms were added
+			return new EncodedKeywords(keywords, dictionary.encode(keywords));
+		return new EncodedKeywords(keywords, KeywordDictionary.sortDistinct(termIds, size));
+	}
+
+	public static class EncodedKeywords {
+		public final ArrayList<String> keywords;
+		public final int[] termIds;
+
+		public EncodedKeywords(ArrayList<String> keywords, int[] termIds) {
+			this.keywords = keywords;
+			this.termIds = termIds;
+		}
+	}
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright Jul 5, 2015
+ * Author : Ahmed Mahmood
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.purdue.cs.tornado.serializer;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import edu.purdue.cs.tornado.helper.IndexCellCoordinates;
+import edu.purdue.cs.tornado.helper.Point;
+import edu.purdue.cs.tornado.helper.Rectangle;
+import edu.purdue.cs.tornado.index.local.hybridgrid.GridIndexCell;
+import edu.purdue.cs.tornado.loadbalance.Cell;
+import edu.purdue.cs.tornado.loadbalance.LoadBalanceMessage;
+import edu.purdue.cs.tornado.loadbalance.Partition;
+import edu.purdue.cs.tornado.messages.CombinedTuple;
+import edu.purdue.cs.tornado.messages.Control;
+import edu.purdue.cs.tornado.messages.DataObject;
+import edu.purdue.cs.tornado.messages.DataObjectList;
+import edu.purdue.cs.tornado.messages.IndexCellBlock;
+import edu.purdue.cs.tornado.messages.JoinQuery;
+import edu.purdue.cs.tornado.messages.KNNQuery;
+import edu.purdue.cs.tornado.messages.Query;
+import edu.purdue.cs.tornado.messages.ResultSetChange;
+
+/**
+ * Worker wide pool of Kryo instances for serialization outside of the Storm
+ * transport, such as copies of the index and load balancing structures,
+ * ZooKeeper statistics and checkpoints. Every instance has the serializers of
+ * the topology registered and keeps its own Output and Input buffers, which are
+ * reused by the next borrower. Kryo instances are not thread safe, a borrowed
+ * instance is used by one thread until it is released.
+ * 
+ * Coordinates are written as doubles, so copies are exact.
+ */
+public class KryoPool {
+	private static final KryoPool instance = new KryoPool();
+	public static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+	//buffers that grew beyond this size are not kept by the pool
+	public static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+
+	private final ConcurrentLinkedQueue<PooledKryo> pool;
+
+	/**
+	 * A Kryo instance with its buffers
+	 */
+	public static class PooledKryo {
+		public final Kryo kryo;
+		public Output output;
+		public final Input input;
+
+		PooledKryo() {
+			this.kryo = new Kryo();
+			registerSerializers(kryo);
+			this.output = new Output(INITIAL_BUFFER_SIZE, -1);
+			this.input = new Input();
+		}
+
+		/**
+		 * @return the output buffer, cleared
+		 */
+		public Output getOutput() {
+			output.clear();
+			return output;
+		}
+
+		/**
+		 * @return the input buffer reading the bytes written to the output buffer
+		 */
+		public Input getInputFromOutput() {
+			input.setBuffer(output.getBuffer(), 0, output.position());
+			return input;
+		}
+
+		/**
+		 * @return the input buffer reading bytes
+		 */
+		public Input getInput(byte[] bytes) {
+			input.setBuffer(bytes);
+			return input;
+		}
+	}
+
+	public static KryoPool getInstance() {
+		return instance;
+	}
+
+	public KryoPool() {
+		this.pool = new ConcurrentLinkedQueue<PooledKryo>();
+	}
+
+	/**
+	 * Registers the serializers of the topology, in the same order as
+	 * SpatioTextualToplogySubmitter
+	 */
+	public static void registerSerializers(Kryo kryo) {
+		kryo.register(Query.class, new QuerySerializer());
+		kryo.register(KNNQuery.class, new KNNQuerySerializer());
+		kryo.register(JoinQuery.class, new JoinQuerySerializer());
+		kryo.register(DataObject.class, new DataObjectSerializer());
+		kryo.register(DataObjectList.class, new DataObjectListSerializer());
+		kryo.register(LoadBalanceMessage.class, new LoadBalanceMessageSerializer());
+		kryo.register(Control.class, new ControlSerializer());
+		kryo.register(Point.class, new PointSerializer());
+		kryo.register(Rectangle.class, new RectangleSerializer());
+		kryo.register(CombinedTuple.class, new CombinedTupleSerializer());
+		kryo.register(ResultSetChange.class, new ResultSetChangeSerializer());
+		kryo.register(Partition.class, new PartitionSerializer());
+		kryo.register(Cell.class, new CellSerializer());
+		kryo.register(GridIndexCell.class, new GridIndexCellSerializer());
+		kryo.register(IndexCellCoordinates.class, new IndexCellCoordinatesSerializer());
+		kryo.register(IndexCellBlock.class, new IndexCellBlockSerializer());
+	}
+
+	/**
+	 * Takes an instance from the pool, a new one is created when the pool is
+	 * empty. The instance has to be given back with release.
+	 */
+	public PooledKryo borrow() {
+		PooledKryo pooledKryo = pool.poll();
+		return pooledKryo != null ? pooledKryo : new PooledKryo();
+	}
+
+	public void release(PooledKryo pooledKryo) {
+		if (pooledKryo.output.getBuffer().length > MAX_POOLED_BUFFER_SIZE)
+			pooledKryo.output = new Output(INITIAL_BUFFER_SIZE, -1);
+		pooledKryo.input.setBuffer(new byte[0]);
+		pool.offer(pooledKryo);
+	}
+
+	public byte[] serialize(Object object) {
+		PooledKryo pooledKryo = borrow();
+		try {
+			Output output = pooledKryo.getOutput();
+			pooledKryo.kryo.writeObject(output, object);
+			return output.toBytes();
+		} finally {
+			release(pooledKryo);
+		}
+	}
+
+	public <T> T deserialize(byte[] bytes, Class<T> type) {
+		PooledKryo pooledKryo = borrow();
+		try {
+			return pooledKryo.kryo.readObject(pooledKryo.getInput(bytes), type);
+		} finally {
+			release(pooledKryo);
+		}
+	}
+
+	/**
+	 * Copies the object by writing it to the pooled buffer and reading it back,
+	 * the copy has the fields written by the registered serializer
+	 */
+	public <T> T copy(T object) {
+		PooledKryo pooledKryo = borrow();
+		try {
+			pooledKryo.kryo.writeObject(pooledKryo.getOutput(), object);
+			return (T) pooledKryo.kryo.readObject(pooledKryo.getInputFromOutput(), object.getClass());
+		} finally {
+			release(pooledKryo);
+		}
+	}
+}
@@ -32,57 +32,145 @@ import edu.purdue.cs.tornado.helper.Rectangle;
 import edu.purdue.cs.tornado.helper.TextualPredicate;
 import edu.purdue.cs.tornado.messages.Query;
 
+/**
+ * Compact query format: a varint of flags for the non null fields, source ids as
+ * SourceIdRegistry handles, ids and times as varints, the range in the
+ * configured coordinate encoding and keyword lists as term ids.
+ */
 public class QuerySerializer extends  com.esotericsoftware.kryo.Serializer<Query> {
+	private static final int QUERY_TYPE = 1;
+	private static final int QUERY_ID = 1 << 1;
+	private static final int TIME_STAMP = 1 << 2;
+	private static final int SPATIAL_RANGE = 1 << 3;
+	private static final int COMMAND = 1 << 4;
+	private static final int TEXTUAL_PREDICATE = 1 << 5;
+	private static final int REMOVE_TIME = 1 << 6;
+	private static final int COMPLEX_QUERY_TEXT = 1 << 7;
+	private static final int COORDINATE_ENCODING_SHIFT = 8; //2 bits
+	private static final QueryType[] QUERY_TYPES = QueryType.values();
+	private static final Command[] COMMANDS = Command.values();
+	private static final TextualPredicate[] TEXTUAL_PREDICATES = TextualPredicate.values();
+
+	private int coordinateEncoding = CoordinatesSerializer.DOUBLE;
+
+	public int getCoordinateEncoding() {
+		return coordinateEncoding;
+	}
+
+	public void setCoordinateEncoding(int coordinateEncoding) {
+		this.coordinateEncoding = coordinateEncoding;
+	}
 
 	@Override
 	public Query read(Kryo kryo, Input input, Class<Query> queryClass) {
 		Query query = new Query();
-		query.setSrcId(kryo.readObjectOrNull(input,String.class));
-		query.setQueryType(kryo.readObjectOrNull(input,QueryType.class));
-		query.setQueryId(kryo.readObjectOrNull(input,Integer.class));
-//		query.setFocalPoint(kryo.readObjectOrNull(input, Point.class));
-//		query.setK(kryo.readObjectOrNull(input,Integer.class));
-		query.setQueryText(kryo.readObjectOrNull(input, ArrayList.class));
-//		query.setQueryText2(kryo.readObjectOrNull(input, ArrayList.class));
-		query.setTimeStamp(kryo.readObjectOrNull(input,Long.class));
-		query.setSpatialRange(kryo.readObjectOrNull(input, Rectangle.class));
-	//	query.setDistance(kryo.readObjectOrNull(input, Double.class));
-		query.setDataSrc(kryo.readObjectOrNull(input, String.class));
-	//	query.setDataSrc2(kryo.readObjectOrNull(input, String.class));
-		query.setCommand(kryo.readObjectOrNull(input, Command.class));
-	//	query.setContinousQuery(kryo.readObjectOrNull(input, Boolean.class));
-		query.setTextualPredicate(kryo.readObjectOrNull(input, TextualPredicate.class));
-	//	query.setTextualPredicate2(kryo.readObjectOrNull(input, TextualPredicate.class));
-	//	query.setJoinTextualPredicate(kryo.readObjectOrNull(input, TextualPredicate.class));
-	//	query.setFarthestDistance(kryo.readObjectOrNull(input, Double.class));
-		query.setRemoveTime(kryo.readObjectOrNull(input, Long.class));
-		query.setComplexQueryText(kryo.readObjectOrNull(input, ArrayList.class));
+		readFields(input, query);
 		return query;
 	}
 
 	@Override
 	public void write(Kryo kryo, Output output, Query query) {
-		
-		kryo.writeObjectOrNull(output,query.getSrcId(),String.class);
-		kryo.writeObjectOrNull(output,query.getQueryType(),QueryType.class);
-		kryo.writeObjectOrNull(output,query.getQueryId(),Integer.class);
-	//	kryo.writeObjectOrNull(output, query.getFocalPoint(),Point.class);
-	//	kryo.writeObjectOrNull(output, query.getK(),Integer.class);
-		kryo.writeObjectOrNull(output,query.getQueryText(),ArrayList.class);
-	//	kryo.writeObjectOrNull(output,query.getQueryText2(),ArrayList.class);
-		kryo.writeObjectOrNull(output,query.getTimeStamp(),Long.class);
-		kryo.writeObjectOrNull(output, query.getSpatialRange(),Rectangle.class);
-	//	kryo.writeObjectOrNull(output, query.getDistance(),Double.class);
-		kryo.writeObjectOrNull(output, query.getDataSrc(),String.class);
-	//	kryo.writeObjectOrNull(output, query.getDataSrc2(),String.class);
-		kryo.writeObjectOrNull(output, query.getCommand(),Command.class);
-	//	kryo.writeObjectOrNull(output, query.getContinousQuery(),Boolean.class);
-		kryo.writeObjectOrNull(output, query.getTextualPredicate(),TextualPredicate.class);
-	//	kryo.writeObjectOrNull(output, query.getTextualPredicate2(),TextualPredicate.class);
-	//	kryo.writeObjectOrNull(output, query.getJoinTextualPredicate(),TextualPredicate.class);
-	//	kryo.writeObjectOrNull(output, query.getFarthestDistance(),Double.class);
-		kryo.writeObjectOrNull(output, query.getRemoveTime(),Long.class);
-		kryo.writeObjectOrNull(output, query.getComplexQueryText(),ArrayList.class);
+		writeFields(output, query);
+	}
+
+	/**
+	 * Reads the fields written by writeFields into query, used by the serializers of the
+	 * query subclasses, the setters of the subclass are called
+	 */
+	public void readFields(Input input, Query query) {
+		int flags = input.readInt(true);
+		query.setSrcId(SourceIdSerializer.read(input));
+		if ((flags & QUERY_TYPE) != 0)
+			query.setQueryType(QUERY_TYPES[input.readByte()]);
+		if ((flags & QUERY_ID) != 0)
+			query.setQueryId(input.readInt(false));
+		KeywordsSerializer.EncodedKeywords queryText = KeywordsSerializer.read(input);
+		query.setQueryText(queryText.keywords);
+		query.setQueryTextIds(queryText.termIds);
+		if ((flags & TIME_STAMP) != 0)
+			query.setTimeStamp(input.readLong(true));
+		if ((flags & SPATIAL_RANGE) != 0) {
+			int encoding = (flags >>> COORDINATE_ENCODING_SHIFT) & 3;
+			Point min = new Point(CoordinatesSerializer.read(input, encoding), CoordinatesSerializer.read(input, encoding));
+			Point max = new Point(CoordinatesSerializer.read(input, encoding), CoordinatesSerializer.read(input, encoding));
+			query.setSpatialRange(new Rectangle(min, max));
+		} else {
+			query.setSpatialRange(null);
+		}
+		query.setDataSrc(SourceIdSerializer.read(input));
+		if ((flags & COMMAND) != 0)
+			query.setCommand(COMMANDS[input.readByte()]);
+		if ((flags & TEXTUAL_PREDICATE) != 0)
+			query.setTextualPredicate(TEXTUAL_PREDICATES[input.readByte()]);
+		if ((flags & REMOVE_TIME) != 0)
+			query.setRemoveTime(input.readLong(true));
+		if ((flags & COMPLEX_QUERY_TEXT) != 0) {
+			int size = input.readInt(true);
+			ArrayList<ArrayList<String>> complexQueryText = new ArrayList<ArrayList<String>>(size);
+			for (int i = 0; i < size; i++)
+				complexQueryText.add(KeywordsSerializer.read(input).keywords);
+			query.setComplexQueryText(complexQueryText);
+		}
+	}
+
+	/**
+	 * Writes the fields of the query as returned by its getters
+	 */
+	public void writeFields(Output output, Query query) {
+		int flags = coordinateEncoding << COORDINATE_ENCODING_SHIFT;
+		if (query.getQueryType() != null)
+			flags |= QUERY_TYPE;
+		if (query.getQueryId() != null)
+			flags |= QUERY_ID;
+		if (query.getTimeStamp() != null)
+			flags |= TIME_STAMP;
+		if (query.getSpatialRange() != null)
+			flags |= SPATIAL_RANGE;
+		if (query.getCommand() != null)
+			flags |= COMMAND;
+		if (query.getTextualPredicate() != null)
+			flags |= TEXTUAL_PREDICATE;
+		if (query.getRemoveTime() != null)
+			flags |= REMOVE_TIME;
+		if (query.getComplexQueryText() != null)
+			flags |= COMPLEX_QUERY_TEXT;
+		output.writeInt(flags, true);
+		SourceIdSerializer.write(output, query.getSrcId());
+		if ((flags & QUERY_TYPE) != 0)
+			output.writeByte(query.getQueryType().ordinal());
+		if ((flags & QUERY_ID) != 0)
+			output.writeInt(query.getQueryId(), false);
+		//the fields of KNNQuery and JoinQuery are written by their own serializers
+		KeywordsSerializer.write(output, query.getQueryText());
+		if ((flags & TIME_STAMP) != 0)
+			output.writeLong(query.getTimeStamp(), true);
+		if ((flags & SPATIAL_RANGE) != 0) {
+			Rectangle range = query.getSpatialRange();
+			CoordinatesSerializer.write(output, range.getMin().getX(), coordinateEncoding);
+			CoordinatesSerializer.write(output, range.getMin().getY(), coordinateEncoding);
+			CoordinatesSerializer.write(output, range.getMax().getX(), coordinateEncoding);
+			CoordinatesSerializer.write(output, range.getMax().getY(), coordinateEncoding);
+		}
+		SourceIdSerializer.write(output, query.getDataSrc());
+		if ((flags & COMMAND) != 0)
+			output.writeByte(query.getCommand().ordinal());
+		if ((flags & TEXTUAL_PREDICATE) != 0)
+			output.writeByte(query.getTextualPredicate().ordinal());
+		if ((flags & REMOVE_TIME) != 0)
+			output.writeLong(query.getRemoveTime(), true);
+		if ((flags & COMPLEX_QUERY_TEXT) != 0) {
+			ArrayList<ArrayList<String>> complexQueryText = query.getComplexQueryText();
+			output.writeInt(complexQueryText.size(), true);
+			for (int i = 0; i < complexQueryText.size(); i++)
+				KeywordsSerializer.write(output, complexQueryText.get(i));
+		}
+	}
+
+	/**
+	 * @return the serializer registered for Query, it holds the coordinate encoding of the worker
+	 */
+	public static QuerySerializer getQuerySerializer(Kryo kryo) {
+		return (QuerySerializer) kryo.getRegistration(Query.class).getSerializer();
 	}
 
 }
@@ -0,0 +1,72 @@
+/**
+ * Copyright Jul 5, 2015
+ * Author : Ahmed Mahmood
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.purdue.cs.tornado.serializer;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import edu.purdue.cs.tornado.helper.SourceIdRegistry;
+import edu.purdue.cs.tornado.messages.DataObject;
+
+/**
+ * Writes source ids as their SourceIdRegistry handle, ids that are not
+ * registered are written as strings. Null is a single zero byte.
+ */
+public class SourceIdSerializer {
+	private static final int NULL_SOURCE = 0;
+	private static final int LITERAL_SOURCE = 1;
+	private static final int FIRST_HANDLE = 2;
+
+	public static void write(Output output, String sourceId) {
+		if (sourceId == null) {
+			output.writeInt(NULL_SOURCE, true);
+			return;
+		}
+		int handle = SourceIdRegistry.getInstance().getHandle(sourceId);
+		if (handle >= 0) {
+			output.writeInt(handle + FIRST_HANDLE, true);
+		} else {
+			output.writeInt(LITERAL_SOURCE, true);
+			output.writeString(sourceId);
+		}
+	}
+
+	public static String read(Input input) {
+		int tag = input.readInt(true);
+		if (tag == NULL_SOURCE)
+			return null;
+		if (tag == LITERAL_SOURCE)
+			return SourceIdRegistry.getInstance().intern(input.readString());
+		return SourceIdRegistry.getInstance().getSourceId(tag - FIRST_HANDLE);
+	}
+
+	/**
+	 * Reads the source id of dataObject, a registered source also sets the handle of the object
+	 */
+	public static void read(Input input, DataObject dataObject) {
+		int tag = input.readInt(true);
+		if (tag == NULL_SOURCE)
+			dataObject.setSrcId(null, -1);
+		else if (tag == LITERAL_SOURCE)
+			dataObject.setSrcId(SourceIdRegistry.getInstance().intern(input.readString()));
+		else
+			dataObject.setSrcId(SourceIdRegistry.getInstance().getSourceId(tag - FIRST_HANDLE), tag - FIRST_HANDLE);
+	}
+}
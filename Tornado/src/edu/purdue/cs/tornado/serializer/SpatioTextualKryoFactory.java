@@ -0,0 +1,76 @@
+/**
+ * Copyright Jul 5, 2015
+ * Author : Ahmed Mahmood
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.purdue.cs.tornado.serializer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.apache.storm.Config;
+import org.apache.storm.generated.StormTopology;
+import org.apache.storm.serialization.DefaultKryoFactory;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Registration;
+
+import edu.purdue.cs.tornado.helper.SourceIdRegistry;
+import edu.purdue.cs.tornado.helper.SpatioTextualConstants;
+import edu.purdue.cs.tornado.messages.DataObject;
+import edu.purdue.cs.tornado.messages.Query;
+
+/**
+ * Kryo factory of the spatio-textual topologies. Every worker creates its Kryo
+ * instances through this factory before any tuple is serialized, the factory
+ * registers the source ids of the topology configuration and the configured
+ * data and query sources in the SourceIdRegistry and sets the coordinate encoding of the serializers.
+ */
+public class SpatioTextualKryoFactory extends DefaultKryoFactory {
+
+	/**
+	 * Adds the factory, the source ids of all the components of topology and
+	 * the serializer settings to the topology configuration
+	 */
+	public static void addConf(Map conf, StormTopology topology) {
+		TreeSet<String> sourceIds = new TreeSet<String>();
+		if (topology != null) {
+			sourceIds.addAll(topology.get_spouts().keySet());
+			sourceIds.addAll(topology.get_bolts().keySet());
+		}
+		conf.put(Config.TOPOLOGY_KRYO_FACTORY, SpatioTextualKryoFactory.class.getName());
+		conf.put(SpatioTextualConstants.SOURCE_IDS, new ArrayList<String>(sourceIds));
+	}
+
+	@Override
+	public void postRegister(Kryo k, Map conf) {
+		super.postRegister(k, conf);
+		Object sourceIds = conf.get(SpatioTextualConstants.SOURCE_IDS);
+		if (sourceIds != null)
+			SourceIdRegistry.getInstance().register((Collection<String>) sourceIds);
+		SourceIdRegistry.getInstance().registerConfiguredSources(conf);
+		int coordinateEncoding = CoordinatesSerializer.getEncoding((String) conf.get(SpatioTextualConstants.COORDINATE_ENCODING));
+		Registration registration = k.getRegistration(DataObject.class);
+		if (registration != null && registration.getSerializer() instanceof DataObjectSerializer)
+			((DataObjectSerializer) registration.getSerializer()).setCoordinateEncoding(coordinateEncoding);
+		registration = k.getRegistration(Query.class);
+		if (registration != null && registration.getSerializer() instanceof QuerySerializer)
+			((QuerySerializer) registration.getSerializer()).setCoordinateEncoding(coordinateEncoding);
+	}
+}
@@ -5,12 +5,14 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Map;
 
 //import org.apache.hadoop.conf.Configuration;
 //import org.apache.hadoop.fs.FileSystem;
 //import org.apache.hadoop.fs.Path;
 import org.apache.storm.Config;
+import org.apache.storm.metric.api.IMetric;
 import org.apache.storm.spout.SpoutOutputCollector;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.topology.OutputFieldsDeclarer;
@@ -18,6 +20,8 @@ import org.apache.storm.topology.base.BaseRichSpout;
 
 import edu.purdue.cs.tornado.helper.Command;
 import edu.purdue.cs.tornado.helper.Point;
+import edu.purdue.cs.tornado.helper.TextHelpers;
+import edu.purdue.cs.tornado.helper.TokenizationCache;
 import edu.purdue.cs.tornado.messages.DataObject;
 import edu.purdue.cs.tornado.messages.Query;
 import sqliteparser.Extractor;
@@ -29,6 +33,8 @@ public class FileSpout extends BaseRichSpout implements BaseTornadoDataSpout, Ba
 	public static final String LFS = "LFS";
 	public static final String CORE_FILE_PATH = "CORE_FILE_PATH";
 	public static final String EMIT_SLEEP_DURATION_NANOSEC = "EMIT_SLEEP_DURATION_NANOSEC";
+	public static final String TOKENIZATION_CACHE_SIZE = "TOKENIZATION_CACHE_SIZE";//max cached texts, 0 or missing disables the cache
+	public static final int TOKENIZATION_CACHE_METRIC_INTERVAL = 10;//seconds
 	public static final long serialVersionUID = 1L;
 	public Integer initialSleepDuration;
 	public SpoutOutputCollector collector;
@@ -50,6 +56,7 @@ public class FileSpout extends BaseRichSpout implements BaseTornadoDataSpout, Ba
 
 	public ArrayList<ArrayList<Double>> listArray;
 	public ArrayList<ArrayList<String>> KeyArray;
+	public TokenizationCache tokenizationCache;
 	
 	
 	
@@ -112,6 +119,7 @@ public class FileSpout extends BaseRichSpout implements BaseTornadoDataSpout, Ba
 		}
 		
 		
+		prepareTokenizationCache(context);
 		count=0;
 		connectToFS();
 		try {
@@ -121,6 +129,38 @@ public class FileSpout extends BaseRichSpout implements BaseTornadoDataSpout, Ba
 		}		
 	}
 
+	private void prepareTokenizationCache(TopologyContext context) {
+		Object cacheSize = spoutConf.get(TOKENIZATION_CACHE_SIZE);
+		if (cacheSize == null || ((Number) cacheSize).intValue() <= 0) {
+			tokenizationCache = null;
+			return;
+		}
+		tokenizationCache = new TokenizationCache(((Number) cacheSize).intValue());
+		context.registerMetric("tokenizationCache", new IMetric() {
+			@Override
+			public Object getValueAndReset() {
+				HashMap<String, Object> value = new HashMap<String, Object>();
+				value.put("size", tokenizationCache.size());
+				value.put("hits", tokenizationCache.getHits());
+				value.put("misses", tokenizationCache.getMisses());
+				value.put("evictions", tokenizationCache.getEvictions());
+				value.put("hitRate", tokenizationCache.getHitRate());
+				tokenizationCache.resetStatistics();
+				return value;
+			}
+		}, TOKENIZATION_CACHE_METRIC_INTERVAL);
+	}
+
+	/**
+	 * @return the distinct sorted keywords of text, through the tokenization cache when it is enabled,
+	 *         a cached list is shared by the objects with the same text and is not modified
+	 */
+	public ArrayList<String> tokenize(String text) {
+		if (tokenizationCache == null)
+			return TextHelpers.transformIntoSortedArrayListOfString(text);
+		return tokenizationCache.getKeywordList(text);
+	}
+
 	public void connectToFS() {
 		if (fileSystemType.equals(HDFS)) {
 			connectToHDFS();
@@ -115,7 +115,7 @@ public class TweetsFSSpout extends FileSpout {
 			countId++;//tweetParts[0];
 			if (countId >= Integer.MAX_VALUE)
 				countId = 0;
-			DataObject obj = new DataObject(new Integer(countId), xy, textContent, date.getTime(), Command.addCommand);
+			DataObject obj = getDataObject(new Integer(countId), xy, textContent, date.getTime(), Command.addCommand);
 			previousObject = obj;
 //			if (countId % 10 == 0)
 //				this.collector.emit(new Values(countId, obj), "" + selfTaskId + "_" + (countId));
@@ -134,7 +134,7 @@ public class TweetsFSSpout extends FileSpout {
 				countId++;//tweetParts[0];
 				if (countId >= Integer.MAX_VALUE)
 					countId = 0;
-				DataObject obj = new DataObject(countId, previousObject.getLocation(), previousObject.getOriginalText(), (new Date()).getTime(), Command.addCommand);
+				DataObject obj = getDataObject(countId, previousObject.getLocation(), previousObject.getOriginalText(), (new Date()).getTime(), Command.addCommand);
 //				if (countId % 10 == 0)
 //					this.collector.emit(new Values(countId, obj), "" + selfTaskId + "_" + (countId));
 //				else
@@ -205,7 +205,7 @@ public class TweetsFSSpout extends FileSpout {
 	@Override
 	public DataObject getDataObject(Integer objectId, Point location, String originalText, Long timeStamp,
 			Command command) {
-		return new DataObject(objectId, location, originalText,timeStamp,command);
+		return new DataObject(objectId, location, originalText, tokenize(originalText), timeStamp, command);
 	}
 
 }
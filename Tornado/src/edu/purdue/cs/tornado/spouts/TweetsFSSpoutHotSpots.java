@@ -161,7 +161,7 @@ public class TweetsFSSpoutHotSpots extends FileSpout {
 	@Override
 	public DataObject getDataObject(Integer objectId, Point location, String originalText, Long timeStamp,
 			Command command) {
-		return new DataObject(objectId, location, originalText,timeStamp,command);
+		return new DataObject(objectId, location, originalText, tokenize(originalText), timeStamp, command);
 	}
 
 }
@@ -149,7 +149,7 @@ public class TweetsFSSpoutSlow extends FileSpout {
 	@Override
 	public DataObject getDataObject(Integer objectId, Point location, String originalText, Long timeStamp,
 			Command command) {
-		return new DataObject(objectId, location, originalText,timeStamp,command);
+		return new DataObject(objectId, location, originalText, tokenize(originalText), timeStamp, command);
 	}
 
 }
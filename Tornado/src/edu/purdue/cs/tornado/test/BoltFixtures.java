@@ -0,0 +1,103 @@
+package edu.purdue.cs.tornado.test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.storm.Constants;
+import org.apache.storm.task.IOutputCollector;
+import org.apache.storm.tuple.Tuple;
+
+import edu.purdue.cs.tornado.messages.DataObject;
+
+/**
+ * The output collector and the tuples of the bolt unit tests
+ */
+public class BoltFixtures {
+	static final String EVALUATOR_ID = "Evaluator";
+	static final long HOUR = 3600000;
+
+	/**
+	 * Records the tuples that a bolt emits, the task is -1 for tuples that are
+	 * not emitted directly
+	 */
+	static class RecordingCollector implements IOutputCollector {
+		ArrayList<Integer> tasks = new ArrayList<Integer>();
+		ArrayList<String> streams = new ArrayList<String>();
+		ArrayList<List<Object>> tuples = new ArrayList<List<Object>>();
+
+		@Override
+		public List<Integer> emit(String streamId, Collection<Tuple> anchors, List<Object> tuple) {
+			emitDirect(-1, streamId, anchors, tuple);
+			return null;
+		}
+
+		@Override
+		public void emitDirect(int taskId, String streamId, Collection<Tuple> anchors, List<Object> tuple) {
+			tasks.add(taskId);
+			streams.add(streamId);
+			tuples.add(tuple);
+		}
+
+		@Override
+		public void ack(Tuple input) {
+		}
+
+		@Override
+		public void fail(Tuple input) {
+		}
+
+		@Override
+		public void resetTimeout(Tuple input) {
+		}
+
+		@Override
+		public void reportError(Throwable error) {
+		}
+	}
+
+	/**
+	 * A tuple of the component and stream with the given field values
+	 */
+	static Tuple getTuple(final String component, final String streamId, Object... fieldValues) {
+		final HashMap<String, Object> values = new HashMap<String, Object>();
+		for (int i = 0; i + 1 < fieldValues.length; i += 2)
+			values.put((String) fieldValues[i], fieldValues[i + 1]);
+		return (Tuple) Proxy.newProxyInstance(Tuple.class.getClassLoader(), new Class<?>[] { Tuple.class }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				String name = method.getName();
+				if (name.equals("getSourceComponent"))
+					return component;
+				if (name.equals("getSourceStreamId"))
+					return streamId;
+				if (name.equals("getSourceTask"))
+					return -1;
+				if (name.endsWith("ByField"))
+					return values.get(args[0]);
+				if (name.equals("hashCode"))
+					return System.identityHashCode(proxy);
+				if (name.equals("equals"))
+					return proxy == args[0];
+				if (name.equals("toString"))
+					return component + ":" + streamId + values;
+				throw new UnsupportedOperationException(name);
+			}
+		});
+	}
+
+	static Tuple getTickTuple() {
+		return getTuple(Constants.SYSTEM_COMPONENT_ID, Constants.SYSTEM_TICK_STREAM_ID);
+	}
+
+	static ArrayList<Integer> getObjectIds(List<DataObject> dataObjects) {
+		ArrayList<Integer> objectIds = new ArrayList<Integer>();
+		for (DataObject dataObject : dataObjects)
+			objectIds.add(dataObject.getObjectIdValue());
+		return objectIds;
+	}
+}
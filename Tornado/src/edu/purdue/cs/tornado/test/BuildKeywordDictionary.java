@@ -0,0 +1,76 @@
+package edu.purdue.cs.tornado.test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.purdue.cs.tornado.helper.SpatioTextualConstants;
+import edu.purdue.cs.tornado.helper.TextHelpers;
+
+/**
+ * Builds the shared terms of the KeywordDictionary from the sample data
+ * sources. The most frequent keywords come first so they get the shortest
+ * varint ids, 8192 terms fit in two bytes. Run from the Tornado directory:
+ * BuildKeywordDictionary [tweetsFile] [poisDirectory] [outputFile] [terms]
+ */
+public class BuildKeywordDictionary {
+	static String tweetsFilePath = "datasources/twitterdata.csv";
+	static String poisDirectoryPath = "datasources/smallPOIs";
+	static int maxTerms = 8192;
+	static HashMap<String, Integer> keywordCounts = new HashMap<String, Integer>();
+
+	public static void main(String[] args) throws IOException {
+		String tweetsFile = args.length > 0 ? args[0] : tweetsFilePath;
+		String poisDirectory = args.length > 1 ? args[1] : poisDirectoryPath;
+		String outputFile = args.length > 2 ? args[2] : SpatioTextualConstants.KEYWORD_DICTIONARY_FILE;
+		int terms = args.length > 3 ? Integer.parseInt(args[3]) : maxTerms;
+		//tweets: id,date,lat,lon,user,text
+		readTexts(tweetsFile, 5);
+		File[] poiFiles = new File(poisDirectory).listFiles();
+		if (poiFiles != null) {
+			Arrays.sort(poiFiles);
+			for (File poiFile : poiFiles)
+				//POIs: id,lat,lon,text
+				readTexts(poiFile.getPath(), 3);
+		}
+		ArrayList<Map.Entry<String, Integer>> entries = new ArrayList<Map.Entry<String, Integer>>(keywordCounts.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<String, Integer>>() {
+			public int compare(Map.Entry<String, Integer> o1, Map.Entry<String, Integer> o2) {
+				int compare = o2.getValue().compareTo(o1.getValue());
+				return compare != 0 ? compare : o1.getKey().compareTo(o2.getKey());
+			}
+		});
+		PrintWriter writer = new PrintWriter(outputFile, "UTF-8");
+		for (int i = 0; i < entries.size() && i < terms; i++)
+			writer.println(entries.get(i).getKey() + "," + entries.get(i).getValue());
+		writer.close();
+		System.out.println("Wrote " + Math.min(terms, entries.size()) + " of " + entries.size() + " keywords to " + outputFile);
+	}
+
+	static void readTexts(String fileName, int textColumn) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(fileName), "UTF-8"));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			String[] parts = line.split(",");
+			if (parts.length <= textColumn)
+				continue;
+			StringBuilder textContent = new StringBuilder();
+			for (int i = textColumn; i < parts.length; i++)
+				textContent.append(parts[i]).append(" ");
+			for (String keyword : TextHelpers.transformIntoSortedArrayListOfString(textContent.toString())) {
+				Integer count = keywordCounts.get(keyword);
+				keywordCounts.put(keyword, count == null ? 1 : count + 1);
+			}
+		}
+		reader.close();
+	}
+}
@@ -0,0 +1,233 @@
+package edu.purdue.cs.tornado.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Stopwatch;
+
+import edu.purdue.cs.tornado.helper.Command;
+import edu.purdue.cs.tornado.helper.Point;
+import edu.purdue.cs.tornado.helper.QueryType;
+import edu.purdue.cs.tornado.helper.Rectangle;
+import edu.purdue.cs.tornado.helper.SpatioTextualConstants;
+import edu.purdue.cs.tornado.helper.TextualPredicate;
+import edu.purdue.cs.tornado.index.local.fast.FAST;
+import edu.purdue.cs.tornado.index.local.fast.FASTTuner;
+import edu.purdue.cs.tornado.messages.DataObject;
+import edu.purdue.cs.tornado.messages.KNNQuery;
+import edu.purdue.cs.tornado.messages.Query;
+
+/**
+ * Measures FAST on a synthetic workload: the insertion of the range queries,
+ * the matching of data objects one at a time, in batches and with several
+ * threads, and the update of continuous KNN queries by the objects. The
+ * keywords of the queries and the objects follow a Zipf distribution over a
+ * fixed vocabulary so that FAST builds both rare keyword lists and tries. Prints one csv line per measure, the number of
+ * matches is printed to compare runs of different FAST versions. The pyramid
+ * is then saved to a snapshot and reloaded, the save line ends with the size
+ * of the snapshot in bytes and the load line with the matches of the
+ * reloaded pyramid. The last lines repeat the insertion and the matching
+ * with a FASTTuner that matches between the insertions, followed by the
+ * parameters the tuner picked.
+ */
+public class FASTPerformance {
+	public static int queriesCount = 1000000;
+	public static int objectsCount = 200000;
+	public static int vocabularySize = 50000;
+	public static double zipfExponent = 1.0;
+	public static int maxQueryKeywords = 3;
+	public static int objectKeywords = 8;
+	public static int gridGranularity = 512;
+	public static int maxLevel = 9;
+	public static int batchSize = 1000;
+	public static int threads = 4;
+	public static int warmupRounds = 2;
+	public static int knnQueriesCount = 10000;
+	public static int k = 10;
+	public static long seed = 7;
+
+	public static void main(String[] args) throws Exception {
+		if (args.length > 0)
+			queriesCount = Integer.parseInt(args[0]);
+		if (args.length > 1)
+			objectsCount = Integer.parseInt(args[1]);
+		Random random = new Random(seed);
+		double[] cumulative = buildZipf();
+		ArrayList<Query> queries = new ArrayList<Query>();
+		for (int i = 0; i < queriesCount; i++)
+			queries.add(buildQuery(i, random, cumulative));
+		ArrayList<DataObject> objects = new ArrayList<DataObject>();
+		for (int i = 0; i < objectsCount; i++)
+			objects.add(buildObject(i, random, cumulative));
+
+		Stopwatch stopwatch = Stopwatch.createStarted();
+		final FAST fast = new FAST(new Rectangle(new Point(0, 0), new Point(SpatioTextualConstants.xMaxRange, SpatioTextualConstants.yMaxRange)), gridGranularity, maxLevel);
+		for (Query query : queries)
+			fast.addContinousQuery(query);
+		long insertNanos = stopwatch.elapsed(TimeUnit.NANOSECONDS);
+		System.out.println("measure,operations per second,matches");
+		System.out.println("insert," + (long) queriesCount * 1000000000L / insertNanos + ",");
+
+		for (int round = 0; round <= warmupRounds; round++) {
+			boolean print = round == warmupRounds;
+			stopwatch = Stopwatch.createStarted();
+			long matches = 0;
+			for (DataObject object : objects)
+				matches += fast.getReleventSpatialKeywordRangeQueries(object, false).get(0).size();
+			long matchNanos = stopwatch.elapsed(TimeUnit.NANOSECONDS);
+			if (print)
+				System.out.println("match," + (long) objectsCount * 1000000000L / matchNanos + "," + matches);
+
+			stopwatch = Stopwatch.createStarted();
+			matches = 0;
+			for (int start = 0; start < objectsCount; start += batchSize)
+				for (List<Query> result : fast.getReleventSpatialKeywordRangeQueries(objects.subList(start, Math.min(objectsCount, start + batchSize))))
+					matches += result.size();
+			long batchNanos = stopwatch.elapsed(TimeUnit.NANOSECONDS);
+			if (print)
+				System.out.println("batch match," + (long) objectsCount * 1000000000L / batchNanos + "," + matches);
+
+			long threadedNanos = matchWithThreads(fast, objects);
+			if (print)
+				System.out.println("match with " + threads + " threads," + (long) threads * objectsCount * 1000000000L / threadedNanos + ",");
+		}
+
+		FAST knnFast = new FAST(new Rectangle(new Point(0, 0), new Point(SpatioTextualConstants.xMaxRange, SpatioTextualConstants.yMaxRange)), gridGranularity, maxLevel);
+		for (int i = 0; i < knnQueriesCount; i++)
+			knnFast.addContinousQuery(buildKNNQuery(i, random, cumulative));
+		stopwatch = Stopwatch.createStarted();
+		long changes = 0;
+		for (DataObject object : objects)
+			changes += knnFast.processDataObjectForKNNQueries(object).size();
+		long knnNanos = stopwatch.elapsed(TimeUnit.NANOSECONDS);
+		System.out.println("knn update," + (long) objectsCount * 1000000000L / knnNanos + "," + changes);
+
+		File file = File.createTempFile("fast", ".snapshot");
+		try {
+			stopwatch = Stopwatch.createStarted();
+			long size = fast.saveSnapshot(file);
+			long saveNanos = stopwatch.elapsed(TimeUnit.NANOSECONDS);
+			System.out.println("snapshot save," + (long) queriesCount * 1000000000L / saveNanos + "," + size);
+			stopwatch = Stopwatch.createStarted();
+			FAST restored = new FAST(new Rectangle(new Point(0, 0), new Point(SpatioTextualConstants.xMaxRange, SpatioTextualConstants.yMaxRange)), gridGranularity, maxLevel);
+			restored.loadSnapshot(file);
+			long loadNanos = stopwatch.elapsed(TimeUnit.NANOSECONDS);
+			long matches = 0;
+			for (DataObject object : objects)
+				matches += restored.getReleventSpatialKeywordRangeQueries(object, false).get(0).size();
+			System.out.println("snapshot load," + (long) queriesCount * 1000000000L / loadNanos + "," + matches);
+		} finally {
+			file.delete();
+		}
+
+		FAST tuned = new FAST(new Rectangle(new Point(0, 0), new Point(SpatioTextualConstants.xMaxRange, SpatioTextualConstants.yMaxRange)), gridGranularity, maxLevel);
+		tuned.tuner = new FASTTuner(tuned);
+		int objectsPerQuery = Math.max(1, objectsCount / queriesCount);
+		int queriesPerObject = Math.max(1, queriesCount / objectsCount);
+		long insertNanosTuned = 0;
+		for (int i = 0; i < queriesCount; i++) {
+			long start = System.nanoTime();
+			tuned.addContinousQuery(queries.get(i));
+			insertNanosTuned += System.nanoTime() - start;
+			//the objects arrive with the queries so that the tuner sees both costs
+			if (i % queriesPerObject == 0)
+				for (int j = 0; j < objectsPerQuery; j++)
+					tuned.getReleventSpatialKeywordRangeQueries(objects.get((i / queriesPerObject * objectsPerQuery + j) % objectsCount), false);
+		}
+		System.out.println("tuned insert," + (long) queriesCount * 1000000000L / insertNanosTuned + ",");
+		stopwatch = Stopwatch.createStarted();
+		long matches = 0;
+		for (DataObject object : objects)
+			matches += tuned.getReleventSpatialKeywordRangeQueries(object, false).get(0).size();
+		long tunedMatchNanos = stopwatch.elapsed(TimeUnit.NANOSECONDS);
+		System.out.println("tuned match," + (long) objectsCount * 1000000000L / tunedMatchNanos + "," + matches);
+		System.out.println("tuning," + tuned.getTuningMetrics());
+	}
+
+	static long matchWithThreads(final FAST fast, final ArrayList<DataObject> objects) throws InterruptedException {
+		Thread[] workers = new Thread[threads];
+		Stopwatch stopwatch = Stopwatch.createStarted();
+		for (int t = 0; t < threads; t++) {
+			workers[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (DataObject object : objects)
+						fast.getReleventSpatialKeywordRangeQueries(object, false);
+				}
+			});
+			workers[t].start();
+		}
+		for (Thread worker : workers)
+			worker.join();
+		return stopwatch.elapsed(TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * The cumulative probabilities of the keyword ranks
+	 */
+	static double[] buildZipf() {
+		double[] cumulative = new double[vocabularySize];
+		double sum = 0;
+		for (int rank = 0; rank < vocabularySize; rank++) {
+			sum += 1 / Math.pow(rank + 1, zipfExponent);
+			cumulative[rank] = sum;
+		}
+		for (int rank = 0; rank < vocabularySize; rank++)
+			cumulative[rank] /= sum;
+		return cumulative;
+	}
+
+	static String nextKeyword(Random random, double[] cumulative) {
+		int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+		if (rank < 0)
+			rank = Math.min(vocabularySize - 1, -rank - 1);
+		return "k" + rank;
+	}
+
+	static ArrayList<String> nextKeywords(int count, Random random, double[] cumulative) {
+		TreeSet<String> keywords = new TreeSet<String>();
+		while (keywords.size() < count)
+			keywords.add(nextKeyword(random, cumulative));
+		return new ArrayList<String>(keywords);
+	}
+
+	static Query buildQuery(int id, Random random, double[] cumulative) {
+		Query query = new Query();
+		query.setQueryId(id);
+		query.setSrcId("queries");
+		query.setQueryText(nextKeywords(1 + random.nextInt(maxQueryKeywords), random, cumulative));
+		query.setTextualPredicate(TextualPredicate.CONTAINS);
+		//mostly small ranges with a few large ones
+		double side = 10 + random.nextDouble() * (random.nextInt(10) == 0 ? 2000 : 200);
+		double x = random.nextDouble() * (SpatioTextualConstants.xMaxRange - side), y = random.nextDouble() * (SpatioTextualConstants.yMaxRange - side);
+		query.setSpatialRange(new Rectangle(new Point(x, y), new Point(x + side, y + side)));
+		return query;
+	}
+
+	static KNNQuery buildKNNQuery(int id, Random random, double[] cumulative) {
+		KNNQuery query = new KNNQuery();
+		query.setQueryId(id);
+		query.setSrcId("knnQueries");
+		query.setQueryType(QueryType.queryTextualKNN);
+		query.setQueryText(nextKeywords(1, random, cumulative));
+		query.setTextualPredicate(TextualPredicate.CONTAINS);
+		query.setFocalPoint(new Point(random.nextDouble() * SpatioTextualConstants.xMaxRange, random.nextDouble() * SpatioTextualConstants.yMaxRange));
+		query.setK(k);
+		return query;
+	}
+
+	static DataObject buildObject(int id, Random random, double[] cumulative) {
+		DataObject object = new DataObject();
+		object.setObjectId(id);
+		object.setSrcId("objects");
+		object.setCommand(Command.addCommand);
+		object.setObjectText(nextKeywords(objectKeywords, random, cumulative));
+		object.setLocation(new Point(random.nextDouble() * SpatioTextualConstants.xMaxRange, random.nextDouble() * SpatioTextualConstants.yMaxRange));
+		return object;
+	}
+}
@@ -0,0 +1,150 @@
+package edu.purdue.cs.tornado.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.google.common.base.Stopwatch;
+
+import edu.purdue.cs.tornado.loadbalance.Cell;
+import edu.purdue.cs.tornado.serializer.KryoPool;
+
+/**
+ * Compares copies of the load balancing partitions with Java serialization (as
+ * PartitionsHelper reads the partitions file), with a new Kryo instance per
+ * copy and with the pooled Kryo instances and buffers, single threaded and
+ * with several threads sharing the pool.
+ * Prints one csv line per configuration.
+ */
+public class KryoPoolPerformance {
+	public static int partitionsCount = 1024;
+	public static int copies = 2000;
+	public static int threads = 4;
+	public static int warmupRounds = 2;
+
+	public static void main(String[] args) throws Exception {
+		if (args.length > 0)
+			partitionsCount = Integer.parseInt(args[0]);
+		ArrayList<Cell> partitions = buildPartitions();
+
+		System.out.println("copy,bytes,us per copy,copies per second with " + threads + " threads");
+		for (int round = 0; round <= warmupRounds; round++) {
+			boolean print = round == warmupRounds;
+			measure("java serialization", new JavaSerializationCopy(), partitions, print);
+			measure("new kryo", new NewKryoCopy(), partitions, print);
+			measure("kryo pool", new PooledKryoCopy(), partitions, print);
+		}
+	}
+
+	static ArrayList<Cell> buildPartitions() {
+		ArrayList<Cell> partitions = new ArrayList<Cell>();
+		int side = (int) Math.ceil(Math.sqrt(partitionsCount));
+		for (int i = 0; i < partitionsCount; i++) {
+			int x = i % side, y = i / side;
+			Cell cell = new Cell(10 * y, 10 * y + 10, 10 * x, 10 * x + 10);
+			cell.setIndex(i % 64);
+			cell.setCost(i);
+			partitions.add(cell);
+		}
+		return partitions;
+	}
+
+	interface PartitionsCopy {
+		int size(ArrayList<Cell> partitions) throws Exception;
+
+		ArrayList<Cell> copy(ArrayList<Cell> partitions) throws Exception;
+	}
+
+	static class JavaSerializationCopy implements PartitionsCopy {
+		byte[] write(ArrayList<Cell> partitions) throws IOException {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream output = new ObjectOutputStream(bytes);
+			output.writeObject(partitions);
+			output.close();
+			return bytes.toByteArray();
+		}
+
+		@Override
+		public int size(ArrayList<Cell> partitions) throws Exception {
+			return write(partitions).length;
+		}
+
+		@Override
+		public ArrayList<Cell> copy(ArrayList<Cell> partitions) throws Exception {
+			ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(write(partitions)));
+			ArrayList<Cell> copy = (ArrayList<Cell>) input.readObject();
+			input.close();
+			return copy;
+		}
+	}
+
+	static class NewKryoCopy implements PartitionsCopy {
+		@Override
+		public int size(ArrayList<Cell> partitions) {
+			return KryoPool.getInstance().serialize(partitions).length;
+		}
+
+		@Override
+		public ArrayList<Cell> copy(ArrayList<Cell> partitions) {
+			Kryo kryo = new Kryo();
+			KryoPool.registerSerializers(kryo);
+			Output output = new Output(KryoPool.INITIAL_BUFFER_SIZE, -1);
+			kryo.writeObject(output, partitions);
+			return kryo.readObject(new Input(output.toBytes()), ArrayList.class);
+		}
+	}
+
+	static class PooledKryoCopy implements PartitionsCopy {
+		@Override
+		public int size(ArrayList<Cell> partitions) {
+			return KryoPool.getInstance().serialize(partitions).length;
+		}
+
+		@Override
+		public ArrayList<Cell> copy(ArrayList<Cell> partitions) {
+			return KryoPool.getInstance().copy(partitions);
+		}
+	}
+
+	static void measure(String name, final PartitionsCopy partitionsCopy, final ArrayList<Cell> partitions, boolean print) throws Exception {
+		int bytes = partitionsCopy.size(partitions);
+		Stopwatch stopwatch = Stopwatch.createStarted();
+		for (int i = 0; i < copies; i++)
+			check(partitionsCopy.copy(partitions), partitions);
+		long copyNanos = stopwatch.elapsed(TimeUnit.NANOSECONDS);
+
+		Thread[] workers = new Thread[threads];
+		stopwatch = Stopwatch.createStarted();
+		for (int t = 0; t < threads; t++) {
+			workers[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i < copies; i++)
+							check(partitionsCopy.copy(partitions), partitions);
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+				}
+			});
+			workers[t].start();
+		}
+		for (Thread worker : workers)
+			worker.join();
+		long threadedNanos = stopwatch.elapsed(TimeUnit.NANOSECONDS);
+		if (print)
+			System.out.println(name + "," + bytes + "," + (copyNanos / 1000 / copies) + "," + (long) threads * copies * 1000000000L / threadedNanos);
+	}
+
+	static void check(ArrayList<Cell> copy, ArrayList<Cell> partitions) {
+		if (copy.size() != partitions.size() || copy.get(copy.size() - 1).getIndex() != partitions.get(partitions.size() - 1).getIndex())
+			throw new IllegalStateException("copy differs from the partitions");
+	}
+}
@@ -0,0 +1,69 @@
+package edu.purdue.cs.tornado.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import edu.purdue.cs.tornado.helper.Command;
+import edu.purdue.cs.tornado.helper.Point;
+import edu.purdue.cs.tornado.helper.QueryType;
+import edu.purdue.cs.tornado.helper.Rectangle;
+import edu.purdue.cs.tornado.helper.TextualPredicate;
+import edu.purdue.cs.tornado.messages.DataObject;
+import edu.purdue.cs.tornado.messages.Query;
+
+/**
+ * The queries and data objects of the unit tests, the range queries come from
+ * QUERY_SOURCE and ask for the objects of DATA_SOURCE
+ */
+public class MessageFixtures {
+	static final String QUERY_SOURCE = "QueriesSpout";
+	static final String DATA_SOURCE = "Tweets";
+
+	/**
+	 * A query with only an id and a remove time, as read by the expiry wheel
+	 */
+	static Query getQuery(int queryId, long removeTime) {
+		Query query = new Query();
+		query.setSrcId(QUERY_SOURCE);
+		query.setQueryId(queryId);
+		query.setRemoveTime(removeTime);
+		return query;
+	}
+
+	/**
+	 * A CONTAINS range query that does not expire
+	 */
+	static Query getQuery(int queryId, double minX, double minY, double maxX, double maxY, String... keywords) {
+		return getQuery(queryId, TextualPredicate.CONTAINS, Long.MAX_VALUE, new Rectangle(new Point(minX, minY), new Point(maxX, maxY)), keywords);
+	}
+
+	/**
+	 * A CONTAINS range query that expires at removeTime
+	 */
+	static Query getQuery(int queryId, long removeTime, Rectangle spatialRange, String... keywords) {
+		return getQuery(queryId, TextualPredicate.CONTAINS, removeTime, spatialRange, keywords);
+	}
+
+	static Query getQuery(int queryId, TextualPredicate textualPredicate, long removeTime, Rectangle spatialRange, String... keywords) {
+		Query query = new Query();
+		query.setSrcId(QUERY_SOURCE);
+		query.setDataSrc(DATA_SOURCE);
+		query.setQueryId(queryId);
+		query.setQueryType(QueryType.queryTextualRange);
+		query.setTextualPredicate(textualPredicate);
+		query.setRemoveTime(removeTime);
+		query.setQueryText(new ArrayList<String>(Arrays.asList(keywords)));
+		query.setSpatialRange(spatialRange);
+		return query;
+	}
+
+	static DataObject getDataObject(int objectId, double x, double y, String text) {
+		return getDataObject(objectId, DATA_SOURCE, x, y, text);
+	}
+
+	static DataObject getDataObject(int objectId, String srcId, double x, double y, String text) {
+		DataObject dataObject = new DataObject(objectId, new Point(x, y), text, 0L, Command.addCommand);
+		dataObject.setSrcId(srcId);
+		return dataObject;
+	}
+}
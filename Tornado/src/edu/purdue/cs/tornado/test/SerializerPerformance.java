@@ -0,0 +1,386 @@
+package edu.purdue.cs.tornado.test;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.FieldSerializer;
+import com.google.common.base.Stopwatch;
+
+import edu.purdue.cs.tornado.helper.Command;
+import edu.purdue.cs.tornado.helper.DataObjectKNNComparator;
+import edu.purdue.cs.tornado.helper.LatLong;
+import edu.purdue.cs.tornado.helper.Point;
+import edu.purdue.cs.tornado.helper.QueryType;
+import edu.purdue.cs.tornado.helper.Rectangle;
+import edu.purdue.cs.tornado.helper.SourceIdRegistry;
+import edu.purdue.cs.tornado.helper.SpatialHelper;
+import edu.purdue.cs.tornado.helper.TextualPredicate;
+import edu.purdue.cs.tornado.messages.DataObject;
+import edu.purdue.cs.tornado.messages.DataObjectList;
+import edu.purdue.cs.tornado.messages.JoinQuery;
+import edu.purdue.cs.tornado.messages.KNNQuery;
+import edu.purdue.cs.tornado.messages.Query;
+import edu.purdue.cs.tornado.serializer.CoordinatesSerializer;
+import edu.purdue.cs.tornado.serializer.DataObjectListSerializer;
+import edu.purdue.cs.tornado.serializer.DataObjectSerializer;
+import edu.purdue.cs.tornado.serializer.JoinQuerySerializer;
+import edu.purdue.cs.tornado.serializer.KNNQuerySerializer;
+import edu.purdue.cs.tornado.serializer.KeywordsSerializer;
+import edu.purdue.cs.tornado.serializer.PointSerializer;
+import edu.purdue.cs.tornado.serializer.QuerySerializer;
+import edu.purdue.cs.tornado.serializer.RectangleSerializer;
+
+/**
+ * Compares the message size and the serialize + deserialize time of the data
+ * object and query serializers against the previous serializers (kept below as
+ * LegacyDataObjectSerializer and LegacyQuerySerializer) on the tweets file.
+ * KNN and join queries are compared against the Kryo field serializer used for them
+ * before KNNQuerySerializer and JoinQuerySerializer.
+ * Prints one csv line per serializer configuration.
+ */
+public class SerializerPerformance {
+	public static String tweetsFilePath = "datasources/twitterdata.csv";
+	public static String dataSourceId = "Tweets";
+	public static String querySourceId = "TextualRangeQueryGenerator";
+	public static int listSize = 64;
+	public static int rounds = 20;
+	public static int warmupRounds = 2;
+	public static int k = 10;
+
+	public static void main(String[] args) throws IOException {
+		if (args.length > 0)
+			tweetsFilePath = args[0];
+		ArrayList<DataObject> dataObjects = readTweets();
+		ArrayList<Query> queries = buildQueries(dataObjects, new Random(1000));
+		SourceIdRegistry.getInstance().register(Arrays.asList(querySourceId, dataSourceId));
+
+		System.out.println("serializer,object bytes,object list bytes per object,query bytes,object ns,object list ns per object,query ns");
+		for (int round = 0; round <= warmupRounds; round++) {
+			boolean print = round == warmupRounds;
+			measure("legacy", legacyKryo(), dataObjects, queries, print);
+			measure("compact double", compactKryo(CoordinatesSerializer.DOUBLE), dataObjects, queries, print);
+			measure("compact float", compactKryo(CoordinatesSerializer.FLOAT), dataObjects, queries, print);
+			measure("compact fixed", compactKryo(CoordinatesSerializer.FIXED_POINT), dataObjects, queries, print);
+		}
+
+		ArrayList<KNNQuery> knnQueries = buildKNNQueries(dataObjects, new Random(1000));
+		ArrayList<JoinQuery> joinQueries = buildJoinQueries(queries);
+		System.out.println("serializer,knn query bytes,join query bytes,knn query ns,join query ns");
+		for (int round = 0; round <= warmupRounds; round++) {
+			boolean print = round == warmupRounds;
+			measureQuerySubclasses("field serializer", legacyKryo(), knnQueries, joinQueries, print);
+			measureQuerySubclasses("compact double", compactKryo(CoordinatesSerializer.DOUBLE), knnQueries, joinQueries, print);
+			measureQuerySubclasses("compact fixed", compactKryo(CoordinatesSerializer.FIXED_POINT), knnQueries, joinQueries, print);
+		}
+	}
+
+	static Kryo legacyKryo() {
+		Kryo kryo = new Kryo();
+		kryo.register(Point.class, new PointSerializer());
+		kryo.register(Rectangle.class, new RectangleSerializer());
+		kryo.register(DataObject.class, new LegacyDataObjectSerializer());
+		kryo.register(DataObjectList.class, new LegacyDataObjectListSerializer());
+		kryo.register(Query.class, new LegacyQuerySerializer());
+		//KNN and join queries were not registered and fell back to the field serializer
+		kryo.register(DataObjectKNNComparator.class, new FieldSerializer<DataObjectKNNComparator>(kryo, DataObjectKNNComparator.class) {
+			@Override
+			protected DataObjectKNNComparator create(Kryo kryo, Input input, Class<DataObjectKNNComparator> type) {
+				return new DataObjectKNNComparator(null);
+			}
+		});
+		kryo.register(PriorityQueue.class, new LegacyPriorityQueueSerializer());
+		return kryo;
+	}
+
+	static Kryo compactKryo(int coordinateEncoding) {
+		Kryo kryo = new Kryo();
+		DataObjectSerializer dataObjectSerializer = new DataObjectSerializer();
+		dataObjectSerializer.setCoordinateEncoding(coordinateEncoding);
+		QuerySerializer querySerializer = new QuerySerializer();
+		querySerializer.setCoordinateEncoding(coordinateEncoding);
+		kryo.register(Point.class, new PointSerializer());
+		kryo.register(Rectangle.class, new RectangleSerializer());
+		kryo.register(DataObject.class, dataObjectSerializer);
+		kryo.register(DataObjectList.class, new DataObjectListSerializer());
+		kryo.register(Query.class, querySerializer);
+		kryo.register(KNNQuery.class, new KNNQuerySerializer());
+		kryo.register(JoinQuery.class, new JoinQuerySerializer());
+		return kryo;
+	}
+
+	static void measure(String name, Kryo kryo, ArrayList<DataObject> dataObjects, ArrayList<Query> queries, boolean print) {
+		ArrayList<Object> lists = new ArrayList<Object>();
+		for (int i = 0; i + listSize <= dataObjects.size(); i += listSize) {
+			DataObjectList dataObjectList = new DataObjectList();
+			dataObjectList.setDataObjects(new ArrayList<DataObject>(dataObjects.subList(i, i + listSize)));
+			lists.add(dataObjectList);
+		}
+		long[] objectResult = measure(kryo, new ArrayList<Object>(dataObjects));
+		long[] listResult = measure(kryo, lists);
+		long[] queryResult = measure(kryo, new ArrayList<Object>(queries));
+		int listObjects = lists.size() * listSize;
+		if (print)
+			System.out.println(name + "," + String.format("%.1f,%.1f,%.1f,%.0f,%.0f,%.0f", objectResult[0] / (double) dataObjects.size(), listResult[0] / (double) listObjects, queryResult[0] / (double) queries.size(), objectResult[1] / (double) (dataObjects.size() * rounds), listResult[1] / (double) (listObjects * rounds), queryResult[1] / (double) (queries.size() * rounds)));
+	}
+
+	static void measureQuerySubclasses(String name, Kryo kryo, ArrayList<KNNQuery> knnQueries, ArrayList<JoinQuery> joinQueries, boolean print) {
+		long[] knnResult = measure(kryo, new ArrayList<Object>(knnQueries));
+		long[] joinResult = measure(kryo, new ArrayList<Object>(joinQueries));
+		if (print)
+			System.out.println(name + "," + String.format("%.1f,%.1f,%.0f,%.0f", knnResult[0] / (double) knnQueries.size(), joinResult[0] / (double) joinQueries.size(), knnResult[1] / (double) (knnQueries.size() * rounds), joinResult[1] / (double) (joinQueries.size() * rounds)));
+	}
+
+	/**
+	 * @return {total bytes of one pass, nano seconds of all rounds}
+	 */
+	static long[] measure(Kryo kryo, ArrayList<Object> messages) {
+		Output output = new Output(1 << 16, -1);
+		Input input = new Input();
+		long bytes = 0;
+		int check = 0;
+		Stopwatch stopwatch = Stopwatch.createStarted();
+		for (int round = 0; round < rounds; round++) {
+			for (Object message : messages) {
+				output.clear();
+				kryo.writeObject(output, message);
+				if (round == 0)
+					bytes += output.position();
+				input.setBuffer(output.getBuffer(), 0, output.position());
+				check += kryo.readObject(input, message.getClass()).hashCode() & 1;
+			}
+		}
+		return new long[] { bytes + (check < 0 ? 1 : 0), stopwatch.elapsed(TimeUnit.NANOSECONDS) };
+	}
+
+	static ArrayList<DataObject> readTweets() throws IOException {
+		ArrayList<DataObject> dataObjects = new ArrayList<DataObject>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(tweetsFilePath), "UTF-8"));
+		LatLong latLong = new LatLong();
+		String line;
+		while ((line = reader.readLine()) != null) {
+			String[] tweetParts = line.split(",");
+			if (tweetParts.length < 6)
+				continue;
+			try {
+				latLong.setLatitude(Double.parseDouble(tweetParts[2]));
+				latLong.setLongitude(Double.parseDouble(tweetParts[3]));
+			} catch (NumberFormatException e) {
+				continue;
+			}
+			StringBuilder textContent = new StringBuilder();
+			for (int i = 5; i < tweetParts.length; i++)
+				textContent.append(tweetParts[i]).append(" ");
+			DataObject dataObject = new DataObject(dataObjects.size(), SpatialHelper.convertFromLatLonToXYPoint(latLong), textContent.toString(), System.currentTimeMillis(), Command.addCommand);
+			dataObject.setSrcId(dataSourceId);
+			dataObjects.add(dataObject);
+		}
+		reader.close();
+		return dataObjects;
+	}
+
+	static ArrayList<Query> buildQueries(ArrayList<DataObject> dataObjects, Random random) {
+		ArrayList<Query> queries = new ArrayList<Query>();
+		for (int i = 0; i < dataObjects.size(); i++) {
+			DataObject dataObject = dataObjects.get(random.nextInt(dataObjects.size()));
+			Query query = new Query();
+			query.setSrcId(querySourceId);
+			query.setDataSrc(dataSourceId);
+			query.setQueryId(i);
+			query.setQueryType(QueryType.queryTextualRange);
+			query.setCommand(Command.addCommand);
+			query.setTimeStamp(System.currentTimeMillis());
+			ArrayList<String> queryText = new ArrayList<String>();
+			for (int j = 0; j < 2 && j < dataObject.getObjectText().size(); j++)
+				queryText.add(dataObject.getObjectText().get(random.nextInt(dataObject.getObjectText().size())));
+			query.setQueryText(queryText);
+			query.setTextualPredicate(i % 10 == 0 ? TextualPredicate.BOOLEAN_EXPR : TextualPredicate.OVERlAPS);
+			if (i % 10 == 0) {
+				ArrayList<ArrayList<String>> complexQueryText = new ArrayList<ArrayList<String>>();
+				for (String keyword : queryText)
+					complexQueryText.add(new ArrayList<String>(Arrays.asList(keyword)));
+				query.setComplexQueryText(complexQueryText);
+			}
+			double side = 10 + random.nextDouble() * 200;
+			Point location = dataObject.getLocation();
+			query.setSpatialRange(new Rectangle(new Point(location.getX() - side, location.getY() - side), new Point(location.getX() + side, location.getY() + side)));
+			queries.add(query);
+		}
+		return queries;
+	}
+
+	/**
+	 * KNN queries around random tweets with a full top-k list of random tweets
+	 */
+	static ArrayList<KNNQuery> buildKNNQueries(ArrayList<DataObject> dataObjects, Random random) {
+		ArrayList<KNNQuery> knnQueries = new ArrayList<KNNQuery>();
+		for (int i = 0; i < dataObjects.size() / 10; i++) {
+			DataObject dataObject = dataObjects.get(random.nextInt(dataObjects.size()));
+			KNNQuery query = new KNNQuery();
+			query.setSrcId(querySourceId);
+			query.setDataSrc(dataSourceId);
+			query.setQueryId(i);
+			query.setQueryType(QueryType.queryTextualKNN);
+			query.setCommand(Command.addCommand);
+			query.setTimeStamp(System.currentTimeMillis());
+			query.setQueryText(new ArrayList<String>(dataObject.getObjectText().subList(0, Math.min(2, dataObject.getObjectText().size()))));
+			query.setTextualPredicate(TextualPredicate.OVERlAPS);
+			query.setK(k);
+			query.setFocalPoint(dataObject.getLocation());
+			query.setContinousQuery(true);
+			ArrayList<DataObject> rankedObjects = new ArrayList<DataObject>();
+			for (int j = 0; j < k; j++)
+				rankedObjects.add(dataObjects.get(random.nextInt(dataObjects.size())));
+			query.setRankedKNNList(rankedObjects);
+			knnQueries.add(query);
+		}
+		return knnQueries;
+	}
+
+	/**
+	 * Join queries over the ranges and keywords of the range queries
+	 */
+	static ArrayList<JoinQuery> buildJoinQueries(ArrayList<Query> queries) {
+		ArrayList<JoinQuery> joinQueries = new ArrayList<JoinQuery>();
+		for (int i = 0; i + 1 < queries.size(); i += 2) {
+			Query query = queries.get(i);
+			JoinQuery joinQuery = new JoinQuery();
+			joinQuery.setSrcId(querySourceId);
+			joinQuery.setDataSrc(dataSourceId);
+			joinQuery.setDataSrc2(dataSourceId);
+			joinQuery.setQueryId(query.getQueryId());
+			joinQuery.setQueryType(QueryType.queryTextualSpatialJoin);
+			joinQuery.setCommand(Command.addCommand);
+			joinQuery.setTimeStamp(query.getTimeStamp());
+			joinQuery.setSpatialRange(query.getSpatialRange());
+			joinQuery.setQueryText(query.getQueryText());
+			joinQuery.setQueryText2(queries.get(i + 1).getQueryText());
+			joinQuery.setTextualPredicate(TextualPredicate.OVERlAPS);
+			joinQuery.setTextualPredicate2(TextualPredicate.OVERlAPS);
+			joinQuery.setDistance(5.0);
+			joinQueries.add(joinQuery);
+		}
+		return joinQueries;
+	}
+
+	/**
+	 * The collection serializer of Kryo drops the comparator of a priority queue, the 
+	 * field serializer of KNN queries needs this serializer to read their top-k queue
+	 */
+	static class LegacyPriorityQueueSerializer extends com.esotericsoftware.kryo.Serializer<PriorityQueue> {
+		@Override
+		public PriorityQueue read(Kryo kryo, Input input, Class<PriorityQueue> priorityQueueClass) {
+			Comparator comparator = (Comparator) kryo.readClassAndObject(input);
+			int size = input.readInt(true);
+			PriorityQueue priorityQueue = new PriorityQueue(Math.max(1, size), comparator);
+			for (int i = 0; i < size; i++)
+				priorityQueue.add(kryo.readClassAndObject(input));
+			return priorityQueue;
+		}
+
+		@Override
+		public void write(Kryo kryo, Output output, PriorityQueue priorityQueue) {
+			kryo.writeClassAndObject(output, priorityQueue.comparator());
+			output.writeInt(priorityQueue.size(), true);
+			for (Object element : priorityQueue)
+				kryo.writeClassAndObject(output, element);
+		}
+	}
+
+	/**
+	 * The data object serializer before the compact format
+	 */
+	static class LegacyDataObjectSerializer extends com.esotericsoftware.kryo.Serializer<DataObject> {
+		@Override
+		public DataObject read(Kryo kryo, Input input, Class<DataObject> dataObjectClass) {
+			DataObject dataObject = new DataObject();
+			dataObject.setSrcId(kryo.readObjectOrNull(input, String.class));
+			dataObject.setObjectId(kryo.readObjectOrNull(input, Integer.class));
+			dataObject.setLocation(kryo.readObjectOrNull(input, Point.class));
+			KeywordsSerializer.EncodedKeywords objectText = KeywordsSerializer.read(input);
+			dataObject.setObjectText(objectText.keywords);
+			dataObject.setObjectTextIds(objectText.termIds);
+			dataObject.setCommand(kryo.readObjectOrNull(input, Command.class));
+			return dataObject;
+		}
+
+		@Override
+		public void write(Kryo kryo, Output output, DataObject dataObject) {
+			kryo.writeObjectOrNull(output, dataObject.getSrcId(), String.class);
+			kryo.writeObjectOrNull(output, dataObject.getObjectId(), Integer.class);
+			kryo.writeObjectOrNull(output, dataObject.getLocation(), Point.class);
+			KeywordsSerializer.write(output, dataObject.getObjectText());
+			kryo.writeObjectOrNull(output, dataObject.getCommand(), Command.class);
+		}
+	}
+
+	static class LegacyDataObjectListSerializer extends com.esotericsoftware.kryo.Serializer<DataObjectList> {
+		@Override
+		public DataObjectList read(Kryo kryo, Input input, Class<DataObjectList> dataObjectListClass) {
+			DataObjectList dataObjectList = new DataObjectList();
+			ArrayList<DataObject> dataObjects = new ArrayList<DataObject>();
+			int size = input.readInt();
+			for (int i = 0; i < size; i++)
+				dataObjects.add(kryo.readObject(input, DataObject.class));
+			dataObjectList.setDataObjects(dataObjects);
+			return dataObjectList;
+		}
+
+		@Override
+		public void write(Kryo kryo, Output output, DataObjectList dataObjectList) {
+			int size = dataObjectList.getDataObjects() == null ? 0 : dataObjectList.getDataObjects().size();
+			output.writeInt(size);
+			for (int i = 0; i < size; i++)
+				kryo.writeObject(output, dataObjectList.getDataObjects().get(i));
+		}
+	}
+
+	/**
+	 * The query serializer before the compact format
+	 */
+	static class LegacyQuerySerializer extends com.esotericsoftware.kryo.Serializer<Query> {
+		@Override
+		public Query read(Kryo kryo, Input input, Class<Query> queryClass) {
+			Query query = new Query();
+			query.setSrcId(kryo.readObjectOrNull(input, String.class));
+			query.setQueryType(kryo.readObjectOrNull(input, QueryType.class));
+			query.setQueryId(kryo.readObjectOrNull(input, Integer.class));
+			KeywordsSerializer.EncodedKeywords queryText = KeywordsSerializer.read(input);
+			query.setQueryText(queryText.keywords);
+			query.setQueryTextIds(queryText.termIds);
+			query.setTimeStamp(kryo.readObjectOrNull(input, Long.class));
+			query.setSpatialRange(kryo.readObjectOrNull(input, Rectangle.class));
+			query.setDataSrc(kryo.readObjectOrNull(input, String.class));
+			query.setCommand(kryo.readObjectOrNull(input, Command.class));
+			query.setTextualPredicate(kryo.readObjectOrNull(input, TextualPredicate.class));
+			query.setRemoveTime(kryo.readObjectOrNull(input, Long.class));
+			query.setComplexQueryText(kryo.readObjectOrNull(input, ArrayList.class));
+			return query;
+		}
+
+		@Override
+		public void write(Kryo kryo, Output output, Query query) {
+			kryo.writeObjectOrNull(output, query.getSrcId(), String.class);
+			kryo.writeObjectOrNull(output, query.getQueryType(), QueryType.class);
+			kryo.writeObjectOrNull(output, query.getQueryId(), Integer.class);
+			KeywordsSerializer.write(output, query.getQueryText());
+			kryo.writeObjectOrNull(output, query.getTimeStamp(), Long.class);
+			kryo.writeObjectOrNull(output, query.getSpatialRange(), Rectangle.class);
+			kryo.writeObjectOrNull(output, query.getDataSrc(), String.class);
+			kryo.writeObjectOrNull(output, query.getCommand(), Command.class);
+			kryo.writeObjectOrNull(output, query.getTextualPredicate(), TextualPredicate.class);
+			kryo.writeObjectOrNull(output, query.getRemoveTime(), Long.class);
+			kryo.writeObjectOrNull(output, query.getComplexQueryText(), ArrayList.class);
+		}
+	}
+}
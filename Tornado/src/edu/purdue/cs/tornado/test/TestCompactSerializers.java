@@ -0,0 +1,399 @@
+package edu.purdue.cs.tornado.test;
+
+import static edu.purdue.cs.tornado.test.MessageFixtures.getDataObject;
+import static edu.purdue.cs.tornado.test.MessageFixtures.getQuery;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import edu.purdue.cs.tornado.helper.Command;
+import edu.purdue.cs.tornado.helper.IndexCell;
+import edu.purdue.cs.tornado.helper.IndexCellCoordinates;
+import edu.purdue.cs.tornado.helper.KeywordSignature;
+import edu.purdue.cs.tornado.helper.Point;
+import edu.purdue.cs.tornado.helper.QueryType;
+import edu.purdue.cs.tornado.helper.Rectangle;
+import edu.purdue.cs.tornado.helper.SpatialHelper;
+import edu.purdue.cs.tornado.helper.SourceIdRegistry;
+import edu.purdue.cs.tornado.helper.TextualPredicate;
+import edu.purdue.cs.tornado.index.local.hybridgrid.GridIndexCell;
+import edu.purdue.cs.tornado.loadbalance.Cell;
+import edu.purdue.cs.tornado.messages.CombinedTuple;
+import edu.purdue.cs.tornado.messages.DataObject;
+import edu.purdue.cs.tornado.messages.DataObjectList;
+import edu.purdue.cs.tornado.messages.IndexCellBlock;
+import edu.purdue.cs.tornado.messages.JoinQuery;
+import edu.purdue.cs.tornado.messages.KNNQuery;
+import edu.purdue.cs.tornado.messages.Query;
+import edu.purdue.cs.tornado.serializer.CombinedTupleSerializer;
+import edu.purdue.cs.tornado.serializer.CoordinatesSerializer;
+import edu.purdue.cs.tornado.serializer.DataObjectListSerializer;
+import edu.purdue.cs.tornado.serializer.DataObjectSerializer;
+import edu.purdue.cs.tornado.serializer.IndexCellBlockSerializer;
+import edu.purdue.cs.tornado.serializer.JoinQuerySerializer;
+import edu.purdue.cs.tornado.serializer.KNNQuerySerializer;
+import edu.purdue.cs.tornado.serializer.KryoPool;
+import edu.purdue.cs.tornado.serializer.QuerySerializer;
+
+public class TestCompactSerializers {
+	private static final Rectangle QUERY_RANGE = new Rectangle(new Point(0, 0), new Point(300, 300));
+
+	private static Kryo getKryo(int coordinateEncoding) {
+		SourceIdRegistry.getInstance().register(Arrays.asList("QueriesSpout", "Tweets"));
+		Kryo kryo = new Kryo();
+		DataObjectSerializer dataObjectSerializer = new DataObjectSerializer();
+		dataObjectSerializer.setCoordinateEncoding(coordinateEncoding);
+		QuerySerializer querySerializer = new QuerySerializer();
+		querySerializer.setCoordinateEncoding(coordinateEncoding);
+		kryo.register(DataObject.class, dataObjectSerializer);
+		kryo.register(DataObjectList.class, new DataObjectListSerializer());
+		kryo.register(Query.class, querySerializer);
+		kryo.register(KNNQuery.class, new KNNQuerySerializer());
+		kryo.register(JoinQuery.class, new JoinQuerySerializer());
+		kryo.register(CombinedTuple.class, new CombinedTupleSerializer());
+		kryo.register(IndexCellBlock.class, new IndexCellBlockSerializer());
+		return kryo;
+	}
+
+	private static <T> T roundTrip(Kryo kryo, T message) {
+		Output output = new Output(1024, -1);
+		kryo.writeObject(output, message);
+		return (T) kryo.readObject(new Input(output.toBytes()), message.getClass());
+	}
+
+	@Test
+	public void testDataObjectRoundTrip() {
+		Kryo kryo = getKryo(CoordinatesSerializer.DOUBLE);
+		DataObject dataObject = roundTrip(kryo, getDataObject(123456, new String("Tweets"), 1234.5678, 9.25, "pizza delivery west lafayette"));
+		assertEquals(123456, dataObject.getObjectIdValue());
+		assertSame(SourceIdRegistry.getInstance().intern("Tweets"), dataObject.getSrcId());
+		assertEquals(SourceIdRegistry.getInstance().getHandle("Tweets"), dataObject.getSrcHandle());
+		assertEquals(new Point(1234.5678, 9.25), dataObject.getLocation());
+		assertEquals(Arrays.asList("delivery", "lafayette", "pizza", "west"), dataObject.getObjectText());
+		assertEquals(Command.addCommand, dataObject.getCommand());
+
+		DataObject unregistered = roundTrip(kryo, getDataObject(-7, "UnknownSpout", 0, 0, ""));
+		assertEquals(-7, unregistered.getObjectIdValue());
+		assertEquals("UnknownSpout", unregistered.getSrcId());
+		assertEquals(-1, unregistered.getSrcHandle());
+
+		DataObject empty = new DataObject();
+		empty.setLocation(null);
+		empty = roundTrip(kryo, empty);
+		assertNull(empty.getSrcId());
+		assertNull(empty.getLocation());
+		assertNull(empty.getCommand());
+	}
+
+	@Test
+	public void testEqualsBySourceHandle() {
+		SourceIdRegistry.getInstance().register(Arrays.asList("QueriesSpout", "Tweets"));
+		DataObject dataObject = getDataObject(5, new String("Tweets"), 1, 2, "pizza");
+		assertEquals(dataObject, new DataObject(dataObject));
+		assertEquals(dataObject, getDataObject(5, "Tweets", 3, 4, "coffee"));
+		assertEquals(getDataObject(5, new String("UnknownSpout"), 1, 2, "pizza"), getDataObject(5, "UnknownSpout", 1, 2, "pizza"));
+		assertFalse(dataObject.equals(getDataObject(5, "QueriesSpout", 1, 2, "pizza")));
+		assertFalse(dataObject.equals(getDataObject(6, "Tweets", 1, 2, "pizza")));
+	}
+
+	@Test
+	public void testQuantizedCoordinates() {
+		DataObject dataObject = roundTrip(getKryo(CoordinatesSerializer.FIXED_POINT), getDataObject(1, "Tweets", 1234.5678, 9999.999, "pizza"));
+		assertEquals(1234.57, dataObject.getX(), 1e-9);
+		assertEquals(10000.0, dataObject.getY(), 1e-9);
+		dataObject = roundTrip(getKryo(CoordinatesSerializer.FLOAT), getDataObject(1, "Tweets", 1234.5678, 9.25, "pizza"));
+		assertEquals(1234.5678, dataObject.getX(), 1e-3);
+		assertEquals(9.25, dataObject.getY(), 0.0);
+	}
+
+	@Test
+	public void testDataObjectListRoundTrip() {
+		Kryo kryo = getKryo(CoordinatesSerializer.DOUBLE);
+		DataObjectList dataObjectList = new DataObjectList();
+		int[] objectIds = { 1000, 1001, 1002, 5, Integer.MAX_VALUE, Integer.MIN_VALUE, 0 };
+		for (int objectId : objectIds)
+			dataObjectList.addDataObject(getDataObject(objectId, "Tweets", objectId % 100, 1, "storm kryo"));
+		ArrayList<DataObject> dataObjects = roundTrip(kryo, dataObjectList).getDataObjects();
+		assertEquals(objectIds.length, dataObjects.size());
+		for (int i = 0; i < objectIds.length; i++) {
+			assertEquals(objectIds[i], dataObjects.get(i).getObjectIdValue());
+			assertEquals(objectIds[i] % 100, dataObjects.get(i).getX(), 0.0);
+		}
+	}
+
+	@Test
+	public void testOutputBatchRoundTrip() {
+		Kryo kryo = getKryo(CoordinatesSerializer.DOUBLE);
+		CombinedTuple outputBatch = new CombinedTuple();
+		Query query = new Query();
+		query.setQueryId(7);
+		query.setSrcId("QuerySpout");
+		outputBatch.setQuery(query);
+		outputBatch.setDataObjectList(new ArrayList<DataObject>());
+		outputBatch.setDataObjectCommandList(new ArrayList<Command>());
+		outputBatch.addDataObject(getDataObject(30, "Tweets", 1, 2, "pizza"), Command.addCommand);
+		outputBatch.addDataObject(getDataObject(12, "Tweets", 3, 4, "pizza"), Command.dropCommand);
+		outputBatch.addDataObject(getDataObject(30, "Tweets", 5, 6, "pizza"), Command.updateCommand);
+		CombinedTuple read = roundTrip(kryo, outputBatch);
+		assertEquals(Integer.valueOf(7), read.getQuery().getQueryId());
+		assertNull(read.getDataObject());
+		assertEquals(3, read.getDataObjectList().size());
+		int[] objectIds = { 30, 12, 30 };
+		Command[] commands = { Command.addCommand, Command.dropCommand, Command.updateCommand };
+		for (int i = 0; i < objectIds.length; i++) {
+			assertEquals(objectIds[i], read.getDataObjectList().get(i).getObjectIdValue());
+			assertEquals(2 * i + 1, read.getDataObjectList().get(i).getX(), 0.0);
+			assertEquals(commands[i], read.getDataObjectCommand(i));
+		}
+		//a single match keeps the single match fields 
+		CombinedTuple single = new CombinedTuple();
+		single.setQuery(query);
+		single.setDataObject(getDataObject(5, "Tweets", 1, 2, "pizza"));
+		single.setDataObjectCommand(Command.addCommand);
+		read = roundTrip(kryo, single);
+		assertNull(read.getDataObjectList());
+		assertNull(read.getDataObjectCommandList());
+		assertEquals(5, read.getDataObject().getObjectIdValue());
+		assertEquals(Command.addCommand, read.getDataObjectCommand());
+	}
+
+	private static GridIndexCell getGridIndexCell(int x, int y, Query... queries) {
+		GridIndexCell indexCell = new GridIndexCell(new Rectangle(new Point(100 * x, 100 * y), new Point(100 * x + 100, 100 * y + 100)), false, 0, new IndexCellCoordinates(x, y));
+		for (Query query : queries)
+			indexCell.addQuery(query);
+		indexCell.setIndexCellCost(10 * x + y);
+		return indexCell;
+	}
+
+	@Test
+	public void testGridIndexCellRoundTrip() {
+		SourceIdRegistry.getInstance().register(Arrays.asList("QueriesSpout", "Tweets"));
+		GridIndexCell indexCell = new KryoPool().copy(getGridIndexCell(1, 1, getQuery(1, TextualPredicate.OVERlAPS, 5000L, QUERY_RANGE, "pizza")));
+		//the query signature of the read cell is rebuilt, an object with the keyword of the query still matches
+		ArrayList<String> keywords = new ArrayList<String>(Arrays.asList("pizza"));
+		int matches = 0;
+		for (List<Query> queries : indexCell.geSpatiotTextualOverlappingQueries(new Point(150, 150), keywords, KeywordSignature.getSignature(keywords)))
+			matches += queries.size();
+		assertEquals(1, matches);
+	}
+
+	@Test
+	public void testIndexCellBlockRoundTrip() {
+		Kryo kryo = getKryo(CoordinatesSerializer.DOUBLE);
+		Query pizza = getQuery(1, TextualPredicate.OVERlAPS, 5000L, QUERY_RANGE, "pizza");
+		Query purdue = getQuery(2, TextualPredicate.OVERlAPS, 7000L, QUERY_RANGE, "purdue", "pizza");
+		IndexCellBlock indexCellBlock = new IndexCellBlock();
+		indexCellBlock.addIndexCell(getGridIndexCell(0, 0, pizza));
+		indexCellBlock.addIndexCell(getGridIndexCell(0, 1, pizza, purdue));
+		GridIndexCell storingCell = getGridIndexCell(2, 1, purdue);
+		storingCell.addDataObject(getDataObject(11, "Tweets", 250, 150, "purdue pizza"));
+		storingCell.addDataObject(getDataObject(12, "Tweets", 260, 160, "pizza"));
+		indexCellBlock.addIndexCell(storingCell);
+		int estimatedSize = indexCellBlock.addIndexCell(getGridIndexCell(2, 2));
+		//every query is in the query table once 
+		assertEquals(2, indexCellBlock.getQueries().size());
+		assertEquals(4, indexCellBlock.getCellQueryCount());
+		Output output = new Output(4096, -1);
+		kryo.writeObject(output, indexCellBlock);
+		assertTrue(output.position() <= estimatedSize);
+
+		ArrayList<IndexCell> indexCells = kryo.readObject(new Input(output.toBytes()), IndexCellBlock.class).getIndexCells();
+		assertEquals(4, indexCells.size());
+		int[][] coordinates = { { 0, 0 }, { 0, 1 }, { 2, 1 }, { 2, 2 } };
+		int[] queryCounts = { 1, 2, 1, 0 };
+		for (int i = 0; i < indexCells.size(); i++) {
+			IndexCell indexCell = indexCells.get(i);
+			int x = coordinates[i][0], y = coordinates[i][1];
+			assertEquals(new IndexCellCoordinates(x, y), indexCell.getGlobalCoordinates());
+			assertEquals(new Rectangle(new Point(100 * x, 100 * y), new Point(100 * x + 100, 100 * y + 100)), indexCell.getBounds());
+			assertEquals(Integer.valueOf(10 * x + y), indexCell.getIndexCellCost());
+			assertEquals(queryCounts[i], indexCell.getStoredQueries() == null ? 0 : indexCell.getStoredQueries().size());
+		}
+		assertEquals(Long.valueOf(5000L), indexCells.get(1).getMinExpireTime());
+		assertEquals(Long.valueOf(Long.MAX_VALUE), indexCells.get(3).getMinExpireTime());
+		//cells that shared a query share the read query 
+		assertSame(indexCells.get(0).getStoredQueries().get(0), indexCells.get(1).getStoredQueries().get(0));
+		assertSame(indexCells.get(1).getStoredQueries().get(1), indexCells.get(2).getStoredQueries().get(0));
+		assertEquals(Integer.valueOf(2), indexCells.get(2).getStoredQueries().get(0).getQueryId());
+		//the inverted lists are rebuilt 
+		assertEquals(2, indexCells.get(1).getQueriesInvertedList().get("QueriesSpout").get("pizza").size());
+		assertEquals(1, indexCells.get(1).getQueriesInvertedList().get("QueriesSpout").get("purdue").size());
+		//the stored objects stay in their cell 
+		assertEquals(Integer.valueOf(0), indexCells.get(1).getDataObjectCount());
+		assertEquals(Integer.valueOf(2), indexCells.get(2).getDataObjectCount());
+		assertEquals(new Point(260, 160), indexCells.get(2).getDataObject(12).getLocation());
+		assertEquals(Integer.valueOf(2), indexCells.get(2).getAllDataTextInCell().get("pizza"));
+	}
+
+	@Test
+	public void testKryoPoolCopy() throws Exception {
+		final ArrayList<Cell> partitions = new ArrayList<Cell>();
+		for (int i = 0; i < 64; i++) {
+			Cell cell = new Cell(i, i + 10, 2 * i, 2 * i + 10);
+			cell.setIndex(i);
+			cell.setCost(i * 1.5);
+			partitions.add(cell);
+		}
+		final ArrayList<Cell>[] copies = new ArrayList[4];
+		Thread[] threads = new Thread[copies.length];
+		for (int t = 0; t < threads.length; t++) {
+			final int copy = t;
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 100; i++)
+						copies[copy] = KryoPool.getInstance().copy(partitions);
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		for (ArrayList<Cell> copy : copies) {
+			assertEquals(partitions.size(), copy.size());
+			for (int i = 0; i < partitions.size(); i++) {
+				Cell cell = partitions.get(i), copied = copy.get(i);
+				assertFalse(cell == copied);
+				assertEquals(cell.getIndex(), copied.getIndex());
+				assertEquals(cell.getCost(), copied.getCost(), 0);
+				assertTrue(Arrays.equals(cell.getCoords(), copied.getCoords()));
+				assertTrue(Arrays.equals(cell.getDimensions(), copied.getDimensions()));
+			}
+		}
+		Cell cell = KryoPool.getInstance().deserialize(KryoPool.getInstance().serialize(partitions.get(3)), Cell.class);
+		assertEquals(3, cell.getIndex());
+	}
+
+	@Test
+	public void testQueryRoundTrip() {
+		Kryo kryo = getKryo(CoordinatesSerializer.DOUBLE);
+		Query query = new Query();
+		query.setSrcId("QueriesSpout");
+		query.setDataSrc("Tweets");
+		query.setQueryId(42);
+		query.setQueryType(QueryType.queryTextualRange);
+		query.setCommand(Command.dropCommand);
+		query.setTimeStamp(1500000000000L);
+		query.setRemoveTime(1500000060000L);
+		query.setQueryText(new ArrayList<String>(Arrays.asList("pizza", "delivery", "purdue")));
+		query.setComplexQueryText(new ArrayList<ArrayList<String>>(Arrays.asList(new ArrayList<String>(Arrays.asList("delivery", "pizza")), new ArrayList<String>(Arrays.asList("purdue")))));
+		query.setTextualPredicate(TextualPredicate.BOOLEAN_EXPR);
+		query.setSpatialRange(new Rectangle(new Point(10.5, 20.25), new Point(300, 400)));
+		Query result = roundTrip(kryo, query);
+		assertEquals(query.getSrcId(), result.getSrcId());
+		assertEquals(query.getDataSrc(), result.getDataSrc());
+		assertEquals(query.getQueryId(), result.getQueryId());
+		assertEquals(query.getQueryType(), result.getQueryType());
+		assertEquals(query.getCommand(), result.getCommand());
+		assertEquals(query.getTimeStamp(), result.getTimeStamp());
+		assertEquals(query.getRemoveTime(), result.getRemoveTime());
+		assertEquals(query.getQueryText(), result.getQueryText());
+		assertEquals(query.getComplexQueryText(), result.getComplexQueryText());
+		assertEquals(query.getTextualPredicate(), result.getTextualPredicate());
+		assertEquals(query.getSpatialRange(), result.getSpatialRange());
+
+		Query empty = new Query();
+		empty.setSpatialRange(null);
+		empty = roundTrip(kryo, empty);
+		assertNull(empty.getQueryId());
+		assertNull(empty.getSpatialRange());
+		assertNull(empty.getTextualPredicate());
+		assertNull(empty.getComplexQueryText());
+	}
+
+	@Test
+	public void testKNNQueryRoundTrip() {
+		Kryo kryo = getKryo(CoordinatesSerializer.DOUBLE);
+		KNNQuery query = new KNNQuery();
+		query.setSrcId("QueriesSpout");
+		query.setDataSrc("Tweets");
+		query.setQueryId(7);
+		query.setQueryType(QueryType.queryTextualKNN);
+		query.setCommand(Command.addCommand);
+		query.setTimeStamp(1500000000000L);
+		query.setQueryText(new ArrayList<String>(Arrays.asList("pizza")));
+		query.setTextualPredicate(TextualPredicate.OVERlAPS);
+		query.setK(3);
+		query.setFocalPoint(new Point(100, 100));
+		query.setContinousQuery(false);
+		query.resetKNNStructures();
+		for (int i = 0; i < 6; i++)
+			query.processDataObject(getDataObject(10 + i, "Tweets", 100 + i * 7, 100 - i * 3, "pizza slice"));
+
+		KNNQuery result = roundTrip(kryo, query);
+		assertEquals(query.getSrcId(), result.getSrcId());
+		assertEquals(query.getDataSrc(), result.getDataSrc());
+		assertEquals(query.getQueryId(), result.getQueryId());
+		assertEquals(query.getQueryType(), result.getQueryType());
+		assertEquals(query.getTimeStamp(), result.getTimeStamp());
+		assertEquals(query.getQueryText(), result.getQueryText());
+		assertEquals(query.getTextualPredicate(), result.getTextualPredicate());
+		assertEquals(query.getK(), result.getK());
+		assertEquals(query.getFocalPoint(), result.getFocalPoint());
+		assertFalse(result.getContinousQuery());
+		assertNull(result.getDistance());
+		ArrayList<DataObject> expectedRanks = query.getRankedKNNList();
+		ArrayList<DataObject> ranks = result.getRankedKNNList();
+		assertEquals(3, ranks.size());
+		for (int i = 0; i < ranks.size(); i++)
+			assertEquals(expectedRanks.get(i).getObjectIdValue(), ranks.get(i).getObjectIdValue());
+		assertEquals(query.getFarthestDistance(), result.getFarthestDistance(), 0.0);
+		assertEquals(SpatialHelper.getDistanceInBetween(new Point(114, 94), query.getFocalPoint()), result.getFarthestDistance(), 0.0);
+
+		//a closer object replaces the farthest one in the restored top-k list
+		result.processDataObject(getDataObject(99, "Tweets", 101, 101, "pizza"));
+		ranks = result.getRankedKNNList();
+		assertEquals(3, ranks.size());
+		assertEquals(11, ranks.get(0).getObjectIdValue());
+		assertEquals(99, ranks.get(1).getObjectIdValue());
+		assertEquals(10, ranks.get(2).getObjectIdValue());
+	}
+
+	@Test
+	public void testJoinQueryRoundTrip() {
+		Kryo kryo = getKryo(CoordinatesSerializer.FIXED_POINT);
+		JoinQuery query = new JoinQuery();
+		query.setSrcId("QueriesSpout");
+		query.setDataSrc("Tweets");
+		query.setDataSrc2("UnknownSpout");
+		query.setQueryId(8);
+		query.setQueryType(QueryType.queryTextualSpatialJoin);
+		query.setSpatialRange(new Rectangle(new Point(0, 0), new Point(500, 500)));
+		query.setQueryText(new ArrayList<String>(Arrays.asList("pizza")));
+		query.setQueryText2(new ArrayList<String>(Arrays.asList("coffee", "purdue")));
+		query.setTextualPredicate(TextualPredicate.OVERlAPS);
+		query.setTextualPredicate2(TextualPredicate.CONTAINS);
+		query.setDistance(12.345);
+		JoinQuery result = roundTrip(kryo, query);
+		assertEquals(query.getSrcId(), result.getSrcId());
+		assertEquals(query.getDataSrc(), result.getDataSrc());
+		assertEquals(query.getDataSrc2(), result.getDataSrc2());
+		assertEquals(query.getQueryId(), result.getQueryId());
+		assertEquals(query.getQueryType(), result.getQueryType());
+		assertEquals(query.getSpatialRange(), result.getSpatialRange());
+		assertEquals(query.getQueryText(), result.getQueryText());
+		assertEquals(query.getQueryText2(), result.getQueryText2());
+		assertEquals(query.getTextualPredicate(), result.getTextualPredicate());
+		assertEquals(query.getTextualPredicate2(), result.getTextualPredicate2());
+		assertNull(result.getJoinTextualPredicate());
+		assertEquals(12.35, result.getDistance(), 1e-9);
+		assertEquals(Arrays.toString(query.getQueryText2Ids()), Arrays.toString(result.getQueryText2Ids()));
+
+		JoinQuery empty = roundTrip(kryo, new JoinQuery());
+		assertNull(empty.getDataSrc2());
+		assertNull(empty.getQueryText2());
+		assertNull(empty.getDistance());
+	}
+}
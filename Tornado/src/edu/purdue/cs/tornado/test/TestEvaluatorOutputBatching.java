@@ -0,0 +1,123 @@
+package edu.purdue.cs.tornado.test;
+
+import static edu.purdue.cs.tornado.test.BoltFixtures.EVALUATOR_ID;
+import static edu.purdue.cs.tornado.test.BoltFixtures.HOUR;
+import static edu.purdue.cs.tornado.test.BoltFixtures.getObjectIds;
+import static edu.purdue.cs.tornado.test.BoltFixtures.getTickTuple;
+import static edu.purdue.cs.tornado.test.BoltFixtures.getTuple;
+import static edu.purdue.cs.tornado.test.MessageFixtures.getDataObject;
+import static edu.purdue.cs.tornado.test.MessageFixtures.getQuery;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.tuple.Tuple;
+import org.junit.Test;
+
+import edu.purdue.cs.tornado.evaluator.SpatioTextualEvaluatorBolt;
+import edu.purdue.cs.tornado.helper.Command;
+import edu.purdue.cs.tornado.helper.SpatioTextualConstants;
+import edu.purdue.cs.tornado.index.DataSourceInformation;
+import edu.purdue.cs.tornado.index.global.GlobalIndexType;
+import edu.purdue.cs.tornado.index.local.LocalIndexType;
+import edu.purdue.cs.tornado.messages.CombinedTuple;
+import edu.purdue.cs.tornado.messages.DataObject;
+import edu.purdue.cs.tornado.messages.Query;
+import edu.purdue.cs.tornado.messages.ResultSetChange;
+import edu.purdue.cs.tornado.test.BoltFixtures.RecordingCollector;
+
+public class TestEvaluatorOutputBatching {
+
+	/**
+	 * An evaluator bolt without indexes that only records when a query arrives
+	 */
+	static class BatchingEvaluatorBolt extends SpatioTextualEvaluatorBolt {
+		private static final long serialVersionUID = 1L;
+		RecordingCollector recorder;
+		int emittedBeforeQuery = -1;
+
+		BatchingEvaluatorBolt(RecordingCollector recorder, int outputBatchSize, long outputBatchMaxLatency) {
+			super(EVALUATOR_ID, LocalIndexType.HYBRID_GRID, GlobalIndexType.GRID, null, 64);
+			this.recorder = recorder;
+			this.collector = new OutputCollector(recorder);
+			HashMap<String, Object> conf = new HashMap<String, Object>();
+			conf.put(SpatioTextualConstants.OUTPUT_BATCH_SIZE, outputBatchSize);
+			conf.put(SpatioTextualConstants.OUTPUT_BATCH_MAX_LATENCY_MS, outputBatchMaxLatency);
+			this.stormConf = conf;
+			this.sourcesInformations = new HashMap<String, DataSourceInformation>();
+			prepareOutputBatches();
+		}
+
+		@Override
+		public void handleQuery(Tuple input) {
+			emittedBeforeQuery = recorder.tuples.size();
+		}
+
+		void match(Query query, DataObject dataObject, Command command) {
+			generateOutputForResultChange(new ArrayList<ResultSetChange>(Arrays.asList(new ResultSetChange(dataObject, command, query))));
+		}
+	}
+
+	static CombinedTuple getOutputBatch(RecordingCollector recorder, int tuple) {
+		assertEquals(SpatioTextualConstants.Bolt_Output_STreamIDExtension, recorder.streams.get(tuple));
+		return (CombinedTuple) recorder.tuples.get(tuple).get(0);
+	}
+
+	@Test
+	public void testOutputBatchKeepsMatchOrder() {
+		RecordingCollector recorder = new RecordingCollector();
+		BatchingEvaluatorBolt bolt = new BatchingEvaluatorBolt(recorder, 3, HOUR);
+		Query pizza = getQuery(1, 0, 0, 1000, 1000, "pizza");
+		Query coffee = getQuery(2, 0, 0, 1000, 1000, "coffee");
+		bolt.match(pizza, getDataObject(10, 100, 100, "pizza"), Command.addCommand);
+		bolt.match(coffee, getDataObject(11, 100, 100, "coffee"), Command.addCommand);
+		bolt.match(pizza, getDataObject(12, 100, 100, "pizza"), Command.dropCommand);
+		assertEquals(0, recorder.tuples.size());
+		bolt.match(pizza, getDataObject(10, 200, 200, "pizza"), Command.updateCommand);
+		//the full batch of a query keeps its matches in order
+		assertEquals(1, recorder.tuples.size());
+		CombinedTuple outputBatch = getOutputBatch(recorder, 0);
+		assertEquals(Integer.valueOf(1), outputBatch.getQuery().getQueryId());
+		assertEquals(Arrays.asList(10, 12, 10), getObjectIds(outputBatch.getDataObjectList()));
+		assertEquals(Arrays.asList(Command.addCommand, Command.dropCommand, Command.updateCommand), outputBatch.getDataObjectCommandList());
+		bolt.flushOutputBatches();
+		assertEquals(2, recorder.tuples.size());
+		outputBatch = getOutputBatch(recorder, 1);
+		assertEquals(Integer.valueOf(2), outputBatch.getQuery().getQueryId());
+		assertEquals(Arrays.asList(11), getObjectIds(outputBatch.getDataObjectList()));
+	}
+
+	@Test
+	public void testOutputBatchFlushOnLatency() {
+		RecordingCollector recorder = new RecordingCollector();
+		BatchingEvaluatorBolt bolt = new BatchingEvaluatorBolt(recorder, 32, 1000);
+		Query pizza = getQuery(1, 0, 0, 1000, 1000, "pizza");
+		bolt.match(pizza, getDataObject(10, 100, 100, "pizza"), Command.addCommand);
+		//every tuple checks the latency of the pending matches
+		Tuple other = getTuple("Other", "other");
+		bolt.execute(other);
+		assertEquals(0, recorder.tuples.size());
+		bolt.oldestPendingOutputTime -= 1000;
+		bolt.execute(other);
+		assertEquals(1, recorder.tuples.size());
+		assertEquals(Arrays.asList(10), getObjectIds(getOutputBatch(recorder, 0).getDataObjectList()));
+	}
+
+	@Test
+	public void testOutputBatchFlushOnTickAndQuery() {
+		RecordingCollector recorder = new RecordingCollector();
+		BatchingEvaluatorBolt bolt = new BatchingEvaluatorBolt(recorder, 32, HOUR);
+		Query pizza = getQuery(1, 0, 0, 1000, 1000, "pizza");
+		bolt.match(pizza, getDataObject(10, 100, 100, "pizza"), Command.addCommand);
+		bolt.execute(getTickTuple());
+		assertEquals(1, recorder.tuples.size());
+		//a query update replaces the query object that keys its batch
+		bolt.match(pizza, getDataObject(11, 100, 100, "pizza"), Command.addCommand);
+		bolt.execute(getTuple(EVALUATOR_ID, SpatioTextualConstants.getIndexBoltQueryStreamId(EVALUATOR_ID)));
+		assertEquals(2, bolt.emittedBeforeQuery);
+		assertEquals(Arrays.asList(11), getObjectIds(getOutputBatch(recorder, 1).getDataObjectList()));
+	}
+}
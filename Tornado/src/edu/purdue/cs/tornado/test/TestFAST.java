@@ -0,0 +1,748 @@
+package edu.purdue.cs.tornado.test;
+
+import static edu.purdue.cs.tornado.test.MessageFixtures.getDataObject;
+import static edu.purdue.cs.tornado.test.MessageFixtures.getQuery;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import edu.purdue.cs.tornado.helper.Command;
+import edu.purdue.cs.tornado.helper.DataSourceType;
+import edu.purdue.cs.tornado.helper.IndexCell;
+import edu.purdue.cs.tornado.helper.IndexCellCoordinates;
+import edu.purdue.cs.tornado.helper.Point;
+import edu.purdue.cs.tornado.helper.QueryType;
+import edu.purdue.cs.tornado.helper.Rectangle;
+import edu.purdue.cs.tornado.helper.SpatialHelper;
+import edu.purdue.cs.tornado.helper.SpatioTextualConstants;
+import edu.purdue.cs.tornado.helper.TextualPredicate;
+import edu.purdue.cs.tornado.index.DataSourceInformation;
+import edu.purdue.cs.tornado.index.local.LocalIndexKNNIterator;
+import edu.purdue.cs.tornado.index.local.LocalIndexType;
+import edu.purdue.cs.tornado.index.local.fast.FAST;
+import edu.purdue.cs.tornado.index.local.fast.FASTCellTable;
+import edu.purdue.cs.tornado.index.local.fast.FASTTuner;
+import edu.purdue.cs.tornado.index.local.fast.IndexCellOptimizedExperiment;
+import edu.purdue.cs.tornado.loadbalance.Cell;
+import edu.purdue.cs.tornado.messages.DataObject;
+import edu.purdue.cs.tornado.messages.KNNQuery;
+import edu.purdue.cs.tornado.messages.Query;
+import edu.purdue.cs.tornado.messages.ResultSetChange;
+
+public class TestFAST {
+
+	private static FAST getFAST(Rectangle bounds) {
+		DataSourceInformation dataSourceInformation = new DataSourceInformation(bounds, "Tweets", DataSourceType.DATA_SOURCE, SpatioTextualConstants.persistentPersistenceState, SpatioTextualConstants.CLEAN, true,
+				LocalIndexType.FAST, 100);
+		return (FAST) dataSourceInformation.getLocalHybridIndex();
+	}
+
+	private static FAST getFAST() {
+		return getFAST(new Rectangle(new Point(0, 0), new Point(10000, 10000)));
+	}
+
+	/**
+	 * A FAST without a data source expires its queries by the number of
+	 * inserted queries
+	 */
+	private static FAST getCountingFAST() {
+		return new FAST(new Rectangle(new Point(0, 0), new Point(10000, 10000)), 512, 8);
+	}
+
+	private static List<Query> match(FAST fast, DataObject dataObject) {
+		return fast.getReleventSpatialKeywordRangeQueries(dataObject, false).get(0);
+	}
+
+	@Test
+	public void testDropAndUpdateQuery() {
+		FAST fast = getFAST();
+		Query small = getQuery(1, 100, 100, 200, 200, "pizza");
+		Query large = getQuery(2, 0, 0, 5000, 5000, "pizza", "purdue");
+		fast.addContinousQuery(small);
+		fast.addContinousQuery(large);
+		DataObject dataObject = getDataObject(1, 150, 150, "purdue pizza");
+		assertEquals(2, match(fast, dataObject).size());
+
+		fast.dropContinousQuery(small);
+		List<Query> result = match(fast, dataObject);
+		assertEquals(1, result.size());
+		assertSame(large, result.get(0));
+
+		Query moved = getQuery(2, 6000, 6000, 7000, 7000, "pizza", "purdue");
+		fast.updateContinousQuery(large, moved);
+		assertEquals(0, match(fast, dataObject).size());
+		result = match(fast, getDataObject(2, 6500, 6500, "purdue pizza"));
+		assertEquals(1, result.size());
+		assertSame(moved, result.get(0));
+
+		fast.dropContinousQuery(moved);
+		assertEquals(0, match(fast, getDataObject(2, 6500, 6500, "purdue pizza")).size());
+		fast.cleanUp();
+		assertTrue(fast.index.isEmpty());
+	}
+
+	@Test
+	public void testDropBooleanQuery() {
+		FAST fast = getFAST();
+		Query query = getQuery(3, 100, 100, 300, 300, "pizza", "coffee");
+		query.setTextualPredicate(TextualPredicate.BOOLEAN_EXPR);
+		ArrayList<ArrayList<String>> complexQueryText = new ArrayList<ArrayList<String>>();
+		complexQueryText.add(new ArrayList<String>(Arrays.asList("pizza")));
+		complexQueryText.add(new ArrayList<String>(Arrays.asList("coffee")));
+		query.setComplexQueryText(complexQueryText);
+		fast.addContinousQuery(query);
+		assertEquals(1, match(fast, getDataObject(1, 200, 200, "pizza coffee")).size());
+		assertEquals(1, match(fast, getDataObject(2, 200, 200, "coffee")).size());
+
+		ArrayList<Query> cellQueries = fast.getOverlappingQueries(new Rectangle(new Point(150, 150), new Point(160, 160)));
+		assertEquals(1, cellQueries.size());
+		assertSame(query, cellQueries.get(0));
+
+		fast.dropContinousQuery(query);
+		assertEquals(0, match(fast, getDataObject(1, 200, 200, "pizza coffee")).size());
+	}
+
+	@Test
+	public void testDataObjectsAndCellQueries() {
+		FAST fast = getFAST();
+		Query query = getQuery(4, 100, 100, 500, 500, "pizza");
+		fast.addContinousQuery(query);
+		IndexCell indexCell = fast.addDataObject(getDataObject(1, 150, 150, "purdue pizza"));
+		fast.addDataObject(getDataObject(2, 160, 160, "pizza"));
+		fast.addDataObject(getDataObject(3, 9000, 9000, "coffee"));
+		assertSame(indexCell, fast.mapDataObjectToIndexCell(getDataObject(2, 160, 160, "pizza")));
+		assertEquals(2, (int) indexCell.getDataObjectCount());
+		assertEquals(3, (int) fast.getCountPerRec(new Rectangle(new Point(0, 0), new Point(10000, 10000))));
+
+		//the cell queries come from the pyramid
+		assertEquals(1, indexCell.getQueries().size());
+		assertSame(query, indexCell.getQueries().get(0));
+		assertEquals(0, fast.getOverlappingIndexCells(new Point(9000, 9000)).getQueries().size());
+
+		ArrayList<String> keywords = new ArrayList<String>(Arrays.asList("pizza"));
+		ArrayList<IndexCell> cells = fast.getOverlappingIndexCellWithData(new Rectangle(new Point(0, 0), new Point(1000, 1000)), keywords);
+		assertEquals(1, cells.size());
+		assertEquals(0, fast.getOverlappingIndexCellWithData(new Rectangle(new Point(8000, 8000), new Point(10000, 10000)), keywords).size());
+		assertEquals(2, (int) fast.getCountPerKeywrodsAll(keywords));
+		assertTrue(fast.getReleventQueries(getDataObject(1, 150, 150, "pizza"), false).containsKey(query.getUniqueIDFromQuerySourceAndQueryId()));
+	}
+
+	@Test
+	public void testKNNIterator() {
+		FAST fast = getFAST();
+		fast.setPartition(new Cell(0, 10, 0, 10), new Rectangle(new Point(0, 0), new Point(1000, 1000)));
+		//the fine grid cells are 100 wide, the focal point is in cell (2,3)
+		LocalIndexKNNIterator it = fast.LocalKNNIterator(new Point(250, 350));
+		assertFalse(it.hasPrevious());
+		ArrayList<IndexCell> ring = it.next();
+		assertEquals(1, ring.size());
+		assertEquals(new IndexCellCoordinates(2, 3), ring.get(0).getGlobalCoordinates());
+		assertEquals(8, it.next().size());
+		assertEquals(16, it.next().size());
+		int cellCount = 25;
+		while (it.hasNext())
+			cellCount += it.next().size();
+		assertEquals(100, cellCount);
+		assertTrue(it.hasPrevious());
+
+		//the first ring has a cell farther than the distance
+		it = fast.KNNIterator(new Point(250, 350), 150.0);
+		assertTrue(it.hasPrevious());
+		assertEquals(8, it.next().size());
+	}
+
+	@Test
+	public void testPartitionTransfer() {
+		FAST sender = getFAST();
+		FAST receiver = getFAST();
+		Query inside = getQuery(5, 100, 100, 150, 150, "pizza");
+		Query crossing = getQuery(6, 100, 100, 900, 900, "pizza");
+		sender.addContinousQuery(inside);
+		sender.addContinousQuery(crossing);
+		receiver.addContinousQuery(crossing);
+		sender.addDataObject(getDataObject(1, 120, 120, "pizza"));
+
+		Cell partition = new Cell(0, 2, 0, 2);
+		ArrayList<IndexCell> cells = sender.getIndexCellsFromPartition(partition);
+		assertEquals(1, cells.size());
+		for (IndexCell indexCell : cells)
+			receiver.addIndexCellsFromPartition(indexCell, false);
+		sender.removeIndexCellsFromPartition(partition, false);
+
+		assertEquals(0, sender.getIndexCellsFromPartition(partition).size());
+		List<Query> result = match(sender, getDataObject(2, 120, 120, "pizza"));
+		assertEquals(1, result.size());
+		assertSame(crossing, result.get(0));
+
+		//the crossing query is indexed once by the receiver
+		assertEquals(2, match(receiver, getDataObject(2, 120, 120, "pizza")).size());
+		assertEquals(1, (int) receiver.mapDataObjectToIndexCell(getDataObject(2, 120, 120, "pizza")).getDataObjectCount());
+		assertNull(receiver.getIndexCellFromCoordinates(new IndexCellCoordinates(0, 0)));
+		assertNotNull(receiver.getIndexCellFromCoordinates(new IndexCellCoordinates(1, 1)));
+	}
+
+	@Test
+	public void testPartitionTransferStatistics() {
+		FAST sender = getFAST();
+		FAST receiver = getFAST();
+		Query inside = getQuery(5, 100, 100, 150, 150, "pizza");
+		Query crossing = getQuery(6, 100, 100, 900, 900, "pizza");
+		sender.addContinousQuery(inside);
+		sender.addContinousQuery(crossing);
+		Query localCrossing = getQuery(6, 100, 100, 900, 900, "pizza");
+		receiver.addContinousQuery(localCrossing);
+		receiver.addContinousQuery(getQuery(7, 5000, 5000, 5100, 5100, "pizza"));
+
+		for (IndexCell indexCell : sender.getIndexCellsFromPartition(new Cell(0, 2, 0, 2)))
+			receiver.addIndexCellsFromPartition(indexCell, false);
+		//the received query that was not indexed is counted once, the local copy of the other one is replaced
+		assertEquals(3, receiver.overallQueryTextSummery.getQueryCount("pizza"));
+		assertTrue(localCrossing.isDeleted());
+		assertFalse(inside.isDeleted());
+		assertFalse(crossing.isDeleted());
+		assertEquals(Arrays.asList(5, 6), getQueryIds(match(receiver, getDataObject(1, 120, 120, "pizza")), Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void testPartitionTransferExpiry() {
+		FAST sender = getCountingFAST();
+		FAST receiver = getCountingFAST();
+		Query inside = getQuery(5, 100, 100, 150, 150, "pizza");
+		inside.setRemoveTime(3L);
+		sender.addContinousQuery(inside);
+		sender.addDataObject(getDataObject(1, 120, 120, "pizza"));
+		for (IndexCell indexCell : sender.getIndexCellsFromPartition(new Cell(0, 8, 0, 8)))
+			receiver.addIndexCellsFromPartition(indexCell, false);
+		assertEquals(1, receiver.expiryWheel.size());
+		assertEquals(1, match(receiver, getDataObject(1, 120, 120, "pizza")).size());
+		for (int i = 0; i < 5; i++) {
+			Query other = getQuery(10 + i, 5000, 5000, 5100, 5100, "coffee");
+			other.setRemoveTime(100L);
+			receiver.addContinousQuery(other);
+		}
+		//the received query expires like the queries inserted here
+		assertEquals(1, receiver.dropExpiredQueries());
+		assertTrue(match(receiver, getDataObject(1, 120, 120, "pizza")).isEmpty());
+		assertEquals(0, receiver.overallQueryTextSummery.getQueryCount("pizza"));
+	}
+
+	private static Query getRandomQuery(Random random, int queryId, String[] vocabulary) {
+		double x = random.nextInt(900), y = random.nextInt(900);
+		double side = 10 + random.nextInt(300);
+		String first = vocabulary[random.nextInt(vocabulary.length)], second = vocabulary[random.nextInt(vocabulary.length)];
+		if (first.equals(second) || random.nextBoolean())
+			return getQuery(queryId, x, y, x + side, y + side, first);
+		return getQuery(queryId, x, y, x + side, y + side, first, second);
+	}
+
+	private static ArrayList<Integer> getQueryIds(List<Query> queries, int maxQueryId) {
+		ArrayList<Integer> queryIds = new ArrayList<Integer>();
+		for (Query query : queries)
+			if (query.getQueryId() < maxQueryId)
+				queryIds.add(query.getQueryId());
+		Collections.sort(queryIds);
+		return queryIds;
+	}
+
+	@Test
+	public void testConcurrentMatching() throws InterruptedException {
+		final FAST fast = getFAST();
+		final String[] vocabulary = { "pizza", "coffee", "purdue", "hotel", "casino", "las", "vegas", "park" };
+		Random random = new Random(7);
+		final int stableQueries = 2000;
+		for (int i = 0; i < stableQueries; i++)
+			fast.addContinousQuery(getRandomQuery(random, i, vocabulary));
+		final ArrayList<DataObject> dataObjects = new ArrayList<DataObject>();
+		final ArrayList<ArrayList<Integer>> expected = new ArrayList<ArrayList<Integer>>();
+		int expectedMatches = 0;
+		for (int i = 0; i < 500; i++) {
+			String text = vocabulary[random.nextInt(vocabulary.length)] + " " + vocabulary[random.nextInt(vocabulary.length)] + " " + vocabulary[random.nextInt(vocabulary.length)];
+			DataObject dataObject = getDataObject(i, random.nextInt(1000), random.nextInt(1000), text);
+			dataObjects.add(dataObject);
+			expected.add(getQueryIds(match(fast, dataObject), stableQueries));
+			expectedMatches += expected.get(i).size();
+		}
+		assertTrue(expectedMatches > 0);
+
+		//the readers must find the stable queries while the writer inserts and drops other queries
+		final AtomicBoolean writing = new AtomicBoolean(true);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		ArrayList<Thread> readers = new ArrayList<Thread>();
+		for (int t = 0; t < 4; t++) {
+			Thread reader = new Thread() {
+				@Override
+				public void run() {
+					try {
+						while (writing.get() && failure.get() == null)
+							for (int i = 0; i < dataObjects.size(); i++) {
+								List<Query> result = match(fast, dataObjects.get(i));
+								assertEquals(result.size(), new HashSet<Query>(result).size());
+								assertEquals(expected.get(i), getQueryIds(result, stableQueries));
+							}
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+				}
+			};
+			readers.add(reader);
+			reader.start();
+		}
+		ArrayList<Query> inserted = new ArrayList<Query>();
+		for (int i = 0; i < 20000 && failure.get() == null; i++) {
+			Query query = getRandomQuery(random, stableQueries + i, vocabulary);
+			fast.addContinousQuery(query);
+			inserted.add(query);
+			if (i % 3 == 0)
+				fast.dropContinousQuery(inserted.remove(random.nextInt(inserted.size())));
+		}
+		writing.set(false);
+		for (Thread reader : readers)
+			reader.join();
+		assertNull(failure.get());
+	}
+
+	@Test
+	public void testCellTable() {
+		FAST fast = getFAST();
+		//level 0 has 512*512 cells and is kept in the open addressing slots, level 3 has 64*64 cells and is dense
+		FASTCellTable table = new FASTCellTable(512, 8);
+		ArrayList<IndexCellOptimizedExperiment> cells = new ArrayList<IndexCellOptimizedExperiment>();
+		ArrayList<Integer> coordinates = new ArrayList<Integer>();
+		for (int level = 0; level <= 3; level += 3)
+			for (int i = 0; i < 5000; i++) {
+				int x = (i * 7) % (512 >> level), y = (i * 13) % (512 >> level);
+				int coordinate = fast.mapToRawMajor(level, x, y, 512 >> level);
+				if (table.get(coordinate) != null)
+					continue;
+				IndexCellOptimizedExperiment cell = new IndexCellOptimizedExperiment(fast, new Rectangle(new Point(0, 0), new Point(1, 1)), coordinate, level, null);
+				table.put(cell);
+				cells.add(cell);
+				coordinates.add(coordinate);
+			}
+		assertEquals(cells.size(), table.size());
+		for (int i = 0; i < cells.size(); i++)
+			assertSame(cells.get(i), table.get(coordinates.get(i)));
+		long[] memory = table.getMemoryPerLevel();
+		assertTrue(memory[0] > 0 && memory[3] > 0);
+		assertEquals(0, memory[1]);
+
+		//removing every other cell and adding them again rebuilds the slots
+		for (int i = 0; i < cells.size(); i += 2)
+			assertSame(cells.get(i), table.remove(coordinates.get(i)));
+		for (int i = 0; i < cells.size(); i++)
+			assertEquals(i % 2 == 1, table.get(coordinates.get(i)) != null);
+		for (int i = 0; i < cells.size(); i += 2)
+			table.put(cells.get(i));
+		for (int i = 0; i < cells.size(); i++)
+			assertSame(cells.get(i), table.get(coordinates.get(i)));
+
+		int iterated = 0;
+		Iterator<IndexCellOptimizedExperiment> itr = table.iterator();
+		while (itr.hasNext()) {
+			itr.next();
+			itr.remove();
+			iterated++;
+		}
+		assertEquals(cells.size(), iterated);
+		assertTrue(table.isEmpty());
+		assertNull(table.get(coordinates.get(0)));
+	}
+
+	@Test
+	public void testMemoryPerLevel() {
+		FAST fast = getFAST();
+		assertEquals(0, fast.getMemoryPerLevel()[0]);
+		fast.addContinousQuery(getQuery(1, 100, 100, 200, 200, "pizza"));
+		fast.addContinousQuery(getQuery(2, 100, 100, 8000, 8000, "pizza", "coffee"));
+		long total = 0;
+		for (long levelMemory : fast.getMemoryPerLevel())
+			total += levelMemory;
+		assertTrue(total > 0);
+	}
+
+	@Test
+	public void testBatchMatching() {
+		FAST fast = getFAST();
+		String[] vocabulary = { "pizza", "coffee", "purdue", "hotel", "casino", "las", "vegas", "park" };
+		Random random = new Random(11);
+		ArrayList<DataObject> dataObjects = new ArrayList<DataObject>();
+		for (int i = 0; i < 1000; i++)
+			dataObjects.add(getDataObject(i, random.nextInt(1000), random.nextInt(1000), vocabulary[random.nextInt(vocabulary.length)] + " " + vocabulary[random.nextInt(vocabulary.length)]));
+		assertEquals(0, fast.getReleventSpatialKeywordRangeQueries(dataObjects).get(0).size());
+		for (int i = 0; i < 3000; i++)
+			fast.addContinousQuery(getRandomQuery(random, i, vocabulary));
+
+		List<List<Query>> results = fast.getReleventSpatialKeywordRangeQueries(dataObjects);
+		assertEquals(dataObjects.size(), results.size());
+		int matches = 0;
+		for (int i = 0; i < dataObjects.size(); i++) {
+			assertEquals(match(fast, dataObjects.get(i)), results.get(i));
+			matches += results.get(i).size();
+		}
+		assertTrue(matches > 0);
+	}
+
+	private static KNNQuery getKNNQuery(int queryId, double x, double y, int k, String keyword) {
+		KNNQuery query = new KNNQuery();
+		query.setSrcId("QueriesSpout");
+		query.setQueryId(queryId);
+		query.setQueryType(QueryType.queryTextualKNN);
+		query.setTextualPredicate(TextualPredicate.CONTAINS);
+		query.setQueryText(new ArrayList<String>(Arrays.asList(keyword)));
+		query.setFocalPoint(new Point(x, y));
+		query.setK(k);
+		return query;
+	}
+
+	private static ArrayList<Double> getKNNDistances(KNNQuery query) {
+		ArrayList<Double> distances = new ArrayList<Double>();
+		for (DataObject dataObject : query.getKNNList())
+			distances.add(SpatialHelper.getDistanceInBetween(query.getFocalPoint(), dataObject.getLocation()));
+		Collections.sort(distances);
+		return distances;
+	}
+
+	@Test
+	public void testContinuousKNNQueries() {
+		FAST fast = new FAST(new Rectangle(new Point(0, 0), new Point(10000, 10000)), 64, 6);
+		String[] vocabulary = { "pizza", "coffee", "purdue", "hotel" };
+		Random random = new Random(5);
+		ArrayList<KNNQuery> queries = new ArrayList<KNNQuery>();
+		for (int i = 0; i < 50; i++) {
+			KNNQuery query = getKNNQuery(i, random.nextInt(1000), random.nextInt(1000), 5, vocabulary[random.nextInt(vocabulary.length)]);
+			assertTrue(fast.addContinousQuery(query));
+			queries.add(query);
+		}
+		ArrayList<DataObject> dataObjects = new ArrayList<DataObject>();
+		for (int i = 0; i < 2000; i++) {
+			DataObject dataObject = getDataObject(i, random.nextInt(1000), random.nextInt(1000), vocabulary[random.nextInt(vocabulary.length)] + " " + vocabulary[random.nextInt(vocabulary.length)]);
+			dataObjects.add(dataObject);
+			fast.processDataObjectForKNNQueries(dataObject);
+		}
+		for (KNNQuery query : queries) {
+			//the k nearest objects with the keyword by a scan of all the objects
+			ArrayList<Double> distances = new ArrayList<Double>();
+			for (DataObject dataObject : dataObjects)
+				if (dataObject.getObjectText().contains(query.getQueryText().get(0)))
+					distances.add(SpatialHelper.getDistanceInBetween(query.getFocalPoint(), dataObject.getLocation()));
+			Collections.sort(distances);
+			assertEquals(distances.subList(0, 5), getKNNDistances(query));
+			//the indexed range shrank from the whole space to about the k-th distance
+			double side = query.getSpatialRange().getMax().getX() - query.getSpatialRange().getMin().getX();
+			assertTrue(side <= 4 * distances.get(4));
+			assertTrue(SpatialHelper.insideSpatially(query.getSpatialRange(), FAST.getKNNRange(query)));
+		}
+
+		//an object of the top-k list that moves away stays in the list until closer objects arrive
+		KNNQuery query = queries.get(0);
+		String keyword = query.getQueryText().get(0);
+		DataObject movedObject = query.getKNNList().get(0);
+		DataObject update = getDataObject(movedObject.getObjectId(), 9000, 9000, keyword);
+		update.setCommand(Command.updateCommand);
+		update.setTimeStamp(1L);
+		fast.processDataObjectForKNNQueries(update);
+		assertTrue(SpatialHelper.overlapsSpatially(update.getLocation(), query.getSpatialRange()));
+		DataObject closeObject = getDataObject(5000, query.getFocalPoint().getX(), query.getFocalPoint().getY(), keyword);
+		fast.processDataObjectForKNNQueries(closeObject);
+		for (DataObject dataObject : query.getKNNList())
+			assertFalse(dataObject.getObjectId().equals(movedObject.getObjectId()));
+		assertTrue(query.getSpatialRange().getMax().getX() < 9000);
+
+		assertTrue(fast.dropContinousQuery(query));
+		assertFalse(fast.getReleventQueries(closeObject, false).containsKey(query.getUniqueIDFromQuerySourceAndQueryId()));
+		for (ResultSetChange change : fast.processDataObjectForKNNQueries(getDataObject(5001, query.getFocalPoint().getX(), query.getFocalPoint().getY(), keyword)))
+			assertFalse(change.getQuery() == query);
+	}
+
+	@Test
+	public void testSnapshot() throws IOException {
+		FAST fast = getFAST();
+		String[] vocabulary = { "pizza", "coffee", "purdue", "hotel", "casino", "las", "vegas", "park" };
+		Random random = new Random(13);
+		for (int i = 0; i < 3000; i++)
+			fast.addContinousQuery(getRandomQuery(random, i, vocabulary));
+		Query booleanQuery = getQuery(5000, 100, 100, 300, 300, "pizza", "coffee");
+		booleanQuery.setTextualPredicate(TextualPredicate.BOOLEAN_EXPR);
+		ArrayList<ArrayList<String>> complexQueryText = new ArrayList<ArrayList<String>>();
+		complexQueryText.add(new ArrayList<String>(Arrays.asList("pizza")));
+		complexQueryText.add(new ArrayList<String>(Arrays.asList("coffee")));
+		booleanQuery.setComplexQueryText(complexQueryText);
+		fast.addContinousQuery(booleanQuery);
+		ArrayList<DataObject> dataObjects = new ArrayList<DataObject>();
+		for (int i = 0; i < 1000; i++)
+			dataObjects.add(getDataObject(i, random.nextInt(1000), random.nextInt(1000), vocabulary[random.nextInt(vocabulary.length)] + " " + vocabulary[random.nextInt(vocabulary.length)]));
+
+		File file = File.createTempFile("fast", ".snapshot");
+		try {
+			long size = fast.saveSnapshot(file);
+			assertEquals(file.length(), size);
+			FAST restored = getFAST();
+			restored.loadSnapshot(file);
+			assertEquals(fast.index.size(), restored.index.size());
+			int matches = 0;
+			for (DataObject dataObject : dataObjects) {
+				ArrayList<Integer> expected = getQueryIds(match(fast, dataObject), Integer.MAX_VALUE);
+				assertEquals(expected, getQueryIds(match(restored, dataObject), Integer.MAX_VALUE));
+				matches += expected.size();
+			}
+			assertTrue(matches > 0);
+
+			List<Query> restoredQueries = match(restored, getDataObject(1, 200, 200, "coffee"));
+			assertEquals(getQueryIds(match(fast, getDataObject(1, 200, 200, "coffee")), Integer.MAX_VALUE), getQueryIds(restoredQueries, Integer.MAX_VALUE));
+			for (Query query : restoredQueries)
+				restored.dropContinousQuery(query.getParentQuery() == null ? query : query.getParentQuery());
+			assertEquals(0, match(restored, getDataObject(1, 200, 200, "coffee")).size());
+			assertTrue(match(restored, getDataObject(2, 200, 200, "pizza")).size() < match(fast, getDataObject(2, 200, 200, "pizza")).size());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testTuning() {
+		FAST fast = getFAST();
+		FAST other = getFAST();
+		FASTTuner tuner = new FASTTuner(fast);
+		tuner.adjustmentInterval = 10;
+		fast.trieSplitThreshold = 8;
+		fast.degradationRatio = 8;
+		fast.maxEntriesPerCleaningInterval = 100;
+		//matching takes most of the time
+		tuner.recordMatch(1000);
+		tuner.recordCleaning(100, 50);
+		for (int i = 0; i < 10; i++)
+			tuner.recordInsert(100);
+		assertEquals(4, fast.trieSplitThreshold);
+		assertEquals(4, fast.degradationRatio);
+		assertEquals(200, fast.maxEntriesPerCleaningInterval);
+		//inserting takes most of the time
+		tuner.recordMatch(1);
+		tuner.recordCleaning(100, 0);
+		for (int i = 0; i < 10; i++)
+			tuner.recordInsert(100000);
+		assertEquals(8, fast.trieSplitThreshold);
+		assertEquals(8, fast.degradationRatio);
+		assertEquals(100, fast.maxEntriesPerCleaningInterval);
+		//tries that are too deep are not split further
+		tuner.recordMatch(1000);
+		tuner.recordTrieDepth(tuner.maxTrieDepth + 1);
+		for (int i = 0; i < 10; i++)
+			tuner.recordInsert(100);
+		assertEquals(16, fast.trieSplitThreshold);
+		assertEquals(FAST.Trie_SPLIT_THRESHOLD, other.trieSplitThreshold);
+		fast.tuner = tuner;
+		assertEquals(16, fast.getTuningMetrics().get("trieSplitThreshold"));
+		assertEquals(3, fast.getTuningMetrics().get("adjustments"));
+
+		//the parameters change while the queries are inserted, the matches stay the same
+		FAST tuned = getFAST();
+		tuned.tuner = new FASTTuner(tuned);
+		tuned.tuner.adjustmentInterval = 100;
+		tuned.tuner.matchSampleMask = 0;
+		FAST fixed = getFAST();
+		String[] vocabulary = { "pizza", "coffee", "purdue", "hotel", "casino", "las", "vegas", "park" };
+		Random random = new Random(17);
+		ArrayList<DataObject> dataObjects = new ArrayList<DataObject>();
+		for (int i = 0; i < 200; i++)
+			dataObjects.add(getDataObject(i, random.nextInt(1000), random.nextInt(1000), vocabulary[random.nextInt(vocabulary.length)] + " " + vocabulary[random.nextInt(vocabulary.length)]));
+		for (int i = 0; i < 3000; i++) {
+			Query query = getRandomQuery(random, i, vocabulary);
+			tuned.addContinousQuery(query);
+			fixed.addContinousQuery(getQuery(i, query.getSpatialRange().getMin().getX(), query.getSpatialRange().getMin().getY(), query.getSpatialRange().getMax().getX(), query.getSpatialRange().getMax().getY(),
+					query.getQueryText().toArray(new String[0])));
+			if (i % 100 == 0)
+				for (DataObject dataObject : dataObjects)
+					match(tuned, dataObject);
+		}
+		assertTrue((Integer) tuned.getTuningMetrics().get("adjustments") > 0);
+		for (DataObject dataObject : dataObjects)
+			assertEquals(getQueryIds(match(fixed, dataObject), Integer.MAX_VALUE), getQueryIds(match(tuned, dataObject), Integer.MAX_VALUE));
+	}
+
+	private static ArrayList<Query> getExpiringQueries(long seed, int count, String[] vocabulary) {
+		Random random = new Random(seed);
+		ArrayList<Query> queries = new ArrayList<Query>();
+		for (int i = 0; i < count; i++) {
+			Query query = getRandomQuery(random, i, vocabulary);
+			//expires once the index has counted more queries than this instance inserts
+			query.setRemoveTime((long) count + 1);
+			queries.add(query);
+		}
+		return queries;
+	}
+
+	@Test
+	public void testIndependentInstances() throws InterruptedException {
+		final String[] vocabulary = { "pizza", "coffee", "purdue", "hotel", "casino", "las", "vegas", "park" };
+		final int instances = 4;
+		final int queriesPerInstance = 4000;
+		final ArrayList<DataObject> dataObjects = new ArrayList<DataObject>();
+		Random random = new Random(19);
+		for (int i = 0; i < 300; i++)
+			dataObjects.add(getDataObject(i, random.nextInt(1000), random.nextInt(1000), vocabulary[random.nextInt(vocabulary.length)] + " " + vocabulary[random.nextInt(vocabulary.length)] + " " + vocabulary[random.nextInt(vocabulary.length)]));
+		//the results of every instance when it runs alone
+		final ArrayList<ArrayList<ArrayList<Integer>>> expected = new ArrayList<ArrayList<ArrayList<Integer>>>();
+		for (int t = 0; t < instances; t++) {
+			FAST fast = getCountingFAST();
+			for (Query query : getExpiringQueries(t, queriesPerInstance, vocabulary))
+				fast.addContinousQuery(query);
+			ArrayList<ArrayList<Integer>> results = new ArrayList<ArrayList<Integer>>();
+			for (DataObject dataObject : dataObjects)
+				results.add(getQueryIds(match(fast, dataObject), Integer.MAX_VALUE));
+			expected.add(results);
+		}
+
+		//the instances insert, clean and match at the same time, each must find what it finds alone
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		ArrayList<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < instances; t++) {
+			final int instance = t;
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					try {
+						FAST fast = getCountingFAST();
+						int inserted = 0;
+						for (Query query : getExpiringQueries(instance, queriesPerInstance, vocabulary)) {
+							fast.addContinousQuery(query);
+							if (++inserted % 500 == 0) {
+								fast.cleanUp();
+								for (DataObject dataObject : dataObjects)
+									match(fast, dataObject);
+							}
+						}
+						fast.cleanUp();
+						for (int i = 0; i < dataObjects.size(); i++)
+							assertEquals(expected.get(instance).get(i), getQueryIds(match(fast, dataObjects.get(i)), Integer.MAX_VALUE));
+						assertEquals(queriesPerInstance, fast.queryTimeStampCounter);
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		assertNull(failure.get());
+	}
+
+	@Test
+	public void testExpiryWheel() {
+		String[] vocabulary = { "pizza", "coffee", "purdue", "hotel", "casino", "las", "vegas", "park" };
+		int lifetime = 200;
+		Random random = new Random(23);
+		FAST fast = getCountingFAST();
+		FAST permanent = getCountingFAST();
+		ArrayList<DataObject> dataObjects = new ArrayList<DataObject>();
+		for (int i = 0; i < 300; i++)
+			dataObjects.add(getDataObject(i, random.nextInt(1000), random.nextInt(1000), vocabulary[random.nextInt(vocabulary.length)] + " " + vocabulary[random.nextInt(vocabulary.length)]));
+		for (int i = 0; i < 3000; i++) {
+			Query query = getRandomQuery(random, i, vocabulary);
+			query.setRemoveTime((long) i + lifetime);
+			fast.addContinousQuery(query);
+			if (i % 10 == 0) {
+				//a query that gets an unbounded remove time leaves the wheel and stays indexed
+				query.setRemoveTime(Long.MAX_VALUE);
+				permanent.addContinousQuery(getQuery(i, query.getSpatialRange().getMin().getX(), query.getSpatialRange().getMin().getY(), query.getSpatialRange().getMax().getX(),
+						query.getSpatialRange().getMax().getY(), query.getQueryText().toArray(new String[0])));
+			} else if (i % 10 == 1)
+				//a dropped query is skipped when it expires
+				fast.dropContinousQuery(query);
+			fast.cleanNextSetOfEntries();
+			//only the queries inserted in the last lifetime insertions are waiting
+			assertTrue(fast.expiryWheel.size() <= lifetime);
+		}
+		for (int i = 0; i <= lifetime; i++)
+			fast.addContinousQuery(getQuery(3000 + i, 0, 0, 1, 1, "nowhere"));
+		assertTrue(fast.dropExpiredQueries() > 0);
+		assertTrue(fast.expiryWheel.isEmpty());
+		for (String keyword : vocabulary)
+			assertEquals(permanent.overallQueryTextSummery.getQueryCount(keyword), fast.overallQueryTextSummery.getQueryCount(keyword));
+		for (DataObject dataObject : dataObjects)
+			assertEquals(getQueryIds(match(permanent, dataObject), Integer.MAX_VALUE), getQueryIds(match(fast, dataObject), 3000));
+	}
+
+	@Test
+	public void testWallClockExpiry() {
+		//the evaluator gets the remove times of the global index in milliseconds
+		FAST fast = getFAST();
+		Query expired = getQuery(1, 0, 0, 500, 500, "pizza");
+		expired.setRemoveTime(System.currentTimeMillis() - 1000);
+		Query live = getQuery(2, 0, 0, 500, 500, "coffee");
+		live.setRemoveTime(System.currentTimeMillis() + 3600000);
+		fast.addContinousQuery(expired);
+		fast.addContinousQuery(live);
+		assertEquals(1, fast.dropExpiredQueries());
+		assertTrue(match(fast, getDataObject(1, 100, 100, "pizza")).isEmpty());
+		assertEquals(1, fast.expiryWheel.size());
+		assertEquals(0, fast.overallQueryTextSummery.getQueryCount("pizza"));
+		assertEquals(1, fast.overallQueryTextSummery.getQueryCount("coffee"));
+		assertEquals(Arrays.asList(2), getQueryIds(match(fast, getDataObject(2, 100, 100, "coffee")), Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void testStaleDropKeepsNewerVersion() {
+		FAST fast = getCountingFAST();
+		Query stored = getQuery(1, 0, 0, 500, 500, "pizza");
+		stored.setRemoveTime(2L);
+		fast.addContinousQuery(stored);
+		//the evaluator drops its own copy of the old version
+		Query stale = getQuery(1, 0, 0, 500, 500, "pizza");
+		Query newer = getQuery(1, 0, 0, 500, 500, "pizza");
+		newer.setRemoveTime(100L);
+		fast.updateContinousQuery(stale, newer);
+		assertTrue(stored.isDeleted());
+		assertFalse(stale.isDeleted());
+		for (int i = 0; i < 3; i++) {
+			Query other = getQuery(10 + i, 5000, 5000, 5100, 5100, "coffee");
+			other.setRemoveTime(100L);
+			fast.addContinousQuery(other);
+		}
+		//the wheel entry of the old version is skipped and does not remove the newer version
+		assertEquals(0, fast.dropExpiredQueries());
+		List<Query> result = match(fast, getDataObject(1, 100, 100, "pizza"));
+		assertEquals(1, result.size());
+		assertSame(newer, result.get(0));
+		assertEquals(1, fast.overallQueryTextSummery.getQueryCount("pizza"));
+	}
+
+	@Test
+	public void testExpiryRemovesQueryFromAllCells() {
+		FAST fast = getCountingFAST();
+		Query expired = getQuery(1, 0, 0, 1000, 1000, "pizza");
+		expired.setRemoveTime(2L);
+		fast.addContinousQuery(expired);
+		Query other = getQuery(2, 5000, 5000, 5100, 5100, "coffee");
+		other.setRemoveTime(100L);
+		fast.addContinousQuery(other);
+		//the insertion meets the expired query in the cells of its range only
+		Query fresh = getQuery(3, 0, 0, 400, 400, "pizza");
+		fresh.setRemoveTime(100L);
+		fast.addContinousQuery(fresh);
+		assertFalse(expired.isDeleted());
+		assertEquals(1, fast.dropExpiredQueries());
+		assertTrue(expired.isDeleted());
+		assertTrue(match(fast, getDataObject(1, 900, 900, "pizza")).isEmpty());
+		assertEquals(Arrays.asList(3), getQueryIds(match(fast, getDataObject(2, 100, 100, "pizza")), Integer.MAX_VALUE));
+		assertEquals(1, fast.overallQueryTextSummery.getQueryCount("pizza"));
+	}
+}
@@ -0,0 +1,151 @@
+package edu.purdue.cs.tornado.test;
+
+import static edu.purdue.cs.tornado.test.BoltFixtures.EVALUATOR_ID;
+import static edu.purdue.cs.tornado.test.BoltFixtures.HOUR;
+import static edu.purdue.cs.tornado.test.BoltFixtures.getObjectIds;
+import static edu.purdue.cs.tornado.test.BoltFixtures.getTickTuple;
+import static edu.purdue.cs.tornado.test.BoltFixtures.getTuple;
+import static edu.purdue.cs.tornado.test.MessageFixtures.DATA_SOURCE;
+import static edu.purdue.cs.tornado.test.MessageFixtures.QUERY_SOURCE;
+import static edu.purdue.cs.tornado.test.MessageFixtures.getDataObject;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.tuple.Tuple;
+import org.junit.Test;
+
+import edu.purdue.cs.tornado.helper.DataSourceType;
+import edu.purdue.cs.tornado.helper.SpatioTextualConstants;
+import edu.purdue.cs.tornado.index.DataSourceInformation;
+import edu.purdue.cs.tornado.index.GlobalIndexBolt;
+import edu.purdue.cs.tornado.index.global.GlobalIndexType;
+import edu.purdue.cs.tornado.messages.DataObject;
+import edu.purdue.cs.tornado.messages.DataObjectList;
+import edu.purdue.cs.tornado.test.BoltFixtures.RecordingCollector;
+
+public class TestGlobalIndexBoltBatching {
+	static final String TASK = "task";
+
+	/**
+	 * A global index bolt that sends the data object of a tuple to the
+	 * evaluator task of the tuple and only records when a query arrives
+	 */
+	static class BatchingGlobalIndexBolt extends GlobalIndexBolt {
+		private static final long serialVersionUID = 1L;
+		RecordingCollector recorder;
+		int emittedBeforeQuery = -1;
+
+		BatchingGlobalIndexBolt(RecordingCollector recorder, int dataBatchSize, long dataBatchMaxLatency) {
+			super(EVALUATOR_ID, GlobalIndexType.GRID, 64);
+			this.recorder = recorder;
+			this.collector = new OutputCollector(recorder);
+			HashMap<String, Object> conf = new HashMap<String, Object>();
+			conf.put(SpatioTextualConstants.DATA_BATCH_SIZE, dataBatchSize);
+			conf.put(SpatioTextualConstants.DATA_BATCH_MAX_LATENCY_MS, dataBatchMaxLatency);
+			this.stormConf = conf;
+			prepareDataBatches();
+		}
+
+		@Override
+		protected DataSourceInformation getSourceInformation(Tuple input) {
+			return null;
+		}
+
+		@Override
+		protected DataSourceType getDataSourceType(String source) {
+			if (DATA_SOURCE.equals(source))
+				return DataSourceType.DATA_SOURCE;
+			if (QUERY_SOURCE.equals(source))
+				return DataSourceType.QUERY_SOURCE;
+			return null;
+		}
+
+		@Override
+		protected boolean handleData(Tuple input, String source) {
+			emitData(input.getIntegerByField(TASK), (DataObject) input.getValueByField(SpatioTextualConstants.data));
+			return false;
+		}
+
+		@Override
+		protected void handleQuery(Tuple input, String source) {
+			emittedBeforeQuery = recorder.tuples.size();
+		}
+
+		/**
+		 * Makes the pending data objects older
+		 */
+		void age(long milliSeconds) {
+			oldestPendingDataTime -= milliSeconds;
+		}
+	}
+
+	static Tuple getDataTuple(int evaluatorTask, int objectId) {
+		return getTuple(DATA_SOURCE, SpatioTextualConstants.Default, SpatioTextualConstants.data, getDataObject(objectId, 100, 100, "pizza"), TASK, evaluatorTask);
+	}
+
+	static ArrayList<Integer> getBatchObjectIds(RecordingCollector recorder, int tuple) {
+		return getObjectIds(((DataObjectList) recorder.tuples.get(tuple).get(0)).getDataObjects());
+	}
+
+	@Test
+	public void testDataBatchFlushOnSize() {
+		RecordingCollector recorder = new RecordingCollector();
+		BatchingGlobalIndexBolt bolt = new BatchingGlobalIndexBolt(recorder, 3, HOUR);
+		bolt.execute(getDataTuple(7, 1));
+		bolt.execute(getDataTuple(8, 2));
+		bolt.execute(getDataTuple(7, 3));
+		assertEquals(0, recorder.tuples.size());
+		bolt.execute(getDataTuple(7, 4));
+		//the full batch of task 7 leaves, the object of task 8 waits
+		assertEquals(1, recorder.tuples.size());
+		assertEquals(Integer.valueOf(7), recorder.tasks.get(0));
+		assertEquals(SpatioTextualConstants.getIndexBoltDataStreamId(EVALUATOR_ID), recorder.streams.get(0));
+		assertEquals(Arrays.asList(1, 3, 4), getBatchObjectIds(recorder, 0));
+		bolt.execute(getDataTuple(7, 5));
+		assertEquals(1, recorder.tuples.size());
+	}
+
+	@Test
+	public void testDataBatchFlushOnLatency() {
+		RecordingCollector recorder = new RecordingCollector();
+		BatchingGlobalIndexBolt bolt = new BatchingGlobalIndexBolt(recorder, 32, 1000);
+		bolt.execute(getDataTuple(7, 1));
+		bolt.execute(getDataTuple(7, 2));
+		bolt.execute(getDataTuple(8, 3));
+		assertEquals(0, recorder.tuples.size());
+		bolt.age(1000);
+		//the first tuple after the oldest object waited the latency sends every batch
+		bolt.execute(getDataTuple(8, 4));
+		assertEquals(2, recorder.tuples.size());
+		for (int i = 0; i < 2; i++)
+			if (recorder.tasks.get(i) == 7)
+				assertEquals(Arrays.asList(1, 2), getBatchObjectIds(recorder, i));
+			else
+				assertEquals(Arrays.asList(3, 4), getBatchObjectIds(recorder, i));
+		bolt.execute(getDataTuple(8, 5));
+		assertEquals(2, recorder.tuples.size());
+	}
+
+	@Test
+	public void testDataBatchFlushOnTickAndQuery() {
+		RecordingCollector recorder = new RecordingCollector();
+		BatchingGlobalIndexBolt bolt = new BatchingGlobalIndexBolt(recorder, 32, HOUR);
+		bolt.execute(getDataTuple(7, 1));
+		bolt.execute(getDataTuple(7, 2));
+		bolt.execute(getTickTuple());
+		assertEquals(1, recorder.tuples.size());
+		assertEquals(Arrays.asList(1, 2), getBatchObjectIds(recorder, 0));
+		//nothing is pending at the next tick
+		bolt.execute(getTickTuple());
+		assertEquals(1, recorder.tuples.size());
+		//the evaluator sees the objects received before a query first
+		bolt.execute(getDataTuple(7, 3));
+		bolt.execute(getTuple(QUERY_SOURCE, SpatioTextualConstants.Default));
+		assertEquals(2, bolt.emittedBeforeQuery);
+		assertEquals(Arrays.asList(3), getBatchObjectIds(recorder, 1));
+	}
+}
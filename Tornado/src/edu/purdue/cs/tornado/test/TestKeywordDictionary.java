@@ -0,0 +1,72 @@
+package edu.purdue.cs.tornado.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import edu.purdue.cs.tornado.helper.KeywordDictionary;
+import edu.purdue.cs.tornado.helper.SpatioTextualConstants;
+
+public class TestKeywordDictionary {
+
+	private static ArrayList<String> getKeywords(String... keywords) {
+		return new ArrayList<String>(Arrays.asList(keywords));
+	}
+
+	@Test
+	public void testSharedTermsFile() {
+		KeywordDictionary dictionary = new KeywordDictionary(SpatioTextualConstants.KEYWORD_DICTIONARY_FILE, KeywordDictionary.DEFAULT_MAX_LOCAL_TERMS);
+		assertTrue(dictionary.getSharedTermCount() > 0);
+		int pizza = dictionary.getTermId("pizza");
+		assertTrue(dictionary.isShared(pizza));
+		assertEquals("pizza", dictionary.getTerm(pizza));
+		//the shared ids are the same in every worker
+		KeywordDictionary other = new KeywordDictionary(SpatioTextualConstants.KEYWORD_DICTIONARY_FILE, KeywordDictionary.DEFAULT_MAX_LOCAL_TERMS);
+		other.getOrAddTermId("notasharedkeyword");
+		assertEquals(pizza, other.getTermId("pizza"));
+		assertFalse(other.isShared(other.getTermId("notasharedkeyword")));
+	}
+
+	@Test
+	public void testLocalTermsAreBounded() {
+		int maxLocalTerms = 256;
+		KeywordDictionary dictionary = new KeywordDictionary(null, maxLocalTerms);
+		int[] first = dictionary.encode(getKeywords("pizza", "coffee"));
+		assertTrue(dictionary.isCurrent(first));
+		for (int i = 0; i < maxLocalTerms; i++)
+			dictionary.getOrAddTermId("term" + i);
+		//pizza and coffee were dropped with the first generation
+		assertEquals(1, dictionary.getGeneration());
+		assertTrue(dictionary.size() <= maxLocalTerms);
+		assertFalse(dictionary.isCurrent(first));
+		assertEquals(-1, dictionary.getTermId("pizza"));
+		assertNull(dictionary.getTerm(first[0]));
+		//ids are not reused, an array of the old generation does not match the new ids
+		int[] second = dictionary.encode(getKeywords("pizza", "coffee"));
+		assertTrue(dictionary.isCurrent(second));
+		for (int id : second)
+			assertTrue(Arrays.binarySearch(first, id) < 0);
+		assertEquals(getKeywords("pizza", "coffee"), dictionary.decode(second));
+	}
+
+	@Test
+	public void testEncodedIdsShareAGeneration() {
+		int maxLocalTerms = 256;
+		KeywordDictionary dictionary = new KeywordDictionary(null, maxLocalTerms);
+		for (int i = 0; i < maxLocalTerms; i++)
+			dictionary.getOrAddTermId("term" + i);
+		//the second keyword starts a new generation, the first one is encoded again
+		int[] ids = dictionary.encode(getKeywords("term0", "pizza"));
+		assertEquals(1, dictionary.getGeneration());
+		assertEquals(2, ids.length);
+		assertTrue(Arrays.binarySearch(ids, dictionary.getTermId("term0")) >= 0);
+		assertTrue(Arrays.binarySearch(ids, dictionary.getTermId("pizza")) >= 0);
+		assertTrue(dictionary.isCurrent(ids));
+	}
+}
@@ -0,0 +1,96 @@
+package edu.purdue.cs.tornado.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.purdue.cs.tornado.helper.KeywordSketchStatistics;
+
+public class TestKeywordSketchStatistics {
+
+	@Test
+	public void testCountsAndRarestKeyword() {
+		KeywordSketchStatistics statistics = new KeywordSketchStatistics(4, 1 << 12, 16, 0);
+		statistics.addQueryCount("pizza", 5);
+		statistics.addQueryCount("delivery", 2);
+		statistics.addQueryCount("brooklyn", 1);
+		assertEquals(5, statistics.getQueryCount("pizza"));
+		assertEquals(0, statistics.getQueryCount("unseen"));
+		assertEquals("brooklyn", statistics.getRarestKeyword(Arrays.asList("pizza", "delivery", "brooklyn")));
+		statistics.addQueryCount("pizza", -5);
+		assertEquals(0, statistics.getQueryCount("pizza"));
+		assertEquals("pizza", statistics.getRarestKeyword(Arrays.asList("delivery", "pizza")));
+	}
+
+	@Test
+	public void testNeverUnderEstimatesAndKeepsHeavyHitters() {
+		KeywordSketchStatistics statistics = new KeywordSketchStatistics(4, 1 << 10, 32, 0);
+		Random random = new Random(1000);
+		int[] trueCounts = new int[20000];
+		for (int i = 0; i < 200000; i++) {
+			//skewed keyword popularity, keyword 0 is the most frequent
+			int keyword = (int) Math.min(trueCounts.length - 1, Math.abs(random.nextGaussian()) * Math.abs(random.nextGaussian()) * 50);
+			trueCounts[keyword]++;
+			statistics.addQueryCount("k" + keyword, 1);
+		}
+		for (int keyword = 0; keyword < trueCounts.length; keyword++)
+			assertTrue(statistics.getQueryCount("k" + keyword) >= trueCounts[keyword]);
+		ArrayList<String> frequentKeywords = statistics.getFrequentKeywords();
+		for (int keyword = 0; keyword < 5; keyword++)
+			assertTrue(frequentKeywords.contains("k" + keyword));
+	}
+
+	@Test
+	public void testDecayHalvesCounts() {
+		KeywordSketchStatistics statistics = new KeywordSketchStatistics(4, 1 << 12, 16, 4);
+		statistics.addQueryCount("pizza", 8);
+		statistics.addQueryCount("pizza", 8);
+		statistics.addQueryCount("pizza", 8);
+		assertEquals(24, statistics.getQueryCount("pizza"));
+		statistics.addQueryCount("pizza", 8);
+		assertEquals(16, statistics.getQueryCount("pizza"));
+	}
+
+	@Test
+	public void testStreamSummaryKeepsTheMinimum() {
+		KeywordSketchStatistics statistics = new KeywordSketchStatistics(4, 1 << 8, 16, 50);
+		Random random = new Random(7);
+		int[] deltas = { 1, 1, 1, 3, -1, -2 };
+		for (int i = 0; i < 20000; i++) {
+			statistics.addQueryCount("k" + (int) Math.abs(random.nextGaussian() * 20), deltas[random.nextInt(deltas.length)]);
+			HashMap<String, Integer> topKeywordCounts = statistics.getTopKeywordCounts();
+			assertTrue(topKeywordCounts.size() <= 16);
+			int minCount = Integer.MAX_VALUE;
+			for (int count : topKeywordCounts.values()) {
+				assertTrue(count > 0);
+				minCount = Math.min(minCount, count);
+			}
+			if (topKeywordCounts.size() == 16)
+				assertEquals(minCount, statistics.getMinimumFrequentCount());
+			else
+				assertEquals(0, statistics.getMinimumFrequentCount());
+			for (String keyword : topKeywordCounts.keySet())
+				assertTrue(statistics.getQueryCount(keyword) <= topKeywordCounts.get(keyword));
+		}
+	}
+
+	@Test
+	public void testRestoredTopKeywords() {
+		KeywordSketchStatistics statistics = new KeywordSketchStatistics(4, 1 << 12, 4, 0);
+		for (int i = 1; i <= 6; i++)
+			statistics.addQueryCount("k" + i, i * 10);
+		KeywordSketchStatistics restored = new KeywordSketchStatistics(statistics.getCounts(), statistics.getTopKeywordCounts(), 4, 0, 0);
+		assertEquals(statistics.getTopKeywordCounts(), restored.getTopKeywordCounts());
+		assertEquals(statistics.getMinimumFrequentCount(), restored.getMinimumFrequentCount());
+		//the minimum counter is replaced by a keyword the sketch counts as more frequent
+		restored.addQueryCount("k100", 100);
+		assertTrue(restored.getFrequentKeywords().contains("k100"));
+		assertEquals(4, restored.getFrequentKeywords().size());
+	}
+}
@@ -0,0 +1,32 @@
+package edu.purdue.cs.tornado.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+
+import org.junit.Test;
+
+import edu.purdue.cs.tornado.helper.TextHelpers;
+
+public class TestKeywordTokenizer {
+	static String tweetsFilePath = "datasources/twitterdata.csv";
+
+	@Test
+	public void testMatchesRegexTokenizerOnEdgeCases() throws Exception {
+		String[] texts = { "", "   ", "Zoo apple ZOO Apple zoo", "http://t.co/abc foohttp HTTPfoo", "a_b c.d e@f @g h:i", "café naïve straße",
+				"The THE the retweet RETWEET", "b4 2moro 2NITE", "abcdefghijklmnop abcdefghijklmn abcdefghijklmno", "pizza,delivery;pizza!!DELIVERY" };
+		for (String text : texts)
+			assertEquals(text, TextHelpers.transformIntoSortedArrayListOfStringRegex(text), TextHelpers.transformIntoSortedArrayListOfString(text));
+	}
+
+	@Test
+	public void testMatchesRegexTokenizerOnTweets() throws Exception {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(tweetsFilePath), "UTF-8"));
+		String tweet;
+		while ((tweet = reader.readLine()) != null)
+			assertEquals(tweet, TextHelpers.transformIntoSortedArrayListOfStringRegex(tweet), TextHelpers.transformIntoSortedArrayListOfString(tweet));
+		reader.close();
+	}
+}
@@ -0,0 +1,82 @@
+package edu.purdue.cs.tornado.test;
+
+import static edu.purdue.cs.tornado.test.MessageFixtures.getDataObject;
+import static edu.purdue.cs.tornado.test.MessageFixtures.getQuery;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.purdue.cs.tornado.helper.DataSourceType;
+import edu.purdue.cs.tornado.helper.IndexCellCoordinates;
+import edu.purdue.cs.tornado.helper.Point;
+import edu.purdue.cs.tornado.helper.Rectangle;
+import edu.purdue.cs.tornado.helper.SpatioTextualConstants;
+import edu.purdue.cs.tornado.index.DataSourceInformation;
+import edu.purdue.cs.tornado.index.local.LocalIndexType;
+import edu.purdue.cs.tornado.index.local.hybridgrid.LocalHybridGridIndex;
+import edu.purdue.cs.tornado.messages.Query;
+
+public class TestLocalHybridGridIndex {
+	//covers the four cells around (100, 100)
+	private static final Rectangle QUERY_RANGE = new Rectangle(new Point(50, 50), new Point(150, 150));
+
+	private static LocalHybridGridIndex getGridIndex() {
+		DataSourceInformation dataSourceInformation = new DataSourceInformation(new Rectangle(new Point(0, 0), new Point(10000, 10000)), "Tweets", DataSourceType.DATA_SOURCE,
+				SpatioTextualConstants.persistentPersistenceState, SpatioTextualConstants.CLEAN, true, LocalIndexType.HYBRID_GRID, 100);
+		return (LocalHybridGridIndex) dataSourceInformation.getLocalHybridIndex();
+	}
+
+	private static ArrayList<Integer> match(LocalHybridGridIndex gridIndex, double x, double y, String text) {
+		ArrayList<Integer> queryIds = new ArrayList<Integer>();
+		for (List<Query> queries : gridIndex.getReleventSpatialKeywordRangeQueries(getDataObject(1, x, y, text), false))
+			for (Query query : queries)
+				queryIds.add(query.getQueryId());
+		Collections.sort(queryIds);
+		return queryIds;
+	}
+
+	@Test
+	public void testCleanUpRemovesExpiredQueries() {
+		LocalHybridGridIndex gridIndex = getGridIndex();
+		long now = System.currentTimeMillis();
+		gridIndex.addContinousQuery(getQuery(1, now - 1, QUERY_RANGE, "pizza"));
+		gridIndex.addContinousQuery(getQuery(2, now + 3600000, QUERY_RANGE, "pizza"));
+		//an updated query must not be removed when its previous version expires
+		Query previous = getQuery(3, now - 1, QUERY_RANGE, "coffee");
+		gridIndex.addContinousQuery(previous);
+		gridIndex.updateContinousQuery(getQuery(3, now - 1, QUERY_RANGE, "coffee"), getQuery(3, Long.MAX_VALUE, QUERY_RANGE, "coffee"));
+		//a dropped query is skipped when it expires
+		gridIndex.addContinousQuery(getQuery(4, now - 1, QUERY_RANGE, "hotel"));
+		gridIndex.dropContinousQuery(getQuery(4, now - 1, QUERY_RANGE, "hotel"));
+		assertEquals(Arrays.asList(1, 2, 3), match(gridIndex, 120, 120, "pizza coffee"));
+
+		gridIndex.cleanUp();
+		assertEquals(Arrays.asList(2, 3), match(gridIndex, 120, 120, "pizza coffee"));
+		assertEquals(Arrays.asList(2, 3), match(gridIndex, 60, 60, "pizza coffee"));
+		assertEquals(1, gridIndex.expiryWheel.size());
+		//the dropped query left the text summary
+		assertEquals(new HashSet<String>(Arrays.asList("pizza", "coffee")), gridIndex.getUpdatedTextSummery());
+		//the expired query is purged from the cells
+		for (int x = 0; x <= 1; x++)
+			for (int y = 0; y <= 1; y++)
+				assertEquals(2, gridIndex.getIndexCellFromCoordinates(new IndexCellCoordinates(x, y)).getStoredQueries().size());
+	}
+
+	@Test
+	public void testExpiredQueriesArePurgedInBulk() {
+		LocalHybridGridIndex gridIndex = getGridIndex();
+		long now = System.currentTimeMillis();
+		for (int i = 0; i < 100; i++)
+			gridIndex.addContinousQuery(getQuery(i, i < 60 ? now - 1 : now + 3600000, QUERY_RANGE, "pizza"));
+		gridIndex.cleanUp();
+		assertEquals(40, gridIndex.expiryWheel.size());
+		assertEquals(40, match(gridIndex, 120, 120, "pizza").size());
+		assertEquals(40, gridIndex.getIndexCellFromCoordinates(new IndexCellCoordinates(1, 1)).getStoredQueries().size());
+	}
+}
@@ -0,0 +1,101 @@
+package edu.purdue.cs.tornado.test;
+
+import static edu.purdue.cs.tornado.test.MessageFixtures.getQuery;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import edu.purdue.cs.tornado.helper.QueryTimingWheel;
+import edu.purdue.cs.tornado.messages.Query;
+
+public class TestQueryTimingWheel {
+
+	private static ArrayList<Integer> getQueryIds(List<Query> queries) {
+		ArrayList<Integer> queryIds = new ArrayList<Integer>();
+		for (Query query : queries)
+			queryIds.add(query.getQueryId());
+		Collections.sort(queryIds);
+		return queryIds;
+	}
+
+	@Test
+	public void testExpiresAfterRemoveTime() {
+		QueryTimingWheel wheel = new QueryTimingWheel(100);
+		wheel.add(getQuery(1, 100));
+		wheel.add(getQuery(2, 163));
+		wheel.add(getQuery(3, 164));
+		wheel.add(getQuery(4, 5000));
+		wheel.add(getQuery(5, 1L << 40));
+		wheel.add(getQuery(6, Long.MAX_VALUE - 1));
+		assertEquals(6, wheel.size());
+		assertTrue(wheel.advance(100).isEmpty());
+		//a query expires at the first time above its remove time
+		assertEquals(Collections.singletonList(1), getQueryIds(wheel.advance(101)));
+		assertEquals(Collections.singletonList(2), getQueryIds(wheel.advance(164)));
+		assertEquals(Collections.singletonList(3), getQueryIds(wheel.advance(4000)));
+		assertEquals(Collections.singletonList(4), getQueryIds(wheel.advance(1L << 39)));
+		assertEquals(Arrays.asList(5, 6), getQueryIds(wheel.advance(Long.MAX_VALUE)));
+		assertTrue(wheel.isEmpty());
+		assertEquals(Long.MAX_VALUE, wheel.getTime());
+	}
+
+	@Test
+	public void testRemoveTimeChanges() {
+		QueryTimingWheel wheel = new QueryTimingWheel();
+		Query extended = getQuery(1, 10);
+		Query unbounded = getQuery(2, 10);
+		assertTrue(wheel.add(extended));
+		assertTrue(wheel.add(unbounded));
+		//queries that never expire are not added
+		assertFalse(wheel.add(getQuery(3, Long.MAX_VALUE)));
+		extended.setRemoveTime(1000L);
+		unbounded.setRemoveTime(Long.MAX_VALUE);
+		assertTrue(wheel.advance(500).isEmpty());
+		assertEquals(1, wheel.size());
+		assertEquals(Collections.singletonList(1), getQueryIds(wheel.advance(1001)));
+		//a query added after its remove time is returned by the next advance
+		wheel.add(getQuery(4, 20));
+		assertEquals(Collections.singletonList(4), getQueryIds(wheel.advance(1001)));
+		assertTrue(wheel.isEmpty());
+	}
+
+	@Test
+	public void testMatchesScan() {
+		Random random = new Random(3);
+		long[] lifetimes = { 10, 1000, 100000, 1L << 40 };
+		long[] steps = { 1, 70, 5000, 1L << 30 };
+		for (int run = 0; run < 50; run++) {
+			long now = random.nextInt(3) == 0 ? 0 : random.nextLong() >>> 4;
+			QueryTimingWheel wheel = new QueryTimingWheel(now);
+			ArrayList<Query> waiting = new ArrayList<Query>();
+			for (int step = 0; step < 1000; step++) {
+				if (random.nextInt(10) < 6) {
+					Query query = getQuery(step, now - 5 + (long) (random.nextDouble() * lifetimes[random.nextInt(lifetimes.length)]));
+					wheel.add(query);
+					waiting.add(query);
+					continue;
+				}
+				now += (long) (random.nextDouble() * steps[random.nextInt(steps.length)]);
+				Set<Query> expired = Collections.newSetFromMap(new IdentityHashMap<Query, Boolean>());
+				for (Query query : waiting)
+					if (query.getRemoveTime() < now)
+						expired.add(query);
+				List<Query> returned = wheel.advance(now);
+				assertEquals(expired.size(), returned.size());
+				assertTrue(expired.containsAll(returned));
+				waiting.removeAll(expired);
+				assertEquals(waiting.size(), wheel.size());
+			}
+		}
+	}
+}
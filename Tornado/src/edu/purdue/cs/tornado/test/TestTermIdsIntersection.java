@@ -0,0 +1,89 @@
+package edu.purdue.cs.tornado.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.purdue.cs.tornado.helper.KeywordDictionary;
+import edu.purdue.cs.tornado.helper.TermIdsIntersection;
+
+public class TestTermIdsIntersection {
+
+	private static int[] getTermIds(Random random, int size, int maxTermId) {
+		int[] termIds = new int[size];
+		for (int i = 0; i < size; i++)
+			termIds[i] = random.nextInt(maxTermId);
+		return KeywordDictionary.sortDistinct(termIds, size);
+	}
+
+	private static HashSet<Integer> getSet(int[] termIds) {
+		HashSet<Integer> set = new HashSet<Integer>();
+		for (int termId : termIds)
+			set.add(termId);
+		return set;
+	}
+
+	private static boolean containsAll(int[] container, int[] subset) {
+		return getSet(container).containsAll(getSet(subset));
+	}
+
+	private static boolean overlapsAny(int[] termIds1, int[] termIds2) {
+		HashSet<Integer> set = getSet(termIds1);
+		for (int termId : termIds2)
+			if (set.contains(termId))
+				return true;
+		return false;
+	}
+
+	@Test
+	public void testKernelsAgree() {
+		Random random = new Random(42);
+		int[] sizes = { 0, 1, 2, 3, 5, 8, 12, 13, 20, 48, 64, 200 };
+		for (int round = 0; round < 20; round++)
+			for (int n : sizes)
+				for (int m : sizes) {
+					//a small term universe makes shared terms and full containment likely
+					int maxTermId = 1 + random.nextInt(Math.max(1, 2 * (n + m)));
+					int[] container = getTermIds(random, n, maxTermId);
+					int[] subset = getTermIds(random, m, maxTermId);
+					if (round % 4 == 0 && container.length > 0) {
+						//a subset that is really contained, including the first and the last term
+						subset = new int[] { container[0], container[container.length - 1] };
+						subset = KeywordDictionary.sortDistinct(subset, subset.length);
+					}
+					boolean contains = containsAll(container, subset);
+					assertEquals(contains, TermIdsIntersection.containsMerge(container, subset));
+					assertEquals(contains, TermIdsIntersection.containsGallop(container, subset));
+					assertEquals(contains, TermIdsIntersection.containsSmall(container, subset));
+					assertEquals(contains, TermIdsIntersection.contains(container, subset));
+					boolean overlaps = overlapsAny(container, subset);
+					int[] shorter = container.length <= subset.length ? container : subset;
+					int[] longer = shorter == container ? subset : container;
+					assertEquals(overlaps, TermIdsIntersection.overlapsMerge(container, subset));
+					assertEquals(overlaps, TermIdsIntersection.overlapsGallop(shorter, longer));
+					assertEquals(overlaps, TermIdsIntersection.overlapsSmall(container, subset));
+					assertEquals(overlaps, TermIdsIntersection.overlaps(container, subset));
+					assertEquals(overlaps, TermIdsIntersection.overlaps(subset, container));
+				}
+	}
+
+	@Test
+	public void testGallopOverLongArrays() {
+		int[] container = new int[1000];
+		for (int i = 0; i < container.length; i++)
+			container[i] = i * 2;
+		//the dispatch gallops when the container is much longer than the subset
+		assertTrue(TermIdsIntersection.contains(container, new int[] { 0, 1000, 1998 }));
+		assertFalse(TermIdsIntersection.contains(container, new int[] { 0, 1001 }));
+		assertFalse(TermIdsIntersection.contains(container, new int[] { 1998, 2000 }));
+		assertTrue(TermIdsIntersection.overlaps(new int[] { -1, 1998 }, container));
+		assertFalse(TermIdsIntersection.overlaps(new int[] { -1, 999, 1999, Integer.MAX_VALUE }, container));
+		assertTrue(TermIdsIntersection.contains(container, new int[0]));
+		assertFalse(TermIdsIntersection.overlaps(new int[0], container));
+	}
+}
@@ -0,0 +1,53 @@
+package edu.purdue.cs.tornado.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import edu.purdue.cs.tornado.helper.TextHelpers;
+import edu.purdue.cs.tornado.helper.TokenizationCache;
+
+public class TestTokenizationCache {
+
+	@Test
+	public void testSameKeywordsAsTokenizer() {
+		TokenizationCache cache = new TokenizationCache(16);
+		String[] texts = { "RT @purdue: Pizza in West Lafayette tonight http://t.co/x", "pizza pizza PIZZA", "", "the a an" };
+		for (String text : texts) {
+			ArrayList<String> expected = TextHelpers.transformIntoSortedArrayListOfString(text);
+			assertEquals(expected, cache.getKeywordList(text));
+			assertEquals(expected, cache.getKeywordList(text));
+		}
+		assertEquals(texts.length, cache.getHits());
+		assertEquals(texts.length, cache.getMisses());
+		assertEquals(0.5, cache.getHitRate(), 0.0);
+	}
+
+	@Test
+	public void testSharedKeywordsAndLruEviction() {
+		TokenizationCache cache = new TokenizationCache(2);
+		String[] first = cache.getKeywords("storm spout bolt");
+		assertSame(first, cache.getKeywords("storm spout bolt"));
+		cache.getKeywords("kryo serializer");
+		cache.getKeywords("storm spout bolt");//most recently used now
+		cache.getKeywords("spatial keyword query");//evicts kryo serializer
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictions());
+		assertSame(first, cache.getKeywords("storm spout bolt"));
+		long misses = cache.getMisses();
+		assertArrayEquals(new String[] { "kryo", "serializer" }, cache.getKeywords("kryo serializer"));
+		assertEquals(misses + 1, cache.getMisses());
+	}
+
+	@Test
+	public void testKeywordListIsShared() {
+		TokenizationCache cache = new TokenizationCache(4);
+		ArrayList<String> keywords = cache.getKeywordList("storm spout bolt");
+		assertSame(keywords, cache.getKeywordList("storm spout bolt"));
+		assertArrayEquals(cache.getKeywords("storm spout bolt"), keywords.toArray());
+	}
+}
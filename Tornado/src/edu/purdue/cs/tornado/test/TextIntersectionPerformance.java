@@ -0,0 +1,156 @@
+package edu.purdue.cs.tornado.test;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Stopwatch;
+
+import edu.purdue.cs.tornado.helper.KeywordDictionary;
+import edu.purdue.cs.tornado.helper.TermIdsIntersection;
+import edu.purdue.cs.tornado.helper.TextHelpers;
+
+/**
+ * Measures the CONTAINS and OVERLAPS intersection kernels of TermIdsIntersection
+ * on the keyword length distribution of the tweets file to find the crossover
+ * points used for TermIdsIntersection.SMALL_SIZE and GALLOP_RATIO.
+ * Prints one csv line per (object keyword count, query keyword count) pair
+ * with the nano seconds per evaluation of every kernel and the number of matches.
+ */
+public class TextIntersectionPerformance {
+	public static String tweetsFilePath = "datasources/twitterdata.csv";
+	public static int maxQueryKeywords = 5;
+	public static int evaluationsPerPair = 2000000;
+	public static int warmupRounds = 2;
+
+	interface Kernel {
+		boolean evaluate(int[] objectTerms, int[] queryTerms);
+	}
+
+	static Kernel[] containsKernels = new Kernel[] { new Kernel() {
+		public boolean evaluate(int[] objectTerms, int[] queryTerms) {
+			return TermIdsIntersection.containsMerge(objectTerms, queryTerms);
+		}
+	}, new Kernel() {
+		public boolean evaluate(int[] objectTerms, int[] queryTerms) {
+			return TermIdsIntersection.containsGallop(objectTerms, queryTerms);
+		}
+	}, new Kernel() {
+		public boolean evaluate(int[] objectTerms, int[] queryTerms) {
+			return TermIdsIntersection.containsSmall(objectTerms, queryTerms);
+		}
+	}, new Kernel() {
+		public boolean evaluate(int[] objectTerms, int[] queryTerms) {
+			return TermIdsIntersection.contains(objectTerms, queryTerms);
+		}
+	} };
+	static Kernel[] overlapsKernels = new Kernel[] { new Kernel() {
+		public boolean evaluate(int[] objectTerms, int[] queryTerms) {
+			return TermIdsIntersection.overlapsMerge(queryTerms, objectTerms);
+		}
+	}, new Kernel() {
+		public boolean evaluate(int[] objectTerms, int[] queryTerms) {
+			return queryTerms.length <= objectTerms.length ? TermIdsIntersection.overlapsGallop(queryTerms, objectTerms) : TermIdsIntersection.overlapsGallop(objectTerms, queryTerms);
+		}
+	}, new Kernel() {
+		public boolean evaluate(int[] objectTerms, int[] queryTerms) {
+			return TermIdsIntersection.overlapsSmall(queryTerms, objectTerms);
+		}
+	}, new Kernel() {
+		public boolean evaluate(int[] objectTerms, int[] queryTerms) {
+			return TermIdsIntersection.overlaps(objectTerms, queryTerms);
+		}
+	} };
+
+	public static void main(String[] args) throws IOException {
+		if (args.length > 0)
+			tweetsFilePath = args[0];
+		KeywordDictionary dictionary = new KeywordDictionary();
+		ArrayList<int[]> objects = readTweets(dictionary);
+		int maxObjectKeywords = 0;
+		for (int[] terms : objects)
+			maxObjectKeywords = Math.max(maxObjectKeywords, terms.length);
+		int[] histogram = new int[maxObjectKeywords + 1];
+		for (int[] terms : objects)
+			histogram[terms.length]++;
+		System.out.println("Object keyword count distribution");
+		for (int i = 0; i <= maxObjectKeywords; i++)
+			System.out.println(i + "," + histogram[i]);
+
+		Random random = new Random(1000);
+		System.out.println("predicate,object keywords,query keywords,merge,gallop,small,adaptive,matches");
+		for (int round = 0; round <= warmupRounds; round++) {
+			boolean print = round == warmupRounds;
+			for (int objectKeywords = 1; objectKeywords <= maxObjectKeywords; objectKeywords++) {
+				if (histogram[objectKeywords] == 0)
+					continue;
+				ArrayList<int[]> sameSizeObjects = new ArrayList<int[]>();
+				for (int[] terms : objects)
+					if (terms.length == objectKeywords)
+						sameSizeObjects.add(terms);
+				for (int queryKeywords = 1; queryKeywords <= maxQueryKeywords; queryKeywords++) {
+					int[][] queries = buildQueries(objects, queryKeywords, random);
+					measure("CONTAINS", containsKernels, sameSizeObjects, queries, print);
+					measure("OVERLAPS", overlapsKernels, sameSizeObjects, queries, print);
+				}
+			}
+		}
+	}
+
+	static void measure(String predicate, Kernel[] kernels, ArrayList<int[]> objects, int[][] queries, boolean print) {
+		StringBuilder line = new StringBuilder(predicate + "," + objects.get(0).length + "," + queries[0].length);
+		int matches = 0;
+		int evaluations = print ? evaluationsPerPair : evaluationsPerPair / 10;
+		for (Kernel kernel : kernels) {
+			Stopwatch stopwatch = Stopwatch.createStarted();
+			for (int i = 0; i < evaluations; i++) {
+				if (kernel.evaluate(objects.get(i % objects.size()), queries[i % queries.length]))
+					matches++;
+			}
+			line.append(",").append(String.format("%.2f", stopwatch.elapsed(TimeUnit.NANOSECONDS) / (double) evaluations));
+		}
+		//printing the matches keeps the evaluations from being optimized away
+		line.append(",").append(matches);
+		if (print)
+			System.out.println(line);
+	}
+
+	/**
+	 * Queries use keywords of random tweets so some of them are matched
+	 */
+	static int[][] buildQueries(ArrayList<int[]> objects, int queryKeywords, Random random) {
+		int[][] queries = new int[1024][];
+		for (int i = 0; i < queries.length; i++) {
+			int[] query = new int[queryKeywords];
+			for (int j = 0; j < queryKeywords; j++) {
+				int[] terms = objects.get(random.nextInt(objects.size()));
+				query[j] = terms[random.nextInt(terms.length)];
+			}
+			queries[i] = KeywordDictionary.sortDistinct(query, query.length);
+		}
+		return queries;
+	}
+
+	static ArrayList<int[]> readTweets(KeywordDictionary dictionary) throws IOException {
+		ArrayList<int[]> objects = new ArrayList<int[]>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(tweetsFilePath), "UTF-8"));
+		String tweet;
+		while ((tweet = reader.readLine()) != null) {
+			String[] tweetParts = tweet.split(",");
+			if (tweetParts.length < 6)
+				continue;
+			StringBuilder textContent = new StringBuilder();
+			for (int i = 5; i < tweetParts.length; i++)
+				textContent.append(tweetParts[i]).append(" ");
+			int[] terms = dictionary.encode(TextHelpers.transformIntoSortedArrayListOfString(textContent.toString()));
+			if (terms.length > 0)
+				objects.add(terms);
+		}
+		reader.close();
+		return objects;
+	}
+}